@@ -0,0 +1,67 @@
+package com.example.shop.benchmark;
+
+import com.example.shop.controller.CartController;
+import com.example.shop.controller.OrderController;
+import com.example.shop.vo.CartItemDTO;
+import com.example.shop.vo.OrderDetailVO;
+import com.example.shop.vo.PageResultVO;
+import com.example.shop.vo.Result;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 列表组装基准测试：购物车分页（CartItemDTO组装）、订单分页（订单详情组装）
+ * 直接调用Controller方法，包含账号查询、分页查询、商品/订单项目批量加载与组装，不包含HTTP和JSON序列化
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AssemblyBenchmark {
+
+    @Param({"10", "20"})
+    private int pageSize;
+
+    @Param({"true", "false"})
+    private boolean withTotal;
+
+    private ConfigurableApplicationContext context;
+    private CartController cartController;
+    private OrderController orderController;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start();
+        cartController = context.getBean(CartController.class);
+        orderController = context.getBean(OrderController.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Result<PageResultVO<CartItemDTO>> cartListPage() {
+        return cartController.getCartListByAccountWithPage(randomAccount(), 1, pageSize, null, withTotal);
+    }
+
+    @Benchmark
+    public Result<PageResultVO<OrderDetailVO>> orderPage() {
+        return orderController.getOrderPage(randomAccount(), 1, pageSize, null, withTotal);
+    }
+
+    private static String randomAccount() {
+        return "user" + ThreadLocalRandom.current().nextInt(1, 1001);
+    }
+}
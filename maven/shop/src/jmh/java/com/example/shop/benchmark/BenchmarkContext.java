@@ -0,0 +1,53 @@
+package com.example.shop.benchmark;
+
+import com.example.shop.ShopApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 基准测试用Spring上下文
+ * 连接内存H2数据库（MySQL兼容模式），启动时执行 bench/schema.sql、bench/data.sql 建表灌数据；
+ * 不启动Web服务器，Controller/Service/Mapper与线上使用同一套Bean和SQL
+ */
+final class BenchmarkContext {
+
+    private static final AtomicInteger DB_SEQ = new AtomicInteger();
+
+    private BenchmarkContext() {
+    }
+
+    /**
+     * 启动上下文（每次使用独立的内存库，互不影响）
+     *
+     * @param extraProperties 额外配置（key=value），覆盖默认配置，用于对比不同开关
+     * @return Spring上下文（由调用方在@TearDown中关闭）
+     */
+    static ConfigurableApplicationContext start(String... extraProperties) {
+        String url = "jdbc:h2:mem:shop_bench_" + DB_SEQ.incrementAndGet()
+                + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1";
+        List<String> properties = new ArrayList<>(List.of(
+                "spring.datasource.url=" + url,
+                "spring.datasource.driver-class-name=org.h2.Driver",
+                "spring.datasource.username=sa",
+                "spring.datasource.password=",
+                "spring.sql.init.mode=always",
+                "spring.sql.init.schema-locations=classpath:bench/schema.sql",
+                "spring.sql.init.data-locations=classpath:bench/data.sql",
+                "spring.sql.init.encoding=UTF-8",
+                "upload.path=target/bench-uploads/products/",
+                "logging.level.root=WARN",
+                "logging.level.com.example.shop=WARN",
+                "logging.level.org.springframework.mail=WARN"));
+        properties.addAll(Arrays.asList(extraProperties));
+        // 以命令行参数传入，优先级高于application.properties
+        return new SpringApplicationBuilder(ShopApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(properties.stream().map(property -> "--" + property).toArray(String[]::new));
+    }
+}
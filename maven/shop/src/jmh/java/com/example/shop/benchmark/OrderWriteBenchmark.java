@@ -0,0 +1,91 @@
+package com.example.shop.benchmark;
+
+import com.example.shop.entity.OrderItem;
+import com.example.shop.entity.OrderMain;
+import com.example.shop.id.OrderNoGenerator;
+import com.example.shop.service.OrderItemService;
+import com.example.shop.service.OrderMainService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 下单写路径基准测试：订单号生成、订单主表插入、订单项目批量插入
+ * （订单号原由 OrderMainService.generateOrderNo 生成，已替换为 OrderNoGenerator）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class OrderWriteBenchmark {
+
+    private ConfigurableApplicationContext context;
+    private OrderNoGenerator orderNoGenerator;
+    private OrderMainService orderMainService;
+    private OrderItemService orderItemService;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start();
+        orderNoGenerator = context.getBean(OrderNoGenerator.class);
+        orderMainService = context.getBean(OrderMainService.class);
+        orderItemService = context.getBean(OrderItemService.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public String nextOrderNo() {
+        return orderNoGenerator.nextOrderNo();
+    }
+
+    @Benchmark
+    public OrderMain addOrderMain() {
+        return orderMainService.addOrderMain(ThreadLocalRandom.current().nextLong(1, 1001));
+    }
+
+    @Benchmark
+    public List<OrderItem> batchAddOrderItem(ItemCount itemCount) {
+        List<OrderItem> items = newOrderItems(itemCount.value);
+        orderItemService.batchAddOrderItem(orderNoGenerator.nextOrderNo(), items);
+        return items;
+    }
+
+    /**
+     * 每单订单项目数（只作用于批量插入基准）
+     */
+    @State(Scope.Benchmark)
+    public static class ItemCount {
+        @Param({"1", "10", "100"})
+        private int value;
+    }
+
+    private static List<OrderItem> newOrderItems(int itemCount) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<OrderItem> items = new ArrayList<>(itemCount);
+        for (int i = 0; i < itemCount; i++) {
+            long productId = random.nextLong(1, 10001);
+            OrderItem item = new OrderItem();
+            item.setProductId(productId);
+            item.setQuantity(1);
+            // 与 bench/data.sql 中商品的商家分布一致
+            item.setMerchantId(productId % 100 + 1);
+            items.add(item);
+        }
+        return items;
+    }
+}
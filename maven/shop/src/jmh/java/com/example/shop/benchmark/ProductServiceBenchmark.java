@@ -0,0 +1,67 @@
+package com.example.shop.benchmark;
+
+import com.example.shop.entity.Product;
+import com.example.shop.service.ProductService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 商品查询/扣库存基准测试
+ * productCache 对比商品本地缓存开关，stockLedger 对比内存库存台账开关
+ * 热点商品范围 hotProducts 小于缓存容量时基本全部命中缓存
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ProductServiceBenchmark {
+
+    @Param({"true", "false"})
+    private boolean productCache;
+
+    @Param({"false", "true"})
+    private boolean stockLedger;
+
+    @Param({"1000"})
+    private int hotProducts;
+
+    private ConfigurableApplicationContext context;
+    private ProductService productService;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start(
+                "product.cache.enabled=" + productCache,
+                "stock.ledger.enabled=" + stockLedger);
+        productService = context.getBean(ProductService.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Product getProductById() {
+        return productService.getProductById(randomProductId());
+    }
+
+    @Benchmark
+    public Long decreaseStock() {
+        return productService.decreaseStock(randomProductId(), 1);
+    }
+
+    private long randomProductId() {
+        return ThreadLocalRandom.current().nextLong(1, hotProducts + 1);
+    }
+}
@@ -0,0 +1,204 @@
+package com.example.shop.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * 压测场景：按权重随机选择接口，多个客户端线程并发请求，按接口记录延迟（HdrHistogram，微秒）
+ */
+class LoadScenario {
+
+    static final String PRODUCT_DETAIL = "product-detail";
+    static final String PRODUCT_SEARCH = "product-search";
+    static final String CART_PAGE = "cart-page";
+    static final String CART_ADD = "cart-add";
+    static final String ORDER_PAGE = "order-page";
+    static final String ORDER_ADD = "order-add";
+
+    /**
+     * 一个被压测的接口及其统计
+     */
+    static class Endpoint {
+        private final String name;
+        private final int weight;
+        private final Function<ThreadLocalRandom, HttpRequest> requestFactory;
+        // 可并发写入的延迟记录器，取区间直方图时自动切换
+        private final Recorder recorder = new Recorder(3);
+        private final LongAdder errors = new LongAdder();
+
+        Endpoint(String name, int weight, Function<ThreadLocalRandom, HttpRequest> requestFactory) {
+            this.name = name;
+            this.weight = weight;
+            this.requestFactory = requestFactory;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        /**
+         * 取出并清空已记录的延迟
+         */
+        Histogram drainLatencies() {
+            return recorder.getIntervalHistogram();
+        }
+
+        /**
+         * 取出并清空失败数
+         */
+        long drainErrors() {
+            return errors.sumThenReset();
+        }
+    }
+
+    private final String baseUrl;
+    private final LoadTestOptions options;
+    private final HttpClient httpClient;
+    private final List<Endpoint> endpoints = new ArrayList<>();
+    private final int totalWeight;
+
+    LoadScenario(String baseUrl, LoadTestOptions options) {
+        this.baseUrl = baseUrl;
+        this.options = options;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+
+        Map<String, Integer> mix = options.getMix();
+        addEndpoint(PRODUCT_DETAIL, mix, random -> get("/api/product/productId?productId=" + randomProductId(random)));
+        addEndpoint(PRODUCT_SEARCH, mix, random -> get("/api/product/productName?pageNum=1&pageSize=8&name="
+                + encode(LoadTestDataSeeder.PRODUCT_NAME_PREFIX + (1 + random.nextInt(Math.max(1, options.getProducts() / 10))))));
+        addEndpoint(CART_PAGE, mix, random -> get("/api/cart/listpage?pageNo=1&pageSize=10&account=" + randomAccount(random)));
+        addEndpoint(CART_ADD, mix, random -> post("/api/cart/add?quantity=1&account=" + randomAccount(random)
+                + "&productId=" + randomProductId(random), HttpRequest.BodyPublishers.noBody()));
+        addEndpoint(ORDER_PAGE, mix, random -> get("/api/order/page?pageNo=1&pageSize=10&userAccount=" + randomAccount(random)));
+        addEndpoint(ORDER_ADD, mix, random -> post("/api/order/add", HttpRequest.BodyPublishers.ofString(orderJson(random))));
+        if (endpoints.isEmpty()) {
+            throw new IllegalArgumentException("loadtest.mix 中至少要有一个接口的权重大于0");
+        }
+        totalWeight = endpoints.stream().mapToInt(endpoint -> endpoint.weight).sum();
+    }
+
+    List<Endpoint> getEndpoints() {
+        return endpoints;
+    }
+
+    /**
+     * 客户端线程主循环：持续请求直到endNanos
+     *
+     * @param endNanos 结束时间（System.nanoTime）
+     */
+    void runClient(long endNanos) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        // 固定速率模式：每个客户端分摊总速率
+        long intervalNanos = options.getRate() > 0 ? 1_000_000_000L * options.getClients() / options.getRate() : 0;
+        long nextStart = System.nanoTime() + (intervalNanos > 0 ? random.nextLong(intervalNanos) : 0);
+        while (true) {
+            long intendedStart;
+            if (intervalNanos > 0) {
+                intendedStart = nextStart;
+                nextStart += intervalNanos;
+                long wait = intendedStart - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+            } else {
+                intendedStart = System.nanoTime();
+            }
+            if (intendedStart >= endNanos) {
+                return;
+            }
+
+            Endpoint endpoint = pick(random);
+            boolean success = send(endpoint.requestFactory.apply(random));
+            endpoint.recorder.recordValue(Math.max(1, (System.nanoTime() - intendedStart) / 1000));
+            if (!success) {
+                endpoint.errors.increment();
+            }
+        }
+    }
+
+    private boolean send(HttpRequest request) {
+        try {
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            // 业务失败（Result.code != 200）同样计为失败
+            return response.statusCode() == 200 && response.body().contains("\"code\":200");
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            return false;
+        }
+    }
+
+    private Endpoint pick(ThreadLocalRandom random) {
+        int value = random.nextInt(totalWeight);
+        for (Endpoint endpoint : endpoints) {
+            value -= endpoint.weight;
+            if (value < 0) {
+                return endpoint;
+            }
+        }
+        return endpoints.get(endpoints.size() - 1);
+    }
+
+    private void addEndpoint(String name, Map<String, Integer> mix, Function<ThreadLocalRandom, HttpRequest> requestFactory) {
+        int weight = mix.getOrDefault(name, 0);
+        if (weight > 0) {
+            endpoints.add(new Endpoint(name, weight, requestFactory));
+        }
+    }
+
+    private String orderJson(ThreadLocalRandom random) {
+        StringBuilder json = new StringBuilder("{\"userAccount\":\"").append(randomAccount(random)).append("\",\"orderItemList\":[");
+        int itemCount = 1 + random.nextInt(Math.max(1, options.getItemsPerOrder()));
+        for (int i = 0; i < itemCount; i++) {
+            long productId = randomProductId(random);
+            json.append(i == 0 ? "" : ",")
+                    .append("{\"productId\":").append(productId)
+                    .append(",\"quantity\":1,\"merchantId\":")
+                    .append(LoadTestDataSeeder.merchantOf(productId, options.getMerchants())).append('}');
+        }
+        return json.append("]}").toString();
+    }
+
+    private long randomProductId(ThreadLocalRandom random) {
+        return 1 + random.nextInt(options.getProducts());
+    }
+
+    private String randomAccount(ThreadLocalRandom random) {
+        return LoadTestDataSeeder.ACCOUNT_PREFIX + (1 + random.nextInt(options.getUsers()));
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(Duration.ofSeconds(30)).GET().build();
+    }
+
+    private HttpRequest post(String path, HttpRequest.BodyPublisher body) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json")
+                .POST(body)
+                .build();
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,228 @@
+package com.example.shop.loadtest;
+
+import com.example.shop.ShopApplication;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.SimpleCommandLinePropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 端到端压测入口（mvn -Ploadtest test-compile exec:exec -Dloadtest.args="..."）
+ * 1. 在内存H2数据库（MySQL兼容模式）中建表并按 loadtest.* 参数灌入数据
+ * 2. 以随机端口启动ShopApplication（与线上同一套配置，仅替换数据源；其余 --xxx=值 参数同样生效，可用于对比开关）
+ * 3. 多个客户端线程按比例请求各接口，预热后统计，输出各接口吞吐、p50/p95/p99/p99.9/最大延迟，
+ *    并在 loadtest.report-dir 下写出每个接口的HdrHistogram分布（.hgrm，可用HdrHistogram官方工具绘图对比）
+ * 4. 对比模式（--loadtest.compare=开关配置名）：开关为false、true各压测一轮，输出对比表并写入 comparison.txt，
+ *    如虚拟线程与平台线程对比：--loadtest.compare=spring.threads.virtual.enabled（需JDK 21，-Pjdk21构建）
+ */
+public class LoadTest {
+
+    private static final double MICROS_PER_MILLI = 1000.0;
+    private static final String VIRTUAL_THREADS_PROPERTY = "spring.threads.virtual.enabled";
+
+    /**
+     * 一轮压测的汇总结果
+     */
+    private static final class RunSummary {
+        private final Histogram total;
+        private final long errors;
+        private final double seconds;
+
+        private RunSummary(Histogram total, long errors, double seconds) {
+            this.total = total;
+            this.errors = errors;
+            this.seconds = seconds;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        StandardEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources().addFirst(new SimpleCommandLinePropertySource(args));
+        LoadTestOptions options = Binder.get(environment)
+                .bind("loadtest", Bindable.ofInstance(new LoadTestOptions()))
+                .orElseGet(LoadTestOptions::new);
+
+        String property = options.getCompare().trim();
+        if (property.isEmpty()) {
+            runOnce("shop_loadtest", args, Map.of(), options, Paths.get(options.getReportDir()));
+            return;
+        }
+        if (VIRTUAL_THREADS_PROPERTY.equals(property) && Runtime.version().feature() < 21) {
+            System.out.printf("警告：当前JDK %d 不支持虚拟线程，开启后仍使用平台线程，对比结果没有意义（需JDK 21，-Pjdk21构建）%n",
+                    Runtime.version().feature());
+        }
+        Map<String, RunSummary> summaries = new LinkedHashMap<>();
+        for (String value : List.of("false", "true")) {
+            String label = property + "=" + value;
+            System.out.printf("%n========== %s ==========%n", label);
+            summaries.put(label, runOnce("shop_loadtest_" + value, args, Map.of(property, value), options,
+                    Paths.get(options.getReportDir(), label)));
+        }
+        reportComparison(summaries, options);
+    }
+
+    /**
+     * 灌数据、启动应用并压测一轮
+     *
+     * @param database  内存库名（每轮独立，互不影响）
+     * @param args      命令行参数
+     * @param overrides 本轮额外的应用配置（优先于命令行）
+     * @param reportDir 本轮HdrHistogram分布输出目录
+     */
+    private static RunSummary runOnce(String database, String[] args, Map<String, String> overrides,
+            LoadTestOptions options, Path reportDir) throws Exception {
+        String url = "jdbc:h2:mem:" + database + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1";
+        long seedStart = System.nanoTime();
+        SingleConnectionDataSource seedDataSource = new SingleConnectionDataSource(url, "sa", "", true);
+        try {
+            new LoadTestDataSeeder(seedDataSource, options).seed();
+        } finally {
+            seedDataSource.destroy();
+        }
+        System.out.printf("数据灌入完成：%d个商家，%d个商品，%d个用户，耗时%ds%n", options.getMerchants(),
+                options.getProducts(), options.getUsers(), TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - seedStart));
+
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(ShopApplication.class)
+                .run(applicationArgs(url, args, overrides));
+        try {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            return run(new LoadScenario("http://127.0.0.1:" + port, options), options, reportDir);
+        } finally {
+            context.close();
+        }
+    }
+
+    private static RunSummary run(LoadScenario scenario, LoadTestOptions options, Path reportDir)
+            throws InterruptedException, IOException {
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(options.getWarmupSeconds() + options.getDurationSeconds());
+        List<Thread> clients = new ArrayList<>();
+        for (int i = 0; i < options.getClients(); i++) {
+            Thread client = new Thread(() -> scenario.runClient(end), "loadtest-client-" + i);
+            client.start();
+            clients.add(client);
+        }
+        System.out.printf("压测开始：%d个客户端，%s，预热%ds，统计%ds%n", options.getClients(),
+                options.getRate() > 0 ? "目标" + options.getRate() + "请求/秒" : "闭环", options.getWarmupSeconds(),
+                options.getDurationSeconds());
+
+        // 预热结束：丢弃预热期间的记录
+        TimeUnit.SECONDS.sleep(options.getWarmupSeconds());
+        for (LoadScenario.Endpoint endpoint : scenario.getEndpoints()) {
+            endpoint.drainLatencies();
+            endpoint.drainErrors();
+        }
+        long measureStart = System.nanoTime();
+        for (Thread client : clients) {
+            client.join();
+        }
+        double seconds = (System.nanoTime() - measureStart) / 1e9;
+        return report(scenario, seconds, reportDir);
+    }
+
+    private static RunSummary report(LoadScenario scenario, double seconds, Path reportDir) throws IOException {
+        Files.createDirectories(reportDir);
+
+        Histogram total = new Histogram(3);
+        long totalErrors = 0;
+        System.out.printf("%n%-16s %10s %8s %10s %9s %9s %9s %9s %9s%n",
+                "接口", "请求数", "失败", "吞吐/s", "p50(ms)", "p95(ms)", "p99(ms)", "p99.9(ms)", "max(ms)");
+        for (LoadScenario.Endpoint endpoint : scenario.getEndpoints()) {
+            long errors = endpoint.drainErrors();
+            Histogram histogram = endpoint.drainLatencies();
+            total.add(histogram);
+            totalErrors += errors;
+            printRow(endpoint.getName(), histogram, errors, seconds);
+            writeDistribution(reportDir.resolve(endpoint.getName() + ".hgrm"), histogram);
+        }
+        printRow("total", total, totalErrors, seconds);
+        writeDistribution(reportDir.resolve("total.hgrm"), total);
+        System.out.printf("%nHdrHistogram分布（单位ms）已写入 %s%n", reportDir.toAbsolutePath());
+        return new RunSummary(total, totalErrors, seconds);
+    }
+
+    /**
+     * 输出对比表（全部接口合计），同时写入 report-dir/comparison.txt
+     */
+    private static void reportComparison(Map<String, RunSummary> summaries, LoadTestOptions options) throws IOException {
+        Path reportDir = Paths.get(options.getReportDir());
+        Files.createDirectories(reportDir);
+        Path file = reportDir.resolve("comparison.txt");
+        try (PrintStream out = new PrintStream(Files.newOutputStream(file), true, "UTF-8")) {
+            for (PrintStream target : List.of(System.out, out)) {
+                target.printf("%n对比（JDK %d，%d个客户端，%s，统计%ds）%n", Runtime.version().feature(), options.getClients(),
+                        options.getRate() > 0 ? "目标" + options.getRate() + "请求/秒" : "闭环", options.getDurationSeconds());
+                target.printf("%-40s %10s %8s %10s %9s %9s %9s %9s %9s%n",
+                        "配置", "请求数", "失败", "吞吐/s", "p50(ms)", "p95(ms)", "p99(ms)", "p99.9(ms)", "max(ms)");
+                for (Map.Entry<String, RunSummary> entry : summaries.entrySet()) {
+                    RunSummary summary = entry.getValue();
+                    target.print(formatRow("%-40s", entry.getKey(), summary.total, summary.errors, summary.seconds));
+                }
+            }
+        }
+        System.out.printf("%n对比结果已写入 %s%n", file.toAbsolutePath());
+    }
+
+    private static void printRow(String name, Histogram histogram, long errors, double seconds) {
+        System.out.print(formatRow("%-16s", name, histogram, errors, seconds));
+    }
+
+    private static String formatRow(String nameFormat, String name, Histogram histogram, long errors, double seconds) {
+        return String.format(nameFormat + " %10d %8d %10.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                name, histogram.getTotalCount(), errors, histogram.getTotalCount() / seconds,
+                histogram.getValueAtPercentile(50) / MICROS_PER_MILLI,
+                histogram.getValueAtPercentile(95) / MICROS_PER_MILLI,
+                histogram.getValueAtPercentile(99) / MICROS_PER_MILLI,
+                histogram.getValueAtPercentile(99.9) / MICROS_PER_MILLI,
+                histogram.getMaxValue() / MICROS_PER_MILLI);
+    }
+
+    private static void writeDistribution(Path file, Histogram histogram) throws IOException {
+        try (PrintStream out = new PrintStream(Files.newOutputStream(file), true, "UTF-8")) {
+            histogram.outputPercentileDistribution(out, MICROS_PER_MILLI);
+        }
+    }
+
+    /**
+     * 应用启动参数：默认连接压测库、随机端口、关闭INFO日志（避免日志IO影响结果），命令行同名参数优先，
+     * 对比模式下本轮的开关值最优先
+     */
+    private static String[] applicationArgs(String url, String[] args, Map<String, String> overrides) {
+        Map<String, String> properties = new LinkedHashMap<>();
+        properties.put("spring.datasource.url", url);
+        properties.put("spring.datasource.driver-class-name", "org.h2.Driver");
+        properties.put("spring.datasource.username", "sa");
+        properties.put("spring.datasource.password", "");
+        properties.put("server.port", "0");
+        properties.put("upload.path", "target/loadtest-uploads/products/");
+        properties.put("logging.level.root", "WARN");
+        properties.put("logging.level.com.example.shop", "WARN");
+        properties.put("logging.level.org.springframework.mail", "WARN");
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                int separator = arg.indexOf('=');
+                properties.put(arg.substring(2, separator), arg.substring(separator + 1));
+            }
+        }
+        properties.putAll(overrides);
+        return properties.entrySet().stream()
+                .map(entry -> "--" + entry.getKey() + "=" + entry.getValue())
+                .toArray(String[]::new);
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.shop.loadtest;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * 压测数据灌入（应用启动前执行，商品搜索索引/缓存等启动时加载的数据与线上一致）
+ * 按插入顺序自增：商家ID 1..merchants，商品ID 1..products，用户ID 1..users；
+ * 商品i属于商家 (i-1)%merchants+1，用户账号为 loaduser{i}，商品名为 商品{i}
+ */
+final class LoadTestDataSeeder {
+
+    static final String ACCOUNT_PREFIX = "loaduser";
+    static final String PRODUCT_NAME_PREFIX = "商品";
+
+    private static final int BATCH_SIZE = 1000;
+    // 足够大的库存，压测期间不会耗尽
+    private static final int STOCK = 1_000_000_000;
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final LoadTestOptions options;
+    // 固定种子，每次灌入的数据相同
+    private final Random random = new Random(42);
+
+    LoadTestDataSeeder(DataSource dataSource, LoadTestOptions options) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.options = options;
+    }
+
+    /**
+     * 商品所属商家ID（与灌入规则一致）
+     */
+    static long merchantOf(long productId, int merchants) {
+        return (productId - 1) % merchants + 1;
+    }
+
+    /**
+     * 建表并灌入数据
+     */
+    void seed() {
+        new ResourceDatabasePopulator(new ClassPathResource("bench/schema.sql")).execute(dataSource);
+
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 1; i <= options.getMerchants(); i++) {
+            rows.add(new Object[]{"商家" + i, "loadmerchant" + i, "loadtest"});
+        }
+        insert("INSERT INTO merchant (merchant_name, account, password) VALUES (?, ?, ?)", rows);
+
+        for (int i = 1; i <= options.getProducts(); i++) {
+            rows.add(new Object[]{PRODUCT_NAME_PREFIX + i, "压测商品" + i, STOCK, "/uploads/products/load" + i + ".jpg",
+                    BigDecimal.valueOf(random.nextInt(100000), 2), merchantOf(i, options.getMerchants())});
+        }
+        insert("INSERT INTO product (product_name, product_desc, stock, product_pic, product_price, merchant_id) "
+                + "VALUES (?, ?, ?, ?, ?, ?)", rows);
+
+        for (int i = 1; i <= options.getUsers(); i++) {
+            rows.add(new Object[]{"压测用户" + i, ACCOUNT_PREFIX + i, "loadtest"});
+        }
+        insert("INSERT INTO user (username, account, password) VALUES (?, ?, ?)", rows);
+
+        int cartItems = Math.min(options.getCartItemsPerUser(), options.getProducts());
+        for (int userId = 1; userId <= options.getUsers(); userId++) {
+            for (long productId : randomProducts(cartItems)) {
+                rows.add(new Object[]{userId, productId, 1 + random.nextInt(5)});
+            }
+        }
+        insert("INSERT INTO cart (user_id, product_id, quantity) VALUES (?, ?, ?)", rows);
+
+        // 历史订单号：2020开头，早于订单号生成器生成的订单号，不会冲突
+        long seq = 0;
+        List<Object[]> items = new ArrayList<>();
+        for (int userId = 1; userId <= options.getUsers(); userId++) {
+            for (int i = 0; i < options.getOrdersPerUser(); i++) {
+                String orderNo = String.format("2020%018d", ++seq);
+                rows.add(new Object[]{orderNo, userId});
+                for (int j = 0; j < options.getItemsPerOrder(); j++) {
+                    long productId = 1 + random.nextInt(options.getProducts());
+                    items.add(new Object[]{orderNo, productId, 1 + random.nextInt(3),
+                            merchantOf(productId, options.getMerchants())});
+                }
+            }
+        }
+        insert("INSERT INTO order_main (order_no, user_id) VALUES (?, ?)", rows);
+        insert("INSERT INTO order_item (order_no, product_id, quantity, merchant_id) VALUES (?, ?, ?, ?)", items);
+    }
+
+    private Set<Long> randomProducts(int count) {
+        Set<Long> productIds = new LinkedHashSet<>();
+        while (productIds.size() < count) {
+            productIds.add(1L + random.nextInt(options.getProducts()));
+        }
+        return productIds;
+    }
+
+    /**
+     * 分批插入并清空rows
+     */
+    private void insert(String sql, List<Object[]> rows) {
+        for (int from = 0; from < rows.size(); from += BATCH_SIZE) {
+            jdbcTemplate.batchUpdate(sql, rows.subList(from, Math.min(from + BATCH_SIZE, rows.size())));
+        }
+        rows.clear();
+    }
+}
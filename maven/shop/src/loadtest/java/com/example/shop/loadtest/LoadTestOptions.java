@@ -0,0 +1,52 @@
+package com.example.shop.loadtest;
+
+import lombok.Data;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 压测参数（命令行 --loadtest.xxx=值 覆盖，如 --loadtest.clients=64 --loadtest.mix.order-add=20）
+ */
+@Data
+public class LoadTestOptions {
+
+    // ---------- 灌入的数据规模 ----------
+    private int merchants = 100;
+    private int products = 10000;
+    private int users = 1000;
+    // 每个用户的购物车商品数
+    private int cartItemsPerUser = 10;
+    // 每个用户的历史订单数
+    private int ordersPerUser = 5;
+    // 每个订单的订单项目数
+    private int itemsPerOrder = 3;
+
+    // ---------- 压测方式 ----------
+    // 并发客户端数
+    private int clients = 32;
+    // 预热时长（秒，期间的请求不计入统计）
+    private int warmupSeconds = 10;
+    // 统计时长（秒）
+    private int durationSeconds = 60;
+    // 目标总吞吐（请求/秒）；0表示闭环压测（收到响应后立即发送下一个请求）
+    // 大于0时按固定速率发送，延迟从计划发送时间算起（避免协调遗漏，服务变慢时延迟如实变大）
+    private int rate = 0;
+    // 各接口请求比例（权重）
+    private Map<String, Integer> mix = new LinkedHashMap<>(Map.of(
+            LoadScenario.PRODUCT_DETAIL, 40,
+            LoadScenario.PRODUCT_SEARCH, 10,
+            LoadScenario.CART_PAGE, 15,
+            LoadScenario.CART_ADD, 10,
+            LoadScenario.ORDER_PAGE, 15,
+            LoadScenario.ORDER_ADD, 10));
+
+    // 对比的开关（应用配置名，如 spring.threads.virtual.enabled）；非空时依次以 false、true 各压测一轮
+    // （每轮重新灌数据、重新启动应用），最后输出两轮的对比表；为空时只压测一轮
+    // 两轮在同一个JVM中执行，后一轮受益于前一轮的JIT编译，对比时预热时长不要设得太短
+    private String compare = "";
+
+    // ---------- 报告 ----------
+    // HdrHistogram分布文件（.hgrm）输出目录
+    private String reportDir = "target/loadtest";
+}
@@ -0,0 +1,111 @@
+package com.example.shop.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import jakarta.annotation.PostConstruct;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * 分页总数缓存（按“查询名 + 参数”缓存COUNT(*)结果）
+ * 相关写操作通过invalidate/invalidateQuery失效，TTL兜底外部直接改库的情况
+ */
+@Slf4j
+@Component
+public class CountCache {
+
+    // ========== 查询名（与Mapper中的COUNT语句一一对应） ==========
+    public static final String CART_BY_USER = "cart.countByUserId";
+    public static final String ORDER_MAIN_BY_USER = "orderMain.selectCountByUserId";
+    public static final String ORDER_ITEM_BY_MERCHANT = "orderItem.countByMerchantId";
+    public static final String PRODUCT_BY_MERCHANT = "product.selectCountByMerchantId";
+    public static final String PRODUCT_BY_NAME = "product.selectCountByName";
+
+    @Value("${page.count-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${page.count-cache.max-size:10000}")
+    private int maxSize;
+
+    @Value("${page.count-cache.ttl-seconds:60}")
+    private long ttlSeconds;
+
+    private LocalCache<String, Integer> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = new LocalCache<>("pageCount", maxSize, ttlSeconds * 1000);
+        log.info("分页总数缓存初始化：enabled={}，maxSize={}，ttlSeconds={}", enabled, maxSize, ttlSeconds);
+    }
+
+    /**
+     * 读穿透查询总数
+     *
+     * @param query  查询名
+     * @param param  查询参数（允许为null）
+     * @param loader 未命中时执行的COUNT查询
+     * @return 总数（loader返回null时按0处理）
+     */
+    public Integer get(String query, Object param, Supplier<Integer> loader) {
+        if (!enabled) {
+            Integer total = loader.get();
+            return total == null ? 0 : total;
+        }
+        Integer total = cache.get(key(query, param), k -> {
+            Integer loaded = loader.get();
+            return loaded == null ? 0 : loaded;
+        });
+        return total == null ? 0 : total;
+    }
+
+    /**
+     * 失效某个查询某个参数下的总数（立即失效，事务结束后再失效一次）
+     *
+     * @param query 查询名
+     * @param param 查询参数
+     */
+    public void invalidate(String query, Object param) {
+        String key = key(query, param);
+        invalidateNowAndAfterCompletion(() -> cache.invalidate(key));
+    }
+
+    /**
+     * 失效某个查询下所有参数的总数（如任意商品变化都会影响按名称统计的总数）
+     *
+     * @param query 查询名
+     */
+    public void invalidateQuery(String query) {
+        String prefix = query + "|";
+        invalidateNowAndAfterCompletion(() -> cache.invalidateIf(key -> key.startsWith(prefix)));
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = cache.stats();
+        stats.put("enabled", enabled);
+        return stats;
+    }
+
+    private void invalidateNowAndAfterCompletion(Runnable invalidation) {
+        if (!enabled) {
+            return;
+        }
+        invalidation.run();
+        // 防止事务提交前被并发读请求以旧总数回填
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    invalidation.run();
+                }
+            });
+        }
+    }
+
+    private static String key(String query, Object param) {
+        return param == null ? query + "|" : query + "|=" + param;
+    }
+}
@@ -0,0 +1,284 @@
+package com.example.shop.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * 进程内本地缓存（容量上限 + 过期时间 + 命中统计）
+ * 基于访问顺序的LinkedHashMap实现LRU淘汰，不依赖第三方缓存组件
+ *
+ * @param <K> 缓存键类型
+ * @param <V> 缓存值类型
+ */
+public class LocalCache<K, V> {
+
+    private final String name;
+    private final int maxSize;
+    private final long ttlMillis;
+    private final LinkedHashMap<K, CacheEntry<V>> entries;
+
+    // 统计计数器
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    // 进行中的加载（按键登记，受entries锁保护）：失效某个键时移除其登记，
+    // 该键加载完成时发现登记已不是自己的，丢弃加载到的旧值，避免把脏数据写回缓存；其他键的加载不受影响
+    private final Map<K, Object> loadTokens = new HashMap<>();
+
+    /**
+     * @param name      缓存名称（用于统计展示）
+     * @param maxSize   最大条目数（超出后淘汰最久未访问的条目）
+     * @param ttlMillis 过期时间（毫秒，<=0表示永不过期）
+     */
+    public LocalCache(String name, int maxSize, long ttlMillis) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("缓存容量必须大于0：" + maxSize);
+        }
+        this.name = name;
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, CacheEntry<V>> eldest) {
+                if (size() > LocalCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * 查询缓存
+     *
+     * @param key 缓存键
+     * @return 缓存值（未命中/已过期返回null）
+     */
+    public V get(K key) {
+        synchronized (entries) {
+            CacheEntry<V> entry = entries.get(key);
+            if (entry != null && entry.isExpired(System.currentTimeMillis())) {
+                entries.remove(key);
+                expirations.increment();
+                entry = null;
+            }
+            if (entry == null) {
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            return entry.value;
+        }
+    }
+
+    /**
+     * 读穿透查询：未命中时调用loader加载并写入缓存（loader返回null时不缓存）
+     *
+     * @param key    缓存键
+     * @param loader 加载函数（在锁外执行，允许并发重复加载）
+     * @return 缓存值或加载结果
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        V value = get(key);
+        if (value != null) {
+            return value;
+        }
+        Object token = beginLoad(key);
+        V loaded = null;
+        try {
+            loaded = loader.apply(key);
+        } finally {
+            synchronized (entries) {
+                if (loadTokens.remove(key, token) && loaded != null) {
+                    entries.put(key, new CacheEntry<>(loaded, expireAt()));
+                }
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * 批量读穿透查询：先逐个查缓存，未命中的键一次性交给bulkLoader加载并回填
+     *
+     * @param keys       缓存键集合
+     * @param bulkLoader 批量加载函数（入参为未命中的键，返回键值映射；在锁外执行）
+     * @return 命中及加载到的键值映射（按keys的迭代顺序，不存在的键不包含在内）
+     */
+    public Map<K, V> getAll(Collection<? extends K> keys,
+            Function<? super List<K>, ? extends Map<K, ? extends V>> bulkLoader) {
+        Map<K, V> result = new LinkedHashMap<>();
+        List<K> missingKeys = new ArrayList<>();
+        for (K key : keys) {
+            V value = get(key);
+            if (value != null) {
+                result.put(key, value);
+            } else {
+                missingKeys.add(key);
+            }
+        }
+        if (missingKeys.isEmpty()) {
+            return result;
+        }
+        Map<K, Object> tokens = new HashMap<>();
+        for (K key : missingKeys) {
+            tokens.put(key, beginLoad(key));
+        }
+        Map<K, ? extends V> loaded = null;
+        try {
+            loaded = bulkLoader.apply(missingKeys);
+        } finally {
+            synchronized (entries) {
+                for (Map.Entry<K, Object> token : tokens.entrySet()) {
+                    K key = token.getKey();
+                    V value = loaded == null ? null : loaded.get(key);
+                    if (loadTokens.remove(key, token.getValue()) && value != null) {
+                        entries.put(key, new CacheEntry<>(value, expireAt()));
+                    }
+                }
+            }
+        }
+        if (loaded == null || loaded.isEmpty()) {
+            return result;
+        }
+        // 按调用方传入的顺序重新组装结果
+        Map<K, V> ordered = new LinkedHashMap<>();
+        for (K key : keys) {
+            V value = result.containsKey(key) ? result.get(key) : loaded.get(key);
+            if (value != null) {
+                ordered.put(key, value);
+            }
+        }
+        return ordered;
+    }
+
+    /**
+     * 写入缓存
+     *
+     * @param key   缓存键
+     * @param value 缓存值（不能为null）
+     */
+    public void put(K key, V value) {
+        if (value == null) {
+            return;
+        }
+        synchronized (entries) {
+            entries.put(key, new CacheEntry<>(value, expireAt()));
+        }
+    }
+
+    /**
+     * 失效单个缓存键
+     *
+     * @param key 缓存键
+     */
+    public void invalidate(K key) {
+        synchronized (entries) {
+            loadTokens.remove(key);
+            entries.remove(key);
+        }
+    }
+
+    /**
+     * 按条件批量失效缓存键
+     *
+     * @param keyPredicate 需要失效的键的判断条件
+     */
+    public void invalidateIf(Predicate<? super K> keyPredicate) {
+        synchronized (entries) {
+            loadTokens.keySet().removeIf(keyPredicate);
+            entries.keySet().removeIf(keyPredicate);
+        }
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void invalidateAll() {
+        synchronized (entries) {
+            loadTokens.clear();
+            entries.clear();
+        }
+    }
+
+    /**
+     * 清理所有已过期条目
+     */
+    public void cleanUp() {
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            Iterator<CacheEntry<V>> iterator = entries.values().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().isExpired(now)) {
+                    iterator.remove();
+                    expirations.increment();
+                }
+            }
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * 缓存统计信息（命中/未命中/淘汰/过期计数）
+     *
+     * @return 统计信息（有序Map，便于直接返回给前端）
+     */
+    public Map<String, Object> stats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long requestCount = hitCount + missCount;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("name", name);
+        stats.put("size", size());
+        stats.put("maxSize", maxSize);
+        stats.put("ttlMillis", ttlMillis);
+        stats.put("hitCount", hitCount);
+        stats.put("missCount", missCount);
+        stats.put("hitRate", requestCount == 0 ? 0.0 : (double) hitCount / requestCount);
+        stats.put("evictionCount", evictions.sum());
+        stats.put("expirationCount", expirations.sum());
+        return stats;
+    }
+
+    /**
+     * 登记一次加载（同一个键的并发加载共用登记，先完成的回填缓存）
+     */
+    private Object beginLoad(K key) {
+        synchronized (entries) {
+            return loadTokens.computeIfAbsent(key, k -> new Object());
+        }
+    }
+
+    private long expireAt() {
+        return ttlMillis > 0 ? System.currentTimeMillis() + ttlMillis : Long.MAX_VALUE;
+    }
+
+    private static final class CacheEntry<V> {
+        private final V value;
+        private final long expireAt;
+
+        private CacheEntry(V value, long expireAt) {
+            this.value = value;
+            this.expireAt = expireAt;
+        }
+
+        private boolean isExpired(long now) {
+            return now >= expireAt;
+        }
+    }
+}
@@ -0,0 +1,409 @@
+package com.example.shop.cart;
+
+import com.example.shop.entity.Cart;
+import com.example.shop.mapper.CartMapper;
+import com.example.shop.routing.DataSourceRouting;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * 内存购物车（可选，cart.store.enabled=true时启用）
+ * 活跃用户的购物车常驻内存，首次访问时从cart表加载；加购/改数量/删除只修改内存并记录变更的商品，
+ * 后台线程定期把变更商品的最终数量合并写回（同一商品多次修改只写一次），关闭时全部写回；长时间未访问的用户被淘汰
+ *
+ * 每个用户一把锁（ReentrantLock：加载时在锁内查库，不钉住虚拟线程的载体线程）；所有落库由flushLock串行执行，
+ * 同一商品不会出现旧值覆盖新值。宕机时丢失最近一个落库周期内的修改；多实例部署时需按用户会话粘滞，否则各实例内存不一致
+ */
+@Slf4j
+@Component
+public class CartStore {
+
+    @Autowired
+    private CartMapper cartMapper;
+
+    @Value("${cart.store.enabled:false}")
+    private boolean enabled;
+
+    @Value("${cart.store.flush-interval-ms:1000}")
+    private long flushIntervalMillis;
+
+    @Value("${cart.store.flush-batch-size:500}")
+    private int flushBatchSize;
+
+    @Value("${cart.store.idle-seconds:600}")
+    private long idleSeconds;
+
+    @Value("${cart.store.max-users:100000}")
+    private int maxUsers;
+
+    // 用户ID → 内存购物车
+    private final ConcurrentHashMap<Long, UserCart> carts = new ConcurrentHashMap<>();
+    // 落库（含淘汰）串行执行
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private ScheduledExecutorService flusher;
+
+    /**
+     * 单个用户的购物车
+     */
+    private static class UserCart {
+        private final Long userId;
+        private final ReentrantLock lock = new ReentrantLock();
+        // 商品ID → 数量（按商品ID升序，与数据库分页顺序一致）
+        private final TreeMap<Long, Integer> items = new TreeMap<>();
+        // 上次落库后修改过的商品ID
+        private final Set<Long> dirty = new HashSet<>();
+        private boolean loaded;
+        // 已被淘汰，持有该对象的线程需重新获取
+        private boolean evicted;
+        private volatile long lastAccessMillis = System.currentTimeMillis();
+
+        private UserCart(Long userId) {
+            this.userId = userId;
+        }
+    }
+
+    /**
+     * 启动后台落库线程
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void onApplicationReady() {
+        if (!enabled || flusher != null) {
+            return;
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "cart-store-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushAndEvictQuietly, flushIntervalMillis, flushIntervalMillis,
+                TimeUnit.MILLISECONDS);
+        log.info("内存购物车已启用：flushIntervalMs={}，flushBatchSize={}，idleSeconds={}，maxUsers={}",
+                flushIntervalMillis, flushBatchSize, idleSeconds, maxUsers);
+    }
+
+    /**
+     * 关闭时把所有未落库的修改写回数据库，多次重试仍失败的记录到错误日志
+     */
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (!enabled) {
+            return;
+        }
+        if (flusher != null) {
+            flusher.shutdown();
+            try {
+                flusher.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (int attempt = 1; attempt <= 3; attempt++) {
+            try {
+                flush();
+                return;
+            } catch (Exception e) {
+                log.error("内存购物车关闭时落库失败（第{}次）", attempt, e);
+            }
+        }
+        for (UserCart cart : carts.values()) {
+            if (!cart.dirty.isEmpty()) {
+                log.error("内存购物车关闭时仍有未落库的修改：用户ID={}，商品ID={}", cart.userId, cart.dirty);
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 查询用户购物车全部记录（按商品ID升序）
+     *
+     * @param userId 用户ID
+     * @return 购物车实体列表
+     */
+    public List<Cart> list(Long userId) {
+        return withCart(userId, cart -> toCarts(userId, cart.items, 0, Integer.MAX_VALUE));
+    }
+
+    /**
+     * 分页查询用户购物车（按商品ID升序）
+     *
+     * @param userId 用户ID
+     * @param offset 偏移量
+     * @param limit  页限制
+     * @return 购物车实体列表
+     */
+    public List<Cart> page(Long userId, int offset, int limit) {
+        return withCart(userId, cart -> toCarts(userId, cart.items, offset, limit));
+    }
+
+    /**
+     * 游标分页查询用户购物车（按商品ID升序，从afterProductId之后开始）
+     *
+     * @param userId         用户ID
+     * @param afterProductId 上一页最后一条的商品ID（null表示第一页）
+     * @param limit          查询条数
+     * @return 购物车实体列表
+     */
+    public List<Cart> after(Long userId, Long afterProductId, int limit) {
+        return withCart(userId, cart -> toCarts(userId,
+                afterProductId == null ? cart.items : cart.items.tailMap(afterProductId, false), 0, limit));
+    }
+
+    /**
+     * 用户购物车记录数
+     *
+     * @param userId 用户ID
+     * @return 记录数
+     */
+    public int count(Long userId) {
+        return withCart(userId, cart -> cart.items.size());
+    }
+
+    /**
+     * 加购（已存在则累加数量，与 CartMapper.insertCart 一致）
+     *
+     * @param userId    用户ID
+     * @param productId 商品ID
+     * @param quantity  数量
+     * @return 影响的记录数（1）
+     */
+    public int add(Long userId, Long productId, int quantity) {
+        return withCart(userId, cart -> {
+            cart.items.merge(productId, quantity, Integer::sum);
+            cart.dirty.add(productId);
+            return 1;
+        });
+    }
+
+    /**
+     * 累加已有记录的数量（与 CartMapper.updateQuantityByUserIdAndProductId 一致，记录不存在时不新增）
+     *
+     * @param userId    用户ID
+     * @param productId 商品ID
+     * @param quantity  累加数量（可为负数）
+     * @return 影响的记录数（1=已更新，0=无该记录）
+     */
+    public int addQuantity(Long userId, Long productId, int quantity) {
+        return withCart(userId, cart -> {
+            Integer current = cart.items.get(productId);
+            if (current == null) {
+                return 0;
+            }
+            cart.items.put(productId, current + quantity);
+            cart.dirty.add(productId);
+            return 1;
+        });
+    }
+
+    /**
+     * 删除单条记录
+     *
+     * @param userId    用户ID
+     * @param productId 商品ID
+     * @return 影响的记录数（1=删除成功，0=无该记录）
+     */
+    public int remove(Long userId, Long productId) {
+        return withCart(userId, cart -> {
+            if (cart.items.remove(productId) == null) {
+                return 0;
+            }
+            cart.dirty.add(productId);
+            return 1;
+        });
+    }
+
+    /**
+     * 把所有用户未落库的修改写回数据库（变更商品的最终数量批量写入，已删除的批量删除）
+     * 写库失败时变更重新标记为未落库，下次重试
+     */
+    public void flush() {
+        if (!enabled) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            List<Cart> upserts = new ArrayList<>();
+            Map<Long, List<Long>> deletes = new LinkedHashMap<>();
+            Map<UserCart, List<Long>> snapshot = new LinkedHashMap<>();
+            for (UserCart cart : carts.values()) {
+                cart.lock.lock();
+                try {
+                    if (cart.dirty.isEmpty()) {
+                        continue;
+                    }
+                    for (Long productId : cart.dirty) {
+                        Integer quantity = cart.items.get(productId);
+                        if (quantity != null) {
+                            upserts.add(toCart(cart.userId, productId, quantity));
+                        } else {
+                            deletes.computeIfAbsent(cart.userId, k -> new ArrayList<>()).add(productId);
+                        }
+                    }
+                    snapshot.put(cart, new ArrayList<>(cart.dirty));
+                    cart.dirty.clear();
+                } finally {
+                    cart.lock.unlock();
+                }
+                if (upserts.size() + deletes.size() >= flushBatchSize) {
+                    applyBatch(upserts, deletes, snapshot);
+                    upserts = new ArrayList<>();
+                    deletes = new LinkedHashMap<>();
+                    snapshot = new LinkedHashMap<>();
+                }
+            }
+            if (!snapshot.isEmpty()) {
+                applyBatch(upserts, deletes, snapshot);
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * 淘汰长时间未访问（或超出用户数上限时最久未访问）且没有未落库修改的用户
+     *
+     * @param idleBeforeMillis 最后访问时间早于该时间的用户视为空闲
+     * @return 淘汰的用户数
+     */
+    int evictIdle(long idleBeforeMillis) {
+        flushLock.lock();
+        try {
+            List<UserCart> candidates = new ArrayList<>(carts.values());
+            int overflow = candidates.size() - maxUsers;
+            if (overflow > 0) {
+                candidates.sort(Comparator.comparingLong(cart -> cart.lastAccessMillis));
+            }
+            int evicted = 0;
+            for (UserCart cart : candidates) {
+                // 超出上限时先按最久未访问淘汰，之后只淘汰空闲用户
+                if (evicted >= overflow && cart.lastAccessMillis >= idleBeforeMillis) {
+                    continue;
+                }
+                cart.lock.lock();
+                try {
+                    if (!cart.dirty.isEmpty()) {
+                        continue;
+                    }
+                    cart.evicted = true;
+                    carts.remove(cart.userId, cart);
+                    evicted++;
+                } finally {
+                    cart.lock.unlock();
+                }
+            }
+            if (evicted > 0) {
+                log.debug("内存购物车淘汰{}个用户，剩余{}个", evicted, carts.size());
+            }
+            return evicted;
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushAndEvictQuietly() {
+        try {
+            flush();
+            evictIdle(System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(idleSeconds));
+        } catch (Exception e) {
+            // 未落库的修改保留在内存，下个周期重试
+            log.warn("内存购物车落库失败，稍后重试", e);
+        }
+    }
+
+    /**
+     * 写回一批修改；失败时把这批商品重新标记为未落库（写入的是最终数量，重复写入无副作用）
+     */
+    private void applyBatch(List<Cart> upserts, Map<Long, List<Long>> deletes, Map<UserCart, List<Long>> snapshot) {
+        try {
+            if (!upserts.isEmpty()) {
+                cartMapper.upsertCarts(upserts);
+            }
+            for (Map.Entry<Long, List<Long>> entry : deletes.entrySet()) {
+                cartMapper.deleteByUserIdAndProductIds(entry.getKey(), entry.getValue());
+            }
+        } catch (RuntimeException e) {
+            snapshot.forEach((cart, productIds) -> {
+                cart.lock.lock();
+                try {
+                    cart.dirty.addAll(productIds);
+                } finally {
+                    cart.lock.unlock();
+                }
+            });
+            throw e;
+        }
+        log.debug("内存购物车落库：写入{}条，删除{}个用户的记录", upserts.size(), deletes.size());
+    }
+
+    /**
+     * 在用户锁内操作其购物车（未加载时先从数据库加载；拿到已淘汰的对象时重新获取）
+     */
+    private <T> T withCart(Long userId, Function<UserCart, T> action) {
+        while (true) {
+            UserCart cart = carts.computeIfAbsent(userId, UserCart::new);
+            cart.lock.lock();
+            try {
+                if (cart.evicted) {
+                    continue;
+                }
+                if (!cart.loaded) {
+                    // 以主库为准（开启读写分离时），从库可能还没有最近落库的修改
+                    List<Cart> rows = DataSourceRouting.primary(() -> cartMapper.selectByUserId(userId));
+                    for (Cart row : rows) {
+                        cart.items.put(row.getProductId(), row.getQuantity());
+                    }
+                    cart.loaded = true;
+                }
+                cart.lastAccessMillis = System.currentTimeMillis();
+                return action.apply(cart);
+            } finally {
+                cart.lock.unlock();
+            }
+        }
+    }
+
+    private static List<Cart> toCarts(Long userId, Map<Long, Integer> items, int offset, int limit) {
+        List<Cart> result = new ArrayList<>(Math.min(items.size(), limit));
+        int index = 0;
+        for (Map.Entry<Long, Integer> entry : items.entrySet()) {
+            if (result.size() >= limit) {
+                break;
+            }
+            if (index++ >= offset) {
+                result.add(toCart(userId, entry.getKey(), entry.getValue()));
+            }
+        }
+        return result;
+    }
+
+    private static Cart toCart(Long userId, Long productId, Integer quantity) {
+        Cart cart = new Cart();
+        cart.setUserId(userId);
+        cart.setProductId(productId);
+        cart.setQuantity(quantity);
+        return cart;
+    }
+}
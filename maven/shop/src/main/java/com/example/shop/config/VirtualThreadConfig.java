@@ -0,0 +1,39 @@
+package com.example.shop.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.tomcat.util.threads.VirtualThreadExecutor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 虚拟线程模式（spring.threads.virtual.enabled=true时启用，需要JDK 21+）
+ * 打开后Tomcat每个请求在独立的虚拟线程中处理，Controller → Service → MyBatis/JDBC、文件读写等阻塞调用
+ * 都在该虚拟线程中执行，阻塞期间释放载体线程，并发数不再受Tomcat线程池大小限制（改为受数据库连接池限制）
+ * 运行在JDK 21以下时打印警告并保持平台线程池；配置名与Spring Boot 3.2+一致，升级后可直接删除本类
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadConfig {
+
+    /**
+     * 当前JVM是否支持虚拟线程
+     */
+    public static boolean isVirtualThreadSupported() {
+        return Runtime.version().feature() >= 21;
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> {
+            if (!isVirtualThreadSupported()) {
+                log.warn("已开启虚拟线程模式，但当前JDK版本为{}（需要21+），继续使用平台线程池", Runtime.version());
+                return;
+            }
+            protocolHandler.setExecutor(new VirtualThreadExecutor("tomcat-handler-"));
+            log.info("Tomcat请求处理已切换为虚拟线程");
+        };
+    }
+}
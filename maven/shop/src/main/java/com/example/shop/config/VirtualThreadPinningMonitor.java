@@ -0,0 +1,110 @@
+package com.example.shop.config;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import java.sql.Driver;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * 虚拟线程钉住（pinning）检测
+ * 虚拟线程在synchronized块内或本地方法中阻塞时无法让出载体线程，载体线程被占满后吞吐退化为平台线程模式：
+ * 1. 启动时检查MySQL驱动版本：Connector/J 9.0之前在网络IO时持有synchronized锁，每次查库都会钉住载体线程
+ *    （使用 mvn -Pjdk21 构建会切换到9.x驱动）
+ * 2. 运行时通过JFR订阅jdk.VirtualThreadPinned事件，钉住超过阈值时打印调用栈，便于定位需要改为ReentrantLock的代码
+ *    （也可以临时加JVM参数 -Djdk.tracePinnedThreads=short 打印全部钉住事件）
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadPinningMonitor {
+
+    // 打印的调用栈最大帧数
+    private static final int MAX_FRAMES = 12;
+
+    @Value("${virtual-threads.pinning.threshold-ms:20}")
+    private long thresholdMillis;
+
+    @Value("${virtual-threads.pinning.monitor-enabled:true}")
+    private boolean monitorEnabled;
+
+    private RecordingStream recordingStream;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!VirtualThreadConfig.isVirtualThreadSupported()) {
+            return;
+        }
+        checkJdbcDriver();
+        if (monitorEnabled) {
+            startPinningStream();
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (recordingStream != null) {
+            recordingStream.close();
+        }
+    }
+
+    /**
+     * 检查MySQL驱动是否会钉住虚拟线程
+     */
+    private void checkJdbcDriver() {
+        try {
+            Driver driver = (Driver) Class.forName("com.mysql.cj.jdbc.Driver").getDeclaredConstructor().newInstance();
+            if (driver.getMajorVersion() < 9) {
+                log.warn("MySQL Connector/J {}.{} 在网络IO时持有synchronized锁，虚拟线程查库会钉住载体线程；"
+                        + "请使用 mvn -Pjdk21 构建（Connector/J 9.x）", driver.getMajorVersion(), driver.getMinorVersion());
+            } else {
+                log.info("MySQL Connector/J {}.{} 支持虚拟线程", driver.getMajorVersion(), driver.getMinorVersion());
+            }
+        } catch (Exception e) {
+            log.warn("无法检查MySQL驱动版本", e);
+        }
+    }
+
+    /**
+     * 通过JFR持续订阅虚拟线程钉住事件
+     */
+    private void startPinningStream() {
+        try {
+            recordingStream = new RecordingStream();
+            recordingStream.enable("jdk.VirtualThreadPinned")
+                    .withThreshold(Duration.ofMillis(thresholdMillis))
+                    .withStackTrace();
+            recordingStream.onEvent("jdk.VirtualThreadPinned", this::logPinnedEvent);
+            recordingStream.startAsync();
+            log.info("虚拟线程钉住检测已启动：阈值{}ms", thresholdMillis);
+        } catch (Exception e) {
+            log.warn("虚拟线程钉住检测启动失败（JFR不可用）", e);
+        }
+    }
+
+    private void logPinnedEvent(RecordedEvent event) {
+        StringBuilder stack = new StringBuilder();
+        RecordedStackTrace stackTrace = event.getStackTrace();
+        if (stackTrace != null) {
+            List<RecordedFrame> frames = stackTrace.getFrames();
+            for (int i = 0; i < Math.min(frames.size(), MAX_FRAMES); i++) {
+                RecordedFrame frame = frames.get(i);
+                stack.append("\n\tat ").append(frame.getMethod().getType().getName())
+                        .append('.').append(frame.getMethod().getName())
+                        .append(':').append(frame.getLineNumber());
+            }
+        }
+        log.warn("虚拟线程被钉住{}ms（synchronized块/本地方法内阻塞）：{}",
+                event.getDuration().toMillis(), stack);
+    }
+}
@@ -1,8 +1,17 @@
 package com.example.shop.config;
 
+import com.example.shop.storage.ImageStore;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.resource.PathResourceResolver;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
 
 @Configuration
 public class WebMvcConfig implements WebMvcConfigurer {
@@ -10,8 +19,25 @@ public class WebMvcConfig implements WebMvcConfigurer {
     // 本地图片存储的绝对路径（根据自己的系统修改）
     private static final String UPLOAD_PATH = "/shop_uploads/";
 
+    @Autowired
+    private ImageStore imageStore;
+
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
+        // 商品图片：/uploads/products/{文件名} 交给ImageStore查找（哈希文件名存放在分片子目录中）
+        registry.addResourceHandler("/uploads/products/**")
+                .addResourceLocations(UPLOAD_PATH)
+                // 上传后的图片文件名唯一且不会被覆盖，允许浏览器长期缓存
+                .setCacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable())
+                .resourceChain(false)
+                .addResolver(new PathResourceResolver() {
+                    @Override
+                    protected Resource getResource(String resourcePath, Resource location) {
+                        Path path = imageStore.resolve(resourcePath);
+                        return path != null ? new FileSystemResource(path) : null;
+                    }
+                });
+
         // 映射规则：前端访问 /uploads/** 时，后端指向 UPLOAD_PATH 目录
         registry.addResourceHandler("/uploads/**")
                 .addResourceLocations(UPLOAD_PATH);
@@ -1,18 +1,15 @@
 package com.example.shop.controller;
 
 import com.example.shop.entity.Cart;
-import com.example.shop.entity.Product;
 import com.example.shop.service.CartService;
 import com.example.shop.service.UserService;
-import com.example.shop.service.ProductService;
 import com.example.shop.vo.Result;
+import com.example.shop.vo.PageCursor;
 import com.example.shop.vo.PageResultVO;
 import com.example.shop.vo.CartItemDTO;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
-import java.math.BigDecimal;
-import java.util.ArrayList;
 import java.util.List;
 
 @RestController
@@ -25,9 +22,6 @@ public class CartController {
     @Autowired
     private UserService userService;
 
-    @Autowired
-    private ProductService productService;
-
     /**
      * 通过用户账号查询购物车记录
      *
@@ -56,17 +50,23 @@ public class CartController {
 
     /**
      * 通过用户账号分页查询购物车记录（封装到PageResultVO）
+     * 购物车行由购物车⋈商品一条查询得到（含金额小计）；统计总数时同时返回整个购物车的金额合计（subtotal）
+     * 传入cursor参数时使用游标分页（首页传空串），按商品ID顺序翻页且不统计总数
      *
-     * @param account  用户账号（前端传递，唯一标识用户）
-     * @param pageNo   页号（从1开始），默认1
-     * @param pageSize 页尺寸（每页记录数），默认10
-     * @return 统一响应结果：数据为PageResultVO<CartItemDTO>
+     * @param account   用户账号（前端传递，唯一标识用户）
+     * @param pageNo    页号（从1开始），默认1（游标模式下忽略）
+     * @param pageSize  页尺寸（每页记录数），默认10
+     * @param cursor    游标（可选，上一页返回的nextCursor）
+     * @param withTotal 是否统计总数，默认true；false时不查总数，返回hasNext
+     * @return 统一响应结果：数据为PageResultVO<CartItemDTO>（统计总数时为CartPageVO）
      */
     @GetMapping("/listpage")
     public Result<PageResultVO<CartItemDTO>> getCartListByAccountWithPage(
             @RequestParam String account,
             @RequestParam(defaultValue = "1") Integer pageNo,
-            @RequestParam(defaultValue = "10") Integer pageSize) {
+            @RequestParam(defaultValue = "10") Integer pageSize,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "true") Boolean withTotal) {
 
         // 参数校验
         if (account == null || account.trim().isEmpty()) {
@@ -78,6 +78,14 @@ public class CartController {
         if (pageSize <= 0 || pageSize > 100) {
             return Result.fail("页尺寸必须在1-100之间");
         }
+        Long afterProductId = null;
+        if (cursor != null) {
+            try {
+                afterProductId = PageCursor.decodeLong(cursor);
+            } catch (IllegalArgumentException e) {
+                return Result.fail(e.getMessage());
+            }
+        }
 
         // 通过账号查询用户ID
         Long userId = userService.selectUserIdByAccount(account);
@@ -85,42 +93,26 @@ public class CartController {
             return Result.fail("用户账号不存在");
         }
 
-        // 查询该用户购物车总记录数
-        Integer total = cartService.countByUserId(userId);
-        // 计算总页数
-        Integer pages = total == 0 ? 0 : (total + pageSize - 1) / pageSize;
-        // 计算偏移量
-        Integer offset = (pageNo - 1) * pageSize;
-        // 分页查询购物车列表
-        List<Cart> cartList = cartService.selectByUserIdWithPage(userId, offset, pageSize);
-
-        // 转换为CartItemDTO列表
-        List<CartItemDTO> cartItemDTOList = new ArrayList<>();
-        for (Cart cart : cartList) {
-            Long productId = cart.getProductId();
-            Product product = productService.getProductById(productId);
-            String productName = product != null ? product.getProductName() : "未知商品";
-            BigDecimal productPrice = product != null ? product.getProductPrice() : new BigDecimal("0.00");
-            Long merchantId = product != null ? product.getMerchantId() : 0;
-            CartItemDTO dto = new CartItemDTO();
-            dto.setProductId(productId);
-            dto.setProductName(productName);
-            dto.setQuantity(cart.getQuantity());
-            dto.setProductPrice(productPrice);
-            dto.setMerchantId(merchantId);
-            cartItemDTOList.add(dto);
-        }
-
-        // 封装PageResultVO
-        PageResultVO<CartItemDTO> pageResultVO = new PageResultVO<>();
-        pageResultVO.setTotal(total); // 总记录数
-        pageResultVO.setPages(pages); // 总页数
-        pageResultVO.setPageNo(pageNo); // 当前页号
-        pageResultVO.setPageSize(pageSize); // 当前页尺寸
-        pageResultVO.setList(cartItemDTOList); // 分页数据列表
-
-        // 返回结果
-        return Result.success(pageResultVO);
+        // 游标分页：多查一条判断是否有下一页，不查询总数
+        if (cursor != null) {
+            List<CartItemDTO> cartItemList = cartService.selectCartItemsAfter(userId, afterProductId, pageSize + 1);
+            String nextCursor = null;
+            if (cartItemList.size() > pageSize) {
+                cartItemList = cartItemList.subList(0, pageSize);
+                nextCursor = PageCursor.encode(cartItemList.get(pageSize - 1).getProductId());
+            }
+            return Result.success(PageResultVO.ofCursor(pageSize, cartItemList, nextCursor));
+        }
+
+        // 不统计总数：多查一条判断是否有下一页
+        if (!withTotal) {
+            Integer offset = (pageNo - 1) * pageSize;
+            List<CartItemDTO> cartItemList = cartService.selectCartItemsWithPage(userId, offset, pageSize + 1);
+            return Result.success(PageResultVO.ofProbe(pageNo, pageSize, cartItemList));
+        }
+
+        // 汇总（总记录数 + 金额合计） + 分页列表
+        return Result.success(cartService.selectCartPage(userId, pageNo, pageSize));
     }
 
     /**
@@ -1,28 +1,30 @@
 package com.example.shop.controller;
 
 import com.example.shop.entity.Merchant;
+import com.example.shop.entity.MerchantProductSales;
+import com.example.shop.entity.MerchantSales;
 import com.example.shop.entity.OrderItem;
 import com.example.shop.entity.Product;
+import com.example.shop.service.MerchantSalesService;
 import com.example.shop.service.MerchantService;
 import com.example.shop.service.OrderItemService;
 import com.example.shop.service.ProductService;
+import com.example.shop.storage.ImageStore;
+import com.example.shop.vo.PageCursor;
 import com.example.shop.vo.PageResultVO;
 import com.example.shop.vo.Result;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.File;
+import java.io.InputStream;
 import java.io.IOException;
 import java.math.BigDecimal;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Date;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -30,7 +32,7 @@ import org.slf4j.LoggerFactory;
 /**
  * 商家专属Controller
  * 风格对齐UserController：GET请求+RequestParam传参+Result响应体
- * 提供：1.商家注册 2.商家登录 3.按商家ID分页查订单（含商品名称）；4.按商家ID分页查商品；5.更新商品库存；6.新增商品（含图片上传）
+ * 提供：1.商家注册 2.商家登录 3.按商家ID分页查订单（含商品名称）；4.按商家ID分页查商品；5.更新商品库存；6.新增商品（含图片上传）；7.销售汇总（商家/商品维度，开启merchant.sales.enabled时可用）
  */
 @RestController
 @RequestMapping("/api/merchant/log")
@@ -45,11 +47,14 @@ public class MerchantController {
     @Autowired
     private ProductService productService;
 
+    @Autowired
+    private MerchantSalesService merchantSalesService;
+
     private static final Logger log = LoggerFactory.getLogger(ProductController.class);
 
-    // ========== 新增：注入图片上传路径（从application.yml读取） ==========
-    @Value("${upload.path:/opt/shop_uploads/products/}") // 默认路径，防止配置缺失
-    private String uploadPath;
+    // 商品图片存储（按内容哈希命名，分目录存放）
+    @Autowired
+    private ImageStore imageStore;
 
     // ========== 原有所有方法完全保留（登录/注册/查订单/查商品/更新库存） ==========
     @GetMapping("/login")
@@ -102,37 +107,102 @@ public class MerchantController {
         }
     }
 
+    /**
+     * 按商家ID分页查订单项（含商品名称）
+     * 传入cursor参数时使用游标分页（首页传空串），按订单项ID顺序翻页且不统计总数
+     * withTotal=false时不统计总数，多查一条返回hasNext
+     */
     @GetMapping("/order-item/page")
     public PageResultVO<OrderItemWithProductName> getOrderItemByMerchantIdPage(
             @RequestParam Long merchantId,
             @RequestParam(defaultValue = "1") Integer pageNo,
-            @RequestParam(defaultValue = "10") Integer pageSize) {
+            @RequestParam(defaultValue = "10") Integer pageSize,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "true") Boolean withTotal) {
         try {
             if (merchantId == null || merchantId <= 0) {
                 return new PageResultVO<>(0, 0, pageNo, pageSize, Collections.emptyList());
             }
+            if (cursor != null) {
+                // 游标分页：多查一条判断是否有下一页，不查询总数
+                Long afterId = PageCursor.decodeLong(cursor);
+                List<OrderItem> orderItemList = orderItemService.listByMerchantIdAfter(merchantId, afterId, pageSize + 1);
+                String nextCursor = null;
+                if (orderItemList.size() > pageSize) {
+                    orderItemList = orderItemList.subList(0, pageSize);
+                    nextCursor = PageCursor.encode(orderItemList.get(pageSize - 1).getId());
+                }
+                return PageResultVO.ofCursor(pageSize, withProductNames(orderItemList), nextCursor);
+            }
+            if (!withTotal) {
+                List<OrderItem> fetchedList = orderItemService.listByMerchantIdPage(merchantId, pageNo, pageSize, true);
+                PageResultVO<OrderItem> orderItemPage = PageResultVO.ofProbe(pageNo, pageSize, fetchedList);
+                return orderItemPage.withList(withProductNames(orderItemPage.getList()));
+            }
             List<OrderItem> orderItemList = orderItemService.listByMerchantIdPage(merchantId, pageNo, pageSize);
             Integer total = orderItemService.countByMerchantId(merchantId);
             Integer pages = total == 0 ? 0 : (total + pageSize - 1) / pageSize;
-            List<OrderItemWithProductName> resultList = new ArrayList<>();
-            for (OrderItem orderItem : orderItemList) {
-                Product product = productService.getProductById(orderItem.getProductId());
-                String productName = product == null ? "未知商品" : product.getProductName();
-                resultList.add(new OrderItemWithProductName(orderItem, productName));
-            }
-            return new PageResultVO<>(total, pages, pageNo, pageSize, resultList);
+            return new PageResultVO<>(total, pages, pageNo, pageSize, withProductNames(orderItemList));
         } catch (Exception e) {
             return new PageResultVO<>(0, 0, pageNo, pageSize, Collections.emptyList());
         }
     }
 
+    /**
+     * 按商家ID分页查商品
+     * 传入cursor参数时使用游标分页（首页传空串），按商品ID顺序翻页且不统计总数
+     * withTotal=false时不统计总数，多查一条返回hasNext
+     */
     @GetMapping("/product/page")
     public PageResultVO<Product> getProductByMerchantIdPage(
             @RequestParam Long merchantId,
             @RequestParam(defaultValue = "1") Integer pageNo,
-            @RequestParam(defaultValue = "10") Integer pageSize) {
+            @RequestParam(defaultValue = "10") Integer pageSize,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "true") Boolean withTotal) {
         try {
-            return productService.getProductByMerchantIdPage(merchantId, pageNo, pageSize);
+            if (cursor != null) {
+                return productService.getProductByMerchantIdAfter(merchantId, cursor, pageSize);
+            }
+            return productService.getProductByMerchantIdPage(merchantId, pageNo, pageSize, withTotal);
+        } catch (Exception e) {
+            return new PageResultVO<>(0, 0, pageNo, pageSize, Collections.emptyList());
+        }
+    }
+
+    /**
+     * 商家销售汇总（销售件数、销售额、订单数），主键查询，不扫描订单项目
+     */
+    @GetMapping("/sales/summary")
+    public Result<MerchantSales> getMerchantSales(@RequestParam Long merchantId) {
+        if (!merchantSalesService.isEnabled()) {
+            return Result.fail("商家销售统计未开启");
+        }
+        if (merchantId == null || merchantId <= 0) {
+            return Result.fail("商家ID不能为空");
+        }
+        MerchantSales sales = merchantSalesService.getMerchantSales(merchantId);
+        if (sales == null) {
+            return Result.fail("查询销售汇总失败");
+        }
+        return Result.success(sales);
+    }
+
+    /**
+     * 按商家ID分页查商品销售汇总（按商品ID顺序）
+     * 传入cursor参数时使用游标分页（首页传空串），不统计总数
+     */
+    @GetMapping("/sales/product/page")
+    public PageResultVO<MerchantProductSales> getProductSalesPage(
+            @RequestParam Long merchantId,
+            @RequestParam(defaultValue = "1") Integer pageNo,
+            @RequestParam(defaultValue = "10") Integer pageSize,
+            @RequestParam(required = false) String cursor) {
+        try {
+            if (cursor != null) {
+                return merchantSalesService.getProductSalesAfter(merchantId, cursor, pageSize);
+            }
+            return merchantSalesService.getProductSalesPage(merchantId, pageNo, pageSize);
         } catch (Exception e) {
             return new PageResultVO<>(0, 0, pageNo, pageSize, Collections.emptyList());
         }
@@ -150,14 +220,11 @@ public class MerchantController {
             return Result.fail("上架标识只能是0（下架）或1（上架）");
         }
 
-        // 查询商品并更新状态
-        Product product = productService.getProductById(productId);
-        if (product == null) {
+        // 只更新上下架状态，不回写缓存中读到的其他字段
+        Long result = productService.changeShelfStatus(productId, isOnShelf);
+        if (result == 0L) {
             return Result.fail("商品不存在");
         }
-        product.setIsOnShelf(isOnShelf);
-        Long result = productService.updateProduct(product);
-
         if (result.equals(productId)) {
             String msg = isOnShelf == 1 ? "商品上架成功" : "商品下架成功";
             return Result.success(msg);
@@ -175,12 +242,10 @@ public class MerchantController {
             return Result.fail("库存数量不能为负数");
         }
 
-        Product product = productService.getProductById(dto.getProductId());
-        if (product == null) {
+        Long result = productService.updateStock(dto.getProductId(), dto.getStock());
+        if (result == 0L) {
             return Result.fail("商品不存在");
         }
-        product.setStock(dto.getStock());
-        Long result = productService.updateProduct(product);
         if (result.equals(dto.getProductId())) {
             return Result.success("库存更新成功");
         } else {
@@ -250,30 +315,14 @@ public class MerchantController {
                 }
                 log.info("图片格式校验通过");
 
-                // 3.2 生成唯一文件名（时间戳 + 随机数 + 后缀，避免重复）
-                SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMdd_HHmmss");
-                String fileName = sdf.format(new Date()) + "_" + UUID.randomUUID().toString().substring(0, 6) + suffix;
-                log.info("生成唯一文件名：{}", fileName);
-
-                // 3.3 创建存储目录（如果不存在）
-                File destDir = new File(uploadPath);
-                log.info("图片存储目录：{}，目录是否存在：{}", uploadPath, destDir.exists());
-                if (!destDir.exists()) {
-                    boolean mkdirsResult = destDir.mkdirs(); // 递归创建目录
-                    log.info("目录不存在，执行创建，创建结果：{}", mkdirsResult);
-                    if (!mkdirsResult) {
-                        log.error("目录创建失败：{}", uploadPath);
-                        return Result.fail("图片存储目录创建失败，请检查路径权限");
-                    }
+                // 3.2 按内容哈希保存图片（边读边算哈希写入磁盘，相同图片只保存一份）
+                String fileName;
+                try (InputStream in = file.getInputStream()) {
+                    fileName = imageStore.store(in, suffix);
                 }
+                log.info("图片存储文件名：{}", fileName);
 
-                // 3.4 保存图片到本地磁盘
-                File destFile = new File(uploadPath + fileName);
-                log.info("目标文件完整路径：{}，文件是否已存在：{}", destFile.getAbsolutePath(), destFile.exists());
-                file.transferTo(destFile);
-                log.info("图片保存成功，保存路径：{}", destFile.getAbsolutePath());
-
-                // 3.5 生成图片相对路径（前端可通过 http://localhost:8080 + 路径 访问）
+                // 3.3 生成图片相对路径（前端可通过 http://localhost:8080 + 路径 访问）
                 productPic = "/uploads/products/" + fileName;
                 log.info("生成图片相对路径：{}", productPic);
 
@@ -312,6 +361,24 @@ public class MerchantController {
         }
     }
 
+    /**
+     * 订单项列表补充商品名称（本页商品一次批量查询）
+     */
+    private List<OrderItemWithProductName> withProductNames(List<OrderItem> orderItemList) {
+        List<Long> productIds = new ArrayList<>();
+        for (OrderItem orderItem : orderItemList) {
+            productIds.add(orderItem.getProductId());
+        }
+        Map<Long, Product> productMap = productService.getProductsByIds(productIds);
+        List<OrderItemWithProductName> resultList = new ArrayList<>();
+        for (OrderItem orderItem : orderItemList) {
+            Product product = productMap.get(orderItem.getProductId());
+            String productName = product == null ? "未知商品" : product.getProductName();
+            resultList.add(new OrderItemWithProductName(orderItem, productName));
+        }
+        return resultList;
+    }
+
     // ========== 原有内部类保留 ==========
     public static class StockUpdateDTO {
         private Long productId;
@@ -3,6 +3,11 @@ package com.example.shop.controller;
 import com.example.shop.entity.OrderItem;
 import com.example.shop.entity.OrderMain;
 import com.example.shop.entity.Product;
+import com.example.shop.mail.MailDispatcher;
+import com.example.shop.routing.DataSourceRouting;
+import com.example.shop.service.GroupCommitCheckout;
+import com.example.shop.service.OrderCheckoutService;
+import com.example.shop.service.OrderCheckoutService.CheckoutOrder;
 import com.example.shop.service.OrderItemService;
 import com.example.shop.service.OrderMainService;
 import com.example.shop.service.ProductService;
@@ -14,9 +19,9 @@ import com.example.shop.vo.PageResultVO;
 import com.example.shop.vo.Result;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.CollectionUtils;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -25,11 +30,16 @@ import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Slf4j
 @RestController
@@ -44,18 +54,29 @@ public class OrderController {
     private OrderItemService orderItemService;
     @Autowired
     private ProductService productService; // 已注入，直接使用
+    @Autowired
+    private OrderCheckoutService orderCheckoutService;
+    @Autowired
+    private GroupCommitCheckout groupCommitCheckout;
 
-    @Autowired(required = false)
-    private JavaMailSender mailSender;
+    @Autowired
+    private MailDispatcher mailDispatcher;
 
     @Value("${spring.mail.username:}")
     private String mailFrom;
 
+    /**
+     * 分页查询用户订单（含订单项和商品信息）
+     * 传入cursor参数时使用游标分页（首页传空串），按订单号顺序翻页且不统计总数
+     * withTotal=false时不统计总数，多查一条返回hasNext
+     */
     @GetMapping("/page")
     public Result<PageResultVO<OrderDetailVO>> getOrderPage(
             @RequestParam String userAccount,
             @RequestParam(required = false) Integer pageNo,
-            @RequestParam(required = false) Integer pageSize) {
+            @RequestParam(required = false) Integer pageSize,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "true") Boolean withTotal) {
         // 原有逻辑完全保留
         try {
             if (userAccount == null || userAccount.trim().isEmpty()) {
@@ -67,46 +88,19 @@ public class OrderController {
                 log.error("订单分页查询失败：账号{}无对应用户ID", userAccount);
                 return Result.fail("用户不存在");
             }
-            PageResultVO<OrderMain> orderMainPage = orderMainService.listByUserIdWithPage(userId, pageNo, pageSize);
-            List<OrderDetailVO> orderDetailList = new ArrayList<>();
-            for (OrderMain orderMain : orderMainPage.getList()) {
-                OrderDetailVO detailVO = new OrderDetailVO();
-                detailVO.setOrderMain(orderMain);
-                List<OrderItem> orderItemList = orderItemService.listByOrderNo(orderMain.getOrderNo());
-                List<OrderItemVO> itemVOList = new ArrayList<>();
-                BigDecimal totalPrice = BigDecimal.ZERO;
-                for (OrderItem item : orderItemList) {
-                    OrderItemVO itemVO = new OrderItemVO();
-                    itemVO.setId(item.getId());
-                    itemVO.setOrderNo(item.getOrderNo());
-                    itemVO.setQuantity(item.getQuantity());
-                    itemVO.setMerchantId(item.getMerchantId());
-                    itemVO.setProductId(item.getProductId());
-                    Product product = productService.getProductById(item.getProductId());
-                    if (product != null) {
-                        itemVO.setProductName(product.getProductName());
-                        itemVO.setProductPrice(product.getProductPrice());
-                    } else {
-                        itemVO.setProductName("未知商品");
-                        itemVO.setProductPrice(BigDecimal.ZERO);
-                    }
-                    itemVOList.add(itemVO);
-                    if (itemVO.getProductPrice() != null) {
-                        BigDecimal itemTotal = itemVO.getProductPrice()
-                                .multiply(BigDecimal.valueOf(item.getQuantity()));
-                        totalPrice = totalPrice.add(itemTotal);
-                    }
+            PageResultVO<OrderMain> orderMainPage;
+            if (cursor != null) {
+                try {
+                    orderMainPage = orderMainService.listByUserIdAfter(userId, cursor, pageSize);
+                } catch (IllegalArgumentException e) {
+                    log.warn("订单游标查询失败：账号{}，{}", userAccount, e.getMessage());
+                    return Result.fail(e.getMessage());
                 }
-                detailVO.setItemList(itemVOList);
-                detailVO.setTotalPrice(totalPrice);
-                orderDetailList.add(detailVO);
+            } else {
+                orderMainPage = orderMainService.listByUserIdWithPage(userId, pageNo, pageSize, withTotal);
             }
-            PageResultVO<OrderDetailVO> finalPageVO = new PageResultVO<>(
-                    orderMainPage.getTotal(),
-                    orderMainPage.getPages(),
-                    orderMainPage.getPageNo(),
-                    orderMainPage.getPageSize(),
-                    orderDetailList);
+            List<OrderDetailVO> orderDetailList = buildOrderDetailList(orderMainPage.getList());
+            PageResultVO<OrderDetailVO> finalPageVO = orderMainPage.withList(orderDetailList);
             log.info("用户{}订单分页查询成功：总{}条/{}页", userAccount, finalPageVO.getTotal(), finalPageVO.getPages());
             return Result.success(finalPageVO);
         } catch (Exception e) {
@@ -115,8 +109,72 @@ public class OrderController {
         }
     }
 
+    /**
+     * 组装订单详情列表：本页订单项一次批量查询、涉及商品一次批量查询，再在内存中按订单号分组拼装
+     * （查询次数与页大小、订单商品数无关）
+     *
+     * @param orderMainList 本页订单主信息列表
+     * @return 订单详情VO列表（顺序与orderMainList一致）
+     */
+    private List<OrderDetailVO> buildOrderDetailList(List<OrderMain> orderMainList) {
+        if (CollectionUtils.isEmpty(orderMainList)) {
+            return new ArrayList<>();
+        }
+        List<String> orderNos = new ArrayList<>();
+        for (OrderMain orderMain : orderMainList) {
+            orderNos.add(orderMain.getOrderNo());
+        }
+        Map<String, List<OrderItem>> orderItemMap = orderItemService.listByOrderNos(orderNos);
+
+        List<Long> productIds = new ArrayList<>();
+        for (List<OrderItem> orderItemList : orderItemMap.values()) {
+            for (OrderItem item : orderItemList) {
+                productIds.add(item.getProductId());
+            }
+        }
+        Map<Long, Product> productMap = productService.getProductsByIds(productIds);
+
+        List<OrderDetailVO> orderDetailList = new ArrayList<>();
+        for (OrderMain orderMain : orderMainList) {
+            OrderDetailVO detailVO = new OrderDetailVO();
+            detailVO.setOrderMain(orderMain);
+            List<OrderItem> orderItemList = orderItemMap.getOrDefault(orderMain.getOrderNo(), Collections.emptyList());
+            List<OrderItemVO> itemVOList = new ArrayList<>();
+            BigDecimal totalPrice = BigDecimal.ZERO;
+            for (OrderItem item : orderItemList) {
+                OrderItemVO itemVO = new OrderItemVO();
+                itemVO.setId(item.getId());
+                itemVO.setOrderNo(item.getOrderNo());
+                itemVO.setQuantity(item.getQuantity());
+                itemVO.setMerchantId(item.getMerchantId());
+                itemVO.setProductId(item.getProductId());
+                Product product = productMap.get(item.getProductId());
+                if (product != null) {
+                    itemVO.setProductName(product.getProductName());
+                    itemVO.setProductPrice(product.getProductPrice());
+                } else {
+                    itemVO.setProductName("未知商品");
+                    itemVO.setProductPrice(BigDecimal.ZERO);
+                }
+                itemVOList.add(itemVO);
+                if (itemVO.getProductPrice() != null) {
+                    BigDecimal itemTotal = itemVO.getProductPrice()
+                            .multiply(BigDecimal.valueOf(item.getQuantity()));
+                    totalPrice = totalPrice.add(itemTotal);
+                }
+            }
+            detailVO.setItemList(itemVOList);
+            detailVO.setTotalPrice(totalPrice);
+            orderDetailList.add(detailVO);
+        }
+        return orderDetailList;
+    }
+
+    /**
+     * 新增订单（扣减库存 + 写订单主信息和订单项目）
+     * 开启合并提交时请求排队，由写线程与其他订单合并在一个事务中提交；响应格式不变
+     */
     @PostMapping("/add")
-    @Transactional(rollbackFor = Exception.class)
     public Result<String> addNewOrder(@RequestBody OrderAddRequestVO requestVO) {
         try {
             if (requestVO == null) {
@@ -131,27 +189,34 @@ public class OrderController {
                 log.error("新增订单失败：用户{}无订单项目", userAccount);
                 return Result.fail("订单商品列表不能为空");
             }
+            // 账号在请求体中，绑定读己之写的用户标识（开启读写分离时）
+            DataSourceRouting.bindClient(userAccount);
             Long userId = userService.selectUserIdByAccount(userAccount);
             if (userId == null || userId <= 0) {
                 log.error("新增订单失败：账号{}无对应用户ID", userAccount);
                 return Result.fail("用户不存在");
             }
 
-            // ========== 新增：订单生成时扣减库存（核心改动） ==========
-            for (OrderItem itemVO : requestVO.getOrderItemList()) {
-                Long productId = itemVO.getProductId();
-                Integer quantity = itemVO.getQuantity();
-                // 调用ProductService扣减库存
-                Long stockResult = productService.decreaseStock(productId, quantity);
-                if (stockResult == 0L) { // 扣减失败（库存不足/商品不存在）
-                    throw new RuntimeException("商品ID=" + productId + "库存扣减失败");
+            // 扣减库存 + 写订单（单笔独立事务，或排队合并提交）
+            CheckoutOrder order = new CheckoutOrder(userId, requestVO.getOrderItemList());
+            String orderNo;
+            if (groupCommitCheckout.isEnabled()) {
+                CompletableFuture<String> future = groupCommitCheckout.submit(order);
+                try {
+                    orderNo = future.get(groupCommitCheckout.getTimeoutMillis(), TimeUnit.MILLISECONDS);
+                } catch (ExecutionException e) {
+                    throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                } catch (TimeoutException e) {
+                    if (groupCommitCheckout.cancel(future)) {
+                        log.warn("用户{}下单排队超时，已取消", userAccount);
+                        return Result.fail("下单请求过多，请稍后重试");
+                    }
+                    log.warn("用户{}下单等待写库结果超时", userAccount);
+                    return Result.fail("下单处理超时，订单可能已生成，请在订单列表中确认");
                 }
+            } else {
+                orderNo = orderCheckoutService.checkout(order);
             }
-
-            // 原有订单生成逻辑完全保留
-            OrderMain orderMain = orderMainService.addOrderMain(userId);
-            String orderNo = orderMain.getOrderNo();
-            orderItemService.batchAddOrderItem(orderNo, requestVO.getOrderItemList());
             log.info("用户{}新增订单成功：orderNo={}，包含{}个商品",
                     userAccount, orderNo, requestVO.getOrderItemList().size());
             return Result.success("新增订单成功，订单号：" + orderNo);
@@ -162,6 +227,7 @@ public class OrderController {
     }
 
     // 简单的发货邮件接口，前端传 { toEmail, orderId }
+    // 邮件进入异步发送队列后立即返回，data为跟踪ID，可通过 /mail/{trackingId} 查询发送状态
     @PostMapping("/sendShipmentEmail")
     public Result<String> sendShipmentEmail(@RequestBody SendEmailRequest req) {
         try {
@@ -174,7 +240,7 @@ public class OrderController {
                 return Result.fail("订单号不能为空");
             }
 
-            if (mailSender == null) {
+            if (!mailDispatcher.isAvailable()) {
                 log.warn("JavaMailSender 未配置，模拟发送邮件 给 {}，orderId={} ", req.getToEmail(), req.getOrderId());
                 return Result.success("邮件发送（模拟）成功");
             }
@@ -186,15 +252,39 @@ public class OrderController {
             message.setSubject("发货成功 - 订单 " + req.getOrderId());
             String text = String.format("您好，\n\n您的订单 %s 已发货。感谢您的购买！\n\n祝好，\n%s", req.getOrderId(), "商城团队");
             message.setText(text);
-            mailSender.send(message);
-            log.info("已发送发货邮件 到 {}，orderId={}", req.getToEmail(), req.getOrderId());
-            return Result.success("邮件发送成功");
+            String trackingId = mailDispatcher.submit(message);
+            log.info("发货邮件已提交发送 到 {}，orderId={}，trackingId={}", req.getToEmail(), req.getOrderId(), trackingId);
+            Result<String> result = Result.success("邮件已提交发送");
+            result.setData(trackingId);
+            return result;
         } catch (Exception e) {
             log.error("发送发货邮件异常", e);
             return Result.fail("发送邮件失败：" + e.getMessage());
         }
     }
 
+    /**
+     * 查询邮件发送状态
+     * GET /api/order/mail/{trackingId}
+     */
+    @GetMapping("/mail/{trackingId}")
+    public Result<MailDispatcher.MailTracking> getMailStatus(@PathVariable String trackingId) {
+        MailDispatcher.MailTracking tracking = mailDispatcher.getTracking(trackingId);
+        if (tracking == null) {
+            return Result.fail("跟踪ID不存在或已过期");
+        }
+        return Result.success(tracking);
+    }
+
+    /**
+     * 查询发送失败（重试次数用完）的邮件
+     * GET /api/order/mail/dead-letters
+     */
+    @GetMapping("/mail/dead-letters")
+    public Result<List<MailDispatcher.MailTracking>> getMailDeadLetters() {
+        return Result.success(mailDispatcher.getDeadLetters());
+    }
+
     // 简单请求体类
     public static class SendEmailRequest {
         private String toEmail;
@@ -1,22 +1,19 @@
 package com.example.shop.controller;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value; // 新增：读取配置文件的upload.path
-import org.springframework.core.io.FileSystemResource; // 新增：处理本地文件
-import org.springframework.http.HttpHeaders; // 新增：设置响应头
-import org.springframework.http.HttpStatus; // 新增：响应状态码
-import org.springframework.http.MediaType; // 新增：设置图片媒体类型
-import org.springframework.http.ResponseEntity; // 新增：返回文件流
 import org.springframework.web.bind.annotation.*;
 
 import com.example.shop.entity.Product;
 import com.example.shop.service.ProductService;
+import com.example.shop.storage.ImageServer;
 
 import com.example.shop.vo.Result;
 import com.example.shop.vo.PageResultVO;
 
-import java.io.File; // 新增：文件操作
 import java.io.IOException; // 新增：异常处理
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/product")
@@ -25,46 +22,17 @@ public class ProductController {
     @Autowired
     private ProductService productService;
 
-    @Value("${upload.path}")
-    private String uploadPath;
+    @Autowired
+    private ImageServer imageServer;
 
     /**
      * GET /api/product/img/products/{fileName} → 返回图片二进制流
+     * 支持ETag/Last-Modified条件请求（304）、Range请求（206），热点小图走内存缓存，其他走sendfile零拷贝
      */
     @GetMapping("/img/products/{fileName}")
-    public ResponseEntity<FileSystemResource> getProductImage(@PathVariable String fileName) {
-        try {
-            // 拼接完整的图片文件路径（upload.path = /opt/shop_uploads/products/）
-            File imageFile = new File(uploadPath + fileName);
-
-            // 校验文件是否存在
-            if (!imageFile.exists()) {
-                return new ResponseEntity<>(HttpStatus.NOT_FOUND);
-            }
-
-            // 设置响应头：指定图片类型、文件大小，避免浏览器解析错误
-            HttpHeaders headers = new HttpHeaders();
-            String fileType = fileName.substring(fileName.lastIndexOf(".") + 1).toLowerCase();
-            switch (fileType) {
-                case "png":
-                    headers.setContentType(MediaType.IMAGE_PNG);
-                    break;
-                case "webp":
-                    headers.setContentType(MediaType.valueOf("image/webp"));
-                    break;
-                default: // jpg/jpeg
-                    headers.setContentType(MediaType.IMAGE_JPEG);
-                    break;
-            }
-            headers.setContentLength(imageFile.length());
-
-            // 返回图片文件流
-            return new ResponseEntity<>(new FileSystemResource(imageFile), headers, HttpStatus.OK);
-        } catch (Exception e) {
-            // 捕获所有异常，返回500
-            e.printStackTrace();
-            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
-        }
+    public void getProductImage(@PathVariable String fileName, HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        imageServer.serve(fileName, request, response);
     }
 
     /**
@@ -77,15 +45,28 @@ public class ProductController {
         return Result.success(product);
     }
 
+    /**
+     * 商品本地缓存统计（命中/未命中/淘汰次数）
+     * GET /api/product/cache/stats
+     */
+    @GetMapping("/cache/stats")
+    public Result<Map<String, Object>> getProductCacheStats() {
+        return Result.success(productService.getProductCacheStats());
+    }
+
     /**
      * 根据商品名称模糊查找
      * GET /api/product/productName/
+     * 传入cursor参数时使用游标分页（首页传空串），按商品ID顺序翻页且不统计总数
+     * withTotal=false时不统计总数，多查一条返回hasNext
      */
     @GetMapping("/productName")
     public Result<PageResultVO<Product>> getProductByName(
             @RequestParam(required = false) String name,
             @RequestParam(defaultValue = "1") Integer pageNum,
-            @RequestParam(defaultValue = "8") Integer pageSize) {
+            @RequestParam(defaultValue = "8") Integer pageSize,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "true") Boolean withTotal) {
         // 参数合法性校验
         if (pageNum < 1) {
             pageNum = 1;
@@ -93,8 +74,15 @@ public class ProductController {
         if (pageSize < 1 || pageSize > 100) {
             pageSize = 10;
         }
+        if (cursor != null) {
+            try {
+                return Result.success(productService.getProductByNameAfter(name, cursor, pageSize));
+            } catch (IllegalArgumentException e) {
+                return Result.fail(e.getMessage());
+            }
+        }
         // 调用服务层获取分页结果
-        PageResultVO<Product> pageResult = productService.getProductByNamePage(name, pageNum, pageSize);
+        PageResultVO<Product> pageResult = productService.getProductByNamePage(name, pageNum, pageSize, withTotal);
         // 返回全局统一响应
         return Result.success(pageResult);
     }
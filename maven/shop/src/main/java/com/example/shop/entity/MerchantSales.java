@@ -0,0 +1,19 @@
+package com.example.shop.entity;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * 商家销售汇总（merchant_sales表，下单时增量维护）
+ */
+@Data
+public class MerchantSales {
+    private Long merchantId;
+    // 销售件数
+    private Long unitsSold;
+    // 销售额（下单时的商品单价 × 数量）
+    private BigDecimal revenue;
+    // 包含该商家商品的订单数
+    private Long orderCount;
+}
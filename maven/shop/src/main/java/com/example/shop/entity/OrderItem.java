@@ -2,6 +2,8 @@ package com.example.shop.entity;
 
 import lombok.Data;
 
+import java.math.BigDecimal;
+
 @Data
 public class OrderItem {
     private Long Id;
@@ -9,4 +11,6 @@ public class OrderItem {
     private Long productId;
     private Integer quantity;
     private Long merchantId;
+    // 成交单价（下单事务中读取的商品单价，重建销售汇总时按它计算销售额；历史数据为null）
+    private BigDecimal unitPrice;
 }
@@ -0,0 +1,16 @@
+package com.example.shop.entity;
+
+import lombok.Data;
+
+/**
+ * 待确认的分库订单（pending_shard_order表，位于主库）
+ * 分库订单先于主库事务（扣减库存）提交，主库事务提交时删除该记录；记录残留说明主库事务没有提交，需删除分库订单
+ */
+@Data
+public class PendingShardOrder {
+    private String orderNo;
+    private Integer shard;
+    private Long userId;
+    // 登记时间（毫秒时间戳）
+    private Long createdAt;
+}
@@ -0,0 +1,14 @@
+package com.example.shop.id;
+
+/**
+ * 订单号生成器（可替换实现：容器中声明其他实现并标记@Primary即可）
+ */
+public interface OrderNoGenerator {
+
+    /**
+     * 生成订单号（线程安全，不访问数据库）
+     *
+     * @return 全局唯一的订单号
+     */
+    String nextOrderNo();
+}
@@ -0,0 +1,103 @@
+package com.example.shop.id;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * 时间 + 节点号 + 序列号 订单号生成器
+ * 格式：yyyyMMddHHmmssSSS（17位） + 节点号（2位） + 毫秒内序列号（3位），共22位
+ *
+ * 唯一性：同一节点内由单调递增的逻辑时钟保证，不同节点靠节点号区分（每个实例必须配置不同的order.no.node-id）
+ * 时间部分按固定时区（order.no.zone，不允许有夏令时）格式化：夏令时回拨时两个不同时刻会格式化成同一个时间串
+ * 单毫秒内序列号用完时借用下一毫秒；时钟回拨时沿用逻辑时钟继续递增，不阻塞也不重复
+ * （逻辑时钟领先系统时钟期间重启同一节点，仍有重复的可能，回拨超过阈值时会告警）
+ */
+@Slf4j
+@Component
+public class TimeSequenceOrderNoGenerator implements OrderNoGenerator {
+
+    // 订单号长度
+    public static final int ORDER_NO_LENGTH = 22;
+    // 节点号取值范围 [0, 100)
+    public static final int MAX_NODE_ID = 100;
+    // 每毫秒序列号个数 [0, 1000)
+    private static final int SEQUENCE_PER_MILLIS = 1000;
+
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMddHHmmssSSS");
+
+    private final String nodeId;
+    private final LongSupplier clock;
+    private final ZoneId zone;
+    private final long clockBackwardWarnMillis;
+
+    // 逻辑时钟：毫秒时间戳 * SEQUENCE_PER_MILLIS + 序列号
+    private final AtomicLong lastValue = new AtomicLong();
+
+    @Autowired
+    public TimeSequenceOrderNoGenerator(
+            @Value("${order.no.node-id:0}") int nodeId,
+            @Value("${order.no.clock-backward-warn-ms:1000}") long clockBackwardWarnMillis,
+            @Value("${order.no.zone:Asia/Shanghai}") String zone) {
+        this(nodeId, clockBackwardWarnMillis, System::currentTimeMillis, ZoneId.of(zone));
+    }
+
+    /**
+     * @param nodeId                  节点号（0-99，集群内唯一）
+     * @param clockBackwardWarnMillis 逻辑时钟领先系统时钟超过该值时告警（毫秒）
+     * @param clock                   毫秒时钟
+     * @param zone                    订单号中时间部分使用的时区（当前及以后没有夏令时切换）
+     */
+    public TimeSequenceOrderNoGenerator(int nodeId, long clockBackwardWarnMillis, LongSupplier clock, ZoneId zone) {
+        if (nodeId < 0 || nodeId >= MAX_NODE_ID) {
+            throw new IllegalArgumentException("订单号节点号必须在0-" + (MAX_NODE_ID - 1) + "之间：" + nodeId);
+        }
+        if (zone.getRules().nextTransition(Instant.ofEpochMilli(clock.getAsLong())) != null) {
+            throw new IllegalArgumentException("订单号时区不能有夏令时切换（时间串会重复）：" + zone);
+        }
+        this.nodeId = String.format("%02d", nodeId);
+        this.clockBackwardWarnMillis = clockBackwardWarnMillis;
+        this.clock = clock;
+        this.zone = zone;
+        log.info("订单号生成器初始化：nodeId={}，zone={}", this.nodeId, zone);
+    }
+
+    @Override
+    public String nextOrderNo() {
+        long now = clock.getAsLong();
+        long next;
+        while (true) {
+            long last = lastValue.get();
+            // 取“上一个值+1”与“当前毫秒的第一个值”中的较大者：序列号用完自动进位到下一毫秒，时钟回拨时继续递增
+            next = Math.max(last + 1, now * SEQUENCE_PER_MILLIS);
+            if (lastValue.compareAndSet(last, next)) {
+                break;
+            }
+        }
+
+        long millis = next / SEQUENCE_PER_MILLIS;
+        int sequence = (int) (next % SEQUENCE_PER_MILLIS);
+        if (millis - now > clockBackwardWarnMillis) {
+            log.warn("订单号逻辑时钟领先系统时钟{}ms（时钟回拨或生成速率过高）", millis - now);
+        }
+
+        StringBuilder orderNo = new StringBuilder(ORDER_NO_LENGTH);
+        TIME_FORMAT.formatTo(Instant.ofEpochMilli(millis).atZone(zone), orderNo);
+        orderNo.append(nodeId);
+        if (sequence < 100) {
+            orderNo.append('0');
+        }
+        if (sequence < 10) {
+            orderNo.append('0');
+        }
+        orderNo.append(sequence);
+        return orderNo.toString();
+    }
+}
@@ -0,0 +1,351 @@
+package com.example.shop.mail;
+
+import com.example.shop.cache.LocalCache;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 异步邮件发送（有界队列 + 少量发送线程 + 指数退避重试 + 死信列表）
+ * 发送线程每次取出一批邮件通过同一个SMTP连接发送，接口线程只负责入队并返回跟踪ID
+ */
+@Slf4j
+@Component
+public class MailDispatcher {
+
+    /**
+     * 邮件发送状态
+     */
+    public enum Status {
+        /** 排队中 */
+        QUEUED,
+        /** 发送失败，等待重试 */
+        RETRYING,
+        /** 已发送 */
+        SENT,
+        /** 重试次数用完，进入死信列表 */
+        DEAD
+    }
+
+    /**
+     * 邮件跟踪信息
+     */
+    @Data
+    public static class MailTracking {
+        private String trackingId;
+        private String to;
+        private String subject;
+        private volatile Status status;
+        private volatile int attempts;
+        private volatile String lastError;
+        private final long createdAt = System.currentTimeMillis();
+        private volatile long updatedAt = createdAt;
+    }
+
+    /**
+     * 待发送的邮件
+     */
+    private static class MailTask {
+        private final SimpleMailMessage message;
+        private final MailTracking tracking;
+
+        private MailTask(SimpleMailMessage message, MailTracking tracking) {
+            this.message = message;
+            this.tracking = tracking;
+        }
+    }
+
+    private final JavaMailSender mailSender;
+    private final int queueCapacity;
+    private final int workers;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private final int deadLetterCapacity;
+
+    private BlockingQueue<MailTask> queue;
+    private ExecutorService workerPool;
+    private ScheduledExecutorService retryScheduler;
+    private volatile boolean running;
+    // 等待重试的邮件（谁先从这里移除谁负责重新入队；停止时据此找回还没到时间的重试）
+    private final Set<MailTask> retrying = ConcurrentHashMap.newKeySet();
+
+    // 跟踪ID → 跟踪信息（过期自动清理）
+    private final LocalCache<String, MailTracking> trackings;
+    // 死信列表（超出容量时丢弃最早的）
+    private final Deque<MailTracking> deadLetters = new ConcurrentLinkedDeque<>();
+
+    @Autowired
+    public MailDispatcher(
+            ObjectProvider<JavaMailSender> mailSender,
+            @Value("${mail.dispatch.queue-capacity:2000}") int queueCapacity,
+            @Value("${mail.dispatch.workers:2}") int workers,
+            @Value("${mail.dispatch.batch-size:20}") int batchSize,
+            @Value("${mail.dispatch.max-attempts:5}") int maxAttempts,
+            @Value("${mail.dispatch.initial-backoff-ms:1000}") long initialBackoffMillis,
+            @Value("${mail.dispatch.max-backoff-ms:60000}") long maxBackoffMillis,
+            @Value("${mail.dispatch.dead-letter-capacity:1000}") int deadLetterCapacity) {
+        this(mailSender.getIfAvailable(), queueCapacity, workers, batchSize, maxAttempts,
+                initialBackoffMillis, maxBackoffMillis, deadLetterCapacity);
+    }
+
+    /**
+     * @param mailSender           邮件发送器（null表示未配置SMTP，不启动发送线程）
+     * @param queueCapacity        队列容量（满时拒绝入队）
+     * @param workers              发送线程数
+     * @param batchSize            每个SMTP连接一次发送的最多邮件数
+     * @param maxAttempts          最多发送次数（含首次）
+     * @param initialBackoffMillis 首次重试间隔（之后每次翻倍）
+     * @param maxBackoffMillis     重试间隔上限
+     * @param deadLetterCapacity   死信列表容量
+     */
+    public MailDispatcher(JavaMailSender mailSender, int queueCapacity, int workers, int batchSize, int maxAttempts,
+            long initialBackoffMillis, long maxBackoffMillis, int deadLetterCapacity) {
+        this.mailSender = mailSender;
+        this.queueCapacity = queueCapacity;
+        this.workers = workers;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.deadLetterCapacity = deadLetterCapacity;
+        this.trackings = new LocalCache<>("mailTracking", Math.max(queueCapacity * 5, 1000), TimeUnit.HOURS.toMillis(24));
+    }
+
+    @PostConstruct
+    public void start() {
+        if (mailSender == null) {
+            log.warn("JavaMailSender 未配置，异步邮件发送未启动");
+            return;
+        }
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicInteger threadNo = new AtomicInteger();
+        workerPool = Executors.newFixedThreadPool(workers, r -> {
+            Thread thread = new Thread(r, "mail-sender-" + threadNo.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        retryScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "mail-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        running = true;
+        for (int i = 0; i < workers; i++) {
+            workerPool.execute(this::sendLoop);
+        }
+        log.info("异步邮件发送已启动：queueCapacity={}，workers={}，batchSize={}，maxAttempts={}",
+                queueCapacity, workers, batchSize, maxAttempts);
+    }
+
+    /**
+     * 停止：不再接收新邮件，等待重试的邮件立即重新入队做最后一次发送，发送线程把队列中剩余的邮件发完后退出；
+     * 最后一次仍失败或来不及发送的邮件进入死信列表，不会一直停留在RETRYING/QUEUED状态
+     */
+    @PreDestroy
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        retryScheduler.shutdownNow();
+        for (MailTask task : retrying) {
+            if (retrying.remove(task) && !queue.offer(task)) {
+                deadLetter(task, "服务停止，重试入队失败：队列已满");
+            }
+        }
+        workerPool.shutdown();
+        try {
+            if (!workerPool.awaitTermination(30, TimeUnit.SECONDS)) {
+                workerPool.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            workerPool.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        List<MailTask> unsent = new ArrayList<>();
+        queue.drainTo(unsent);
+        for (MailTask task : unsent) {
+            deadLetter(task, "服务停止，未发送");
+        }
+    }
+
+    /**
+     * 是否可用（已配置SMTP并已启动）
+     */
+    public boolean isAvailable() {
+        return running;
+    }
+
+    /**
+     * 提交邮件（立即返回）
+     *
+     * @param message 邮件
+     * @return 跟踪ID
+     * @throws IllegalStateException 未启动或队列已满
+     */
+    public String submit(SimpleMailMessage message) {
+        if (!running) {
+            throw new IllegalStateException("邮件服务不可用");
+        }
+        MailTracking tracking = new MailTracking();
+        tracking.setTrackingId(UUID.randomUUID().toString().replace("-", ""));
+        tracking.setTo(message.getTo() == null ? null : String.join(",", message.getTo()));
+        tracking.setSubject(message.getSubject());
+        tracking.setStatus(Status.QUEUED);
+        if (!queue.offer(new MailTask(message, tracking))) {
+            throw new IllegalStateException("邮件发送队列已满，请稍后重试");
+        }
+        trackings.put(tracking.getTrackingId(), tracking);
+        return tracking.getTrackingId();
+    }
+
+    /**
+     * 查询邮件发送状态
+     *
+     * @param trackingId 跟踪ID
+     * @return 跟踪信息（不存在/已过期返回null）
+     */
+    public MailTracking getTracking(String trackingId) {
+        return trackingId == null ? null : trackings.get(trackingId);
+    }
+
+    /**
+     * 死信列表（最近的在前）
+     */
+    public List<MailTracking> getDeadLetters() {
+        List<MailTracking> list = new ArrayList<>(deadLetters);
+        Collections.reverse(list);
+        return list;
+    }
+
+    /**
+     * 发送线程主循环：每次取出一批邮件，用同一个SMTP连接发送
+     */
+    private void sendLoop() {
+        List<MailTask> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                MailTask first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                sendBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                log.error("邮件发送线程异常", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void sendBatch(List<MailTask> batch) {
+        SimpleMailMessage[] messages = new SimpleMailMessage[batch.size()];
+        for (int i = 0; i < batch.size(); i++) {
+            messages[i] = batch.get(i).message;
+            batch.get(i).tracking.setAttempts(batch.get(i).tracking.getAttempts() + 1);
+        }
+        try {
+            mailSender.send(messages);
+            for (MailTask task : batch) {
+                markSent(task);
+            }
+        } catch (MailSendException e) {
+            // 只有失败的邮件需要重试（连接失败时全部失败）
+            Map<Object, Exception> failed = e.getFailedMessages();
+            for (MailTask task : batch) {
+                if (failed.isEmpty() || failed.containsKey(task.message)) {
+                    Exception cause = failed.get(task.message);
+                    retryOrDeadLetter(task, cause != null ? cause : e);
+                } else {
+                    markSent(task);
+                }
+            }
+        } catch (MailException e) {
+            for (MailTask task : batch) {
+                retryOrDeadLetter(task, e);
+            }
+        }
+    }
+
+    private void markSent(MailTask task) {
+        task.tracking.setStatus(Status.SENT);
+        task.tracking.setUpdatedAt(System.currentTimeMillis());
+        log.info("邮件发送成功：trackingId={}，to={}", task.tracking.getTrackingId(), task.tracking.getTo());
+    }
+
+    /**
+     * 发送失败：未超过次数时按指数退避重新入队，否则进入死信列表
+     */
+    private void retryOrDeadLetter(MailTask task, Exception cause) {
+        MailTracking tracking = task.tracking;
+        tracking.setLastError(cause.getMessage());
+        tracking.setUpdatedAt(System.currentTimeMillis());
+        if (tracking.getAttempts() >= maxAttempts || !running) {
+            deadLetter(task, "已发送" + tracking.getAttempts() + "次");
+            return;
+        }
+        long delay = Math.min(initialBackoffMillis << Math.min(tracking.getAttempts() - 1, 30), maxBackoffMillis);
+        // 先登记再改状态：看到RETRYING时stop()一定能找回这封邮件
+        retrying.add(task);
+        tracking.setStatus(Status.RETRYING);
+        log.warn("邮件发送失败，{}ms后第{}次重试：trackingId={}，to={}，原因：{}",
+                delay, tracking.getAttempts() + 1, tracking.getTrackingId(), tracking.getTo(), cause.getMessage());
+        try {
+            retryScheduler.schedule(() -> {
+                if (retrying.remove(task) && !queue.offer(task)) {
+                    deadLetter(task, "重试入队失败：队列已满");
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            // 停止时调度器已关闭：已被stop()取走重新入队的不再处理
+            if (retrying.remove(task)) {
+                deadLetter(task, "重试调度失败：" + e.getMessage());
+            }
+        }
+    }
+
+    private void deadLetter(MailTask task, String reason) {
+        MailTracking tracking = task.tracking;
+        tracking.setStatus(Status.DEAD);
+        tracking.setUpdatedAt(System.currentTimeMillis());
+        deadLetters.addLast(tracking);
+        while (deadLetters.size() > deadLetterCapacity) {
+            deadLetters.pollFirst();
+        }
+        log.error("邮件发送失败，进入死信列表（{}）：trackingId={}，to={}，最后错误：{}",
+                reason, tracking.getTrackingId(), tracking.getTo(), tracking.getLastError());
+    }
+}
@@ -1,14 +1,25 @@
 package com.example.shop.mapper;
 
 import com.example.shop.entity.Cart;
+import com.example.shop.vo.CartItemDTO;
+import com.example.shop.vo.CartSummaryDTO;
 import org.apache.ibatis.annotations.*;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Mapper
 @Repository
 public interface CartMapper {
+        /**
+         * 购物车行查询（购物车⋈商品）：商品不存在时名称为“未知商品”，单价、商家ID为0
+         */
+        String SELECT_CART_ITEM = "SELECT c.product_id, COALESCE(p.product_name, '未知商品') AS product_name, c.quantity, " +
+                        "COALESCE(p.product_price, 0.00) AS product_price, COALESCE(p.merchant_id, 0) AS merchant_id, " +
+                        "COALESCE(p.product_price, 0.00) * c.quantity AS line_total " +
+                        "FROM cart c LEFT JOIN product p ON p.product_id = c.product_id ";
+
         /**
          * 根据用户ID查询
          * 
@@ -26,12 +37,68 @@ public interface CartMapper {
          * @param limit  页限制
          * @return 购物车实体列表
          */
-        @Select("SELECT product_id, user_id, quantity FROM cart WHERE user_id = #{userId} LIMIT #{offset}, #{limit}")
+        @Select("SELECT product_id, user_id, quantity FROM cart WHERE user_id = #{userId} ORDER BY product_id LIMIT #{offset}, #{limit}")
         List<Cart> selectByUserIdWithPage(
                         @Param("userId") Long userId,
                         @Param("offset") Integer offset,
                         @Param("limit") Integer limit);
 
+        /**
+         * 根据用户ID游标分页查询（按商品ID升序，从afterProductId之后开始）
+         *
+         * @param userId         用户ID
+         * @param afterProductId 上一页最后一条的商品ID（null表示第一页）
+         * @param limit          查询条数
+         * @return 购物车实体列表
+         */
+        @Select("<script>SELECT product_id, user_id, quantity FROM cart WHERE user_id = #{userId} " +
+                        "<if test='afterProductId != null'>AND product_id &gt; #{afterProductId} </if>" +
+                        "ORDER BY product_id LIMIT #{limit}</script>")
+        List<Cart> selectByUserIdAfter(
+                        @Param("userId") Long userId,
+                        @Param("afterProductId") Long afterProductId,
+                        @Param("limit") Integer limit);
+
+        /**
+         * 根据用户ID分页查询购物车行（关联商品名称、单价、商家ID，计算金额小计）
+         *
+         * @param userId 用户ID
+         * @param offset 偏移量
+         * @param limit  页限制
+         * @return 购物车行列表（按商品ID升序）
+         */
+        @Select(SELECT_CART_ITEM + "WHERE c.user_id = #{userId} ORDER BY c.product_id LIMIT #{offset}, #{limit}")
+        List<CartItemDTO> selectCartItemsByUserIdWithPage(
+                        @Param("userId") Long userId,
+                        @Param("offset") Integer offset,
+                        @Param("limit") Integer limit);
+
+        /**
+         * 根据用户ID游标分页查询购物车行（按商品ID升序，从afterProductId之后开始）
+         *
+         * @param userId         用户ID
+         * @param afterProductId 上一页最后一条的商品ID（null表示第一页）
+         * @param limit          查询条数
+         * @return 购物车行列表
+         */
+        @Select("<script>" + SELECT_CART_ITEM + "WHERE c.user_id = #{userId} " +
+                        "<if test='afterProductId != null'>AND c.product_id &gt; #{afterProductId} </if>" +
+                        "ORDER BY c.product_id LIMIT #{limit}</script>")
+        List<CartItemDTO> selectCartItemsByUserIdAfter(
+                        @Param("userId") Long userId,
+                        @Param("afterProductId") Long afterProductId,
+                        @Param("limit") Integer limit);
+
+        /**
+         * 根据用户ID汇总购物车（记录数 + 金额合计，与分页查询使用相同的关联条件）
+         *
+         * @param userId 用户ID
+         * @return 购物车汇总
+         */
+        @Select("SELECT COUNT(*) AS total, COALESCE(SUM(p.product_price * c.quantity), 0.00) AS subtotal " +
+                        "FROM cart c LEFT JOIN product p ON p.product_id = c.product_id WHERE c.user_id = #{userId}")
+        CartSummaryDTO selectCartSummaryByUserId(@Param("userId") Long userId);
+
         /**
          * 根据用户ID查询购物车记录数
          * 
@@ -85,4 +152,30 @@ public interface CartMapper {
         int deleteByUserIdAndProductId(
                         @Param("userId") Long userId,
                         @Param("productId") Long productId);
+
+        /**
+         * 批量写入购物车记录（数量为最终值：不存在则插入，存在则覆盖数量）
+         *
+         * @param carts 购物车实体列表（不能为空）
+         * @return 影响的行数
+         */
+        @Insert("<script>INSERT INTO cart (user_id, product_id, quantity) VALUES " +
+                        "<foreach collection='carts' item='cart' separator=','>" +
+                        "(#{cart.userId}, #{cart.productId}, #{cart.quantity})" +
+                        "</foreach> ON DUPLICATE KEY UPDATE quantity = VALUES(quantity)</script>")
+        int upsertCarts(@Param("carts") List<Cart> carts);
+
+        /**
+         * 按用户ID+商品ID批量删除购物车记录
+         *
+         * @param userId     用户ID
+         * @param productIds 商品ID集合（不能为空）
+         * @return 影响的行数
+         */
+        @Delete("<script>DELETE FROM cart WHERE user_id = #{userId} AND product_id IN " +
+                        "<foreach collection='productIds' item='productId' open='(' separator=',' close=')'>" +
+                        "#{productId}</foreach></script>")
+        int deleteByUserIdAndProductIds(
+                        @Param("userId") Long userId,
+                        @Param("productIds") Collection<Long> productIds);
 }
\ No newline at end of file
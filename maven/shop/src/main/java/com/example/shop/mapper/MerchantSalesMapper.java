@@ -0,0 +1,154 @@
+package com.example.shop.mapper;
+
+import com.example.shop.entity.MerchantProductSales;
+import com.example.shop.entity.MerchantSales;
+import org.apache.ibatis.annotations.*;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * 商家销售汇总表（位于主库；开启订单分库时汇总的是所有分库的订单）
+ * <pre>
+ * CREATE TABLE merchant_sales (
+ *     merchant_id BIGINT         NOT NULL PRIMARY KEY,
+ *     units_sold  BIGINT         NOT NULL DEFAULT 0,
+ *     revenue     DECIMAL(16, 2) NOT NULL DEFAULT 0,
+ *     order_count BIGINT         NOT NULL DEFAULT 0
+ * );
+ * CREATE TABLE merchant_product_sales (
+ *     merchant_id BIGINT         NOT NULL,
+ *     product_id  BIGINT         NOT NULL,
+ *     units_sold  BIGINT         NOT NULL DEFAULT 0,
+ *     revenue     DECIMAL(16, 2) NOT NULL DEFAULT 0,
+ *     order_count BIGINT         NOT NULL DEFAULT 0,
+ *     PRIMARY KEY (merchant_id, product_id)
+ * );
+ * -- 重建与下单累加互斥用的锁行（由程序插入，见MerchantSalesService）
+ * CREATE TABLE merchant_sales_lock (
+ *     stripe INT NOT NULL PRIMARY KEY
+ * );
+ * </pre>
+ */
+@Mapper
+@Repository
+public interface MerchantSalesMapper {
+    /**
+     * 根据商家ID查询销售汇总（主键查询）
+     *
+     * @param merchantId 商家ID
+     * @return 销售汇总（没有销售记录返回null）
+     */
+    @Select("SELECT * FROM merchant_sales WHERE merchant_id = #{merchantId}")
+    MerchantSales selectByMerchantId(Long merchantId);
+
+    /**
+     * 按商家ID分页查询商品销售汇总（按商品ID升序）
+     *
+     * @param merchantId 商家ID
+     * @param offset     偏移量
+     * @param limit      每页数量
+     * @return 商品销售汇总列表
+     */
+    @Select("SELECT * FROM merchant_product_sales WHERE merchant_id = #{merchantId} " +
+            "ORDER BY product_id LIMIT #{offset}, #{limit}")
+    List<MerchantProductSales> selectProductSalesPage(
+            @Param("merchantId") Long merchantId,
+            @Param("offset") Integer offset,
+            @Param("limit") Integer limit);
+
+    /**
+     * 按商家ID游标分页查询商品销售汇总（按商品ID升序，从afterProductId之后开始）
+     *
+     * @param merchantId     商家ID
+     * @param afterProductId 上一页最后一条的商品ID（null表示第一页）
+     * @param limit          查询条数
+     * @return 商品销售汇总列表
+     */
+    @Select("<script>SELECT * FROM merchant_product_sales WHERE merchant_id = #{merchantId} " +
+            "<if test='afterProductId != null'>AND product_id &gt; #{afterProductId} </if>" +
+            "ORDER BY product_id LIMIT #{limit}</script>")
+    List<MerchantProductSales> selectProductSalesAfter(
+            @Param("merchantId") Long merchantId,
+            @Param("afterProductId") Long afterProductId,
+            @Param("limit") Integer limit);
+
+    /**
+     * 统计商家有销售记录的商品数（分页配套方法）
+     *
+     * @param merchantId 商家ID
+     * @return 商品数
+     */
+    @Select("SELECT COUNT(*) FROM merchant_product_sales WHERE merchant_id = #{merchantId}")
+    Integer countProductSalesByMerchantId(@Param("merchantId") Long merchantId);
+
+    /**
+     * 批量累加商家销售汇总（不存在的商家插入新行）
+     *
+     * @param salesList 增量列表（按商家ID升序，固定加锁顺序；不能为空）
+     * @return 影响的行数
+     */
+    @Insert("<script>INSERT INTO merchant_sales (merchant_id, units_sold, revenue, order_count) VALUES " +
+            "<foreach collection='salesList' item='sales' separator=','>" +
+            "(#{sales.merchantId}, #{sales.unitsSold}, #{sales.revenue}, #{sales.orderCount})" +
+            "</foreach> ON DUPLICATE KEY UPDATE units_sold = units_sold + VALUES(units_sold), " +
+            "revenue = revenue + VALUES(revenue), order_count = order_count + VALUES(order_count)</script>")
+    int addMerchantSales(@Param("salesList") List<MerchantSales> salesList);
+
+    /**
+     * 批量累加商家商品销售汇总（不存在的商品插入新行）
+     *
+     * @param salesList 增量列表（按商家ID、商品ID升序，固定加锁顺序；不能为空）
+     * @return 影响的行数
+     */
+    @Insert("<script>INSERT INTO merchant_product_sales (merchant_id, product_id, units_sold, revenue, order_count) VALUES " +
+            "<foreach collection='salesList' item='sales' separator=','>" +
+            "(#{sales.merchantId}, #{sales.productId}, #{sales.unitsSold}, #{sales.revenue}, #{sales.orderCount})" +
+            "</foreach> ON DUPLICATE KEY UPDATE units_sold = units_sold + VALUES(units_sold), " +
+            "revenue = revenue + VALUES(revenue), order_count = order_count + VALUES(order_count)</script>")
+    int addProductSales(@Param("salesList") List<MerchantProductSales> salesList);
+
+    /**
+     * 插入锁行（已存在的忽略）
+     *
+     * @param stripes 锁行编号列表（不能为空）
+     * @return 影响的行数
+     */
+    @Insert("<script>INSERT INTO merchant_sales_lock (stripe) VALUES " +
+            "<foreach collection='stripes' item='stripe' separator=','>(#{stripe})</foreach> " +
+            "ON DUPLICATE KEY UPDATE stripe = VALUES(stripe)</script>")
+    int addLockStripes(@Param("stripes") List<Integer> stripes);
+
+    /**
+     * 对一个锁行加行锁（下单累加时使用，持有到事务结束）
+     *
+     * @param stripe 锁行编号
+     * @return 锁行编号（锁行不存在返回null）
+     */
+    @Select("SELECT stripe FROM merchant_sales_lock WHERE stripe = #{stripe} FOR UPDATE")
+    Integer lockStripe(@Param("stripe") Integer stripe);
+
+    /**
+     * 按编号升序对全部锁行加行锁（重建时使用，持有到事务结束）
+     *
+     * @return 锁行编号列表
+     */
+    @Select("SELECT stripe FROM merchant_sales_lock ORDER BY stripe FOR UPDATE")
+    List<Integer> lockAllStripes();
+
+    /**
+     * 清空商家销售汇总（重建使用）
+     *
+     * @return 删除的行数
+     */
+    @Delete("DELETE FROM merchant_sales")
+    int deleteAllMerchantSales();
+
+    /**
+     * 清空商家商品销售汇总（重建使用）
+     *
+     * @return 删除的行数
+     */
+    @Delete("DELETE FROM merchant_product_sales")
+    int deleteAllProductSales();
+}
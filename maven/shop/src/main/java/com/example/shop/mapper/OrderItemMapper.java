@@ -1,11 +1,24 @@
 package com.example.shop.mapper;
 
+import com.example.shop.entity.MerchantProductSales;
+import com.example.shop.entity.MerchantSales;
 import com.example.shop.entity.OrderItem;
 import org.apache.ibatis.annotations.*;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
+/**
+ * 订单项目表（开启订单分库时位于各分库）
+ * unit_price 为成交单价，已有的表需先加列；加列前的历史订单项目没有成交单价，重建销售汇总时按商品当前单价估算，
+ * 可以在加列后按当时的单价回填一次，之后改价不再影响重建结果：
+ * <pre>
+ * ALTER TABLE order_item ADD COLUMN unit_price DECIMAL(10, 2) NULL;
+ * UPDATE order_item oi SET unit_price = (SELECT p.product_price FROM product p WHERE p.product_id = oi.product_id)
+ *  WHERE unit_price IS NULL;
+ * </pre>
+ */
 @Mapper
 @Repository
 public interface OrderItemMapper {
@@ -27,6 +40,17 @@ public interface OrderItemMapper {
     @Select("SELECT * FROM order_item WHERE order_no = #{orderNo}")
     List<OrderItem> selectByOrderNo(String orderNo);
 
+    /**
+     * 根据订单号批量查询（一次查出多个订单的全部订单项）
+     *
+     * @param orderNos 订单号集合（不能为空集合）
+     * @return 订单项目列表（按订单号、订单项ID排序）
+     */
+    @Select("<script>SELECT * FROM order_item WHERE order_no IN " +
+            "<foreach collection='orderNos' item='orderNo' open='(' separator=',' close=')'>#{orderNo}</foreach>" +
+            " ORDER BY order_no, id</script>")
+    List<OrderItem> selectByOrderNos(@Param("orderNos") Collection<String> orderNos);
+
     /**
      * 按商家ID分页查找订单项
      *
@@ -35,12 +59,28 @@ public interface OrderItemMapper {
      * @param limit      每页数量
      * @return 该商家下的订单项分页列表
      */
-    @Select("SELECT * FROM order_item WHERE merchant_id = #{merchantId} LIMIT #{offset}, #{limit}")
+    @Select("SELECT * FROM order_item WHERE merchant_id = #{merchantId} ORDER BY id LIMIT #{offset}, #{limit}")
     List<OrderItem> selectByMerchantIdPage(
             @Param("merchantId") Long merchantId,
             @Param("offset") Integer offset,
             @Param("limit") Integer limit);
 
+    /**
+     * 按商家ID游标分页查找订单项（按订单项ID升序，从afterId之后开始）
+     *
+     * @param merchantId 商家ID
+     * @param afterId    上一页最后一条的订单项ID（null表示第一页）
+     * @param limit      查询条数
+     * @return 该商家下的订单项列表
+     */
+    @Select("<script>SELECT * FROM order_item WHERE merchant_id = #{merchantId} " +
+            "<if test='afterId != null'>AND id &gt; #{afterId} </if>" +
+            "ORDER BY id LIMIT #{limit}</script>")
+    List<OrderItem> selectByMerchantIdAfter(
+            @Param("merchantId") Long merchantId,
+            @Param("afterId") Long afterId,
+            @Param("limit") Integer limit);
+
     /**
      * 统计商家ID对应的订单项总数（分页配套方法）
      *
@@ -50,14 +90,74 @@ public interface OrderItemMapper {
     @Select("SELECT COUNT(*) FROM order_item WHERE merchant_id = #{merchantId}")
     Integer countByMerchantId(@Param("merchantId") Long merchantId);
 
+    /**
+     * 按商家、商品汇总销售件数、成交额和订单数（全表扫描，只用于重建销售汇总）
+     *
+     * @param excludeOrderNos 不计入的订单号（如尚未确认的分库订单；可为空）
+     * @return 商品销售汇总列表（revenue只含记录了成交单价的订单项目，都没有记录时为null）
+     */
+    @Select("<script>SELECT merchant_id, product_id, SUM(quantity) AS units_sold, SUM(quantity * unit_price) AS revenue, " +
+            "COUNT(DISTINCT order_no) AS order_count FROM order_item " +
+            "<if test='excludeOrderNos != null and !excludeOrderNos.isEmpty()'>WHERE order_no NOT IN " +
+            "<foreach collection='excludeOrderNos' item='orderNo' open='(' separator=',' close=')'>#{orderNo}</foreach> " +
+            "</if>GROUP BY merchant_id, product_id</script>")
+    List<MerchantProductSales> sumSalesGroupByMerchantAndProduct(@Param("excludeOrderNos") Collection<String> excludeOrderNos);
+
+    /**
+     * 按商家、商品汇总没有记录成交单价的销售件数（加列之前的历史订单项目，只用于重建销售汇总）
+     *
+     * @param excludeOrderNos 不计入的订单号（可为空）
+     * @return 商品销售汇总列表（只有merchantId、productId、unitsSold）
+     */
+    @Select("<script>SELECT merchant_id, product_id, SUM(quantity) AS units_sold FROM order_item WHERE unit_price IS NULL " +
+            "<if test='excludeOrderNos != null and !excludeOrderNos.isEmpty()'>AND order_no NOT IN " +
+            "<foreach collection='excludeOrderNos' item='orderNo' open='(' separator=',' close=')'>#{orderNo}</foreach> " +
+            "</if>GROUP BY merchant_id, product_id</script>")
+    List<MerchantProductSales> sumUnpricedUnitsGroupByMerchantAndProduct(
+            @Param("excludeOrderNos") Collection<String> excludeOrderNos);
+
+    /**
+     * 按商家汇总订单数（全表扫描，只用于重建销售汇总）
+     *
+     * @param excludeOrderNos 不计入的订单号（如尚未确认的分库订单；可为空）
+     * @return 商家销售汇总列表（只有merchantId、orderCount）
+     */
+    @Select("<script>SELECT merchant_id, COUNT(DISTINCT order_no) AS order_count FROM order_item " +
+            "<if test='excludeOrderNos != null and !excludeOrderNos.isEmpty()'>WHERE order_no NOT IN " +
+            "<foreach collection='excludeOrderNos' item='orderNo' open='(' separator=',' close=')'>#{orderNo}</foreach> " +
+            "</if>GROUP BY merchant_id</script>")
+    List<MerchantSales> countOrdersGroupByMerchant(@Param("excludeOrderNos") Collection<String> excludeOrderNos);
+
     /**
      * 插入订单项目信息
      * 
      * @param orderItem 订单项目实体
      * @return 插入结果，影响的行数
      */
-    @Insert("INSERT INTO order_item (order_no, product_id, quantity, merchant_id) " +
-            "VALUES (#{orderNo}, #{productId}, #{quantity}, #{merchantId})")
+    @Insert("INSERT INTO order_item (order_no, product_id, quantity, merchant_id, unit_price) " +
+            "VALUES (#{orderNo}, #{productId}, #{quantity}, #{merchantId}, #{unitPrice})")
     @Options(useGeneratedKeys = true, keyProperty = "id")
     int insertOrderItem(OrderItem orderItem);
+
+    /**
+     * 批量插入订单项目（一条多行INSERT，自增ID按顺序回填到各订单项目）
+     * 
+     * @param orderItems 订单项目列表（不能为空）
+     * @return 插入结果，影响的行数
+     */
+    @Insert("<script>INSERT INTO order_item (order_no, product_id, quantity, merchant_id, unit_price) VALUES " +
+            "<foreach collection='orderItems' item='item' separator=','>" +
+            "(#{item.orderNo}, #{item.productId}, #{item.quantity}, #{item.merchantId}, #{item.unitPrice})" +
+            "</foreach></script>")
+    @Options(useGeneratedKeys = true, keyProperty = "orderItems.id")
+    int insertOrderItems(@Param("orderItems") List<OrderItem> orderItems);
+
+    /**
+     * 根据订单号删除订单项目（分库下单的回滚补偿）
+     * 
+     * @param orderNo 订单号
+     * @return 删除结果，影响的行数
+     */
+    @Delete("DELETE FROM order_item WHERE order_no = #{orderNo}")
+    int deleteByOrderNo(String orderNo);
 }
@@ -44,11 +44,26 @@ public interface OrderMainMapper {
      * @param pageSize 每页条数
      * @return 分页订单列表
      */
-    @Select("SELECT * FROM order_main WHERE user_id = #{userId} LIMIT #{offset}, #{pageSize}")
+    @Select("SELECT * FROM order_main WHERE user_id = #{userId} ORDER BY order_no LIMIT #{offset}, #{pageSize}")
     List<OrderMain> selectByUserIdWithPage(@Param("userId") Long userId,
             @Param("offset") Integer offset,
             @Param("pageSize") Integer pageSize);
 
+    /**
+     * 游标分页查询用户订单列表（按订单号升序，从afterOrderNo之后开始）
+     *
+     * @param userId       用户主键ID
+     * @param afterOrderNo 上一页最后一条的订单号（null表示第一页）
+     * @param limit        查询条数
+     * @return 订单列表
+     */
+    @Select("<script>SELECT * FROM order_main WHERE user_id = #{userId} " +
+            "<if test='afterOrderNo != null'>AND order_no &gt; #{afterOrderNo} </if>" +
+            "ORDER BY order_no LIMIT #{limit}</script>")
+    List<OrderMain> selectByUserIdAfter(@Param("userId") Long userId,
+            @Param("afterOrderNo") String afterOrderNo,
+            @Param("limit") Integer limit);
+
     /**
      * 插入订单主实体
      * 
@@ -58,4 +73,13 @@ public interface OrderMainMapper {
     @Insert("INSERT INTO order_main (order_no, user_id) " +
             "VALUES (#{orderNo}, #{userId})")
     int insertOrderMain(OrderMain orderMain);
+
+    /**
+     * 根据订单号删除订单主信息（分库下单的回滚补偿）
+     * 
+     * @param orderNo 订单号
+     * @return 删除结果，影响的行数
+     */
+    @Delete("DELETE FROM order_main WHERE order_no = #{orderNo}")
+    int deleteByOrderNo(String orderNo);
 }
@@ -0,0 +1,69 @@
+package com.example.shop.mapper;
+
+import com.example.shop.entity.PendingShardOrder;
+import org.apache.ibatis.annotations.*;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * 待确认的分库订单（位于主库）
+ * <pre>
+ * CREATE TABLE pending_shard_order (
+ *     order_no   VARCHAR(32) NOT NULL PRIMARY KEY,
+ *     shard      INT         NOT NULL,
+ *     user_id    BIGINT      NOT NULL,
+ *     created_at BIGINT      NOT NULL,
+ *     KEY idx_pending_shard_order_created (created_at)
+ * );
+ * </pre>
+ */
+@Mapper
+@Repository
+public interface PendingShardOrderMapper {
+    /**
+     * 登记待确认订单
+     *
+     * @param pending 待确认订单
+     * @return 影响的行数
+     */
+    @Insert("INSERT INTO pending_shard_order (order_no, shard, user_id, created_at) " +
+            "VALUES (#{orderNo}, #{shard}, #{userId}, #{createdAt})")
+    int insert(PendingShardOrder pending);
+
+    /**
+     * 根据订单号查询并加行锁（与下单事务中的确认互斥）
+     *
+     * @param orderNo 订单号
+     * @return 待确认订单（已确认/已补偿返回null）
+     */
+    @Select("SELECT * FROM pending_shard_order WHERE order_no = #{orderNo} FOR UPDATE")
+    PendingShardOrder selectForUpdate(String orderNo);
+
+    /**
+     * 查询登记时间早于指定时间的待确认订单（按登记时间升序）
+     *
+     * @param createdBefore 登记时间上限（毫秒时间戳）
+     * @param limit         查询条数
+     * @return 待确认订单列表
+     */
+    @Select("SELECT * FROM pending_shard_order WHERE created_at < #{createdBefore} ORDER BY created_at LIMIT #{limit}")
+    List<PendingShardOrder> selectCreatedBefore(@Param("createdBefore") Long createdBefore, @Param("limit") Integer limit);
+
+    /**
+     * 查询全部待确认订单的订单号（重建销售汇总时排除，记录很少）
+     *
+     * @return 订单号列表
+     */
+    @Select("SELECT order_no FROM pending_shard_order")
+    List<String> selectOrderNos();
+
+    /**
+     * 删除待确认订单（确认或补偿完成）
+     *
+     * @param orderNo 订单号
+     * @return 影响的行数
+     */
+    @Delete("DELETE FROM pending_shard_order WHERE order_no = #{orderNo}")
+    int deleteByOrderNo(String orderNo);
+}
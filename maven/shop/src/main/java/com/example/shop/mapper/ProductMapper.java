@@ -4,7 +4,9 @@ import com.example.shop.entity.Product;
 import org.apache.ibatis.annotations.*;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 @Mapper
 @Repository
@@ -18,6 +20,25 @@ public interface ProductMapper {
         @Select("SELECT * FROM product WHERE product_id = #{productId}")
         Product selectByProductId(Long productId);
 
+        /**
+         * 根据商品ID批量查询（一次往返替代循环单查）
+         *
+         * @param productIds 商品ID集合（不能为空集合）
+         * @return 商品实体列表（不存在的ID不返回，顺序不保证）
+         */
+        @Select("<script>SELECT * FROM product WHERE product_id IN " +
+                        "<foreach collection='productIds' item='productId' open='(' separator=',' close=')'>" +
+                        "#{productId}</foreach></script>")
+        List<Product> selectByProductIds(@Param("productIds") Collection<Long> productIds);
+
+        /**
+         * 查询全部上架商品的ID与名称（用于构建内存名称索引）
+         *
+         * @return 商品实体列表（仅含productId、productName、isOnShelf）
+         */
+        @Select("SELECT product_id, product_name, is_on_shelf FROM product WHERE is_on_shelf = 1")
+        List<Product> selectAllOnShelfNames();
+
         /**
          * 按名称模糊查找总记录数
          *
@@ -42,8 +63,8 @@ public interface ProductMapper {
          * @param product 商品实体
          * @return 插入结果，影响的行数
          */
-        @Insert("INSERT INTO product (product_name, product_desc, stock, product_pic, product_price, merchant_id) " +
-                        "VALUES (#{productName}, #{productDesc}, #{stock}, #{productPic}, #{productPrice}, #{merchantId})")
+        @Insert("INSERT INTO product (product_name, product_desc, stock, product_pic, product_price, merchant_id, is_on_shelf) " +
+                        "VALUES (#{productName}, #{productDesc}, #{stock}, #{productPic}, #{productPrice}, #{merchantId}, #{isOnShelf})")
         @Options(useGeneratedKeys = true, keyProperty = "productId")
         int insertProduct(Product product);
 
@@ -57,6 +78,26 @@ public interface ProductMapper {
                         "stock = #{stock}, product_pic = #{productPic}, is_on_shelf = #{isOnShelf} WHERE product_id = #{productId}")
         int updateProductByProductId(Product product);
 
+        /**
+         * 只更新上下架状态（不回写其他字段，避免用读到的旧值覆盖并发修改）
+         *
+         * @param productId 商品ID
+         * @param isOnShelf 上架标识（0下架，1上架）
+         * @return 影响行数
+         */
+        @Update("UPDATE product SET is_on_shelf = #{isOnShelf} WHERE product_id = #{productId}")
+        int updateShelfStatusByProductId(@Param("productId") Long productId, @Param("isOnShelf") Integer isOnShelf);
+
+        /**
+         * 只更新库存（商家直接设置库存值，不回写其他字段）
+         *
+         * @param productId 商品ID
+         * @param stock     新库存值
+         * @return 影响行数
+         */
+        @Update("UPDATE product SET stock = #{stock} WHERE product_id = #{productId}")
+        int setStockByProductId(@Param("productId") Long productId, @Param("stock") Integer stock);
+
         /**
          * 删除商品信息
          *
@@ -91,6 +132,48 @@ public interface ProductMapper {
                         @Param("newStock") Integer newStock,
                         @Param("oldStock") Integer oldStock);
 
+        /**
+         * 只查询商品库存（库存账本懒加载使用）
+         *
+         * @param productId 商品ID
+         * @return 库存（商品不存在返回null）
+         */
+        @Select("SELECT stock FROM product WHERE product_id = #{productId}")
+        Integer selectStockByProductId(Long productId);
+
+        /**
+         * 批量写回库存净扣减量（一条语句更新多个商品，净扣减量为负时表示归还）
+         *
+         * @param deltas 商品ID → 净扣减量
+         * @return 影响行数
+         */
+        @Update("<script>UPDATE product SET stock = stock - CASE product_id " +
+                        "<foreach collection='deltas' index='productId' item='delta'>" +
+                        "WHEN #{productId} THEN #{delta} </foreach>END " +
+                        "WHERE product_id IN " +
+                        "<foreach collection='deltas' index='productId' open='(' separator=',' close=')'>" +
+                        "#{productId}</foreach></script>")
+        int applyStockDeltas(@Param("deltas") Map<Long, Long> deltas);
+
+        /**
+         * 批量扣减库存（下单使用）：一条语句按商品ID升序加锁，逐行校验库存是否充足
+         * 影响行数小于商品数即有商品库存不足/不存在，调用方需回滚事务（已扣减的行随之撤销）
+         *
+         * @param quantities 商品ID → 扣减数量（必须按商品ID升序，如TreeMap）
+         * @return 影响行数
+         */
+        @Update("<script>UPDATE product SET stock = stock - CASE product_id " +
+                        "<foreach collection='quantities' index='productId' item='quantity'>" +
+                        "WHEN #{productId} THEN #{quantity} </foreach>END " +
+                        "WHERE product_id IN " +
+                        "<foreach collection='quantities' index='productId' open='(' separator=',' close=')'>" +
+                        "#{productId}</foreach> " +
+                        "AND stock &gt;= CASE product_id " +
+                        "<foreach collection='quantities' index='productId' item='quantity'>" +
+                        "WHEN #{productId} THEN #{quantity} </foreach>END " +
+                        "ORDER BY product_id</script>")
+        int decreaseStockBatch(@Param("quantities") Map<Long, Integer> quantities);
+
         // ===== 批量操作 =====
         /**
          * 按商家ID分页查找商品
@@ -100,7 +183,7 @@ public interface ProductMapper {
          * @param limit      每页数量
          * @return 商品分页列表
          */
-        @Select("SELECT * FROM product WHERE merchant_id = #{merchantId} LIMIT #{offset}, #{limit}")
+        @Select("SELECT * FROM product WHERE merchant_id = #{merchantId} ORDER BY product_id LIMIT #{offset}, #{limit}")
         List<Product> selectByMerchantIdPage(
                         @Param("merchantId") Long merchantId,
                         @Param("offset") Integer offset,
@@ -114,9 +197,41 @@ public interface ProductMapper {
          * @param limit  每页数量
          * @return 商品分页列表
          */
-        @Select("SELECT * FROM product WHERE product_name LIKE CONCAT('%', #{name}, '%') AND is_on_shelf = 1 LIMIT #{offset}, #{limit} ")
+        @Select("SELECT * FROM product WHERE product_name LIKE CONCAT('%', #{name}, '%') AND is_on_shelf = 1 ORDER BY product_id LIMIT #{offset}, #{limit} ")
         List<Product> selectByNamePage(
                         @Param("name") String name,
                         @Param("offset") Integer offset,
                         @Param("limit") Integer limit);
+
+        /**
+         * 按商家ID游标分页查找商品（按商品ID升序，从afterProductId之后开始）
+         *
+         * @param merchantId     商家ID
+         * @param afterProductId 上一页最后一条的商品ID（null表示第一页）
+         * @param limit          查询条数
+         * @return 商品列表
+         */
+        @Select("<script>SELECT * FROM product WHERE merchant_id = #{merchantId} " +
+                        "<if test='afterProductId != null'>AND product_id &gt; #{afterProductId} </if>" +
+                        "ORDER BY product_id LIMIT #{limit}</script>")
+        List<Product> selectByMerchantIdAfter(
+                        @Param("merchantId") Long merchantId,
+                        @Param("afterProductId") Long afterProductId,
+                        @Param("limit") Integer limit);
+
+        /**
+         * 按名称模糊游标分页查找商品（按商品ID升序，从afterProductId之后开始）
+         *
+         * @param name           商品名称（模糊匹配）
+         * @param afterProductId 上一页最后一条的商品ID（null表示第一页）
+         * @param limit          查询条数
+         * @return 商品列表
+         */
+        @Select("<script>SELECT * FROM product WHERE product_name LIKE CONCAT('%', #{name}, '%') AND is_on_shelf = 1 " +
+                        "<if test='afterProductId != null'>AND product_id &gt; #{afterProductId} </if>" +
+                        "ORDER BY product_id LIMIT #{limit}</script>")
+        List<Product> selectByNameAfter(
+                        @Param("name") String name,
+                        @Param("afterProductId") Long afterProductId,
+                        @Param("limit") Integer limit);
 }
\ No newline at end of file
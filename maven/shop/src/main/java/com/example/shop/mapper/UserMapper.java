@@ -27,6 +27,15 @@ public interface UserMapper {
     @Select("SELECT * FROM user WHERE account = #{account}")
     User selectByAccount(String account);
 
+    /**
+     * 根据用户账号只查询用户ID（不回表读取密码等其他字段）
+     * 
+     * @param account 用户账号
+     * @return 用户ID（账号不存在返回null）
+     */
+    @Select("SELECT user_id FROM user WHERE account = #{account}")
+    Long selectUserIdByAccount(String account);
+
     /**
      * 根据用户名查询
      * 
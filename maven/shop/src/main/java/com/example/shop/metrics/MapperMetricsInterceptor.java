@@ -0,0 +1,174 @@
+package com.example.shop.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SQL语句耗时统计（MyBatis拦截器，由mybatis-spring-boot-starter自动注册）
+ * 按Mapper方法（如 CartMapper.selectByUserId）记录：
+ * 1. mybatis.statement：耗时直方图与调用次数，outcome标签区分成功/失败
+ * 2. mybatis.statement.rows：查询返回行数 / 增删改影响行数
+ * 耗时超过阈值时打印慢语句日志（不打印参数值，避免密码等敏感信息进入日志）
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "mybatis.metrics.enabled", havingValue = "true", matchIfMissing = true)
+@Intercepts({
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+        @Signature(type = Executor.class, method = "update",
+                args = {MappedStatement.class, Object.class})
+})
+public class MapperMetricsInterceptor implements Interceptor {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${mybatis.metrics.slow-threshold-ms:200}")
+    private long slowThresholdMillis;
+
+    // 单个语句的阈值，格式：CartMapper.selectByUserId=50,ProductMapper.selectOnShelfIdAndName=1000
+    @Value("${mybatis.metrics.slow-thresholds:}")
+    private String slowThresholds;
+
+    private final Map<String, Long> slowThresholdNanos = new HashMap<>();
+    // 语句ID → 指标（避免每次调用都按名称+标签查找）
+    private final Map<String, StatementMeters> meters = new ConcurrentHashMap<>();
+
+    /**
+     * 单个语句的指标
+     */
+    private static class StatementMeters {
+        private final Timer success;
+        private final Timer error;
+        private final DistributionSummary rows;
+        private final long slowThresholdNanos;
+
+        private StatementMeters(Timer success, Timer error, DistributionSummary rows, long slowThresholdNanos) {
+            this.success = success;
+            this.error = error;
+            this.rows = rows;
+            this.slowThresholdNanos = slowThresholdNanos;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        for (String entry : slowThresholds.split(",")) {
+            int separator = entry.indexOf('=');
+            if (separator <= 0) {
+                continue;
+            }
+            String statement = entry.substring(0, separator).trim();
+            try {
+                long millis = Long.parseLong(entry.substring(separator + 1).trim());
+                slowThresholdNanos.put(statement, TimeUnit.MILLISECONDS.toNanos(millis));
+            } catch (NumberFormatException e) {
+                log.warn("慢语句阈值配置无效，已忽略：{}", entry);
+            }
+        }
+        log.info("SQL语句耗时统计已开启：慢语句阈值{}ms，单独配置{}个语句", slowThresholdMillis, slowThresholdNanos.size());
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        MappedStatement mappedStatement = (MappedStatement) invocation.getArgs()[0];
+        StatementMeters statementMeters = meters.computeIfAbsent(mappedStatement.getId(),
+                id -> newMeters(id, mappedStatement));
+
+        long start = System.nanoTime();
+        Object result;
+        try {
+            result = invocation.proceed();
+        } catch (Throwable e) {
+            statementMeters.error.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+        long elapsed = System.nanoTime() - start;
+        long rows = rowCount(result);
+        statementMeters.success.record(elapsed, TimeUnit.NANOSECONDS);
+        statementMeters.rows.record(rows);
+
+        if (elapsed >= statementMeters.slowThresholdNanos) {
+            log.warn("慢SQL：{} 耗时{}ms，行数{}，SQL：{}", shortId(mappedStatement.getId()),
+                    TimeUnit.NANOSECONDS.toMillis(elapsed), rows, sqlOf(mappedStatement, invocation.getArgs()[1]));
+        }
+        return result;
+    }
+
+    private StatementMeters newMeters(String id, MappedStatement mappedStatement) {
+        String statement = shortId(id);
+        String type = mappedStatement.getSqlCommandType().name();
+        Timer success = Timer.builder("mybatis.statement")
+                .description("MyBatis语句耗时")
+                .tag("statement", statement)
+                .tag("type", type)
+                .tag("outcome", "success")
+                .register(meterRegistry);
+        Timer error = Timer.builder("mybatis.statement")
+                .description("MyBatis语句耗时")
+                .tag("statement", statement)
+                .tag("type", type)
+                .tag("outcome", "error")
+                .register(meterRegistry);
+        DistributionSummary rows = DistributionSummary.builder("mybatis.statement.rows")
+                .description("MyBatis语句返回/影响行数")
+                .baseUnit("rows")
+                .tag("statement", statement)
+                .tag("type", type)
+                .register(meterRegistry);
+        long threshold = slowThresholdNanos.getOrDefault(statement, TimeUnit.MILLISECONDS.toNanos(slowThresholdMillis));
+        return new StatementMeters(success, error, rows, threshold);
+    }
+
+    /**
+     * 查询返回List，增删改返回影响行数
+     */
+    private static long rowCount(Object result) {
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        }
+        if (result instanceof Number) {
+            return ((Number) result).longValue();
+        }
+        return result == null ? 0 : 1;
+    }
+
+    /**
+     * com.example.shop.mapper.CartMapper.selectByUserId → CartMapper.selectByUserId
+     */
+    static String shortId(String id) {
+        int method = id.lastIndexOf('.');
+        int mapper = method > 0 ? id.lastIndexOf('.', method - 1) : -1;
+        return id.substring(mapper + 1);
+    }
+
+    private static String sqlOf(MappedStatement mappedStatement, Object parameter) {
+        try {
+            return mappedStatement.getBoundSql(parameter).getSql().replaceAll("\\s+", " ");
+        } catch (Exception e) {
+            return "（无法获取SQL）";
+        }
+    }
+}
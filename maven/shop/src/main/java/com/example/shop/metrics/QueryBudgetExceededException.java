@@ -0,0 +1,18 @@
+package com.example.shop.metrics;
+
+/**
+ * 请求执行的SQL语句超出预算（query-budget.action=fail时由 QueryBudgetFilter 抛出）
+ */
+public class QueryBudgetExceededException extends RuntimeException {
+
+    private final transient QueryCounter counter;
+
+    public QueryBudgetExceededException(String message, QueryCounter counter) {
+        super(message);
+        this.counter = counter;
+    }
+
+    public QueryCounter getCounter() {
+        return counter;
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.shop.metrics;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * 每个HTTP请求的SQL语句预算（N+1查询检测）
+ * 统计请求处理线程执行的语句总数和同一Mapper方法的重复次数，超过阈值时：
+ * action=warn 打印WARN日志；action=fail 抛出 QueryBudgetExceededException（用于开发/测试环境，尽早暴露新增的循环查询）
+ * fail 模式下响应体先缓存在内存中，检查通过后才写给客户端，超出预算时丢弃，由错误处理返回完整的错误响应
+ * 计数器放在请求属性 COUNTER_ATTRIBUTE 中，测试可通过 MockMvc 返回的请求取出，断言各接口的语句数
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "query-budget.enabled", havingValue = "true", matchIfMissing = true)
+public class QueryBudgetFilter extends OncePerRequestFilter {
+
+    public static final String COUNTER_ATTRIBUTE = QueryBudgetFilter.class.getName() + ".COUNTER";
+
+    @Value("${query-budget.max-statements:20}")
+    private int maxStatements;
+
+    @Value("${query-budget.max-repeats:5}")
+    private int maxRepeats;
+
+    @Value("${query-budget.action:warn}")
+    private String action;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        QueryCounter counter = QueryCounter.start();
+        request.setAttribute(COUNTER_ATTRIBUTE, counter);
+        boolean fail = "fail".equalsIgnoreCase(action);
+        // 接口写响应体时可能已经提交响应，之后再抛异常客户端只能收到半截内容：fail 模式先缓存响应体
+        ContentCachingResponseWrapper cachingResponse = fail ? new ContentCachingResponseWrapper(response) : null;
+        try {
+            filterChain.doFilter(request, fail ? cachingResponse : response);
+        } finally {
+            QueryCounter.stop(counter);
+        }
+        String message = check(request, counter);
+        if (message == null) {
+            if (cachingResponse != null) {
+                cachingResponse.copyBodyToResponse();
+            }
+            return;
+        }
+        if (fail) {
+            cachingResponse.resetBuffer();
+            throw new QueryBudgetExceededException(message, counter);
+        }
+        log.warn(message);
+    }
+
+    /**
+     * @return 超出预算时的说明，未超出返回null
+     */
+    private String check(HttpServletRequest request, QueryCounter counter) {
+        Map.Entry<String, Integer> mostRepeated = counter.getMostRepeated();
+        boolean tooMany = counter.getTotal() > maxStatements;
+        boolean repeated = mostRepeated != null && mostRepeated.getValue() > maxRepeats;
+        if (!tooMany && !repeated) {
+            log.debug("{} {} {}", request.getMethod(), request.getRequestURI(), counter);
+            return null;
+        }
+        return String.format("%s %s 超出SQL预算（总数上限%d，单语句重复上限%d）：%s",
+                request.getMethod(), request.getRequestURI(), maxStatements, maxRepeats, counter);
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.shop.metrics;
+
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * 把每条执行的SQL语句计入当前线程的 QueryCounter（由mybatis-spring-boot-starter自动注册）
+ */
+@Component
+@ConditionalOnProperty(name = "query-budget.enabled", havingValue = "true", matchIfMissing = true)
+@Intercepts({
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+        @Signature(type = Executor.class, method = "update",
+                args = {MappedStatement.class, Object.class})
+})
+public class QueryCountInterceptor implements Interceptor {
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        if (QueryCounter.isActive()) {
+            MappedStatement mappedStatement = (MappedStatement) invocation.getArgs()[0];
+            QueryCounter.record(MapperMetricsInterceptor.shortId(mappedStatement.getId()));
+        }
+        return invocation.proceed();
+    }
+}
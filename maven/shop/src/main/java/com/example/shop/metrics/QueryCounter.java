@@ -0,0 +1,117 @@
+package com.example.shop.metrics;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 当前线程执行的SQL语句计数（按Mapper方法统计，用于发现循环内逐条查询的N+1问题）
+ * 由 QueryBudgetFilter 为每个HTTP请求开启；测试中也可以直接使用：
+ * <pre>
+ * QueryCounter counter = QueryCounter.start();
+ * try {
+ *     cartController.getCartListByAccountWithPage(...);
+ * } finally {
+ *     QueryCounter.stop(counter);
+ * }
+ * assertTrue(counter.getTotal() &lt;= 4);
+ * </pre>
+ * 可以嵌套开启，内层执行的语句同时计入外层；只统计当前线程（异步线程中执行的语句不计入）
+ */
+public class QueryCounter {
+
+    private static final ThreadLocal<QueryCounter> CURRENT = new ThreadLocal<>();
+
+    private final QueryCounter parent;
+    private int total;
+    // Mapper方法（如 CartMapper.selectByUserId）→ 执行次数，按首次执行顺序
+    private final Map<String, Integer> counts = new LinkedHashMap<>();
+
+    private QueryCounter(QueryCounter parent) {
+        this.parent = parent;
+    }
+
+    /**
+     * 在当前线程开启计数
+     *
+     * @return 计数器（结束时传给stop）
+     */
+    public static QueryCounter start() {
+        QueryCounter counter = new QueryCounter(CURRENT.get());
+        CURRENT.set(counter);
+        return counter;
+    }
+
+    /**
+     * 结束计数，恢复外层计数器
+     *
+     * @param counter start返回的计数器
+     */
+    public static void stop(QueryCounter counter) {
+        if (counter.parent == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(counter.parent);
+        }
+    }
+
+    /**
+     * 当前线程是否在计数
+     */
+    static boolean isActive() {
+        return CURRENT.get() != null;
+    }
+
+    /**
+     * 记录一次语句执行（当前线程未开启计数时忽略）
+     *
+     * @param statement Mapper方法
+     */
+    static void record(String statement) {
+        for (QueryCounter counter = CURRENT.get(); counter != null; counter = counter.parent) {
+            counter.total++;
+            counter.counts.merge(statement, 1, Integer::sum);
+        }
+    }
+
+    /**
+     * 执行的语句总数
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * 某个Mapper方法的执行次数
+     *
+     * @param statement Mapper方法（如 CartMapper.selectByUserId）
+     */
+    public int getCount(String statement) {
+        return counts.getOrDefault(statement, 0);
+    }
+
+    /**
+     * 各Mapper方法的执行次数
+     */
+    public Map<String, Integer> getCounts() {
+        return Collections.unmodifiableMap(counts);
+    }
+
+    /**
+     * 执行次数最多的Mapper方法（没有执行语句时返回null）
+     */
+    public Map.Entry<String, Integer> getMostRepeated() {
+        Map.Entry<String, Integer> most = null;
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            if (most == null || entry.getValue() > most.getValue()) {
+                most = entry;
+            }
+        }
+        return most;
+    }
+
+    @Override
+    public String toString() {
+        return "共" + total + "条SQL " + counts;
+    }
+}
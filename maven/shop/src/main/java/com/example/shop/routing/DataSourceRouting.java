@@ -0,0 +1,91 @@
+package com.example.shop.routing;
+
+import java.util.function.Supplier;
+
+/**
+ * 当前线程的读写分离路由状态（未开启读写分离时所有方法都没有副作用）
+ * 1. primary(...)：强制在主库执行（如缓存加载、库存加载等不能读到从库延迟数据的查询）
+ * 2. bindClient(...)：绑定当前请求的用户标识，用户写操作后的一段时间内其读请求走主库（读己之写）
+ * 3. 增删改语句由 RoutingWriteInterceptor 标记，同一请求内后续查询也走主库
+ */
+public final class DataSourceRouting {
+
+    private static final ThreadLocal<State> STATE = new ThreadLocal<>();
+
+    private static class State {
+        private int primaryDepth;
+        private boolean wrote;
+        private String clientKey;
+    }
+
+    private DataSourceRouting() {
+    }
+
+    /**
+     * 在主库执行
+     *
+     * @param action 查询
+     * @return 查询结果
+     */
+    public static <T> T primary(Supplier<T> action) {
+        State state = state();
+        state.primaryDepth++;
+        try {
+            return action.get();
+        } finally {
+            state.primaryDepth--;
+        }
+    }
+
+    /**
+     * 绑定当前请求的用户标识（读己之写窗口按该标识生效）
+     *
+     * @param clientKey 用户标识（如用户账号）
+     */
+    public static void bindClient(String clientKey) {
+        if (clientKey != null && !clientKey.isEmpty()) {
+            state().clientKey = clientKey;
+        }
+    }
+
+    static String clientKey() {
+        State state = STATE.get();
+        return state == null ? null : state.clientKey;
+    }
+
+    /**
+     * 标记当前线程执行过写操作
+     */
+    static void markWrite() {
+        state().wrote = true;
+    }
+
+    static boolean wrote() {
+        State state = STATE.get();
+        return state != null && state.wrote;
+    }
+
+    /**
+     * 当前线程是否必须走主库（强制主库，或本次请求已执行过写操作）
+     */
+    static boolean isPrimaryRequired() {
+        State state = STATE.get();
+        return state != null && (state.primaryDepth > 0 || state.wrote);
+    }
+
+    /**
+     * 清除当前线程的路由状态（请求结束时调用）
+     */
+    static void clear() {
+        STATE.remove();
+    }
+
+    private static State state() {
+        State state = STATE.get();
+        if (state == null) {
+            state = new State();
+            STATE.set(state);
+        }
+        return state;
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.shop.routing;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 读写分离配置（datasource.routing.enabled=true时启用）
+ * 主库沿用 spring.datasource.*（连接池参数 spring.datasource.hikari.*），从库由 datasource.routing.replica-urls 配置，
+ * MyBatis和事务管理器使用的数据源替换为：LazyConnectionDataSourceProxy → ReadWriteRoutingDataSource → 主库/从库连接池
+ */
+@Configuration
+@ConditionalOnProperty(name = "datasource.routing.enabled", havingValue = "true")
+public class ReadWriteRoutingConfig {
+
+    @Value("${datasource.routing.replica-urls:}")
+    private String replicaUrls;
+
+    @Value("${datasource.routing.replica-username:${spring.datasource.username:}}")
+    private String replicaUsername;
+
+    @Value("${datasource.routing.replica-password:${spring.datasource.password:}}")
+    private String replicaPassword;
+
+    @Value("${datasource.routing.replica-pool-size:10}")
+    private int replicaPoolSize;
+
+    @Value("${datasource.routing.read-your-writes-ms:3000}")
+    private long readYourWritesMillis;
+
+    @Value("${datasource.routing.health-check-interval-ms:5000}")
+    private long healthCheckIntervalMillis;
+
+    @Value("${datasource.routing.health-check-timeout-seconds:2}")
+    private int healthCheckTimeoutSeconds;
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "close")
+    public ReadWriteRoutingDataSource routingDataSource(HikariDataSource primaryDataSource,
+                                                       DataSourceProperties properties) {
+        List<HikariDataSource> replicas = new ArrayList<>();
+        int index = 0;
+        for (String url : replicaUrls.split(",")) {
+            if (url.trim().isEmpty()) {
+                continue;
+            }
+            HikariDataSource replica = new HikariDataSource();
+            replica.setPoolName("replica-" + index++);
+            replica.setJdbcUrl(url.trim());
+            replica.setUsername(replicaUsername);
+            replica.setPassword(replicaPassword);
+            replica.setDriverClassName(properties.determineDriverClassName());
+            replica.setMaximumPoolSize(replicaPoolSize);
+            replica.setReadOnly(true);
+            // 从库不可用时不阻止应用启动，由健康检查标记
+            replica.setInitializationFailTimeout(-1);
+            replicas.add(replica);
+        }
+        return new ReadWriteRoutingDataSource(primaryDataSource, replicas, readYourWritesMillis,
+                healthCheckIntervalMillis, healthCheckTimeoutSeconds);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReadWriteRoutingDataSource routingDataSource) {
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+}
@@ -0,0 +1,200 @@
+package com.example.shop.routing;
+
+import com.example.shop.cache.LocalCache;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 读写分离数据源
+ * 1. 写事务（非只读事务）、增删改语句、强制主库的查询、用户写操作后读己之写窗口内的请求 → 主库
+ * 2. 其余查询（非事务查询、只读事务）→ 从库，多个从库轮询
+ * 3. 定时检查各从库连接池，不可用的从库暂停使用；从库取连接失败时立即标记不可用并改用主库
+ * 需要外层包一层 LazyConnectionDataSourceProxy：事务开始时还不知道事务是否只读，第一条语句执行时才真正取连接
+ */
+@Slf4j
+public class ReadWriteRoutingDataSource extends AbstractDataSource {
+
+    private final HikariDataSource primary;
+    private final List<Replica> replicas;
+    private final long healthCheckIntervalMillis;
+    private final int healthCheckTimeoutSeconds;
+    private final AtomicInteger roundRobin = new AtomicInteger();
+    // 用户标识 → 写操作时间（读己之写窗口，过期自动失效）
+    private final LocalCache<String, Long> recentWriters;
+    private ScheduledExecutorService healthChecker;
+
+    /**
+     * 从库连接池及其健康状态
+     */
+    static class Replica {
+        private final String name;
+        private final HikariDataSource dataSource;
+        private volatile boolean healthy = true;
+
+        Replica(String name, HikariDataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+        HikariDataSource getDataSource() {
+            return dataSource;
+        }
+    }
+
+    public ReadWriteRoutingDataSource(HikariDataSource primary, List<HikariDataSource> replicaDataSources,
+                                      long readYourWritesMillis, long healthCheckIntervalMillis,
+                                      int healthCheckTimeoutSeconds) {
+        this.primary = primary;
+        List<Replica> list = new ArrayList<>();
+        for (HikariDataSource dataSource : replicaDataSources) {
+            list.add(new Replica(dataSource.getPoolName(), dataSource));
+        }
+        this.replicas = Collections.unmodifiableList(list);
+        this.healthCheckIntervalMillis = healthCheckIntervalMillis;
+        this.healthCheckTimeoutSeconds = healthCheckTimeoutSeconds;
+        this.recentWriters = new LocalCache<>("readYourWrites", 100000, readYourWritesMillis);
+    }
+
+    public void start() {
+        if (replicas.isEmpty() || healthCheckIntervalMillis <= 0) {
+            return;
+        }
+        healthChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-health-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        healthChecker.scheduleWithFixedDelay(this::checkReplicas,
+                healthCheckIntervalMillis, healthCheckIntervalMillis, TimeUnit.MILLISECONDS);
+        log.info("读写分离已开启：{}个从库，健康检查间隔{}ms", replicas.size(), healthCheckIntervalMillis);
+    }
+
+    public void close() {
+        if (healthChecker != null) {
+            healthChecker.shutdownNow();
+        }
+        // 主库连接池是独立的Bean，由Spring关闭
+        for (Replica replica : replicas) {
+            replica.dataSource.close();
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Replica replica = selectReplica();
+        if (replica == null) {
+            return primary.getConnection();
+        }
+        try {
+            return replica.dataSource.getConnection();
+        } catch (SQLException e) {
+            markDown(replica, e);
+            return primary.getConnection();
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        Replica replica = selectReplica();
+        if (replica == null) {
+            return primary.getConnection(username, password);
+        }
+        try {
+            return replica.dataSource.getConnection(username, password);
+        } catch (SQLException e) {
+            markDown(replica, e);
+            return primary.getConnection(username, password);
+        }
+    }
+
+    /**
+     * 记录用户写操作（读己之写窗口内该用户的读请求走主库）
+     *
+     * @param clientKey 用户标识
+     */
+    public void markWritten(String clientKey) {
+        recentWriters.put(clientKey, System.currentTimeMillis());
+    }
+
+    /**
+     * 各从库健康状态（连接池名 → 是否可用）
+     */
+    public Map<String, Boolean> getReplicaStatus() {
+        Map<String, Boolean> status = new LinkedHashMap<>();
+        for (Replica replica : replicas) {
+            status.put(replica.name, replica.healthy);
+        }
+        return status;
+    }
+
+    List<Replica> getReplicas() {
+        return replicas;
+    }
+
+    /**
+     * 选择从库（需要走主库或没有可用从库时返回null）
+     */
+    private Replica selectReplica() {
+        if (replicas.isEmpty() || isPrimaryRequired()) {
+            return null;
+        }
+        int start = Math.floorMod(roundRobin.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            if (replica.healthy) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    private boolean isPrimaryRequired() {
+        if (DataSourceRouting.isPrimaryRequired()) {
+            return true;
+        }
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return true;
+        }
+        String clientKey = DataSourceRouting.clientKey();
+        return clientKey != null && recentWriters.get(clientKey) != null;
+    }
+
+    void checkReplicas() {
+        for (Replica replica : replicas) {
+            boolean healthy;
+            try (Connection connection = replica.dataSource.getConnection()) {
+                healthy = connection.isValid(healthCheckTimeoutSeconds);
+            } catch (Exception e) {
+                healthy = false;
+            }
+            if (healthy && !replica.healthy) {
+                log.info("从库{}已恢复，重新参与读请求", replica.name);
+            } else if (!healthy && replica.healthy) {
+                log.warn("从库{}健康检查失败，读请求改走其他从库/主库", replica.name);
+            }
+            replica.healthy = healthy;
+        }
+    }
+
+    private void markDown(Replica replica, SQLException e) {
+        if (replica.healthy) {
+            log.warn("从库{}获取连接失败，暂停使用直到健康检查恢复", replica.name, e);
+        }
+        replica.healthy = false;
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.shop.routing;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * 读己之写：按请求参数中的用户账号（account/userAccount）绑定用户标识，
+ * 用户的写请求（执行过增删改，或非GET请求）结束后，该用户在 datasource.routing.read-your-writes-ms 内的请求都走主库
+ * 账号在请求体中的接口（如新增订单）由Controller调用 DataSourceRouting.bindClient 绑定
+ */
+@Component
+@ConditionalOnProperty(name = "datasource.routing.enabled", havingValue = "true")
+public class ReadWriteRoutingFilter extends OncePerRequestFilter {
+
+    @Autowired
+    private ReadWriteRoutingDataSource routingDataSource;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String account = request.getParameter("account");
+        DataSourceRouting.bindClient(account != null ? account : request.getParameter("userAccount"));
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            String clientKey = DataSourceRouting.clientKey();
+            // 合并提交等在其他线程写库的请求不会被拦截器标记，按请求方法判断
+            boolean write = DataSourceRouting.wrote()
+                    || !("GET".equals(request.getMethod()) || "HEAD".equals(request.getMethod()));
+            if (clientKey != null && write) {
+                routingDataSource.markWritten(clientKey);
+            }
+            DataSourceRouting.clear();
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.shop.routing;
+
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * 增删改语句走主库（包括不在事务中的写操作），并标记当前请求已写入，后续查询也走主库
+ */
+@Component
+@ConditionalOnProperty(name = "datasource.routing.enabled", havingValue = "true")
+@Intercepts(@Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class}))
+public class RoutingWriteInterceptor implements Interceptor {
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        DataSourceRouting.markWrite();
+        return invocation.proceed();
+    }
+}
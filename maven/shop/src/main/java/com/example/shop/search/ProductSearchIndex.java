@@ -0,0 +1,342 @@
+package com.example.shop.search;
+
+import com.example.shop.entity.Product;
+import com.example.shop.mapper.ProductMapper;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 商品名称内存倒排索引（字符一元 + 二元分词，兼容中文名称）
+ * 只收录上架商品（is_on_shelf = 1），启动时全量构建，商品增删改时由ProductService增量维护
+ * 查询语义与 product_name LIKE CONCAT('%', name, '%') 一致：先按分词求交集，再逐条校验包含关系
+ */
+@Slf4j
+@Component
+public class ProductSearchIndex {
+
+    @Autowired
+    private ProductMapper productMapper;
+
+    @Value("${product.search.index.enabled:true}")
+    private boolean enabled;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // 商品ID → 归一化后的商品名称（仅上架商品，按ID升序）
+    private TreeMap<Long, String> names = new TreeMap<>();
+    // 分词 → 包含该分词的商品ID集合（按ID升序）
+    private Map<String, TreeSet<Long>> postings = new HashMap<>();
+
+    // 索引是否可用（全量构建成功后才对外提供查询）
+    private volatile boolean ready = false;
+    // 全量构建期间到达的增量变更，构建完成后重放
+    private List<Product> pendingChanges;
+
+    /**
+     * 应用启动完成后全量构建索引（失败时保持不可用，查询自动回退到数据库）
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    /**
+     * 全量重建索引
+     *
+     * @return 重建成功返回true
+     */
+    public boolean rebuild() {
+        lock.writeLock().lock();
+        try {
+            pendingChanges = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        List<Product> productList;
+        try {
+            productList = productMapper.selectAllOnShelfNames();
+        } catch (Exception e) {
+            lock.writeLock().lock();
+            try {
+                pendingChanges = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.error("商品名称索引构建失败，名称搜索将回退到数据库模糊查询", e);
+            return false;
+        }
+
+        TreeMap<Long, String> newNames = new TreeMap<>();
+        Map<String, TreeSet<Long>> newPostings = new HashMap<>();
+        for (Product product : productList) {
+            addDocument(newNames, newPostings, product.getProductId(), product.getProductName());
+        }
+
+        lock.writeLock().lock();
+        try {
+            names = newNames;
+            postings = newPostings;
+            // 重放构建期间的增量变更，避免被全量结果覆盖
+            for (Product change : pendingChanges) {
+                applyChange(change);
+            }
+            pendingChanges = null;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("商品名称索引构建完成：上架商品数={}，分词数={}", newNames.size(), newPostings.size());
+        return true;
+    }
+
+    /**
+     * 新增/更新商品后同步索引（下架商品会被移出索引，重新上架会重新收录）
+     *
+     * @param product 商品实体（需含productId、productName、isOnShelf）
+     */
+    public void upsert(Product product) {
+        if (!enabled || product == null || product.getProductId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            applyChange(product);
+            if (pendingChanges != null) {
+                pendingChanges.add(product);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 删除商品后同步索引
+     *
+     * @param productId 商品ID
+     */
+    public void remove(Long productId) {
+        if (productId == null) {
+            return;
+        }
+        Product removed = new Product();
+        removed.setProductId(productId);
+        removed.setIsOnShelf(0);
+        upsert(removed);
+    }
+
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    /**
+     * 按名称分页搜索上架商品
+     *
+     * @param name   搜索关键字（null不匹配任何商品，空串匹配全部上架商品）
+     * @param offset 偏移量
+     * @param limit  每页数量
+     * @return 当前页商品ID（按ID升序）+ 精确总数
+     */
+    public SearchPage search(String name, int offset, int limit) {
+        if (name == null) {
+            return new SearchPage(Collections.emptyList(), 0);
+        }
+        String keyword = normalize(name);
+        lock.readLock().lock();
+        try {
+            if (keyword.isEmpty()) {
+                // 匹配全部上架商品：总数即收录数，只遍历到当前页，不复制整个ID集合
+                int total = names.size();
+                if (offset >= total || limit <= 0) {
+                    return new SearchPage(Collections.emptyList(), total);
+                }
+                return new SearchPage(firstIds(names.keySet(), offset, limit), total);
+            }
+            List<Long> matchedIds = match(keyword);
+            int total = matchedIds.size();
+            if (offset >= total || limit <= 0) {
+                return new SearchPage(Collections.emptyList(), total);
+            }
+            int end = Math.min(total, offset + limit);
+            return new SearchPage(new ArrayList<>(matchedIds.subList(offset, end)), total);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 按名称游标搜索上架商品（只扫描afterId之后的倒排列表，取够limit条即停止）
+     *
+     * @param name    搜索关键字（null不匹配任何商品，空串匹配全部上架商品）
+     * @param afterId 上一页最后一条的商品ID（null表示第一页）
+     * @param limit   最多返回条数
+     * @return 商品ID列表（按ID升序）
+     */
+    public List<Long> searchAfter(String name, Long afterId, int limit) {
+        if (name == null || limit <= 0) {
+            return Collections.emptyList();
+        }
+        String keyword = normalize(name);
+        long lowerBound = afterId == null ? Long.MIN_VALUE : afterId;
+        lock.readLock().lock();
+        try {
+            if (keyword.isEmpty()) {
+                return firstIds(names.tailMap(lowerBound, false).keySet(), 0, limit);
+            }
+            return match(keyword, lowerBound, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 按顺序跳过skip个ID后最多取limit个
+     */
+    private static List<Long> firstIds(Set<Long> productIds, int skip, int limit) {
+        List<Long> ids = new ArrayList<>(Math.min(limit, 1024));
+        for (Long productId : productIds) {
+            if (ids.size() >= limit) {
+                break;
+            }
+            if (skip > 0) {
+                skip--;
+                continue;
+            }
+            ids.add(productId);
+        }
+        return ids;
+    }
+
+    private List<Long> match(String keyword) {
+        return match(keyword, Long.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 取关键字各分词的倒排列表，从最短的列表出发求交集并校验包含关系
+     *
+     * @param keyword    归一化后的关键字（非空）
+     * @param lowerBound 只返回大于该值的商品ID
+     * @param limit      最多返回条数
+     */
+    private List<Long> match(String keyword, long lowerBound, int limit) {
+        Set<String> grams = grams(keyword, keyword.codePointCount(0, keyword.length()) == 1 ? 1 : 2);
+        List<TreeSet<Long>> lists = new ArrayList<>();
+        for (String gram : grams) {
+            TreeSet<Long> list = postings.get(gram);
+            if (list == null) {
+                return Collections.emptyList();
+            }
+            lists.add(list);
+        }
+        lists.sort((a, b) -> Integer.compare(a.size(), b.size()));
+
+        List<Long> matchedIds = new ArrayList<>();
+        NavigableSet<Long> shortest = lists.get(0).tailSet(lowerBound, false);
+        for (Long productId : shortest) {
+            if (matchedIds.size() >= limit) {
+                break;
+            }
+            boolean inAll = true;
+            for (int i = 1; i < lists.size() && inAll; i++) {
+                inAll = lists.get(i).contains(productId);
+            }
+            if (inAll && names.get(productId).contains(keyword)) {
+                matchedIds.add(productId);
+            }
+        }
+        return matchedIds;
+    }
+
+    /**
+     * 在写锁内应用一条变更：先移除旧文档，上架商品再按新名称收录
+     */
+    private void applyChange(Product product) {
+        Long productId = product.getProductId();
+        String oldName = names.remove(productId);
+        if (oldName != null) {
+            for (String gram : allGrams(oldName)) {
+                TreeSet<Long> list = postings.get(gram);
+                if (list != null) {
+                    list.remove(productId);
+                    if (list.isEmpty()) {
+                        postings.remove(gram);
+                    }
+                }
+            }
+        }
+        if (product.getIsOnShelf() != null && product.getIsOnShelf() == 1) {
+            addDocument(names, postings, productId, product.getProductName());
+        }
+    }
+
+    private static void addDocument(TreeMap<Long, String> names, Map<String, TreeSet<Long>> postings,
+            Long productId, String productName) {
+        if (productId == null || productName == null) {
+            return;
+        }
+        String normalized = normalize(productName);
+        names.put(productId, normalized);
+        for (String gram : allGrams(normalized)) {
+            postings.computeIfAbsent(gram, k -> new TreeSet<>()).add(productId);
+        }
+    }
+
+    /**
+     * 文档分词：一元 + 二元（一元用于单字查询）
+     */
+    private static Set<String> allGrams(String text) {
+        Set<String> grams = grams(text, 1);
+        grams.addAll(grams(text, 2));
+        return grams;
+    }
+
+    /**
+     * 按码点切分n元分词（正确处理中文及补充平面字符）
+     */
+    private static Set<String> grams(String text, int n) {
+        int[] codePoints = text.codePoints().toArray();
+        Set<String> grams = new LinkedHashSet<>();
+        for (int i = 0; i + n <= codePoints.length; i++) {
+            grams.add(new String(codePoints, i, n));
+        }
+        return grams;
+    }
+
+    /**
+     * 名称归一化：忽略大小写（对齐MySQL默认的不区分大小写排序规则）
+     */
+    private static String normalize(String text) {
+        return text.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 单页搜索结果
+     */
+    @Data
+    @AllArgsConstructor
+    public static class SearchPage {
+        private List<Long> productIds; // 当前页商品ID
+        private Integer total; // 匹配总数
+    }
+}
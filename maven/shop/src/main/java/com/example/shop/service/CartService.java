@@ -1,12 +1,23 @@
 package com.example.shop.service;
 
+import com.example.shop.cache.CountCache;
+import com.example.shop.cart.CartStore;
 import com.example.shop.entity.Cart;
+import com.example.shop.entity.Product;
 import com.example.shop.mapper.CartMapper;
+import com.example.shop.routing.DataSourceRouting;
+import com.example.shop.vo.CartItemDTO;
+import com.example.shop.vo.CartPageVO;
+import com.example.shop.vo.CartSummaryDTO;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.Assert;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class CartService {
@@ -17,6 +28,24 @@ public class CartService {
     @Autowired
     private CartMapper cartMapper;
 
+    /**
+     * 注入分页总数缓存
+     */
+    @Autowired
+    private CountCache countCache;
+
+    /**
+     * 注入内存购物车（开启时读写都走内存，修改异步落库）
+     */
+    @Autowired
+    private CartStore cartStore;
+
+    /**
+     * 注入商品服务（内存购物车模式下组装购物车行）
+     */
+    @Autowired
+    private ProductService productService;
+
     /**
      * 根据用户ID查询购物车列表
      * 
@@ -26,6 +55,9 @@ public class CartService {
     public List<Cart> selectByUserId(Long userId) {
         // 参数校验：用户ID不能为空
         Assert.notNull(userId, "用户ID不能为空");
+        if (cartStore.isEnabled()) {
+            return cartStore.list(userId);
+        }
         return cartMapper.selectByUserId(userId);
     }
 
@@ -41,9 +73,104 @@ public class CartService {
         Assert.notNull(userId, "用户id不能为空");
         Assert.notNull(offset, "偏移量不能为空");
         Assert.notNull(limit, "页限制不能为空");
+        if (cartStore.isEnabled()) {
+            return cartStore.page(userId, offset, limit);
+        }
         return cartMapper.selectByUserIdWithPage(userId, offset, limit);
     }
 
+    /**
+     * 根据用户ID游标分页查询（按商品ID升序）
+     *
+     * @param userId         用户ID
+     * @param afterProductId 上一页最后一条的商品ID（null表示第一页）
+     * @param limit          查询条数
+     * @return 购物车实体列表
+     */
+    public List<Cart> selectByUserIdAfter(Long userId, Long afterProductId, Integer limit) {
+        Assert.notNull(userId, "用户id不能为空");
+        Assert.notNull(limit, "页限制不能为空");
+        if (cartStore.isEnabled()) {
+            return cartStore.after(userId, afterProductId, limit);
+        }
+        return cartMapper.selectByUserIdAfter(userId, afterProductId, limit);
+    }
+
+    /**
+     * 分页查询购物车行并汇总（共两条SQL：汇总 + 购物车⋈商品分页）
+     * 两条查询在同一个只读事务中执行（同一快照），总数、金额合计与列表一致
+     *
+     * @param userId   用户ID
+     * @param pageNo   页号（从1开始）
+     * @param pageSize 页尺寸
+     * @return 购物车分页VO（含金额合计）
+     */
+    @Transactional(readOnly = true)
+    public CartPageVO selectCartPage(Long userId, Integer pageNo, Integer pageSize) {
+        Assert.notNull(userId, "用户id不能为空");
+        Assert.notNull(pageNo, "页号不能为空");
+        Assert.notNull(pageSize, "页尺寸不能为空");
+        CartSummaryDTO summary = selectCartSummary(userId);
+        List<CartItemDTO> cartItemList = selectCartItemsWithPage(userId, (pageNo - 1) * pageSize, pageSize);
+        Integer total = summary.getTotal();
+        Integer pages = total == 0 ? 0 : (total + pageSize - 1) / pageSize;
+        return new CartPageVO(total, pages, pageNo, pageSize, cartItemList, summary.getSubtotal());
+    }
+
+    /**
+     * 根据用户ID汇总购物车（记录数 + 金额合计）
+     *
+     * @param userId 用户ID
+     * @return 购物车汇总
+     */
+    public CartSummaryDTO selectCartSummary(Long userId) {
+        Assert.notNull(userId, "用户ID不能为空");
+        if (cartStore.isEnabled()) {
+            List<CartItemDTO> cartItemList = toCartItemDTOList(cartStore.list(userId));
+            BigDecimal subtotal = new BigDecimal("0.00");
+            for (CartItemDTO item : cartItemList) {
+                subtotal = subtotal.add(item.getLineTotal());
+            }
+            return new CartSummaryDTO(cartItemList.size(), subtotal);
+        }
+        return cartMapper.selectCartSummaryByUserId(userId);
+    }
+
+    /**
+     * 根据用户ID分页查询购物车行（商品名称、单价、商家ID、金额小计）
+     *
+     * @param userId 用户ID
+     * @param offset 偏移量
+     * @param limit  页限制
+     * @return 购物车行列表（按商品ID升序）
+     */
+    public List<CartItemDTO> selectCartItemsWithPage(Long userId, Integer offset, Integer limit) {
+        Assert.notNull(userId, "用户id不能为空");
+        Assert.notNull(offset, "偏移量不能为空");
+        Assert.notNull(limit, "页限制不能为空");
+        if (cartStore.isEnabled()) {
+            return toCartItemDTOList(cartStore.page(userId, offset, limit));
+        }
+        return cartMapper.selectCartItemsByUserIdWithPage(userId, offset, limit);
+    }
+
+    /**
+     * 根据用户ID游标分页查询购物车行（按商品ID升序）
+     *
+     * @param userId         用户ID
+     * @param afterProductId 上一页最后一条的商品ID（null表示第一页）
+     * @param limit          查询条数
+     * @return 购物车行列表
+     */
+    public List<CartItemDTO> selectCartItemsAfter(Long userId, Long afterProductId, Integer limit) {
+        Assert.notNull(userId, "用户id不能为空");
+        Assert.notNull(limit, "页限制不能为空");
+        if (cartStore.isEnabled()) {
+            return toCartItemDTOList(cartStore.after(userId, afterProductId, limit));
+        }
+        return cartMapper.selectCartItemsByUserIdAfter(userId, afterProductId, limit);
+    }
+
     /**
      * 根据商品ID查询购物车列表
      * 
@@ -53,18 +180,25 @@ public class CartService {
     public List<Cart> selectByProductId(Long productId) {
         // 参数校验：商品ID不能为空
         Assert.notNull(productId, "商品ID不能为空");
+        // 跨用户查询走数据库：先把内存购物车中未落库的修改写回
+        cartStore.flush();
         return cartMapper.selectByProductId(productId);
     }
 
     /**
-     * 根据用户ID查询购物车记录数
+     * 根据用户ID查询购物车记录数（走分页总数缓存）
      * 
      * @param userId 用户ID
      * @return 购物车记录数
      */
     public Integer countByUserId(Long userId) {
         Assert.notNull(userId, "用户ID不能为空");
-        return cartMapper.countByUserId(userId);
+        if (cartStore.isEnabled()) {
+            return cartStore.count(userId);
+        }
+        // 缓存加载走主库，避免把从库延迟的总数缓存下来
+        return countCache.get(CountCache.CART_BY_USER, userId,
+                () -> DataSourceRouting.primary(() -> cartMapper.countByUserId(userId)));
     }
 
     /**
@@ -80,7 +214,12 @@ public class CartService {
         Assert.notNull(cart.getProductId(), "商品ID不能为空");
         Assert.notNull(cart.getQuantity(), "商品数量不能为空");
         Assert.isTrue(cart.getQuantity() > 0, "商品数量必须大于0");
-        return cartMapper.insertCart(cart);
+        if (cartStore.isEnabled()) {
+            return cartStore.add(cart.getUserId(), cart.getProductId(), cart.getQuantity());
+        }
+        int affectRows = cartMapper.insertCart(cart);
+        countCache.invalidate(CountCache.CART_BY_USER, cart.getUserId());
+        return affectRows;
     }
 
     /**
@@ -97,6 +236,9 @@ public class CartService {
         Assert.notNull(productId, "商品ID不能为空");
         Assert.notNull(quantity, "累加数量不能为空");
         Assert.isTrue(quantity != 0, "累加数量不能为0"); // 支持增加（正数）或减少（负数），但不能为0
+        if (cartStore.isEnabled()) {
+            return cartStore.addQuantity(userId, productId, quantity);
+        }
         return cartMapper.updateQuantityByUserIdAndProductId(userId, productId, quantity);
     }
 
@@ -111,6 +253,41 @@ public class CartService {
         // 参数校验：用户ID、商品ID不能为空
         Assert.notNull(userId, "用户ID不能为空");
         Assert.notNull(productId, "商品ID不能为空");
-        return cartMapper.deleteByUserIdAndProductId(userId, productId);
+        if (cartStore.isEnabled()) {
+            return cartStore.remove(userId, productId);
+        }
+        int affectRows = cartMapper.deleteByUserIdAndProductId(userId, productId);
+        if (affectRows > 0) {
+            countCache.invalidate(CountCache.CART_BY_USER, userId);
+        }
+        return affectRows;
+    }
+
+    /**
+     * 内存购物车记录组装为购物车行（本页商品一次批量查询，走商品缓存；与数据库关联查询的兜底值一致）
+     *
+     * @param cartList 购物车记录列表
+     * @return 购物车行列表
+     */
+    private List<CartItemDTO> toCartItemDTOList(List<Cart> cartList) {
+        List<Long> productIds = new ArrayList<>();
+        for (Cart cart : cartList) {
+            productIds.add(cart.getProductId());
+        }
+        Map<Long, Product> productMap = productService.getProductsByIds(productIds);
+
+        List<CartItemDTO> cartItemDTOList = new ArrayList<>();
+        for (Cart cart : cartList) {
+            Product product = productMap.get(cart.getProductId());
+            CartItemDTO dto = new CartItemDTO();
+            dto.setProductId(cart.getProductId());
+            dto.setProductName(product != null ? product.getProductName() : "未知商品");
+            dto.setQuantity(cart.getQuantity());
+            dto.setProductPrice(product != null ? product.getProductPrice() : new BigDecimal("0.00"));
+            dto.setMerchantId(product != null ? product.getMerchantId() : 0L);
+            dto.setLineTotal(dto.getProductPrice().multiply(BigDecimal.valueOf(cart.getQuantity())));
+            cartItemDTOList.add(dto);
+        }
+        return cartItemDTOList;
     }
 }
\ No newline at end of file
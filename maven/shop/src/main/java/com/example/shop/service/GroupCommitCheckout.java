@@ -0,0 +1,216 @@
+package com.example.shop.service;
+
+import com.example.shop.service.OrderCheckoutService.CheckoutOrder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 合并提交下单（可选，order.checkout.group-commit.enabled=true时启用）
+ * 并发的下单请求进入有界队列，由少量写线程取出一批订单在一个事务中写库，
+ * 一次提交分摊多笔订单的fsync开销；整批失败时逐单重试，保证每笔订单拿到各自的成功/失败结果
+ */
+@Slf4j
+@Component
+public class GroupCommitCheckout {
+
+    @Autowired
+    private OrderCheckoutService orderCheckoutService;
+
+    @Value("${order.checkout.group-commit.enabled:false}")
+    private boolean enabled;
+
+    @Value("${order.checkout.group-commit.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${order.checkout.group-commit.writers:2}")
+    private int writers;
+
+    @Value("${order.checkout.group-commit.max-batch-size:32}")
+    private int maxBatchSize;
+
+    @Value("${order.checkout.group-commit.max-wait-ms:2}")
+    private long maxWaitMillis;
+
+    @Value("${order.checkout.group-commit.timeout-ms:5000}")
+    private long timeoutMillis;
+
+    private BlockingQueue<PendingCheckout> queue;
+    private ExecutorService writerPool;
+    private volatile boolean running;
+
+    /**
+     * 排队中的下单请求
+     */
+    private static class PendingCheckout {
+        private final CheckoutOrder order;
+        private final CompletableFuture<String> future = new CompletableFuture<>();
+
+        private PendingCheckout(CheckoutOrder order) {
+            this.order = order;
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicInteger threadNo = new AtomicInteger();
+        writerPool = Executors.newFixedThreadPool(writers, r -> {
+            Thread thread = new Thread(r, "checkout-writer-" + threadNo.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        running = true;
+        for (int i = 0; i < writers; i++) {
+            writerPool.execute(this::writeLoop);
+        }
+        log.info("合并提交下单已启用：queueCapacity={}，writers={}，maxBatchSize={}，maxWaitMs={}",
+                queueCapacity, writers, maxBatchSize, maxWaitMillis);
+    }
+
+    /**
+     * 停止接收新请求，写完队列中剩余的订单后退出
+     */
+    @PreDestroy
+    public void stop() {
+        if (!enabled) {
+            return;
+        }
+        running = false;
+        writerPool.shutdown();
+        try {
+            if (!writerPool.awaitTermination(10, TimeUnit.SECONDS)) {
+                writerPool.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            writerPool.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        PendingCheckout pending;
+        while ((pending = queue.poll()) != null) {
+            pending.future.completeExceptionally(new IllegalStateException("服务正在停止，请稍后重试"));
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return 下单接口等待结果的超时时间（毫秒）
+     */
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    /**
+     * 提交下单请求（队列已满时立即拒绝）
+     *
+     * @param order 待写库的订单
+     * @return 订单号的Future（失败时以异常完成）
+     */
+    public CompletableFuture<String> submit(CheckoutOrder order) {
+        PendingCheckout pending = new PendingCheckout(order);
+        if (!running) {
+            pending.future.completeExceptionally(new IllegalStateException("服务正在停止，请稍后重试"));
+        } else if (!queue.offer(pending)) {
+            pending.future.completeExceptionally(new IllegalStateException("下单请求过多，请稍后重试"));
+        }
+        return pending.future;
+    }
+
+    /**
+     * 取消仍在排队的下单请求（等待超时时调用）
+     *
+     * @param future submit返回的Future
+     * @return true=已从队列中移除，订单不会写库；false=已被写线程取出（结果未知）或已完成
+     */
+    public boolean cancel(CompletableFuture<String> future) {
+        if (queue == null || !queue.removeIf(pending -> pending.future == future)) {
+            return false;
+        }
+        future.completeExceptionally(new IllegalStateException("下单排队超时，已取消"));
+        return true;
+    }
+
+    /**
+     * 写线程主循环：取一批订单（最多maxBatchSize笔，最多等待maxWaitMillis凑批）写库
+     */
+    private void writeLoop() {
+        List<PendingCheckout> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingCheckout first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    PendingCheckout next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                writeBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                for (PendingCheckout pending : batch) {
+                    if (!pending.future.isDone()) {
+                        pending.future.completeExceptionally(new IllegalStateException("下单处理中断，请稍后重试"));
+                    }
+                }
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * 整批在一个事务中写库；失败时逐单独立事务重试，让失败只影响出错的订单
+     */
+    private void writeBatch(List<PendingCheckout> batch) {
+        if (batch.size() > 1) {
+            List<CheckoutOrder> orders = new ArrayList<>(batch.size());
+            for (PendingCheckout pending : batch) {
+                orders.add(pending.order);
+            }
+            try {
+                List<String> orderNos = orderCheckoutService.checkoutBatch(orders);
+                for (int i = 0; i < batch.size(); i++) {
+                    batch.get(i).future.complete(orderNos.get(i));
+                }
+                log.debug("合并提交{}笔订单", batch.size());
+                return;
+            } catch (Exception e) {
+                log.warn("合并提交{}笔订单失败，改为逐单提交：{}", batch.size(), e.getMessage());
+            }
+        }
+        for (PendingCheckout pending : batch) {
+            try {
+                pending.future.complete(orderCheckoutService.checkout(pending.order));
+            } catch (Exception e) {
+                pending.future.completeExceptionally(e);
+            }
+        }
+    }
+}
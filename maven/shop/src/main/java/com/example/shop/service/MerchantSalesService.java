@@ -0,0 +1,452 @@
+package com.example.shop.service;
+
+import com.example.shop.entity.MerchantProductSales;
+import com.example.shop.entity.MerchantSales;
+import com.example.shop.entity.OrderItem;
+import com.example.shop.entity.Product;
+import com.example.shop.mapper.MerchantSalesMapper;
+import com.example.shop.mapper.OrderItemMapper;
+import com.example.shop.mapper.PendingShardOrderMapper;
+import com.example.shop.mapper.ProductMapper;
+import com.example.shop.routing.DataSourceRouting;
+import com.example.shop.sharding.OrderShardRouter;
+import com.example.shop.vo.PageCursor;
+import com.example.shop.vo.PageResultVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.CollectionUtils;
+
+import jakarta.annotation.PostConstruct;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+/**
+ * 商家销售汇总（可选，merchant.sales.enabled=true时启用，需先建表，见MerchantSalesMapper）
+ * 1. 下单时在下单事务中累加：同一事务内的多笔订单（合并提交）先在内存中合并，
+ *    事务提交前按商家ID、商品ID升序各用一条语句写入，汇总行的行锁只在提交前短暂持有；下单回滚时汇总一并回滚
+ * 2. 商家汇总为主键查询，商品汇总按(商家ID, 商品ID)主键范围查询，都不扫描订单项目表
+ * 3. 重建：从各分库的order_item重新汇总后整体替换（修复用，启动时执行）；销售额按订单项目记录的成交单价计算，
+ *    与下单累加一致，商品改价后重建不会改变历史销售额（加列前没有成交单价的历史订单项目按商品当前单价估算）
+ * 4. 重建与下单累加通过主库锁行互斥：累加时随机锁一个锁行，重建时锁住全部锁行后再扫描、替换，
+ *    重建期间提交的下单在写汇总表前等待，重建完成后再累加，不会漏计也不会重复计；锁行分散多个，平时下单互不阻塞
+ */
+@Slf4j
+@Service
+public class MerchantSalesService {
+
+    // 单条多行INSERT的最大行数（重建时分多条语句写入）
+    private static final int BATCH_INSERT_SIZE = 500;
+    // 重建时按商品ID批量查询单价的每批数量（只用于没有成交单价的历史订单项目）
+    private static final int PRICE_QUERY_SIZE = 1000;
+    // 锁行数（下单累加时随机锁其中一行，重建时全部锁住）
+    private static final int LOCK_STRIPES = 16;
+
+    @Autowired
+    private MerchantSalesMapper merchantSalesMapper;
+
+    @Autowired
+    private OrderItemMapper orderItemMapper;
+
+    @Autowired
+    private ProductMapper productMapper;
+
+    @Autowired
+    private PendingShardOrderMapper pendingShardOrderMapper;
+
+    @Autowired
+    private OrderShardRouter orderShardRouter;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${merchant.sales.enabled:false}")
+    private boolean enabled;
+
+    @Value("${merchant.sales.rebuild-on-startup:false}")
+    private boolean rebuildOnStartup;
+
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * 一个事务内累计的销售增量（按商家ID、商品ID排序，写入时按固定顺序加锁）
+     */
+    private static class SalesDelta {
+        // 商家ID → 商品ID → 商品销售增量（销售额在写入前按单价计算）
+        private final TreeMap<Long, TreeMap<Long, MerchantProductSales>> products = new TreeMap<>();
+        // 商家ID → 订单数增量
+        private final TreeMap<Long, Long> merchantOrders = new TreeMap<>();
+
+        private void addOrder(List<OrderItem> orderItems, Map<Long, Product> productMap) {
+            // 商家ID → 本订单中已计入订单数的商品ID（同一订单的同一商品只计一单）
+            Map<Long, Set<Long>> counted = new HashMap<>();
+            for (OrderItem item : orderItems) {
+                Product product = item.getProductId() == null ? null : productMap.get(item.getProductId());
+                if (product == null || product.getMerchantId() == null || item.getQuantity() == null) {
+                    continue;
+                }
+                Long merchantId = product.getMerchantId();
+                BigDecimal price = product.getProductPrice() != null ? product.getProductPrice() : BigDecimal.ZERO;
+                MerchantProductSales row = products.computeIfAbsent(merchantId, id -> new TreeMap<>())
+                        .computeIfAbsent(item.getProductId(), id -> newProductSales(merchantId, id));
+                row.setUnitsSold(row.getUnitsSold() + item.getQuantity());
+                row.setRevenue(row.getRevenue().add(price.multiply(BigDecimal.valueOf(item.getQuantity()))));
+                Set<Long> orderProducts = counted.computeIfAbsent(merchantId, id -> new HashSet<>());
+                if (orderProducts.isEmpty()) {
+                    merchantOrders.merge(merchantId, 1L, Long::sum);
+                }
+                if (orderProducts.add(item.getProductId())) {
+                    row.setOrderCount(row.getOrderCount() + 1);
+                }
+            }
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * 插入锁行；首次开启时可配置启动后重建一次（把历史订单计入汇总）
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            merchantSalesMapper.addLockStripes(allStripes());
+        } catch (Exception e) {
+            log.error("插入商家销售汇总锁行失败（检查merchant_sales_lock表是否已创建）", e);
+        }
+        if (!rebuildOnStartup) {
+            return;
+        }
+        try {
+            rebuild();
+        } catch (Exception e) {
+            log.error("启动时重建商家销售汇总失败", e);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 计入一笔订单（在下单事务中调用，事务提交前写入汇总表；无事务时立即写入）
+     *
+     * @param orderItems 订单项目列表
+     * @param products   订单中的商品（商家ID、成交单价以此为准；应在扣减库存的事务中查库读取，不经过缓存）
+     * @throws RuntimeException 写入失败（所在事务回滚）
+     */
+    public void recordOrder(List<OrderItem> orderItems, Map<Long, Product> products) {
+        if (!enabled || CollectionUtils.isEmpty(orderItems)) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            SalesDelta delta = new SalesDelta();
+            delta.addOrder(orderItems, products);
+            apply(delta);
+            return;
+        }
+        SalesDelta delta = (SalesDelta) TransactionSynchronizationManager.getResource(this);
+        if (delta == null) {
+            SalesDelta created = new SalesDelta();
+            TransactionSynchronizationManager.bindResource(this, created);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    apply(created);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(MerchantSalesService.this);
+                }
+            });
+            delta = created;
+        }
+        delta.addOrder(orderItems, products);
+    }
+
+    /**
+     * 在当前事务中随机锁一个锁行（持有到事务结束）：重建进行中时等待重建完成
+     * 除累加汇总外，登记待确认分库订单时也调用，保证重建期间不会出现新的未确认分库订单
+     */
+    public void lockAgainstRebuild() {
+        if (!enabled) {
+            return;
+        }
+        int stripe = ThreadLocalRandom.current().nextInt(LOCK_STRIPES);
+        if (merchantSalesMapper.lockStripe(stripe) == null) {
+            merchantSalesMapper.addLockStripes(allStripes());
+            merchantSalesMapper.lockStripe(stripe);
+        }
+    }
+
+    /**
+     * 查询商家销售汇总
+     *
+     * @param merchantId 商家ID
+     * @return 销售汇总（没有销售记录时各项为0；查询失败返回null）
+     */
+    public MerchantSales getMerchantSales(Long merchantId) {
+        if (merchantId == null || merchantId <= 0) {
+            return null;
+        }
+        try {
+            MerchantSales sales = merchantSalesMapper.selectByMerchantId(merchantId);
+            return sales != null ? sales : newMerchantSales(merchantId);
+        } catch (Exception e) {
+            log.error("查询商家{}销售汇总失败", merchantId, e);
+            return null;
+        }
+    }
+
+    /**
+     * 按商家ID分页查询商品销售汇总（按商品ID升序）
+     *
+     * @param merchantId 商家ID
+     * @param pageNo     页数（从1开始）
+     * @param pageSize   每页数量（默认10）
+     * @return 分页结果
+     */
+    public PageResultVO<MerchantProductSales> getProductSalesPage(Long merchantId, Integer pageNo, Integer pageSize) {
+        if (pageNo == null || pageNo < 1) {
+            pageNo = 1;
+        }
+        if (pageSize == null || pageSize < 1) {
+            pageSize = 10; // 默认每页10条
+        }
+        if (!enabled || merchantId == null || merchantId <= 0) {
+            return new PageResultVO<>(0, 0, pageNo, pageSize, Collections.emptyList());
+        }
+
+        List<MerchantProductSales> salesList =
+                merchantSalesMapper.selectProductSalesPage(merchantId, (pageNo - 1) * pageSize, pageSize);
+        Integer total = merchantSalesMapper.countProductSalesByMerchantId(merchantId);
+        Integer pages = total == 0 ? 0 : (total + pageSize - 1) / pageSize;
+        return new PageResultVO<>(total, pages, pageNo, pageSize, salesList);
+    }
+
+    /**
+     * 按商家ID游标分页查询商品销售汇总（按商品ID升序，不统计总数）
+     *
+     * @param merchantId 商家ID
+     * @param cursor     上一页返回的游标（null/空串表示第一页）
+     * @param pageSize   每页数量（默认10）
+     * @return 游标分页结果（nextCursor为null表示没有下一页）
+     * @throws IllegalArgumentException 游标不合法
+     */
+    public PageResultVO<MerchantProductSales> getProductSalesAfter(Long merchantId, String cursor, Integer pageSize) {
+        if (pageSize == null || pageSize < 1) {
+            pageSize = 10; // 默认每页10条
+        }
+        Long afterProductId = PageCursor.decodeLong(cursor);
+        if (!enabled || merchantId == null || merchantId <= 0) {
+            return PageResultVO.ofCursor(pageSize, Collections.emptyList(), null);
+        }
+
+        // 多查一条用于判断是否还有下一页
+        List<MerchantProductSales> salesList =
+                merchantSalesMapper.selectProductSalesAfter(merchantId, afterProductId, pageSize + 1);
+        String nextCursor = null;
+        if (salesList.size() > pageSize) {
+            salesList = salesList.subList(0, pageSize);
+            nextCursor = PageCursor.encode(salesList.get(pageSize - 1).getProductId());
+        }
+        return PageResultVO.ofCursor(pageSize, salesList, nextCursor);
+    }
+
+    /**
+     * 从订单项目重建销售汇总（扫描所有分库的order_item，在一个事务中清空并重新写入汇总表）
+     * 历史订单项目没有保存成交单价，重建后的销售额按商品当前单价计算（已删除的商品按0计）；
+     * 先锁住全部锁行再扫描：已累加的下单都已提交（在扫描结果中），未累加的下单等重建提交后再累加；
+     * 分库上已提交但主库尚未确认的订单（待确认记录仍在）不计入，由其下单事务提交时累加
+     * （登记待确认记录时也要锁一个锁行，重建期间不会新增待确认订单）。
+     * 重建期间下单在提交前等待，应在低峰期执行
+     *
+     * @return 重建结果（商家数、商品数、耗时）
+     * @throws RuntimeException 重建失败（汇总表保持原样）
+     */
+    public Map<String, Object> rebuild() {
+        long start = System.currentTimeMillis();
+        merchantSalesMapper.addLockStripes(allStripes());
+        Map<String, Object> result = transactionTemplate.execute(status -> {
+            merchantSalesMapper.lockAllStripes();
+            return rebuildLocked();
+        });
+        long costMillis = System.currentTimeMillis() - start;
+        log.info("重建商家销售汇总完成：商家{}个，商品{}个，耗时{}ms", result.get("merchants"), result.get("products"), costMillis);
+        result.put("costMillis", costMillis);
+        return result;
+    }
+
+    /**
+     * 在持有全部锁行的事务中扫描订单项目并替换汇总表
+     */
+    private Map<String, Object> rebuildLocked() {
+        List<String> pendingOrderNos = orderShardRouter.isEnabled()
+                ? pendingShardOrderMapper.selectOrderNos() : Collections.emptyList();
+
+        // 1. 各分库分别汇总后合并（同一订单只在一个分库，订单数可以直接相加）
+        TreeMap<Long, TreeMap<Long, MerchantProductSales>> productSales = new TreeMap<>();
+        for (List<MerchantProductSales> shardRows : DataSourceRouting.primary(() -> orderShardRouter.onAllShards(
+                shard -> orderItemMapper.sumSalesGroupByMerchantAndProduct(pendingOrderNos)))) {
+            for (MerchantProductSales row : shardRows) {
+                MerchantProductSales merged = productSales.computeIfAbsent(row.getMerchantId(), id -> new TreeMap<>())
+                        .computeIfAbsent(row.getProductId(), id -> newProductSales(row.getMerchantId(), id));
+                merged.setUnitsSold(merged.getUnitsSold() + row.getUnitsSold());
+                merged.setOrderCount(merged.getOrderCount() + row.getOrderCount());
+                if (row.getRevenue() != null) {
+                    merged.setRevenue(merged.getRevenue().add(row.getRevenue()));
+                }
+            }
+        }
+        // 没有成交单价的历史订单项目：按商品当前单价估算（已删除的商品计0）
+        List<MerchantProductSales> unpricedRows = new ArrayList<>();
+        DataSourceRouting.primary(() -> orderShardRouter.onAllShards(
+                shard -> orderItemMapper.sumUnpricedUnitsGroupByMerchantAndProduct(pendingOrderNos)))
+                .forEach(unpricedRows::addAll);
+        if (!unpricedRows.isEmpty()) {
+            List<Long> productIds = new ArrayList<>();
+            unpricedRows.forEach(row -> productIds.add(row.getProductId()));
+            Map<Long, BigDecimal> prices = loadPrices(productIds);
+            for (MerchantProductSales row : unpricedRows) {
+                MerchantProductSales merged = productSales.getOrDefault(row.getMerchantId(), new TreeMap<>())
+                        .get(row.getProductId());
+                if (merged == null) {
+                    // 两次扫描之间新写入的订单项目，下次重建再计入
+                    continue;
+                }
+                merged.setRevenue(merged.getRevenue().add(prices.getOrDefault(row.getProductId(), BigDecimal.ZERO)
+                        .multiply(BigDecimal.valueOf(row.getUnitsSold()))));
+            }
+            log.warn("重建商家销售汇总：{}个商品存在没有成交单价的历史订单项目，销售额按商品当前单价估算", unpricedRows.size());
+        }
+        TreeMap<Long, MerchantSales> merchantSales = new TreeMap<>();
+        for (List<MerchantSales> shardRows : DataSourceRouting.primary(
+                () -> orderShardRouter.onAllShards(shard -> orderItemMapper.countOrdersGroupByMerchant(pendingOrderNos)))) {
+            for (MerchantSales row : shardRows) {
+                MerchantSales merged = merchantSales.computeIfAbsent(row.getMerchantId(), MerchantSalesService::newMerchantSales);
+                merged.setOrderCount(merged.getOrderCount() + row.getOrderCount());
+            }
+        }
+
+        // 2. 商家件数/销售额由商品汇总累加
+        List<MerchantProductSales> productRows = new ArrayList<>();
+        for (Map.Entry<Long, TreeMap<Long, MerchantProductSales>> entry : productSales.entrySet()) {
+            MerchantSales merchant = merchantSales.computeIfAbsent(entry.getKey(), MerchantSalesService::newMerchantSales);
+            for (MerchantProductSales row : entry.getValue().values()) {
+                merchant.setUnitsSold(merchant.getUnitsSold() + row.getUnitsSold());
+                merchant.setRevenue(merchant.getRevenue().add(row.getRevenue()));
+                productRows.add(row);
+            }
+        }
+        List<MerchantSales> merchantRows = new ArrayList<>(merchantSales.values());
+
+        // 3. 在同一事务中清空并写入（写入失败时汇总表保持原样）
+        merchantSalesMapper.deleteAllMerchantSales();
+        merchantSalesMapper.deleteAllProductSales();
+        inBatches(merchantRows, rows -> merchantSalesMapper.addMerchantSales(rows));
+        inBatches(productRows, rows -> merchantSalesMapper.addProductSales(rows));
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("merchants", merchantRows.size());
+        result.put("products", productRows.size());
+        return result;
+    }
+
+    /**
+     * 把一个事务内的增量写入汇总表（销售额在计入订单时按下单事务中读取的商品单价计算，即成交单价）
+     */
+    private void apply(SalesDelta delta) {
+        if (delta.products.isEmpty()) {
+            return;
+        }
+        // 先锁一个锁行（重建进行中时在此等待），再按商家ID、商品ID升序写汇总表
+        lockAgainstRebuild();
+        List<MerchantSales> merchantRows = new ArrayList<>(delta.products.size());
+        List<MerchantProductSales> productRows = new ArrayList<>();
+        for (Map.Entry<Long, TreeMap<Long, MerchantProductSales>> entry : delta.products.entrySet()) {
+            MerchantSales merchant = newMerchantSales(entry.getKey());
+            merchant.setOrderCount(delta.merchantOrders.getOrDefault(entry.getKey(), 0L));
+            for (MerchantProductSales row : entry.getValue().values()) {
+                merchant.setUnitsSold(merchant.getUnitsSold() + row.getUnitsSold());
+                merchant.setRevenue(merchant.getRevenue().add(row.getRevenue()));
+                productRows.add(row);
+            }
+            merchantRows.add(merchant);
+        }
+        inBatches(merchantRows, rows -> merchantSalesMapper.addMerchantSales(rows));
+        inBatches(productRows, rows -> merchantSalesMapper.addProductSales(rows));
+    }
+
+    /**
+     * 批量查询商品单价（分批IN查询）
+     */
+    private Map<Long, BigDecimal> loadPrices(List<Long> productIds) {
+        Map<Long, BigDecimal> prices = new HashMap<>();
+        for (int from = 0; from < productIds.size(); from += PRICE_QUERY_SIZE) {
+            List<Long> batch = productIds.subList(from, Math.min(productIds.size(), from + PRICE_QUERY_SIZE));
+            for (Product product : productMapper.selectByProductIds(batch)) {
+                if (product.getProductPrice() != null) {
+                    prices.put(product.getProductId(), product.getProductPrice());
+                }
+            }
+        }
+        return prices;
+    }
+
+    private static <T> void inBatches(List<T> rows, Consumer<List<T>> writer) {
+        for (int from = 0; from < rows.size(); from += BATCH_INSERT_SIZE) {
+            writer.accept(rows.subList(from, Math.min(rows.size(), from + BATCH_INSERT_SIZE)));
+        }
+    }
+
+    private static MerchantSales newMerchantSales(Long merchantId) {
+        MerchantSales sales = new MerchantSales();
+        sales.setMerchantId(merchantId);
+        sales.setUnitsSold(0L);
+        sales.setRevenue(BigDecimal.ZERO);
+        sales.setOrderCount(0L);
+        return sales;
+    }
+
+    private static List<Integer> allStripes() {
+        List<Integer> stripes = new ArrayList<>(LOCK_STRIPES);
+        for (int stripe = 0; stripe < LOCK_STRIPES; stripe++) {
+            stripes.add(stripe);
+        }
+        return stripes;
+    }
+
+    private static MerchantProductSales newProductSales(Long merchantId, Long productId) {
+        MerchantProductSales sales = new MerchantProductSales();
+        sales.setMerchantId(merchantId);
+        sales.setProductId(productId);
+        sales.setUnitsSold(0L);
+        sales.setRevenue(BigDecimal.ZERO);
+        sales.setOrderCount(0L);
+        return sales;
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.shop.service;
+
+import com.example.shop.entity.OrderItem;
+import com.example.shop.entity.OrderMain;
+import com.example.shop.entity.Product;
+import com.example.shop.sharding.OrderShardRouter;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * 下单写库（扣减库存 + 插入订单主信息 + 插入订单项目 + 累加商家销售汇总）
+ * 单笔下单每单一个事务；合并提交模式下多笔订单共用一个事务
+ * 开启订单分库时，订单写入用户所在分库：不在主库的分库使用独立事务先提交，写入前先在主库登记待确认订单，
+ * 主库事务提交时确认；主库事务回滚或进程宕机时由ShardOrderReconciler删除已写入的订单
+ */
+@Slf4j
+@Service
+public class OrderCheckoutService {
+
+    @Autowired
+    private ProductService productService;
+    @Autowired
+    private OrderMainService orderMainService;
+    @Autowired
+    private OrderItemService orderItemService;
+    @Autowired
+    private OrderShardRouter orderShardRouter;
+    @Autowired
+    private MerchantSalesService merchantSalesService;
+    @Autowired
+    private ShardOrderReconciler shardOrderReconciler;
+
+    /**
+     * 待写库的订单（已完成参数校验和账号解析）
+     */
+    @Data
+    @AllArgsConstructor
+    public static class CheckoutOrder {
+        private Long userId;
+        private List<OrderItem> orderItemList;
+    }
+
+    /**
+     * 单笔下单（独立事务，任一步失败整单回滚）
+     *
+     * @param order 待写库的订单
+     * @return 订单号
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public String checkout(CheckoutOrder order) {
+        SortedMap<Long, Integer> quantities = new TreeMap<>();
+        addQuantities(order, quantities);
+        return writeOrder(order, decreaseStock(quantities));
+    }
+
+    /**
+     * 多笔订单合并在一个事务中写库（任一订单失败整批回滚，由调用方逐单重试）
+     * 整批订单的商品数量先合并，按商品ID升序一次扣减：批次之间与单笔下单一样按同一顺序加行锁，不会互相死锁
+     *
+     * @param orders 待写库的订单列表
+     * @return 订单号列表（与传入顺序一致）
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public List<String> checkoutBatch(List<CheckoutOrder> orders) {
+        SortedMap<Long, Integer> quantities = new TreeMap<>();
+        for (CheckoutOrder order : orders) {
+            addQuantities(order, quantities);
+        }
+        Map<Long, Product> products = decreaseStock(quantities);
+        List<String> orderNos = new ArrayList<>(orders.size());
+        for (CheckoutOrder order : orders) {
+            orderNos.add(writeOrder(order, products));
+        }
+        return orderNos;
+    }
+
+    /**
+     * 校验订单项目，同一商品的数量合并到quantities
+     */
+    private void addQuantities(CheckoutOrder order, SortedMap<Long, Integer> quantities) {
+        for (OrderItem item : order.getOrderItemList()) {
+            if (item.getProductId() == null || item.getQuantity() == null || item.getQuantity() <= 0) {
+                throw new RuntimeException(
+                        "订单项目不合法：productId=" + item.getProductId() + "，quantity=" + item.getQuantity());
+            }
+            quantities.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+        }
+    }
+
+    /**
+     * 订单生成时扣减库存：按商品ID升序一条语句扣减，再读取扣减后的商品行
+     * 商家ID和成交单价以商品表为准（客户端传入的merchantId不可信），在扣减库存的事务中读取
+     */
+    private Map<Long, Product> decreaseStock(SortedMap<Long, Integer> quantities) {
+        productService.decreaseStockBatch(quantities);
+        return productService.getProductsForUpdate(quantities.keySet());
+    }
+
+    /**
+     * 在当前事务中写入一笔订单（库存已扣减）
+     */
+    private String writeOrder(CheckoutOrder order, Map<Long, Product> products) {
+        for (OrderItem item : order.getOrderItemList()) {
+            Product product = products.get(item.getProductId());
+            if (product == null) {
+                throw new RuntimeException("商品不存在：productId=" + item.getProductId());
+            }
+            item.setMerchantId(product.getMerchantId());
+            item.setUnitPrice(product.getProductPrice());
+        }
+
+        int shard = orderShardRouter.shardOfUser(order.getUserId());
+        String orderNo = orderMainService.nextOrderNo(order.getUserId());
+        boolean separate = orderShardRouter.isSeparateTransaction(shard);
+        if (separate) {
+            shardOrderReconciler.register(orderNo, shard, order.getUserId());
+        }
+        OrderMain orderMain = orderShardRouter.inShardTransaction(shard, () -> {
+            OrderMain added = orderMainService.addOrderMain(order.getUserId(), orderNo);
+            orderItemService.batchAddOrderItem(added.getOrderNo(), order.getOrderItemList());
+            return added;
+        });
+        if (separate) {
+            shardOrderReconciler.confirm(orderNo);
+        }
+        // 销售汇总在主库，随当前事务提交（合并提交时整批订单合并写入）
+        merchantSalesService.recordOrder(order.getOrderItemList(), products);
+        return orderMain.getOrderNo();
+    }
+}
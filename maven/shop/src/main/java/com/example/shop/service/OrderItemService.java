@@ -1,15 +1,26 @@
 package com.example.shop.service;
 
+import com.example.shop.cache.CountCache;
 import com.example.shop.entity.OrderItem;
 import com.example.shop.mapper.OrderItemMapper;
+import com.example.shop.routing.DataSourceRouting;
+import com.example.shop.sharding.OrderShardRouter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.CollectionUtils;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 
 @Slf4j
 @Service // 标记为Spring服务组件，自动注入IOC容器
@@ -19,6 +30,16 @@ public class OrderItemService {
     @Autowired
     private OrderItemMapper orderItemMapper;
 
+    @Autowired
+    private CountCache countCache;
+
+    // 订单分库路由（订单项目与订单主信息在同一分库，按商家查询时合并各分库结果）
+    @Autowired
+    private OrderShardRouter orderShardRouter;
+
+    // 单条多行INSERT的最大行数（超出后分多条语句插入，避免SQL过长）
+    private static final int BATCH_INSERT_SIZE = 500;
+
     /**
      * 根据订单项目ID（主键）查询订单项目
      * 
@@ -34,7 +55,14 @@ public class OrderItemService {
 
         // 数据库操作 + 异常捕获
         try {
-            return orderItemMapper.selectById(id);
+            // 订单项目ID不含分库信息：依次查询各分库
+            for (int shard = 0; shard < orderShardRouter.getShardCount(); shard++) {
+                OrderItem orderItem = orderShardRouter.onShard(shard, () -> orderItemMapper.selectById(id));
+                if (orderItem != null) {
+                    return orderItem;
+                }
+            }
+            return null;
         } catch (Exception e) {
             log.error("根据订单项目ID{}查询订单项目失败", id, e);
             return null;
@@ -56,7 +84,11 @@ public class OrderItemService {
 
         // 数据库操作 + 异常捕获 + 结果兜底
         try {
-            List<OrderItem> orderItemList = orderItemMapper.selectByOrderNo(orderNo);
+            int shard = orderShardRouter.shardOfOrderNo(orderNo);
+            List<OrderItem> orderItemList = shard != OrderShardRouter.UNKNOWN_SHARD
+                    ? orderShardRouter.onShard(shard, () -> orderItemMapper.selectByOrderNo(orderNo))
+                    : mergeById(orderShardRouter.onAllShards(i -> orderItemMapper.selectByOrderNo(orderNo)),
+                            Integer.MAX_VALUE);
             // 查询结果为null时返回空列表
             return CollectionUtils.isEmpty(orderItemList) ? Collections.emptyList() : orderItemList;
         } catch (Exception e) {
@@ -65,6 +97,63 @@ public class OrderItemService {
         }
     }
 
+    /**
+     * 根据订单号批量查询订单项目，并按订单号分组
+     *
+     * @param orderNos 订单号集合
+     * @return 订单号 → 订单项目列表（每个传入的合法订单号都有对应列表，无订单项时为空列表）
+     */
+    public Map<String, List<OrderItem>> listByOrderNos(Collection<String> orderNos) {
+        if (CollectionUtils.isEmpty(orderNos)) {
+            return Collections.emptyMap();
+        }
+        Set<String> validOrderNos = new LinkedHashSet<>();
+        for (String orderNo : orderNos) {
+            if (orderNo != null && !orderNo.trim().isEmpty()) {
+                validOrderNos.add(orderNo);
+            }
+        }
+        if (validOrderNos.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        // 先为每个订单号放入空列表，保证调用方按订单号取值时不为null
+        Map<String, List<OrderItem>> orderItemMap = new LinkedHashMap<>();
+        for (String orderNo : validOrderNos) {
+            orderItemMap.put(orderNo, new ArrayList<>());
+        }
+        // 按订单号中的分库号分组，每个分库一次批量查询；历史订单号在每个分库都查
+        Map<Integer, List<String>> orderNosByShard = new TreeMap<>();
+        for (String orderNo : validOrderNos) {
+            orderNosByShard.computeIfAbsent(orderShardRouter.shardOfOrderNo(orderNo), shard -> new ArrayList<>())
+                    .add(orderNo);
+        }
+        List<String> unknownShardOrderNos = orderNosByShard.remove(OrderShardRouter.UNKNOWN_SHARD);
+        if (unknownShardOrderNos != null) {
+            for (int shard = 0; shard < orderShardRouter.getShardCount(); shard++) {
+                orderNosByShard.computeIfAbsent(shard, key -> new ArrayList<>()).addAll(unknownShardOrderNos);
+            }
+        }
+        try {
+            for (Map.Entry<Integer, List<String>> entry : orderNosByShard.entrySet()) {
+                List<OrderItem> orderItemList = orderShardRouter.onShard(entry.getKey(),
+                        () -> orderItemMapper.selectByOrderNos(entry.getValue()));
+                if (orderItemList == null) {
+                    continue;
+                }
+                for (OrderItem item : orderItemList) {
+                    List<OrderItem> group = orderItemMap.get(item.getOrderNo());
+                    if (group != null) {
+                        group.add(item);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.error("根据订单号批量查询订单项目失败，订单数={}", validOrderNos.size(), e);
+        }
+        return orderItemMap;
+    }
+
     /**
      * 按商家ID分页查询订单项列表
      *
@@ -74,6 +163,20 @@ public class OrderItemService {
      * @return 分页订单项列表（无数据返回空列表）
      */
     public List<OrderItem> listByMerchantIdPage(Long merchantId, Integer pageNum, Integer pageSize) {
+        return listByMerchantIdPage(merchantId, pageNum, pageSize, false);
+    }
+
+    /**
+     * 按商家ID分页查询订单项列表（可多查一条用于判断是否有下一页）
+     *
+     * @param merchantId 商家ID
+     * @param pageNum    当前页码（从1开始）
+     * @param pageSize   每页数量
+     * @param probeNext  是否多查一条（不统计总数时用于判断hasNext）
+     * @return 分页订单项列表（probeNext时最多pageSize + 1条）
+     */
+    public List<OrderItem> listByMerchantIdPage(Long merchantId, Integer pageNum, Integer pageSize,
+            boolean probeNext) {
         // 多维度参数合法性校验（与现有代码风格一致）
         if (merchantId == null || merchantId <= 0) {
             log.error("按商家ID分页查询订单项失败：商家ID不合法，merchantId={}", merchantId);
@@ -95,7 +198,16 @@ public class OrderItemService {
 
         // 数据库操作
         try {
-            List<OrderItem> orderItemList = orderItemMapper.selectByMerchantIdPage(merchantId, offset, pageSize);
+            int limit = probeNext ? pageSize + 1 : pageSize;
+            List<OrderItem> orderItemList;
+            if (orderShardRouter.getShardCount() == 1) {
+                orderItemList = orderItemMapper.selectByMerchantIdPage(merchantId, offset, limit);
+            } else {
+                // 跨库分页：每个分库取前offset+limit条，按ID合并后截取（页码越大代价越高，深分页应使用游标分页）
+                List<OrderItem> merged = mergeById(orderShardRouter.onAllShards(
+                        shard -> orderItemMapper.selectByMerchantIdPage(merchantId, 0, offset + limit)), offset + limit);
+                orderItemList = merged.size() <= offset ? Collections.emptyList() : merged.subList(offset, merged.size());
+            }
             // 查询结果为null时返回空列表
             return CollectionUtils.isEmpty(orderItemList) ? Collections.emptyList() : orderItemList;
         } catch (Exception e) {
@@ -105,6 +217,35 @@ public class OrderItemService {
         }
     }
 
+    /**
+     * 按商家ID游标分页查询订单项列表（按订单项ID升序）
+     *
+     * @param merchantId 商家ID
+     * @param afterId    上一页最后一条的订单项ID（null表示第一页）
+     * @param limit      查询条数
+     * @return 订单项列表（无数据返回空列表）
+     */
+    public List<OrderItem> listByMerchantIdAfter(Long merchantId, Long afterId, Integer limit) {
+        if (merchantId == null || merchantId <= 0) {
+            log.error("按商家ID游标查询订单项失败：商家ID不合法，merchantId={}", merchantId);
+            return Collections.emptyList();
+        }
+        if (limit == null || limit < 1) {
+            log.error("按商家ID游标查询订单项失败：查询条数不合法，limit={}", limit);
+            return Collections.emptyList();
+        }
+
+        try {
+            // 每个分库取afterId之后的limit条，按ID合并后取前limit条
+            List<OrderItem> orderItemList = mergeById(orderShardRouter.onAllShards(
+                    shard -> orderItemMapper.selectByMerchantIdAfter(merchantId, afterId, limit)), limit);
+            return CollectionUtils.isEmpty(orderItemList) ? Collections.emptyList() : orderItemList;
+        } catch (Exception e) {
+            log.error("按商家ID{}游标查询订单项失败（afterId={}，limit={}）", merchantId, afterId, limit, e);
+            return Collections.emptyList();
+        }
+    }
+
     /**
      * 统计商家ID对应的订单项总数
      *
@@ -120,9 +261,10 @@ public class OrderItemService {
 
         // 数据库操作
         try {
-            Integer total = orderItemMapper.countByMerchantId(merchantId);
-            // 查询结果为null时返回0
-            return total == null ? 0 : total;
+            // 走分页总数缓存（新增订单项时失效，加载走主库），各分库数量相加
+            return countCache.get(CountCache.ORDER_ITEM_BY_MERCHANT, merchantId, () -> DataSourceRouting.primary(
+                    () -> orderShardRouter.onAllShards(shard -> orderItemMapper.countByMerchantId(merchantId))
+                            .stream().mapToInt(count -> count == null ? 0 : count).sum()));
         } catch (Exception e) {
             log.error("统计商家ID{}的订单项总数失败", merchantId, e);
             return 0;
@@ -160,9 +302,11 @@ public class OrderItemService {
 
         // 数据库插入操作 + 结果校验
         try {
-            int affectRows = orderItemMapper.insertOrderItem(orderItem);
+            int shard = Math.max(0, orderShardRouter.shardOfOrderNo(orderItem.getOrderNo()));
+            int affectRows = orderShardRouter.onShard(shard, () -> orderItemMapper.insertOrderItem(orderItem));
             boolean success = affectRows > 0;
             if (success) {
+                countCache.invalidate(CountCache.ORDER_ITEM_BY_MERCHANT, orderItem.getMerchantId());
                 log.info("新增订单项目成功，订单号={}，商品ID={}，生成的订单项目ID={}",
                         orderItem.getOrderNo(), orderItem.getProductId(), orderItem.getId());
             } else {
@@ -177,6 +321,7 @@ public class OrderItemService {
 
     /**
      * 批量插入订单项目（merchantId为自身字段，严格校验）
+     * 使用多行INSERT，每BATCH_INSERT_SIZE条一次数据库往返，自增ID回填到各订单项目
      * 
      * @param orderNo       订单号（外键关联OrderMain）
      * @param orderItemList 订单项目列表（每个项含merchantId）
@@ -205,21 +350,62 @@ public class OrderItemService {
             }
         }
 
-        // 批量插入
+        // 批量插入（多行INSERT，按批次拆分），写入订单所在分库
+        int shard = Math.max(0, orderShardRouter.shardOfOrderNo(orderNo));
         int successCount = 0;
-        for (OrderItem item : orderItemList) {
-            int affectRows = orderItemMapper.insertOrderItem(item);
-            if (affectRows > 0) {
-                successCount++;
-                log.info("插入订单项目成功：orderNo={}，productId={}，merchantId={}，自增Id={}",
-                        orderNo, item.getProductId(), item.getMerchantId(), item.getId());
-            } else {
+        for (int from = 0; from < orderItemList.size(); from += BATCH_INSERT_SIZE) {
+            List<OrderItem> batch = orderItemList.subList(from, Math.min(from + BATCH_INSERT_SIZE, orderItemList.size()));
+            int affectRows = orderShardRouter.onShard(shard, () -> orderItemMapper.insertOrderItems(batch));
+            if (affectRows != batch.size()) {
                 throw new RuntimeException(
-                        "插入订单项目失败：productId=" + item.getProductId() + "，merchantId=" + item.getMerchantId());
+                        "插入订单项目失败：orderNo=" + orderNo + "，应插入" + batch.size() + "条，实际" + affectRows + "条");
             }
+            successCount += affectRows;
+        }
+
+        // 失效涉及商家的订单项目总数缓存
+        Set<Long> merchantIds = new LinkedHashSet<>();
+        for (OrderItem item : orderItemList) {
+            merchantIds.add(item.getMerchantId());
+        }
+        for (Long merchantId : merchantIds) {
+            countCache.invalidate(CountCache.ORDER_ITEM_BY_MERCHANT, merchantId);
         }
 
         log.info("批量插入订单项目完成：orderNo={}，共{}条，成功{}条",
                 orderNo, orderItemList.size(), successCount);
     }
+
+    /**
+     * 删除订单的全部订单项目（分库下单时外层事务回滚的补偿）
+     *
+     * @param orderNo 订单号
+     */
+    public void deleteByOrderNo(String orderNo) {
+        int shard = Math.max(0, orderShardRouter.shardOfOrderNo(orderNo));
+        int affectRows = orderShardRouter.onShard(shard, () -> orderItemMapper.deleteByOrderNo(orderNo));
+        countCache.invalidateQuery(CountCache.ORDER_ITEM_BY_MERCHANT);
+        log.info("删除订单项目：orderNo={}，影响{}行", orderNo, affectRows);
+    }
+
+    /**
+     * 合并各分库的查询结果（各分库结果已按ID升序），按ID升序取前limit条
+     *
+     * @param shardResults 各分库的查询结果
+     * @param limit        最多返回条数
+     * @return 合并后的列表
+     */
+    private static List<OrderItem> mergeById(List<List<OrderItem>> shardResults, int limit) {
+        if (shardResults.size() == 1) {
+            return shardResults.get(0);
+        }
+        List<OrderItem> merged = new ArrayList<>();
+        for (List<OrderItem> result : shardResults) {
+            if (result != null) {
+                merged.addAll(result);
+            }
+        }
+        merged.sort(Comparator.comparing(OrderItem::getId));
+        return merged.size() > limit ? merged.subList(0, limit) : merged;
+    }
 }
\ No newline at end of file
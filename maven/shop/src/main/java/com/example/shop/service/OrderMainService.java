@@ -1,7 +1,12 @@
 package com.example.shop.service;
 
+import com.example.shop.cache.CountCache;
 import com.example.shop.entity.OrderMain;
+import com.example.shop.id.OrderNoGenerator;
 import com.example.shop.mapper.OrderMainMapper;
+import com.example.shop.routing.DataSourceRouting;
+import com.example.shop.sharding.OrderShardRouter;
+import com.example.shop.vo.PageCursor;
 import com.example.shop.vo.PageResultVO;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -9,11 +14,11 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.CollectionUtils;
 
-import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Date;
 import java.util.List;
-import java.util.Random;
+import java.util.TreeMap;
+import java.util.function.IntFunction;
 
 @Slf4j
 @Service
@@ -22,31 +27,16 @@ public class OrderMainService {
     @Autowired
     private OrderMainMapper orderMainMapper;
 
-    /**
-     * 私有方法：生成唯一订单号（含主键冲突重试，内嵌到Service中）
-     * 
-     * @return 唯一订单号
-     */
-    private String generateOrderNo() {
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMddHHmmssSSS");
-        Random random = new Random();
-        String orderNo;
-
-        // 重试3次，避免主键冲突
-        for (int i = 0; i < 3; i++) {
-            String timeStr = sdf.format(new Date());
-            int randomNum = random.nextInt(9000) + 1000; // 4位随机数（1000-9999）
-            orderNo = timeStr + randomNum;
-
-            // 调用当前Service的getByOrderNo方法校验唯一性
-            if (this.getByOrderNo(orderNo) == null) {
-                return orderNo;
-            }
-            log.warn("订单号{}已存在，第{}次重试生成...", orderNo, i + 1);
-        }
+    @Autowired
+    private CountCache countCache;
 
-        throw new RuntimeException("生成唯一订单号失败（3次重试均主键冲突）");
-    }
+    // 订单号生成器（时间+节点号+序列号，不查库）
+    @Autowired
+    private OrderNoGenerator orderNoGenerator;
+
+    // 订单分库路由（按用户ID选库，订单号末尾带分库号）
+    @Autowired
+    private OrderShardRouter orderShardRouter;
 
     /**
      * 根据订单号查询订单
@@ -61,7 +51,18 @@ public class OrderMainService {
         }
 
         try {
-            return orderMainMapper.selectByOrderNO(orderNo);
+            int shard = orderShardRouter.shardOfOrderNo(orderNo);
+            if (shard != OrderShardRouter.UNKNOWN_SHARD) {
+                return orderShardRouter.onShard(shard, () -> orderMainMapper.selectByOrderNO(orderNo));
+            }
+            // 历史订单号（不含分库号）：依次查询各分库
+            for (int i = 0; i < orderShardRouter.getShardCount(); i++) {
+                OrderMain orderMain = orderShardRouter.onShard(i, () -> orderMainMapper.selectByOrderNO(orderNo));
+                if (orderMain != null) {
+                    return orderMain;
+                }
+            }
+            return null;
         } catch (Exception e) {
             log.error("根据订单号{}查询订单失败", orderNo, e);
             return null;
@@ -81,7 +82,8 @@ public class OrderMainService {
         }
 
         try {
-            List<OrderMain> orderList = orderMainMapper.selectByUserId(userId);
+            List<OrderMain> orderList = mergeByOrderNo(
+                    onUserShards(userId, shard -> orderMainMapper.selectByUserId(userId)), Integer.MAX_VALUE);
             return CollectionUtils.isEmpty(orderList) ? Collections.emptyList() : orderList;
         } catch (Exception e) {
             log.error("根据用户ID{}查询订单列表失败", userId, e);
@@ -100,6 +102,22 @@ public class OrderMainService {
     public PageResultVO<OrderMain> listByUserIdWithPage(Long userId,
             Integer pageNo,
             Integer pageSize) {
+        return listByUserIdWithPage(userId, pageNo, pageSize, true);
+    }
+
+    /**
+     * 分页查询用户订单列表（可选择不统计总数）
+     * 
+     * @param userId    用户主键ID
+     * @param pageNo    当前页号（默认=1，从1开始）
+     * @param pageSize  每页条数（默认=4）
+     * @param withTotal 是否统计总数；false时不执行COUNT，多查一条返回hasNext
+     * @return 分页VO
+     */
+    public PageResultVO<OrderMain> listByUserIdWithPage(Long userId,
+            Integer pageNo,
+            Integer pageSize,
+            boolean withTotal) {
         // 参数默认值处理（页尺寸默认=4）
         int defaultPageNo = 1;
         int defaultPageSize = 4;
@@ -116,10 +134,19 @@ public class OrderMainService {
         try {
             // 计算分页偏移量（MySQL LIMIT偏移量从0开始）
             Integer offset = (pageNo - 1) * pageSize;
+            int limit = pageSize;
 
-            // 查询总条数 + 分页列表
-            Integer total = orderMainMapper.selectCountByUserId(userId);
-            List<OrderMain> orderList = orderMainMapper.selectByUserIdWithPage(userId, offset, pageSize);
+            if (!withTotal) {
+                List<OrderMain> fetchedList = selectUserPage(userId, offset, limit + 1);
+                fetchedList = CollectionUtils.isEmpty(fetchedList) ? Collections.emptyList() : fetchedList;
+                return PageResultVO.ofProbe(pageNo, pageSize, fetchedList);
+            }
+
+            // 查询总条数（走分页总数缓存，加载走主库，各库之和） + 分页列表
+            Integer total = countCache.get(CountCache.ORDER_MAIN_BY_USER, userId, () -> DataSourceRouting.primary(
+                    () -> onUserShards(userId, shard -> orderMainMapper.selectCountByUserId(userId))
+                            .stream().mapToInt(count -> count == null ? 0 : count).sum()));
+            List<OrderMain> orderList = selectUserPage(userId, offset, limit);
 
             // 结果兜底（避免null）
             total = total == null ? 0 : total;
@@ -140,16 +167,70 @@ public class OrderMainService {
         }
     }
 
+    /**
+     * 游标分页查询用户订单列表（按订单号升序，不统计总数）
+     *
+     * @param userId   用户主键ID
+     * @param cursor   上一页返回的游标（null/空串表示第一页）
+     * @param pageSize 每页条数（默认=4）
+     * @return 分页VO（total/pages/pageNo为null，nextCursor为null表示没有下一页）
+     * @throws IllegalArgumentException 游标不合法
+     */
+    public PageResultVO<OrderMain> listByUserIdAfter(Long userId, String cursor, Integer pageSize) {
+        pageSize = (pageSize == null || pageSize < 1) ? 4 : pageSize;
+        String afterOrderNo = PageCursor.decodeString(cursor);
+
+        if (userId == null || userId <= 0) {
+            log.error("游标查询订单失败：用户ID不合法，userId={}", userId);
+            return PageResultVO.ofCursor(pageSize, Collections.emptyList(), null);
+        }
+
+        // 多查一条用于判断是否还有下一页
+        int limit = pageSize + 1;
+        List<OrderMain> orderList = mergeByOrderNo(
+                onUserShards(userId, shard -> orderMainMapper.selectByUserIdAfter(userId, afterOrderNo, limit)), limit);
+        orderList = CollectionUtils.isEmpty(orderList) ? Collections.emptyList() : orderList;
+        String nextCursor = null;
+        if (orderList.size() > pageSize) {
+            orderList = orderList.subList(0, pageSize);
+            nextCursor = PageCursor.encode(orderList.get(pageSize - 1).getOrderNo());
+        }
+        return PageResultVO.ofCursor(pageSize, orderList, nextCursor);
+    }
+
     /**
      * 新增订单主信息（仅需用户ID，无商家ID）
+     * 开启分库时写入用户所在分库，订单号末尾追加分库号
      * 
      * @param userId 用户ID
      * @return 新增的OrderMain（含主键orderNo）
      */
     @Transactional(rollbackFor = Exception.class)
     public OrderMain addOrderMain(Long userId) {
-        // 调用内嵌的生成方法，生成唯一订单号（作为主键）
-        String orderNo = this.generateOrderNo();
+        return addOrderMain(userId, nextOrderNo(userId));
+    }
+
+    /**
+     * 生成订单号（开启分库时末尾追加用户所在分库号）
+     *
+     * @param userId 用户ID
+     * @return 订单号
+     */
+    public String nextOrderNo(Long userId) {
+        // 生成唯一订单号（作为主键，无需查库校验）
+        return orderShardRouter.withShard(orderNoGenerator.nextOrderNo(), orderShardRouter.shardOfUser(userId));
+    }
+
+    /**
+     * 使用预先生成的订单号新增订单主信息（写入订单号所在分库）
+     *
+     * @param userId  用户ID
+     * @param orderNo nextOrderNo生成的订单号
+     * @return 新增的OrderMain
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public OrderMain addOrderMain(Long userId, String orderNo) {
+        int shard = orderShardRouter.shardOfUser(userId);
 
         // 封装订单主实体
         OrderMain orderMain = new OrderMain();
@@ -157,13 +238,70 @@ public class OrderMainService {
         orderMain.setUserId(userId);
 
         // 插入数据库
-        int affectRows = orderMainMapper.insertOrderMain(orderMain);
+        int affectRows = orderShardRouter.onShard(shard, () -> orderMainMapper.insertOrderMain(orderMain));
         if (affectRows <= 0) {
             log.error("插入订单主信息失败：主键orderNo={}，userId={}", orderNo, userId);
             throw new RuntimeException("插入订单主信息失败（主键冲突/数据库异常）");
         }
 
+        countCache.invalidate(CountCache.ORDER_MAIN_BY_USER, userId);
         log.info("插入订单主信息成功：主键orderNo={}，userId={}", orderNo, userId);
         return orderMain;
     }
-}
\ No newline at end of file
+
+    /**
+     * 删除订单主信息（分库下单时外层事务回滚的补偿）
+     *
+     * @param orderMain 订单主实体（含订单号、用户ID）
+     */
+    public void deleteOrderMain(OrderMain orderMain) {
+        String orderNo = orderMain.getOrderNo();
+        int shard = Math.max(0, orderShardRouter.shardOfOrderNo(orderNo));
+        int affectRows = orderShardRouter.onShard(shard, () -> orderMainMapper.deleteByOrderNo(orderNo));
+        countCache.invalidate(CountCache.ORDER_MAIN_BY_USER, orderMain.getUserId());
+        log.info("删除订单主信息：orderNo={}，影响{}行", orderNo, affectRows);
+    }
+
+    /**
+     * 按订单号分页查询用户订单
+     * 只有一个库时直接分页；同时查询历史订单所在的0号库时，每个库取前offset+limit条，按订单号合并后截取
+     */
+    private List<OrderMain> selectUserPage(Long userId, int offset, int limit) {
+        List<Integer> shards = orderShardRouter.shardsOfUserOrders(userId);
+        if (shards.size() == 1) {
+            return orderShardRouter.onShard(shards.get(0),
+                    () -> orderMainMapper.selectByUserIdWithPage(userId, offset, limit));
+        }
+        List<OrderMain> merged = mergeByOrderNo(onUserShards(userId,
+                shard -> orderMainMapper.selectByUserIdWithPage(userId, 0, offset + limit)), offset + limit);
+        return merged.size() <= offset ? Collections.emptyList() : merged.subList(offset, merged.size());
+    }
+
+    /**
+     * 在用户订单所在的各个库上分别执行查询
+     */
+    private <T> List<T> onUserShards(Long userId, IntFunction<T> query) {
+        List<T> results = new ArrayList<>();
+        for (int shard : orderShardRouter.shardsOfUserOrders(userId)) {
+            results.add(orderShardRouter.onShard(shard, () -> query.apply(shard)));
+        }
+        return results;
+    }
+
+    /**
+     * 合并各库的查询结果：按订单号升序、去重（迁移过程中同一订单可能同时存在于两个库），取前limit条
+     */
+    private static List<OrderMain> mergeByOrderNo(List<List<OrderMain>> shardResults, int limit) {
+        if (shardResults.size() == 1) {
+            return shardResults.get(0);
+        }
+        TreeMap<String, OrderMain> merged = new TreeMap<>();
+        for (List<OrderMain> result : shardResults) {
+            if (result != null) {
+                result.forEach(orderMain -> merged.putIfAbsent(orderMain.getOrderNo(), orderMain));
+            }
+        }
+        List<OrderMain> orderList = new ArrayList<>(merged.values());
+        return orderList.size() > limit ? orderList.subList(0, limit) : orderList;
+    }
+}
@@ -1,16 +1,33 @@
 package com.example.shop.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import com.example.shop.cache.CountCache;
+import com.example.shop.cache.LocalCache;
 import com.example.shop.entity.Product;
 import com.example.shop.mapper.ProductMapper;
+import com.example.shop.routing.DataSourceRouting;
+import com.example.shop.search.ProductSearchIndex;
+import com.example.shop.stock.StockLedger;
+import com.example.shop.vo.PageCursor;
 import com.example.shop.vo.PageResultVO;
 
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j; // 新增日志依赖，便于排查问题
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
 
 @Slf4j // 新增日志注解
 @Service
@@ -19,11 +36,40 @@ public class ProductService {
     @Autowired
     private ProductMapper productMapper;
 
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private CountCache countCache;
+
+    @Autowired
+    private StockLedger stockLedger;
+
+    // ========== 商品本地缓存配置（application.properties中的product.cache.*） ==========
+    @Value("${product.cache.enabled:true}")
+    private boolean productCacheEnabled;
+
+    @Value("${product.cache.max-size:5000}")
+    private int productCacheMaxSize;
+
+    @Value("${product.cache.ttl-seconds:300}")
+    private long productCacheTtlSeconds;
+
+    // 商品读穿透缓存（key=商品ID），由updateProduct/deleteProduct/decreaseStock失效
+    private LocalCache<Long, Product> productCache;
+
+    @PostConstruct
+    public void initProductCache() {
+        productCache = new LocalCache<>("product", productCacheMaxSize, productCacheTtlSeconds * 1000);
+        log.info("商品本地缓存初始化：enabled={}，maxSize={}，ttlSeconds={}",
+                productCacheEnabled, productCacheMaxSize, productCacheTtlSeconds);
+    }
+
     /**
-     * 根据商品ID查询
+     * 根据商品ID查询（优先读本地缓存，未命中再查库并回填）
      * 
      * @param productId 商品主键ID
-     * @return 查询成功：商品实体
+     * @return 查询成功：商品实体（副本，调用方修改不会污染缓存）
      *         查询失败：null
      */
     public Product getProductById(Long productId) {
@@ -31,7 +77,68 @@ public class ProductService {
         if (productId == null || productId <= 0) {
             return null;
         }
-        return productMapper.selectByProductId(productId);
+        if (!productCacheEnabled) {
+            return withLedgerStock(productMapper.selectByProductId(productId));
+        }
+        // 缓存加载走主库（开启读写分离时），避免把从库延迟的旧数据缓存到过期
+        return withLedgerStock(copyOf(productCache.get(productId,
+                id -> DataSourceRouting.primary(() -> productMapper.selectByProductId(id)))));
+    }
+
+    /**
+     * 根据商品ID批量查询（缓存命中的直接返回，未命中的合并为一次IN查询）
+     *
+     * @param productIds 商品ID集合（null/非法ID会被忽略，重复ID自动去重）
+     * @return 商品ID → 商品实体（副本）的映射，按传入顺序排列；不存在的商品不包含在内
+     */
+    public Map<Long, Product> getProductsByIds(Collection<Long> productIds) {
+        if (productIds == null || productIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Set<Long> validIds = new LinkedHashSet<>();
+        for (Long productId : productIds) {
+            if (productId != null && productId > 0) {
+                validIds.add(productId);
+            }
+        }
+        if (validIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        Map<Long, Product> products = productCacheEnabled
+                ? productCache.getAll(validIds, ids -> DataSourceRouting.primary(() -> loadProductsByIds(ids)))
+                : loadProductsByIds(validIds);
+
+        Map<Long, Product> result = new LinkedHashMap<>();
+        for (Long productId : validIds) {
+            Product product = products.get(productId);
+            if (product != null) {
+                result.put(productId, withLedgerStock(copyOf(product)));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 批量查询商品（不经过缓存，在当前事务中直接查库；下单时读取刚扣减过库存的商品行，
+     * 直接扣库存时这些行已被扣减语句加锁，启用库存账本时为事务内读取的最新已提交数据）
+     *
+     * @param productIds 商品ID集合（不能为空）
+     * @return 商品ID → 商品实体的映射；不存在的商品不包含在内
+     */
+    public Map<Long, Product> getProductsForUpdate(Collection<Long> productIds) {
+        return loadProductsByIds(productIds);
+    }
+
+    /**
+     * 商品缓存统计信息（命中/未命中/淘汰次数等）
+     *
+     * @return 统计信息
+     */
+    public Map<String, Object> getProductCacheStats() {
+        Map<String, Object> stats = productCache.stats();
+        stats.put("enabled", productCacheEnabled);
+        return stats;
     }
 
     /**
@@ -43,21 +150,102 @@ public class ProductService {
      * @return 完整的分页结果（列表+总数）
      */
     public PageResultVO<Product> getProductByNamePage(String name, Integer pageNo, Integer pageSize) {
+        return getProductByNamePage(name, pageNo, pageSize, true);
+    }
+
+    /**
+     * 按名称模糊分页查找（可选择不统计总数）
+     *
+     * @param name      商品名称
+     * @param pageNo    页数
+     * @param pageSize  每页数量
+     * @param withTotal 是否统计总数；false时不执行COUNT，多查一条返回hasNext
+     * @return 分页结果
+     */
+    public PageResultVO<Product> getProductByNamePage(String name, Integer pageNo, Integer pageSize,
+            boolean withTotal) {
         if (pageSize == null) {
             pageSize = 1;
         }
 
         Integer offset = (pageNo - 1) * pageSize;
+        Integer fetchSize = withTotal ? pageSize : pageSize + 1;
 
-        List<Product> productList = productMapper.selectByNamePage(name, offset, pageSize);
+        // 索引可用时走内存倒排索引，只回表查询当前页商品
+        if (productSearchIndex.isReady()) {
+            ProductSearchIndex.SearchPage searchPage = productSearchIndex.search(name, offset, fetchSize);
+            Map<Long, Product> productMap = getProductsByIds(searchPage.getProductIds());
+            List<Product> productList = new ArrayList<>();
+            for (Long productId : searchPage.getProductIds()) {
+                Product product = productMap.get(productId);
+                if (product != null) {
+                    productList.add(product);
+                }
+            }
+            if (!withTotal) {
+                return PageResultVO.ofProbe(pageNo, pageSize, productList);
+            }
+            Integer total = searchPage.getTotal();
+            Integer pages = (total + pageSize - 1) / pageSize;
+            return new PageResultVO<Product>(total, pages, pageNo, pageSize, productList);
+        }
 
-        Integer total = productMapper.selectCountByName(name);
+        List<Product> productList = productMapper.selectByNamePage(name, offset, fetchSize);
+        if (!withTotal) {
+            return PageResultVO.ofProbe(pageNo, pageSize, productList);
+        }
+
+        // 走分页总数缓存（任意商品增删改时整体失效，加载走主库）
+        Integer total = countCache.get(CountCache.PRODUCT_BY_NAME, name,
+                () -> DataSourceRouting.primary(() -> productMapper.selectCountByName(name)));
 
         Integer pages = (total + pageSize - 1) / pageSize;
 
         return new PageResultVO<Product>(total, pages, pageNo, pageSize, productList);
     }
 
+    /**
+     * 按名称模糊游标分页查找（按商品ID升序，不统计总数）
+     *
+     * @param name     商品名称
+     * @param cursor   上一页返回的游标（null/空串表示第一页）
+     * @param pageSize 每页数量
+     * @return 游标分页结果（nextCursor为null表示没有下一页）
+     * @throws IllegalArgumentException 游标不合法
+     */
+    public PageResultVO<Product> getProductByNameAfter(String name, String cursor, Integer pageSize) {
+        if (pageSize == null || pageSize < 1) {
+            pageSize = 10;
+        }
+        Long afterProductId = PageCursor.decodeLong(cursor);
+
+        // 多查一条用于判断是否还有下一页
+        List<Long> productIds = new ArrayList<>();
+        List<Product> productList = new ArrayList<>();
+        if (productSearchIndex.isReady()) {
+            productIds = productSearchIndex.searchAfter(name, afterProductId, pageSize + 1);
+            List<Long> pageIds = productIds.size() > pageSize ? productIds.subList(0, pageSize) : productIds;
+            Map<Long, Product> productMap = getProductsByIds(pageIds);
+            for (Long productId : pageIds) {
+                Product product = productMap.get(productId);
+                if (product != null) {
+                    productList.add(product);
+                }
+            }
+        } else {
+            productList = productMapper.selectByNameAfter(name, afterProductId, pageSize + 1);
+            for (Product product : productList) {
+                productIds.add(product.getProductId());
+            }
+            if (productList.size() > pageSize) {
+                productList = productList.subList(0, pageSize);
+            }
+        }
+
+        String nextCursor = productIds.size() > pageSize ? PageCursor.encode(productIds.get(pageSize - 1)) : null;
+        return PageResultVO.ofCursor(pageSize, productList, nextCursor);
+    }
+
     /**
      * 新增商品
      * 
@@ -71,7 +259,14 @@ public class ProductService {
         if (product == null) {
             return -1L;
         }
+        // 未指定上架状态时默认上架（与表默认值一致），写入的值和同步到名称索引的值保持一致
+        if (product.getIsOnShelf() == null) {
+            product.setIsOnShelf(1);
+        }
         if (productMapper.insertProduct(product) > 0) {
+            afterCommit(() -> productSearchIndex.upsert(product));
+            countCache.invalidate(CountCache.PRODUCT_BY_MERCHANT, product.getMerchantId());
+            countCache.invalidateQuery(CountCache.PRODUCT_BY_NAME);
             return product.getProductId();
         }
         // 插入失败
@@ -91,13 +286,68 @@ public class ProductService {
         if (product == null) {
             return -1L;
         }
+        // 库存账本模式：先写回旧扣减，避免覆盖后的新库存再被旧扣减冲减
+        stockLedger.flush(product.getProductId());
         if (productMapper.updateProductByProductId(product) > 0) {
+            evictProductCache(product.getProductId());
+            afterCompletion(() -> stockLedger.invalidate(product.getProductId()));
+            afterCommit(() -> productSearchIndex.upsert(product));
+            countCache.invalidateQuery(CountCache.PRODUCT_BY_NAME);
             return product.getProductId();
         }
         // 插入失败
         return 0L;
     }
 
+    /**
+     * 修改上下架状态（只更新该列，其他字段以数据库中的当前值为准）
+     *
+     * @param productId 商品ID
+     * @param isOnShelf 上架标识（0下架，1上架）
+     * @return 更新成功：商品ID
+     *         参数非法：-1
+     *         商品不存在：0
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public Long changeShelfStatus(Long productId, Integer isOnShelf) {
+        if (productId == null || productId <= 0 || isOnShelf == null) {
+            return -1L;
+        }
+        if (productMapper.updateShelfStatusByProductId(productId, isOnShelf) > 0) {
+            evictProductCache(productId);
+            // 名称索引按更新后的数据库行同步（该行已被更新语句加锁）
+            Product stored = loadProductsByIds(List.of(productId)).get(productId);
+            afterCommit(() -> productSearchIndex.upsert(stored));
+            countCache.invalidateQuery(CountCache.PRODUCT_BY_NAME);
+            return productId;
+        }
+        return 0L;
+    }
+
+    /**
+     * 设置商品库存（只更新该列，其他字段以数据库中的当前值为准）
+     *
+     * @param productId 商品ID
+     * @param stock     新库存值
+     * @return 更新成功：商品ID
+     *         参数非法：-1
+     *         商品不存在：0
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public Long updateStock(Long productId, Integer stock) {
+        if (productId == null || productId <= 0 || stock == null || stock < 0) {
+            return -1L;
+        }
+        // 库存账本模式：先写回旧扣减，避免覆盖后的新库存再被旧扣减冲减
+        stockLedger.flush(productId);
+        if (productMapper.setStockByProductId(productId, stock) > 0) {
+            evictProductCache(productId);
+            afterCompletion(() -> stockLedger.invalidate(productId));
+            return productId;
+        }
+        return 0L;
+    }
+
     /**
      * 删除商品
      * 
@@ -114,6 +364,12 @@ public class ProductService {
         }
 
         if (productMapper.deleteProductByProductId(productId) > 0) {
+            evictProductCache(productId);
+            afterCompletion(() -> stockLedger.invalidate(productId));
+            afterCommit(() -> productSearchIndex.remove(productId));
+            // 删除时不再查询所属商家，直接失效全部按商家统计的总数
+            countCache.invalidateQuery(CountCache.PRODUCT_BY_MERCHANT);
+            countCache.invalidateQuery(CountCache.PRODUCT_BY_NAME);
             // 删除成功，返回被删除的ID
             return productId;
         }
@@ -138,6 +394,28 @@ public class ProductService {
             return -1L;
         }
 
+        // 库存账本模式：内存原子扣减，异步落库
+        if (stockLedger.isEnabled()) {
+            StockLedger.DecreaseResult result = stockLedger.tryDecrease(productId, quantity);
+            switch (result) {
+                case SUCCESS:
+                    evictProductCache(productId);
+                    compensateOnRollback(productId, quantity);
+                    log.info("商品ID={}库存扣减成功（库存账本）：扣减{}，剩余{}",
+                            productId, quantity, stockLedger.peek(productId));
+                    return productId;
+                case INSUFFICIENT:
+                    log.error("库存更新失败：商品ID={}库存不足（库存账本，需扣减{}）", productId, quantity);
+                    return 0L;
+                case NOT_FOUND:
+                    log.error("库存更新失败：商品ID={}不存在", productId);
+                    return 0L;
+                default:
+                    // 账本已关闭（应用停机中），回退到数据库扣减
+                    break;
+            }
+        }
+
         // 查询商品及当前库存
         Product product = productMapper.selectByProductId(productId);
         if (product == null) {
@@ -161,12 +439,78 @@ public class ProductService {
             log.warn("库存更新失败：商品ID={}库存已被其他请求修改（更新前库存：{}）", productId, currentStock);
             return 0L;
         }
+        evictProductCache(productId);
 
         // 更新成功，返回商品ID
         log.info("商品ID={}库存更新成功：原{} → 新{}", productId, currentStock, newStock);
         return productId;
     }
 
+    /**
+     * 批量扣减库存（下单使用）：按商品ID升序一条语句完成，全部成功或全部失败
+     * 固定的加锁顺序避免两笔订单以相反顺序扣减同一批商品时死锁
+     *
+     * @param quantities 商品ID → 扣减数量（按商品ID升序，同一商品需先合并数量）
+     * @throws RuntimeException 参数非法/库存不足/商品不存在（所在事务回滚）
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public void decreaseStockBatch(SortedMap<Long, Integer> quantities) {
+        if (quantities == null || quantities.isEmpty()) {
+            return;
+        }
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            if (entry.getKey() == null || entry.getKey() <= 0 || entry.getValue() == null || entry.getValue() <= 0) {
+                throw new RuntimeException("库存扣减参数非法：productId=" + entry.getKey() + "，quantity=" + entry.getValue());
+            }
+        }
+
+        // 库存账本模式：按商品ID升序逐个原子扣减，任一失败则归还已扣减的
+        if (stockLedger.isEnabled() && decreaseStockBatchInLedger(quantities)) {
+            return;
+        }
+
+        int updateCount = productMapper.decreaseStockBatch(quantities);
+        if (updateCount != quantities.size()) {
+            log.error("批量扣减库存失败：部分商品库存不足或不存在（商品{}个，扣减成功{}个），productIds={}",
+                    quantities.size(), updateCount, quantities.keySet());
+            throw new RuntimeException("商品库存扣减失败（库存不足或商品不存在）：productIds=" + quantities.keySet());
+        }
+        for (Long productId : quantities.keySet()) {
+            evictProductCache(productId);
+        }
+        log.info("批量扣减库存成功：productIds={}", quantities.keySet());
+    }
+
+    /**
+     * 库存账本批量扣减
+     *
+     * @return true=已在账本中完成；false=账本不可用（停机中），需走数据库扣减
+     * @throws RuntimeException 库存不足/商品不存在
+     */
+    private boolean decreaseStockBatchInLedger(SortedMap<Long, Integer> quantities) {
+        Map<Long, Integer> decreased = new LinkedHashMap<>();
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            StockLedger.DecreaseResult result = stockLedger.tryDecrease(entry.getKey(), entry.getValue());
+            if (result == StockLedger.DecreaseResult.SUCCESS) {
+                decreased.put(entry.getKey(), entry.getValue());
+                continue;
+            }
+            decreased.forEach(stockLedger::restore);
+            if (result == StockLedger.DecreaseResult.UNAVAILABLE) {
+                return false;
+            }
+            log.error("批量扣减库存失败（库存账本）：商品ID={}{}", entry.getKey(),
+                    result == StockLedger.DecreaseResult.NOT_FOUND ? "不存在" : "库存不足");
+            throw new RuntimeException("商品ID=" + entry.getKey() + "库存扣减失败");
+        }
+        decreased.forEach((productId, quantity) -> {
+            evictProductCache(productId);
+            compensateOnRollback(productId, quantity);
+        });
+        log.info("批量扣减库存成功（库存账本）：productIds={}", quantities.keySet());
+        return true;
+    }
+
     /**
      * 按商家ID分页查询商品（每页默认10条）
      *
@@ -176,6 +520,20 @@ public class ProductService {
      * @return 完整分页结果（列表+总数）
      */
     public PageResultVO<Product> getProductByMerchantIdPage(Long merchantId, Integer pageNo, Integer pageSize) {
+        return getProductByMerchantIdPage(merchantId, pageNo, pageSize, true);
+    }
+
+    /**
+     * 按商家ID分页查询商品（可选择不统计总数）
+     *
+     * @param merchantId 商家ID
+     * @param pageNo     页数（从1开始）
+     * @param pageSize   每页数量（默认10）
+     * @param withTotal  是否统计总数；false时不执行COUNT，多查一条返回hasNext
+     * @return 分页结果
+     */
+    public PageResultVO<Product> getProductByMerchantIdPage(Long merchantId, Integer pageNo, Integer pageSize,
+            boolean withTotal) {
         // 参数校验 & 兜底
         if (merchantId == null || merchantId <= 0) {
             return new PageResultVO<>(0, 0, pageNo, pageSize, Collections.emptyList());
@@ -190,9 +548,15 @@ public class ProductService {
         // 计算偏移量
         Integer offset = (pageNo - 1) * pageSize;
 
-        // 查询列表 + 总数
+        if (!withTotal) {
+            List<Product> fetchedList = productMapper.selectByMerchantIdPage(merchantId, offset, pageSize + 1);
+            return PageResultVO.ofProbe(pageNo, pageSize, fetchedList);
+        }
+
+        // 查询列表 + 总数（总数走分页总数缓存）
         List<Product> productList = productMapper.selectByMerchantIdPage(merchantId, offset, pageSize);
-        Integer total = productMapper.selectCountByMerchantId(merchantId);
+        Integer total = countCache.get(CountCache.PRODUCT_BY_MERCHANT, merchantId,
+                () -> DataSourceRouting.primary(() -> productMapper.selectCountByMerchantId(merchantId)));
 
         // 计算总页数
         Integer pages = total == 0 ? 0 : (total + pageSize - 1) / pageSize;
@@ -200,4 +564,152 @@ public class ProductService {
         // 返回统一分页VO
         return new PageResultVO<>(total, pages, pageNo, pageSize, productList);
     }
+
+    /**
+     * 按商家ID游标分页查询商品（按商品ID升序，不统计总数）
+     *
+     * @param merchantId 商家ID
+     * @param cursor     上一页返回的游标（null/空串表示第一页）
+     * @param pageSize   每页数量（默认10）
+     * @return 游标分页结果（nextCursor为null表示没有下一页）
+     * @throws IllegalArgumentException 游标不合法
+     */
+    public PageResultVO<Product> getProductByMerchantIdAfter(Long merchantId, String cursor, Integer pageSize) {
+        if (pageSize == null || pageSize < 1) {
+            pageSize = 10; // 默认每页10条
+        }
+        Long afterProductId = PageCursor.decodeLong(cursor);
+        if (merchantId == null || merchantId <= 0) {
+            return PageResultVO.ofCursor(pageSize, Collections.emptyList(), null);
+        }
+
+        // 多查一条用于判断是否还有下一页
+        List<Product> productList = productMapper.selectByMerchantIdAfter(merchantId, afterProductId, pageSize + 1);
+        String nextCursor = null;
+        if (productList.size() > pageSize) {
+            productList = productList.subList(0, pageSize);
+            nextCursor = PageCursor.encode(productList.get(pageSize - 1).getProductId());
+        }
+        return PageResultVO.ofCursor(pageSize, productList, nextCursor);
+    }
+
+    /**
+     * 失效商品缓存：立即失效一次，事务结束后再失效一次
+     * （防止事务提交前被并发读请求以旧数据回填缓存）
+     *
+     * @param productId 商品ID
+     */
+    private void evictProductCache(Long productId) {
+        if (!productCacheEnabled || productId == null) {
+            return;
+        }
+        productCache.invalidate(productId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    productCache.invalidate(productId);
+                }
+            });
+        }
+    }
+
+    /**
+     * 事务提交后执行（无事务时立即执行），用于同步内存索引等非事务性状态
+     *
+     * @param action 待执行的动作
+     */
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * 事务结束后执行（无论提交/回滚；无事务时立即执行）
+     *
+     * @param action 待执行的动作
+     */
+    private void afterCompletion(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * 库存账本扣减的回滚补偿：所在事务回滚时把扣减的库存还回账本
+     *
+     * @param productId 商品ID
+     * @param quantity  扣减数量
+     */
+    private void compensateOnRollback(Long productId, Integer quantity) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_ROLLED_BACK) {
+                        stockLedger.restore(productId, quantity);
+                        log.info("事务回滚，归还商品ID={}库存{}（库存账本）", productId, quantity);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * 库存账本模式下用内存中的实时库存覆盖商品库存（数据库中的库存落后于账本）
+     */
+    private Product withLedgerStock(Product product) {
+        if (product != null) {
+            Integer stock = stockLedger.peek(product.getProductId());
+            if (stock != null) {
+                product.setStock(stock);
+            }
+        }
+        return product;
+    }
+
+    /**
+     * 批量查库并按商品ID建立映射
+     */
+    private Map<Long, Product> loadProductsByIds(Collection<Long> productIds) {
+        Map<Long, Product> products = new LinkedHashMap<>();
+        for (Product product : productMapper.selectByProductIds(productIds)) {
+            products.put(product.getProductId(), product);
+        }
+        return products;
+    }
+
+    /**
+     * 复制商品实体（缓存中的对象不直接暴露给调用方）
+     */
+    private static Product copyOf(Product source) {
+        if (source == null) {
+            return null;
+        }
+        Product copy = new Product();
+        copy.setProductId(source.getProductId());
+        copy.setProductName(source.getProductName());
+        copy.setProductDesc(source.getProductDesc());
+        copy.setStock(source.getStock());
+        copy.setProductPic(source.getProductPic());
+        copy.setProductPrice(source.getProductPrice());
+        copy.setMerchantId(source.getMerchantId());
+        copy.setIsOnShelf(source.getIsOnShelf());
+        return copy;
+    }
 }
\ No newline at end of file
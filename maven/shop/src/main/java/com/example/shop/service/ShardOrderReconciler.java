@@ -0,0 +1,212 @@
+package com.example.shop.service;
+
+import com.example.shop.entity.OrderMain;
+import com.example.shop.entity.PendingShardOrder;
+import com.example.shop.mapper.PendingShardOrderMapper;
+import com.example.shop.sharding.OrderShardRouter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分库下单的待确认记录与补偿（订单写入的分库不是主库时使用）
+ * 1. 写分库订单前，在主库独立事务中登记待确认订单（立即提交）
+ * 2. 分库订单写入（独立事务提交）后，在主库下单事务中删除登记记录，与扣减库存、销售汇总一起提交
+ * 3. 主库事务回滚时立即补偿：删除分库订单和登记记录；补偿失败或进程宕机时登记记录保留，
+ *    由定时对账把超过超时时间仍未确认的订单删除
+ * 补偿先对登记记录加行锁：下单事务已删除登记记录（提交前持有行锁）时等待其结束，提交后记录不存在即跳过，不会误删
+ */
+@Slf4j
+@Service
+public class ShardOrderReconciler {
+
+    // 每次对账处理的最多记录数
+    private static final int RECONCILE_BATCH_SIZE = 500;
+
+    @Autowired
+    private PendingShardOrderMapper pendingShardOrderMapper;
+
+    @Autowired
+    private OrderMainService orderMainService;
+
+    @Autowired
+    private OrderItemService orderItemService;
+
+    @Autowired
+    private OrderShardRouter orderShardRouter;
+
+    @Autowired
+    private MerchantSalesService merchantSalesService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${order.sharding.reconcile-interval-seconds:60}")
+    private long reconcileIntervalSeconds;
+
+    @Value("${order.sharding.pending-timeout-seconds:300}")
+    private long pendingTimeoutSeconds;
+
+    private TransactionTemplate requiresNew;
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void init() {
+        requiresNew = new TransactionTemplate(transactionManager);
+        requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * 开启分库时启动定时对账
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void onApplicationReady() {
+        if (!orderShardRouter.isEnabled() || reconcileIntervalSeconds <= 0 || scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "shard-order-reconciler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::reconcileQuietly, reconcileIntervalSeconds, reconcileIntervalSeconds,
+                TimeUnit.SECONDS);
+        log.info("分库订单对账已启动：reconcileIntervalSeconds={}，pendingTimeoutSeconds={}",
+                reconcileIntervalSeconds, pendingTimeoutSeconds);
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * 登记待确认订单（主库独立事务，立即提交；需在写入分库订单之前调用）
+     *
+     * @param orderNo 订单号
+     * @param shard   订单所在分库
+     * @param userId  用户ID
+     */
+    public void register(String orderNo, int shard, Long userId) {
+        PendingShardOrder pending = new PendingShardOrder();
+        pending.setOrderNo(orderNo);
+        pending.setShard(shard);
+        pending.setUserId(userId);
+        pending.setCreatedAt(System.currentTimeMillis());
+        requiresNew.executeWithoutResult(status -> {
+            // 销售汇总重建期间等待：重建按登记记录排除未确认订单，不能在扫描中途新增
+            merchantSalesService.lockAgainstRebuild();
+            pendingShardOrderMapper.insert(pending);
+        });
+    }
+
+    /**
+     * 确认订单：在当前（主库）事务中删除登记记录，随事务提交；事务回滚时立即补偿
+     *
+     * @param orderNo 订单号
+     */
+    public void confirm(String orderNo) {
+        pendingShardOrderMapper.deleteByOrderNo(orderNo);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        compensate(orderNo);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * 补偿一笔未确认的订单：删除分库中的订单项目和订单主信息，再删除登记记录（可重复执行）
+     *
+     * @param orderNo 订单号
+     * @return true=已补偿；false=订单已确认/已补偿，或补偿失败（登记记录保留，等待下次对账）
+     */
+    public boolean compensate(String orderNo) {
+        try {
+            // 下单事务结束时其连接仍绑定在当前线程，补偿必须在新事务中执行
+            return Boolean.TRUE.equals(requiresNew.execute(status -> {
+                PendingShardOrder pending = pendingShardOrderMapper.selectForUpdate(orderNo);
+                if (pending == null) {
+                    return false;
+                }
+                OrderMain orderMain = new OrderMain();
+                orderMain.setOrderNo(orderNo);
+                orderMain.setUserId(pending.getUserId());
+                orderItemService.deleteByOrderNo(orderNo);
+                orderMainService.deleteOrderMain(orderMain);
+                pendingShardOrderMapper.deleteByOrderNo(orderNo);
+                log.info("主库事务未提交，已删除{}号库的订单：orderNo={}", pending.getShard(), orderNo);
+                return true;
+            }));
+        } catch (Exception e) {
+            log.error("删除未确认的分库订单失败，等待定时对账重试：orderNo={}", orderNo, e);
+            return false;
+        }
+    }
+
+    /**
+     * 对账：补偿登记时间超过超时时间仍未确认的订单
+     *
+     * @return 补偿的订单数
+     */
+    public int reconcile() {
+        return reconcile(System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(pendingTimeoutSeconds));
+    }
+
+    /**
+     * 对账：补偿登记时间早于指定时间的未确认订单
+     *
+     * @param createdBefore 登记时间上限（毫秒时间戳），距当前时间应超过最长的下单事务耗时
+     * @return 补偿的订单数
+     */
+    public int reconcile(long createdBefore) {
+        int compensated = 0;
+        List<PendingShardOrder> pendingList;
+        do {
+            pendingList = pendingShardOrderMapper.selectCreatedBefore(createdBefore, RECONCILE_BATCH_SIZE);
+            int before = compensated;
+            for (PendingShardOrder pending : pendingList) {
+                if (compensate(pending.getOrderNo())) {
+                    compensated++;
+                }
+            }
+            // 本批全部失败（如分库不可用）时不再重复查询，等待下次对账
+            if (compensated == before) {
+                break;
+            }
+        } while (pendingList.size() == RECONCILE_BATCH_SIZE);
+        if (compensated > 0) {
+            log.warn("分库订单对账：删除未确认订单{}笔", compensated);
+        }
+        return compensated;
+    }
+
+    private void reconcileQuietly() {
+        try {
+            reconcile();
+        } catch (Exception e) {
+            log.error("分库订单对账失败", e);
+        }
+    }
+}
@@ -1,12 +1,17 @@
 package com.example.shop.service;
 
+import com.example.shop.cache.LocalCache;
 import com.example.shop.entity.User;
 import com.example.shop.mapper.UserMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
 
+@Slf4j
 @Service
 public class UserService {
 
@@ -16,6 +21,38 @@ public class UserService {
     @Autowired
     private UserMapper userMapper;
 
+    // ========== 新增：账号→用户ID缓存配置 ==========
+    @Value("${user.account-cache.enabled:true}")
+    private boolean accountCacheEnabled;
+
+    @Value("${user.account-cache.max-size:20000}")
+    private int accountCacheMaxSize;
+
+    @Value("${user.account-cache.ttl-seconds:1800}")
+    private long accountCacheTtlSeconds;
+
+    @Value("${user.account-cache.negative-max-size:10000}")
+    private int negativeCacheMaxSize;
+
+    @Value("${user.account-cache.negative-ttl-seconds:5}")
+    private long negativeCacheTtlSeconds;
+
+    // 账号→用户ID（账号与ID的对应关系注册后不再变化，由insertUser回填）
+    private LocalCache<String, Long> accountCache;
+
+    // 不存在的账号（短时间缓存，避免大量无效账号请求反复查库；insertUser时清除）
+    // 只清除处理注册请求的实例：其他实例上刚注册的账号在negative-ttl-seconds内仍会被当作不存在，TTL应保持在几秒
+    private LocalCache<String, Boolean> missingAccountCache;
+
+    @PostConstruct
+    public void initAccountCache() {
+        accountCache = new LocalCache<>("accountUserId", accountCacheMaxSize, accountCacheTtlSeconds * 1000);
+        missingAccountCache = new LocalCache<>("accountMissing", negativeCacheMaxSize, negativeCacheTtlSeconds * 1000);
+        log.info("账号缓存初始化：enabled={}，maxSize={}，ttlSeconds={}，negativeMaxSize={}，negativeTtlSeconds={}",
+                accountCacheEnabled, accountCacheMaxSize, accountCacheTtlSeconds,
+                negativeCacheMaxSize, negativeCacheTtlSeconds);
+    }
+
     /**
      * 根据用户ID查询（主键查询）
      * 
@@ -38,6 +75,8 @@ public class UserService {
 
     /**
      * 通过用户账号查询用户ID（核心新增方法）
+     * 先查本地缓存，未命中时只查询user_id；不存在的账号短时间缓存为“不存在”
+     * （多实例部署时，其他实例注册的新账号最多在user.account-cache.negative-ttl-seconds内查不到）
      * 
      * @param account 用户账号（唯一）
      * @return 用户ID（null=账号不存在）
@@ -48,11 +87,26 @@ public class UserService {
             return null;
         }
 
-        // 调用Mapper通过账号查用户
-        User user = userMapper.selectByAccount(account);
+        if (!accountCacheEnabled) {
+            return userMapper.selectUserIdByAccount(account);
+        }
+
+        Long userId = accountCache.get(account);
+        if (userId != null) {
+            return userId;
+        }
+        if (missingAccountCache.get(account) != null) {
+            return null;
+        }
+
+        // 调用Mapper通过账号只查用户ID
+        userId = accountCache.get(account, userMapper::selectUserIdByAccount);
+        if (userId == null) {
+            missingAccountCache.put(account, Boolean.TRUE);
+        }
 
         // 返回用户ID（不存在则返回null）
-        return user != null ? user.getUserId() : null;
+        return userId;
     }
 
     /**
@@ -72,6 +126,14 @@ public class UserService {
      * @return 插入结果，影响的行数
      */
     public int insertUser(User user) {
-        return userMapper.insertUser(user);
+        int rows = userMapper.insertUser(user);
+        // 新注册账号：清除“不存在”标记并回填用户ID
+        if (rows > 0 && user.getAccount() != null) {
+            missingAccountCache.invalidate(user.getAccount());
+            if (accountCacheEnabled && user.getUserId() != null) {
+                accountCache.put(user.getAccount(), user.getUserId());
+            }
+        }
+        return rows;
     }
 }
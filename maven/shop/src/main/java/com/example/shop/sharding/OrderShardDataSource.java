@@ -0,0 +1,59 @@
+package com.example.shop.sharding;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 订单分库数据源：按当前线程绑定的分库号（OrderShardRouter）选择数据源，未绑定时使用0号库（原数据源）
+ * 事务开始时（或无事务时每条语句执行时）取连接，事务中的语句都在事务开始时的库上执行，
+ * 跨库操作由 OrderShardRouter 挂起当前事务或开启独立事务
+ */
+@Slf4j
+public class OrderShardDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+    private final DataSource primary;
+    private final List<HikariDataSource> shards;
+
+    /**
+     * @param primary 0号库（原数据源）
+     * @param shards  1号库起的分库连接池
+     */
+    public OrderShardDataSource(DataSource primary, List<HikariDataSource> shards) {
+        this.primary = primary;
+        this.shards = shards;
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(0, primary);
+        for (int i = 0; i < shards.size(); i++) {
+            targets.put(i + 1, shards.get(i));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return OrderShardRouter.currentShard();
+    }
+
+    /**
+     * 关闭分库连接池及原数据源（原数据源被替换后不再由容器关闭）
+     */
+    @Override
+    public void close() throws Exception {
+        for (HikariDataSource shard : shards) {
+            shard.close();
+        }
+        if (primary instanceof AutoCloseable) {
+            ((AutoCloseable) primary).close();
+        }
+        log.info("订单分库连接池已关闭");
+    }
+}
@@ -0,0 +1,250 @@
+package com.example.shop.sharding;
+
+import com.example.shop.id.TimeSequenceOrderNoGenerator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * 订单分库路由（order.sharding.enabled=true时生效；关闭时只有0号库，所有方法直接在当前数据源上执行）
+ * 1. 按用户ID的哈希选择分库，同一用户的订单主信息和订单项目在同一个库
+ * 2. 分库号以2位后缀编码在订单号末尾，按订单号查询时直接定位分库；不带后缀的历史订单号依次查询各库
+ * 3. 按商家查询的订单项目分布在所有分库，由调用方在各库分别查询后合并（scatter-gather）
+ * 4. 开启分库前的历史订单都在0号库：按用户查询时同时查询用户所在分库和0号库（历史订单迁移完成后可关闭）
+ * 0号库为主库（spring.datasource.*，商品/用户/购物车等表所在库），其余分库只需要 order_main、order_item 两张表；
+ * 分库数确定后不能随意修改（用户会被路由到其他库），扩容需要先按用户迁移订单
+ */
+@Slf4j
+@Component
+public class OrderShardRouter {
+
+    // 分库号取值范围 [0, 100)（订单号后缀2位）
+    public static final int MAX_SHARDS = 100;
+    // 历史订单号（不含分库号）
+    public static final int UNKNOWN_SHARD = -1;
+    // 带分库号的订单号长度：时间序列订单号 + 2位分库号
+    private static final int SHARDED_ORDER_NO_LENGTH = TimeSequenceOrderNoGenerator.ORDER_NO_LENGTH + 2;
+    // 乘以黄金分割常数打散用户ID，连续注册的用户均匀分布到各库
+    private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    // 当前线程绑定的分库号（OrderShardDataSource据此选择连接池，未绑定为0号库）
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${order.sharding.enabled:false}")
+    private boolean enabled;
+
+    @Value("${order.sharding.shard-urls:}")
+    private String shardUrls;
+
+    @Value("${order.sharding.legacy-reads-on-primary:true}")
+    private boolean legacyReadsOnPrimary;
+
+    private int shardCount = 1;
+    private TransactionTemplate requiresNew;
+    private TransactionTemplate notSupported;
+
+    @PostConstruct
+    public void init() {
+        requiresNew = new TransactionTemplate(transactionManager);
+        requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        notSupported = new TransactionTemplate(transactionManager);
+        notSupported.setPropagationBehavior(TransactionDefinition.PROPAGATION_NOT_SUPPORTED);
+        if (!enabled) {
+            return;
+        }
+        shardCount = 1 + parseShardUrls(shardUrls).size();
+        if (shardCount > MAX_SHARDS) {
+            throw new IllegalStateException("订单分库数不能超过" + MAX_SHARDS + "：" + shardCount);
+        }
+        log.info("订单分库已开启：共{}个库（0号库为主库）", shardCount);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return 分库数（未开启分库时为1）
+     */
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    /**
+     * 用户订单所在的分库
+     *
+     * @param userId 用户ID
+     * @return 分库号
+     */
+    public int shardOfUser(Long userId) {
+        if (shardCount == 1 || userId == null) {
+            return 0;
+        }
+        return Math.floorMod(Long.hashCode(userId * HASH_MULTIPLIER), shardCount);
+    }
+
+    /**
+     * 按用户查询订单时需要访问的库：用户所在分库，以及（历史订单未迁移完成时）0号库
+     *
+     * @param userId 用户ID
+     * @return 分库号列表（用户所在分库在前，不重复）
+     */
+    public List<Integer> shardsOfUserOrders(Long userId) {
+        int shard = shardOfUser(userId);
+        if (shard == 0 || !legacyReadsOnPrimary) {
+            return List.of(shard);
+        }
+        return List.of(shard, 0);
+    }
+
+    /**
+     * 在订单号末尾追加分库号（未开启分库时原样返回）
+     *
+     * @param orderNo 订单号生成器生成的订单号
+     * @param shard   分库号
+     * @return 带分库号的订单号
+     */
+    public String withShard(String orderNo, int shard) {
+        if (!enabled) {
+            return orderNo;
+        }
+        return orderNo + (shard < 10 ? "0" : "") + shard;
+    }
+
+    /**
+     * 从订单号中解析分库号
+     *
+     * @param orderNo 订单号
+     * @return 分库号；未开启分库时为0；历史订单号或无法解析时为UNKNOWN_SHARD（需查询所有分库）
+     */
+    public int shardOfOrderNo(String orderNo) {
+        if (!enabled) {
+            return 0;
+        }
+        if (orderNo == null || orderNo.length() != SHARDED_ORDER_NO_LENGTH) {
+            return UNKNOWN_SHARD;
+        }
+        char high = orderNo.charAt(SHARDED_ORDER_NO_LENGTH - 2);
+        char low = orderNo.charAt(SHARDED_ORDER_NO_LENGTH - 1);
+        if (!Character.isDigit(high) || !Character.isDigit(low)) {
+            return UNKNOWN_SHARD;
+        }
+        int shard = (high - '0') * 10 + (low - '0');
+        return shard < shardCount ? shard : UNKNOWN_SHARD;
+    }
+
+    /**
+     * 在指定分库上执行（查询或单条写入）
+     * 当前事务在其他库上时，挂起当前事务、用该分库的新连接执行（不参与当前事务）
+     *
+     * @param shard  分库号
+     * @param action 数据库操作
+     * @return 操作结果
+     */
+    public <T> T onShard(int shard, Supplier<T> action) {
+        if (!enabled || shard == currentShard()) {
+            return action.get();
+        }
+        checkShard(shard);
+        boolean suspend = TransactionSynchronizationManager.isActualTransactionActive();
+        return bind(shard, () -> suspend ? notSupported.execute(status -> action.get()) : action.get());
+    }
+
+    /**
+     * 在每个分库上分别执行（按分库号顺序）
+     *
+     * @param action 参数为分库号
+     * @return 各分库的结果，下标为分库号
+     */
+    public <T> List<T> onAllShards(IntFunction<T> action) {
+        List<T> results = new ArrayList<>(shardCount);
+        for (int shard = 0; shard < shardCount; shard++) {
+            int target = shard;
+            results.add(onShard(target, () -> action.apply(target)));
+        }
+        return results;
+    }
+
+    /**
+     * 在指定分库上的写操作是否使用独立事务（不能加入当前事务）
+     *
+     * @param shard 分库号
+     * @return true=开启了分库，且当前没有事务或当前事务不在该分库上
+     */
+    public boolean isSeparateTransaction(int shard) {
+        return enabled && !(TransactionSynchronizationManager.isActualTransactionActive() && shard == currentShard());
+    }
+
+    /**
+     * 在指定分库的事务中执行一组写操作
+     * 1. 当前事务就在该分库上（或未开启分库）：直接加入当前事务
+     * 2. 否则在该分库上开启独立事务并立即提交（isSeparateTransaction为true），
+     *    外层事务回滚/进程宕机时的补偿由调用方负责（如下单先登记待确认订单，见ShardOrderReconciler）
+     *
+     * @param shard  分库号
+     * @param action 写操作
+     * @return 写操作结果
+     */
+    public <T> T inShardTransaction(int shard, Supplier<T> action) {
+        if (!isSeparateTransaction(shard)) {
+            return action.get();
+        }
+        checkShard(shard);
+        return bind(shard, () -> requiresNew.execute(status -> action.get()));
+    }
+
+    /**
+     * 当前线程绑定的分库号（未绑定为0号库）
+     */
+    static int currentShard() {
+        Integer shard = CURRENT.get();
+        return shard == null ? 0 : shard;
+    }
+
+    /**
+     * 解析分库URL配置（逗号分隔，依次为1号库、2号库……）
+     */
+    static List<String> parseShardUrls(String shardUrls) {
+        List<String> urls = new ArrayList<>();
+        for (String url : shardUrls.split(",")) {
+            if (!url.trim().isEmpty()) {
+                urls.add(url.trim());
+            }
+        }
+        return urls;
+    }
+
+    private <T> T bind(int shard, Supplier<T> action) {
+        Integer previous = CURRENT.get();
+        CURRENT.set(shard);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    private void checkShard(int shard) {
+        if (shard < 0 || shard >= shardCount) {
+            throw new IllegalArgumentException("订单分库号不合法：" + shard + "（共" + shardCount + "个库）");
+        }
+    }
+}
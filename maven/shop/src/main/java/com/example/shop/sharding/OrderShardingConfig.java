@@ -0,0 +1,68 @@
+package com.example.shop.sharding;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 订单分库配置（order.sharding.enabled=true时启用）
+ * 0号库为应用原有数据源（spring.datasource.*，开启读写分离时为读写分离数据源），1号库起由 order.sharding.shard-urls 配置，
+ * 容器中的 dataSource 替换为 OrderShardDataSource，MyBatis和事务管理器随之按当前线程绑定的分库号取连接
+ *
+ * 各分库 order_item 的自增ID需要错开（MySQL：auto_increment_increment=分库数，auto_increment_offset=分库号+1），
+ * 保证ID全局唯一，按商家跨库分页时才能按ID合并排序
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "order.sharding.enabled", havingValue = "true")
+public class OrderShardingConfig {
+
+    // 被替换的数据源Bean名称（Spring Boot自动配置及读写分离配置中的主数据源）
+    private static final String DATA_SOURCE_BEAN = "dataSource";
+
+    @Bean
+    public static BeanPostProcessor orderShardDataSourcePostProcessor(Environment environment) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!DATA_SOURCE_BEAN.equals(beanName) || !(bean instanceof DataSource)) {
+                    return bean;
+                }
+                return new OrderShardDataSource((DataSource) bean, createShards(environment));
+            }
+        };
+    }
+
+    private static List<HikariDataSource> createShards(Environment environment) {
+        String username = environment.getProperty("order.sharding.shard-username",
+                environment.getProperty("spring.datasource.username", ""));
+        String password = environment.getProperty("order.sharding.shard-password",
+                environment.getProperty("spring.datasource.password", ""));
+        String driverClassName = environment.getProperty("spring.datasource.driver-class-name");
+        int poolSize = environment.getProperty("order.sharding.shard-pool-size", Integer.class, 10);
+
+        List<HikariDataSource> shards = new ArrayList<>();
+        for (String url : OrderShardRouter.parseShardUrls(environment.getProperty("order.sharding.shard-urls", ""))) {
+            HikariDataSource shard = new HikariDataSource();
+            shard.setPoolName("order-shard-" + (shards.size() + 1));
+            shard.setJdbcUrl(url);
+            shard.setUsername(username);
+            shard.setPassword(password);
+            if (driverClassName != null && !driverClassName.isEmpty()) {
+                shard.setDriverClassName(driverClassName);
+            }
+            shard.setMaximumPoolSize(poolSize);
+            shards.add(shard);
+        }
+        log.info("订单分库数据源已创建：主库 + {}个分库", shards.size());
+        return shards;
+    }
+}
@@ -0,0 +1,360 @@
+package com.example.shop.stock;
+
+import com.example.shop.mapper.ProductMapper;
+import com.example.shop.routing.DataSourceRouting;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import jakarta.annotation.PreDestroy;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 内存库存账本（可选，stock.ledger.enabled=true时启用）
+ * 每个商品一个原子计数器，首次扣减时从product表懒加载；扣减走CAS，无锁且立即返回成功/库存不足
+ * 已扣减但未落库的净变化量由后台线程按批合并写回MySQL（stock = stock - 净扣减量）
+ *
+ * 计数器加载值 = 数据库库存 - 未落库的净扣减量；扣减时先登记未落库量再CAS，
+ * 并发重载时只可能少算可用库存（不会超卖），定期对账时按数据库重新加载纠正
+ */
+@Slf4j
+@Component
+public class StockLedger {
+
+    /**
+     * 扣减结果
+     */
+    public enum DecreaseResult {
+        /** 扣减成功 */
+        SUCCESS,
+        /** 库存不足 */
+        INSUFFICIENT,
+        /** 商品不存在 */
+        NOT_FOUND,
+        /** 账本未启用或已关闭，调用方应走数据库扣减 */
+        UNAVAILABLE
+    }
+
+    // 计数器已退役（正在重载），扣减方需重新获取计数器
+    private static final int RETIRED = -1;
+
+    @Autowired
+    private ProductMapper productMapper;
+
+    @Value("${stock.ledger.enabled:false}")
+    private boolean enabled;
+
+    @Value("${stock.ledger.flush-interval-ms:200}")
+    private long flushIntervalMillis;
+
+    @Value("${stock.ledger.flush-batch-size:500}")
+    private int flushBatchSize;
+
+    @Value("${stock.ledger.reconcile-interval-seconds:300}")
+    private long reconcileIntervalSeconds;
+
+    // 商品ID → 当前可用库存
+    private final ConcurrentHashMap<Long, AtomicInteger> counters = new ConcurrentHashMap<>();
+    // 商品ID → 已扣减未落库的净扣减量（回滚补偿可能使其为负）
+    private final ConcurrentHashMap<Long, AtomicLong> pendingDeltas = new ConcurrentHashMap<>();
+
+    // 所有落库串行执行：并发落库会把同一笔未落库量重复写入数据库
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private ScheduledExecutorService flusher;
+    private volatile boolean closed = false;
+
+    /**
+     * 启动对账：丢弃启动过程中加载的计数器（以数据库为准），并启动后台落库线程
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void onApplicationReady() {
+        if (!enabled || flusher != null) {
+            return;
+        }
+        reconcile();
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "stock-ledger-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis,
+                TimeUnit.MILLISECONDS);
+        if (reconcileIntervalSeconds > 0) {
+            flusher.scheduleWithFixedDelay(this::reconcile, reconcileIntervalSeconds, reconcileIntervalSeconds,
+                    TimeUnit.SECONDS);
+        }
+        log.info("库存账本已启用：flushIntervalMs={}，flushBatchSize={}，reconcileIntervalSeconds={}",
+                flushIntervalMillis, flushBatchSize, reconcileIntervalSeconds);
+    }
+
+    /**
+     * 关闭对账：停止接收扣减，把剩余净扣减量全部写回数据库
+     * 多次重试仍写不回去的记录到错误日志，便于人工核对
+     */
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (!enabled) {
+            return;
+        }
+        closed = true;
+        if (flusher != null) {
+            flusher.shutdown();
+            try {
+                flusher.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (int attempt = 1; attempt <= 3 && hasPendingDeltas(); attempt++) {
+            try {
+                flush();
+            } catch (Exception e) {
+                log.error("库存账本关闭时落库失败（第{}次）", attempt, e);
+            }
+        }
+        pendingDeltas.forEach((productId, delta) -> {
+            if (delta.get() != 0) {
+                log.error("库存账本关闭时仍有未落库的扣减：商品ID={}，净扣减量={}", productId, delta.get());
+            }
+        });
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 扣减库存（无锁CAS，库存不足时立即拒绝）
+     *
+     * @param productId 商品ID
+     * @param quantity  扣减数量（>0）
+     * @return 扣减结果
+     */
+    public DecreaseResult tryDecrease(Long productId, int quantity) {
+        if (!enabled || closed) {
+            return DecreaseResult.UNAVAILABLE;
+        }
+        while (true) {
+            AtomicInteger counter = counter(productId);
+            if (counter == null) {
+                return DecreaseResult.NOT_FOUND;
+            }
+            int current = counter.get();
+            if (current == RETIRED) {
+                counters.remove(productId, counter);
+                continue;
+            }
+            if (current < quantity) {
+                return DecreaseResult.INSUFFICIENT;
+            }
+            // 先登记未落库量再扣减，保证重载计数器时不会漏算这次扣减
+            AtomicLong delta = pendingDelta(productId);
+            delta.addAndGet(quantity);
+            if (counter.compareAndSet(current, current - quantity)) {
+                return DecreaseResult.SUCCESS;
+            }
+            delta.addAndGet(-quantity);
+        }
+    }
+
+    /**
+     * 归还库存（扣减所在事务回滚时的补偿）
+     *
+     * @param productId 商品ID
+     * @param quantity  归还数量（>0）
+     */
+    public void restore(Long productId, int quantity) {
+        AtomicInteger counter = counters.get(productId);
+        if (counter != null) {
+            int current;
+            do {
+                current = counter.get();
+            } while (current != RETIRED && !counter.compareAndSet(current, current + quantity));
+        }
+        // 计数器已退役/不存在时只需冲减未落库量，重载时会按数据库重新计算
+        pendingDelta(productId).addAndGet(-quantity);
+    }
+
+    /**
+     * 查看内存中的可用库存（未加载或正在重载时返回null）
+     *
+     * @param productId 商品ID
+     * @return 可用库存
+     */
+    public Integer peek(Long productId) {
+        if (!enabled || productId == null) {
+            return null;
+        }
+        AtomicInteger counter = counters.get(productId);
+        if (counter == null) {
+            return null;
+        }
+        int current = counter.get();
+        return current == RETIRED ? null : current;
+    }
+
+    /**
+     * 把指定商品未落库的扣减立即写回数据库（商家直接修改库存前调用，避免旧扣减覆盖新库存）
+     *
+     * @param productId 商品ID
+     */
+    public void flush(Long productId) {
+        if (!enabled || productId == null) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            AtomicLong delta = pendingDeltas.get(productId);
+            if (delta == null || delta.get() == 0) {
+                return;
+            }
+            Map<Long, Long> batch = new LinkedHashMap<>();
+            batch.put(productId, delta.get());
+            applyBatch(batch);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * 丢弃指定商品的计数器，下次扣减时从数据库重新加载（商品库存被直接修改/删除后调用）
+     *
+     * @param productId 商品ID
+     */
+    public void invalidate(Long productId) {
+        if (!enabled || productId == null) {
+            return;
+        }
+        AtomicInteger counter = counters.get(productId);
+        if (counter != null) {
+            counter.set(RETIRED);
+            counters.remove(productId, counter);
+        }
+    }
+
+    /**
+     * 对账：没有未落库扣减的商品丢弃计数器，下次扣减时按数据库重新加载
+     * （纠正外部直接改库或并发重载造成的偏差）
+     */
+    public void reconcile() {
+        int dropped = 0;
+        for (Map.Entry<Long, AtomicInteger> entry : counters.entrySet()) {
+            AtomicLong delta = pendingDeltas.get(entry.getKey());
+            if (delta == null || delta.get() == 0) {
+                entry.getValue().set(RETIRED);
+                counters.remove(entry.getKey(), entry.getValue());
+                dropped++;
+            }
+        }
+        if (dropped > 0) {
+            log.info("库存账本对账完成：重新加载{}个商品的库存", dropped);
+        }
+    }
+
+    /**
+     * 把所有未落库的净扣减量按批写回数据库
+     */
+    public void flush() {
+        flushLock.lock();
+        try {
+            Map<Long, Long> batch = new LinkedHashMap<>();
+            for (Map.Entry<Long, AtomicLong> entry : pendingDeltas.entrySet()) {
+                long delta = entry.getValue().get();
+                if (delta == 0) {
+                    continue;
+                }
+                batch.put(entry.getKey(), delta);
+                if (batch.size() >= flushBatchSize) {
+                    applyBatch(batch);
+                    batch = new LinkedHashMap<>();
+                }
+            }
+            if (!batch.isEmpty()) {
+                applyBatch(batch);
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            // 保留未落库量，下个周期重试
+            log.warn("库存账本落库失败，稍后重试", e);
+        }
+    }
+
+    /**
+     * 写回一批净扣减量；写库成功后才冲减未落库量（期间重载计数器只会少算，不会超卖）
+     * 在调用方事务中落库（如商家修改库存前）时，事务回滚后把冲减的未落库量加回
+     */
+    private void applyBatch(Map<Long, Long> batch) {
+        productMapper.applyStockDeltas(batch);
+        for (Map.Entry<Long, Long> entry : batch.entrySet()) {
+            pendingDelta(entry.getKey()).addAndGet(-entry.getValue());
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_ROLLED_BACK) {
+                        batch.forEach((productId, delta) -> pendingDelta(productId).addAndGet(delta));
+                        log.warn("库存账本落库所在事务回滚，恢复{}个商品的未落库扣减", batch.size());
+                    }
+                }
+            });
+        }
+        log.debug("库存账本落库{}个商品", batch.size());
+    }
+
+    private boolean hasPendingDeltas() {
+        for (AtomicLong delta : pendingDeltas.values()) {
+            if (delta.get() != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private AtomicLong pendingDelta(Long productId) {
+        return pendingDeltas.computeIfAbsent(productId, k -> new AtomicLong());
+    }
+
+    /**
+     * 获取商品计数器，不存在时从数据库懒加载（商品不存在返回null）
+     * 查库放在computeIfAbsent之外：映射函数执行期间持有桶锁（synchronized），在虚拟线程中查库会钉住载体线程
+     */
+    private AtomicInteger counter(Long productId) {
+        AtomicInteger counter = counters.get(productId);
+        if (counter != null) {
+            return counter;
+        }
+        // 库存以主库为准（开启读写分离时）
+        Integer stock = DataSourceRouting.primary(() -> productMapper.selectStockByProductId(productId));
+        if (stock == null) {
+            return null;
+        }
+        AtomicLong delta = pendingDeltas.get(productId);
+        long available = stock - (delta == null ? 0 : delta.get());
+        // 并发加载时以先放入的为准
+        AtomicInteger loaded = new AtomicInteger((int) Math.max(0, available));
+        AtomicInteger existing = counters.putIfAbsent(productId, loaded);
+        return existing != null ? existing : loaded;
+    }
+}
@@ -0,0 +1,308 @@
+package com.example.shop.storage;
+
+import com.example.shop.cache.LocalCache;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 商品图片输出（强校验ETag/Last-Modified + 304 + 单段Range + 零拷贝 + 热点小图内存缓存）
+ * 1. 上传的图片文件名唯一且不会被覆盖：哈希文件名的ETag取内容哈希，Cache-Control带immutable，浏览器长期缓存
+ * 2. 文件元信息（长度/修改时间）缓存一段时间，避免每次请求都stat文件
+ * 3. 小图片整张缓存在内存中（按总字节数限制，LRU淘汰），其他图片走Tomcat sendfile（不支持时用FileChannel.transferTo）；
+ *    小图在一段时间内被请求达到admit-after-hits次才放入内存，只访问过一次的图片不会挤掉热点图片
+ */
+@Slf4j
+@Component
+public class ImageServer {
+
+    // Tomcat sendfile 约定的请求属性
+    private static final String SENDFILE_SUPPORTED_ATTR = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+    // 热点小图准入计数的统计窗口（毫秒）
+    private static final long ADMISSION_WINDOW_MILLIS = 10 * 60 * 1000L;
+
+    @Autowired
+    private ImageStore imageStore;
+
+    @Value("${image.serve.max-age-seconds:31536000}")
+    private long maxAgeSeconds;
+
+    @Value("${image.serve.meta-ttl-seconds:60}")
+    private long metaTtlSeconds;
+
+    @Value("${image.serve.hot-cache.max-bytes:33554432}")
+    private long hotCacheMaxBytes;
+
+    @Value("${image.serve.hot-cache.max-file-bytes:65536}")
+    private long hotCacheMaxFileBytes;
+
+    @Value("${image.serve.hot-cache.admit-after-hits:2}")
+    private int admitAfterHits;
+
+    // 文件名 → 元信息
+    private LocalCache<String, ImageMeta> metaCache;
+    // 文件名 → 未进入内存缓存的小图在统计窗口内的请求次数
+    private LocalCache<String, Integer> admissionHits;
+    // 文件名 → 图片内容（按总字节数限制的LRU）
+    private final Map<String, byte[]> hotCache = new LinkedHashMap<>(64, 0.75f, true);
+    private long hotCacheBytes;
+
+    /**
+     * 图片元信息
+     */
+    private static class ImageMeta {
+        private final Path path;
+        private final long length;
+        private final long lastModified;
+        private final String etag;
+        private final String contentType;
+
+        private ImageMeta(Path path, long length, long lastModified, String etag, String contentType) {
+            this.path = path;
+            this.length = length;
+            this.lastModified = lastModified;
+            this.etag = etag;
+            this.contentType = contentType;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        metaCache = new LocalCache<>("imageMeta", 10000, metaTtlSeconds * 1000);
+        admissionHits = new LocalCache<>("imageAdmission", 10000, ADMISSION_WINDOW_MILLIS);
+    }
+
+    /**
+     * 输出图片
+     *
+     * @param fileName 图片文件名
+     * @param request  请求
+     * @param response 响应
+     * @throws IOException 读取/写出失败
+     */
+    public void serve(String fileName, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        ImageMeta meta = metaCache.get(fileName, this::loadMeta);
+        if (meta == null) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        response.setHeader(HttpHeaders.ETAG, meta.etag);
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, meta.lastModified);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "public, max-age=" + maxAgeSeconds + ", immutable");
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        // 条件请求：ETag优先，其次Last-Modified
+        if (notModified(request, meta)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        // Range请求（只支持单段；If-Range不匹配时返回整张图片）
+        long start = 0;
+        long end = meta.length; // 不含
+        String range = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (range != null && (ifRange == null || ifRange.equals(meta.etag))) {
+            long[] bounds = parseRange(range, meta.length);
+            if (bounds == null) {
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + meta.length);
+                return;
+            }
+            if (bounds.length == 2) {
+                start = bounds[0];
+                end = bounds[1];
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE,
+                        "bytes " + start + "-" + (end - 1) + "/" + meta.length);
+            }
+        }
+
+        response.setContentType(meta.contentType);
+        response.setContentLengthLong(end - start);
+        if ("HEAD".equalsIgnoreCase(request.getMethod())) {
+            return;
+        }
+
+        byte[] content = hotContent(fileName, meta);
+        if (content != null) {
+            response.getOutputStream().write(content, (int) start, (int) (end - start));
+            return;
+        }
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED_ATTR))) {
+            // 交给Tomcat在请求结束后用sendfile直接从文件发送到socket
+            request.setAttribute(SENDFILE_FILENAME_ATTR, meta.path.toString());
+            request.setAttribute(SENDFILE_START_ATTR, start);
+            request.setAttribute(SENDFILE_END_ATTR, end);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(meta.path, StandardOpenOption.READ)) {
+            OutputStream out = response.getOutputStream();
+            WritableByteChannel target = Channels.newChannel(out);
+            long position = start;
+            while (position < end) {
+                position += channel.transferTo(position, end - position, target);
+            }
+        }
+    }
+
+    private boolean notModified(HttpServletRequest request, ImageMeta meta) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            for (String tag : ifNoneMatch.split(",")) {
+                String trimmed = tag.trim();
+                if (trimmed.equals("*") || trimmed.equals(meta.etag) || trimmed.equals("W/" + meta.etag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        try {
+            long ifModifiedSince = request.getDateHeader(HttpHeaders.IF_MODIFIED_SINCE);
+            // HTTP日期精确到秒
+            return ifModifiedSince != -1 && meta.lastModified / 1000 <= ifModifiedSince / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 解析单段Range
+     *
+     * @return {start, end(不含)}；无法识别/多段/语法无效（如末位置小于起始位置）时返回空数组（按整张图片返回）；
+     *         范围无法满足（起始位置超出图片长度）返回null
+     */
+    private static long[] parseRange(String range, long length) {
+        if (!range.startsWith("bytes=") || range.indexOf(',') >= 0) {
+            return new long[0];
+        }
+        String spec = range.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return new long[0];
+        }
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            long start;
+            long end;
+            if (first.isEmpty()) {
+                // 后缀范围：最后N个字节
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0) {
+                    return null;
+                }
+                start = Math.max(0, length - suffix);
+                end = length;
+            } else {
+                start = Long.parseLong(first);
+                if (last.isEmpty()) {
+                    end = length;
+                } else {
+                    long lastPosition = Long.parseLong(last);
+                    if (lastPosition < start) {
+                        // 语法无效的Range按没有Range处理（RFC 9110）
+                        return new long[0];
+                    }
+                    end = Math.min(lastPosition + 1, length);
+                }
+            }
+            if (start >= length || start >= end) {
+                return null;
+            }
+            return new long[]{start, end};
+        } catch (NumberFormatException e) {
+            return new long[0];
+        }
+    }
+
+    /**
+     * 查看/加载热点小图内容（超过单图上限的不缓存；请求次数未达到准入次数的不缓存）
+     */
+    private byte[] hotContent(String fileName, ImageMeta meta) throws IOException {
+        if (meta.length > hotCacheMaxFileBytes || meta.length > hotCacheMaxBytes) {
+            return null;
+        }
+        synchronized (hotCache) {
+            byte[] cached = hotCache.get(fileName);
+            if (cached != null && cached.length == meta.length) {
+                return cached;
+            }
+        }
+        if (admitAfterHits > 1) {
+            Integer previous = admissionHits.get(fileName);
+            int hits = previous == null ? 1 : previous + 1;
+            if (hits < admitAfterHits) {
+                admissionHits.put(fileName, hits);
+                return null;
+            }
+            admissionHits.invalidate(fileName);
+        }
+        byte[] content = Files.readAllBytes(meta.path);
+        if (content.length != meta.length) {
+            // 文件已变化，等元信息过期后再缓存
+            return null;
+        }
+        synchronized (hotCache) {
+            byte[] previous = hotCache.put(fileName, content);
+            hotCacheBytes += content.length - (previous == null ? 0 : previous.length);
+            var iterator = hotCache.entrySet().iterator();
+            while (hotCacheBytes > hotCacheMaxBytes && iterator.hasNext()) {
+                hotCacheBytes -= iterator.next().getValue().length;
+                iterator.remove();
+            }
+        }
+        return content;
+    }
+
+    private ImageMeta loadMeta(String fileName) {
+        Path path = imageStore.resolve(fileName);
+        if (path == null) {
+            return null;
+        }
+        try {
+            long length = Files.size(path);
+            long lastModified = Files.getLastModifiedTime(path).toMillis();
+            // 哈希文件名直接用内容哈希作ETag，旧文件用长度+修改时间
+            String etag = imageStore.isContentAddressed(fileName)
+                    ? "\"" + fileName.substring(0, fileName.indexOf('.')) + "\""
+                    : "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+            return new ImageMeta(path, length, lastModified, etag, contentType(fileName));
+        } catch (IOException e) {
+            log.warn("读取图片元信息失败：{}", path, e);
+            return null;
+        }
+    }
+
+    private static String contentType(String fileName) {
+        String fileType = fileName.substring(fileName.lastIndexOf('.') + 1).toLowerCase();
+        switch (fileType) {
+            case "png":
+                return "image/png";
+            case "webp":
+                return "image/webp";
+            default: // jpg/jpeg
+                return "image/jpeg";
+        }
+    }
+}
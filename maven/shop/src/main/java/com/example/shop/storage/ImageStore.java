@@ -0,0 +1,129 @@
+package com.example.shop.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.regex.Pattern;
+
+/**
+ * 商品图片存储（按内容哈希命名）
+ * 文件名 = SHA-256(内容) + 后缀，按哈希前缀分两级子目录存放：upload.path/ab/cd/abcd....jpg
+ * 写入时边读边算哈希直接写临时文件（不在内存中保留整张图片），再原子移动到目标位置；
+ * 相同内容的图片只保存一份，对外URL只依赖文件名（/uploads/products/{文件名}），与存放目录无关
+ * 改造前平铺在upload.path下的旧文件仍可按原文件名访问
+ */
+@Slf4j
+@Component
+public class ImageStore {
+
+    // 内容哈希文件名：64位小写十六进制 + 后缀
+    private static final Pattern HASHED_NAME = Pattern.compile("^[0-9a-f]{64}\\.[a-z0-9]{1,10}$");
+    // 旧文件名（时间戳_随机数.后缀），只允许安全字符，防止路径穿越
+    private static final Pattern LEGACY_NAME = Pattern.compile("^[\\w-]+(\\.[A-Za-z0-9]{1,10})?$");
+
+    @Value("${upload.path:/opt/shop_uploads/products/}")
+    private String uploadPath;
+
+    private Path root;
+    private Path tempDir;
+
+    @PostConstruct
+    public void init() {
+        root = Paths.get(uploadPath).toAbsolutePath().normalize();
+        // 临时目录与存储目录在同一文件系统下，保证可以原子移动
+        tempDir = root.resolve(".tmp");
+    }
+
+    /**
+     * 保存图片（内容相同的图片只保存一份）
+     *
+     * @param content   图片内容（调用方负责关闭）
+     * @param extension 后缀（如 .jpg）
+     * @return 存储文件名（哈希 + 后缀），即对外URL中的文件名
+     * @throws IOException 写入失败
+     */
+    public String store(InputStream content, String extension) throws IOException {
+        String suffix = extension.toLowerCase();
+        Files.createDirectories(tempDir);
+        Path tempFile = Files.createTempFile(tempDir, "upload-", suffix);
+        try {
+            MessageDigest digest = newDigest();
+            try (DigestInputStream in = new DigestInputStream(content, digest)) {
+                Files.copy(in, tempFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+            String fileName = HexFormat.of().formatHex(digest.digest()) + suffix;
+            Path target = shardedPath(fileName);
+
+            if (Files.exists(target)) {
+                log.info("图片已存在，复用已有文件：{}", fileName);
+                return fileName;
+            }
+            Files.createDirectories(target.getParent());
+            // 原子移动即rename：目标已存在时直接替换（并发上传相同内容时后到的覆盖先到的），
+            // 内容相同，读请求看到的是替换前或替换后的完整文件
+            Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE);
+            log.info("图片保存成功：{}", target);
+            return fileName;
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * 根据文件名查找图片（哈希文件名查分片目录，旧文件名查平铺目录）
+     *
+     * @param fileName 对外URL中的文件名
+     * @return 图片路径（文件名非法或文件不存在返回null）
+     */
+    public Path resolve(String fileName) {
+        if (fileName == null) {
+            return null;
+        }
+        Path path;
+        if (HASHED_NAME.matcher(fileName).matches()) {
+            path = shardedPath(fileName);
+        } else if (LEGACY_NAME.matcher(fileName).matches()) {
+            path = root.resolve(fileName);
+        } else {
+            return null;
+        }
+        return Files.isRegularFile(path) ? path : null;
+    }
+
+    /**
+     * 是否为内容哈希文件名（内容与文件名一一对应，不会变化）
+     *
+     * @param fileName 文件名
+     * @return 是否为哈希文件名
+     */
+    public boolean isContentAddressed(String fileName) {
+        return fileName != null && HASHED_NAME.matcher(fileName).matches();
+    }
+
+    /**
+     * 哈希文件名对应的分片路径：前2位/3-4位/文件名
+     */
+    private Path shardedPath(String fileName) {
+        return root.resolve(fileName.substring(0, 2)).resolve(fileName.substring(2, 4)).resolve(fileName);
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("JVM不支持SHA-256", e);
+        }
+    }
+}
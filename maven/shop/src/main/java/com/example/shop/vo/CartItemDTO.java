@@ -22,4 +22,6 @@ public class CartItemDTO implements Serializable {
     private BigDecimal productPrice;
     // 商家ID
     private Long merchantId;
+    // 金额小计（单价 × 数量）
+    private BigDecimal lineTotal;
 }
\ No newline at end of file
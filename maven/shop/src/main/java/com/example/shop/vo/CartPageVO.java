@@ -0,0 +1,25 @@
+package com.example.shop.vo;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * 购物车分页VO（在分页信息之外返回整个购物车的金额合计）
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+@NoArgsConstructor
+public class CartPageVO extends PageResultVO<CartItemDTO> {
+    // 购物车全部商品的金额合计（各行金额小计之和，不限于当前页）
+    private BigDecimal subtotal;
+
+    public CartPageVO(Integer total, Integer pages, Integer pageNo, Integer pageSize, List<CartItemDTO> list,
+                      BigDecimal subtotal) {
+        super(total, pages, pageNo, pageSize, list);
+        this.subtotal = subtotal;
+    }
+}
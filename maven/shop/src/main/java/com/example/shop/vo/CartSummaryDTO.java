@@ -0,0 +1,20 @@
+package com.example.shop.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * 购物车汇总（记录数 + 金额合计）
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CartSummaryDTO {
+    // 购物车记录数
+    private Integer total;
+    // 金额合计（单价 × 数量之和，已下架/删除的商品按0计）
+    private BigDecimal subtotal;
+}
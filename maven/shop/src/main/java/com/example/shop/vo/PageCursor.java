@@ -0,0 +1,69 @@
+package com.example.shop.vo;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * 游标分页的游标编解码（对前端不透明，内容为上一页最后一条记录的排序键）
+ * 游标模式按 WHERE key > ? ORDER BY key LIMIT ? 查询，翻页耗时与页深度无关
+ */
+public final class PageCursor {
+
+    private static final String VERSION_PREFIX = "v1:";
+
+    private PageCursor() {
+    }
+
+    /**
+     * 编码游标
+     *
+     * @param lastKey 当前页最后一条记录的排序键
+     * @return 游标字符串（URL安全）
+     */
+    public static String encode(Object lastKey) {
+        String raw = VERSION_PREFIX + lastKey;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解码字符串类型的排序键
+     *
+     * @param cursor 游标（null/空串表示从第一页开始）
+     * @return 排序键（第一页返回null）
+     * @throws IllegalArgumentException 游标格式不合法
+     */
+    public static String decodeString(String cursor) {
+        if (cursor == null || cursor.trim().isEmpty()) {
+            return null;
+        }
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("分页游标不合法：" + cursor);
+        }
+        if (!raw.startsWith(VERSION_PREFIX) || raw.length() == VERSION_PREFIX.length()) {
+            throw new IllegalArgumentException("分页游标不合法：" + cursor);
+        }
+        return raw.substring(VERSION_PREFIX.length());
+    }
+
+    /**
+     * 解码数值类型的排序键
+     *
+     * @param cursor 游标（null/空串表示从第一页开始）
+     * @return 排序键（第一页返回null）
+     * @throws IllegalArgumentException 游标格式不合法
+     */
+    public static Long decodeLong(String cursor) {
+        String key = decodeString(cursor);
+        if (key == null) {
+            return null;
+        }
+        try {
+            return Long.valueOf(key);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("分页游标不合法：" + cursor);
+        }
+    }
+}
@@ -1,9 +1,11 @@
 package com.example.shop.vo;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.ArrayList;
 import java.util.List;
 
 @Data
@@ -16,4 +18,55 @@ public class PageResultVO<T> {
     private Integer pageNo; // 页号
     private Integer pageSize; // 页尺寸
     private List<T> list; // 数据
+
+    // 游标分页：下一页的游标（仅游标模式返回，null表示没有下一页）
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String nextCursor;
+
+    // 是否还有下一页（仅不统计总数时返回，由多查一条判断）
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Boolean hasNext;
+
+    /**
+     * 页号分页结果（原有构造方式）
+     */
+    public PageResultVO(Integer total, Integer pages, Integer pageNo, Integer pageSize, List<T> list) {
+        this(total, pages, pageNo, pageSize, list, null, null);
+    }
+
+    /**
+     * 游标分页结果（不统计总数，总数/总页数/页号均为null）
+     *
+     * @param pageSize   页尺寸
+     * @param list       当前页数据
+     * @param nextCursor 下一页游标（null表示已到最后一页）
+     * @return 分页VO
+     */
+    public static <T> PageResultVO<T> ofCursor(Integer pageSize, List<T> list, String nextCursor) {
+        return new PageResultVO<>(null, null, null, pageSize, list, nextCursor, nextCursor != null);
+    }
+
+    /**
+     * 不统计总数的页号分页结果（调用方按pageSize + 1条查询，多出的一条只用于判断是否有下一页）
+     *
+     * @param pageNo      页号
+     * @param pageSize    页尺寸
+     * @param fetchedList 按pageSize + 1条查询到的数据
+     * @return 分页VO（总数/总页数为null）
+     */
+    public static <T> PageResultVO<T> ofProbe(Integer pageNo, Integer pageSize, List<T> fetchedList) {
+        boolean hasNext = fetchedList.size() > pageSize;
+        List<T> list = hasNext ? new ArrayList<>(fetchedList.subList(0, pageSize)) : fetchedList;
+        return new PageResultVO<>(null, null, pageNo, pageSize, list, null, hasNext);
+    }
+
+    /**
+     * 保留分页信息、替换数据列表（用于把实体分页结果转换为VO分页结果）
+     *
+     * @param newList 新数据列表
+     * @return 新的分页VO
+     */
+    public <R> PageResultVO<R> withList(List<R> newList) {
+        return new PageResultVO<>(total, pages, pageNo, pageSize, newList, nextCursor, hasNext);
+    }
 }
@@ -0,0 +1,116 @@
+package com.example.shop.cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 分页总数缓存：读穿透、按参数/按查询失效、事务结束后的二次失效
+ */
+class CountCacheTest {
+
+    private CountCache countCache;
+
+    @BeforeEach
+    void setUp() {
+        countCache = new CountCache();
+        ReflectionTestUtils.setField(countCache, "enabled", true);
+        ReflectionTestUtils.setField(countCache, "maxSize", 100);
+        ReflectionTestUtils.setField(countCache, "ttlSeconds", 60L);
+        countCache.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void invalidateRefreshesOnlyThatParameter() {
+        AtomicInteger total = new AtomicInteger(10);
+        AtomicInteger loads = new AtomicInteger();
+
+        assertEquals(10, count(CountCache.CART_BY_USER, 1L, total, loads));
+        total.set(11);
+        // 命中缓存，不再查库
+        assertEquals(10, count(CountCache.CART_BY_USER, 1L, total, loads));
+        assertEquals(1, loads.get());
+
+        // 失效其他参数不影响；失效本参数后重新加载
+        countCache.invalidate(CountCache.CART_BY_USER, 2L);
+        assertEquals(10, count(CountCache.CART_BY_USER, 1L, total, loads));
+        countCache.invalidate(CountCache.CART_BY_USER, 1L);
+        assertEquals(11, count(CountCache.CART_BY_USER, 1L, total, loads));
+        assertEquals(2, loads.get());
+
+        // 加载结果为null时按0处理
+        assertEquals(0, countCache.get(CountCache.CART_BY_USER, 3L, () -> null));
+    }
+
+    @Test
+    void invalidateQueryRefreshesEveryParameterOfThatQuery() {
+        AtomicInteger total = new AtomicInteger(5);
+        AtomicInteger loads = new AtomicInteger();
+        count(CountCache.PRODUCT_BY_NAME, "杯", total, loads);
+        count(CountCache.PRODUCT_BY_NAME, null, total, loads);
+        count(CountCache.PRODUCT_BY_MERCHANT, 7L, total, loads);
+        total.set(6);
+
+        countCache.invalidateQuery(CountCache.PRODUCT_BY_NAME);
+
+        assertEquals(6, count(CountCache.PRODUCT_BY_NAME, "杯", total, loads));
+        assertEquals(6, count(CountCache.PRODUCT_BY_NAME, null, total, loads));
+        // 其他查询不受影响
+        assertEquals(5, count(CountCache.PRODUCT_BY_MERCHANT, 7L, total, loads));
+    }
+
+    @Test
+    void invalidatesAgainAfterTheTransactionCompletes() {
+        AtomicInteger total = new AtomicInteger(20);
+        AtomicInteger loads = new AtomicInteger();
+        count(CountCache.ORDER_MAIN_BY_USER, 1L, total, loads);
+
+        TransactionSynchronizationManager.initSynchronization();
+        // 事务内插入后失效；提交前并发读到旧总数并回填
+        countCache.invalidate(CountCache.ORDER_MAIN_BY_USER, 1L);
+        assertEquals(20, count(CountCache.ORDER_MAIN_BY_USER, 1L, total, loads));
+
+        // 提交：事务结束后的第二次失效清掉回填的旧总数
+        total.set(21);
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+
+        assertEquals(21, count(CountCache.ORDER_MAIN_BY_USER, 1L, total, loads));
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void disabledCacheAlwaysLoads() {
+        ReflectionTestUtils.setField(countCache, "enabled", false);
+        AtomicInteger total = new AtomicInteger(1);
+        AtomicInteger loads = new AtomicInteger();
+
+        count(CountCache.CART_BY_USER, 1L, total, loads);
+        count(CountCache.CART_BY_USER, 1L, total, loads);
+
+        assertEquals(2, loads.get());
+    }
+
+    private int count(String query, Object param, AtomicInteger total, AtomicInteger loads) {
+        return countCache.get(query, param, () -> {
+            loads.incrementAndGet();
+            return total.get();
+        });
+    }
+}
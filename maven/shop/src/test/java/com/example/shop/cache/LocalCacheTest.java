@@ -0,0 +1,63 @@
+package com.example.shop.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * 本地缓存：加载期间的失效只影响被失效的键
+ */
+class LocalCacheTest {
+
+    @Test
+    void invalidationDuringLoadDiscardsOnlyThatKey() {
+        LocalCache<Long, String> cache = new LocalCache<>("test", 100, 0);
+
+        // 加载1号键期间失效了1号键：加载到的旧值不回填
+        assertEquals("旧值1", cache.get(1L, key -> {
+            cache.invalidate(1L);
+            return "旧值1";
+        }));
+        assertNull(cache.get(1L));
+
+        // 加载2号键期间失效了其他键：正常回填
+        assertEquals("值2", cache.get(2L, key -> {
+            cache.invalidate(3L);
+            cache.invalidateIf(k -> k > 100);
+            return "值2";
+        }));
+        assertEquals("值2", cache.get(2L));
+    }
+
+    @Test
+    void bulkLoadSkipsKeysInvalidatedDuringLoad() {
+        LocalCache<Long, String> cache = new LocalCache<>("test", 100, 0);
+
+        Map<Long, String> loaded = cache.getAll(List.of(1L, 2L, 3L), keys -> {
+            cache.invalidate(2L);
+            Map<Long, String> values = new HashMap<>();
+            keys.forEach(key -> values.put(key, "值" + key));
+            return values;
+        });
+        assertEquals(3, loaded.size());
+        assertEquals("值1", cache.get(1L));
+        assertNull(cache.get(2L));
+        assertEquals("值3", cache.get(3L));
+
+        // 加载失败后登记被清理，之后的加载正常回填
+        try {
+            cache.get(4L, key -> {
+                throw new IllegalStateException("加载失败");
+            });
+        } catch (IllegalStateException expected) {
+            // 忽略
+        }
+        assertEquals("值4", cache.get(4L, key -> "值4"));
+        assertEquals("值4", cache.get(4L));
+    }
+}
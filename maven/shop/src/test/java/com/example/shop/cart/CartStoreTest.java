@@ -0,0 +1,160 @@
+package com.example.shop.cart;
+
+import com.example.shop.entity.Cart;
+import com.example.shop.mapper.CartMapper;
+import com.example.shop.service.CartService;
+import com.example.shop.vo.CartItemDTO;
+import com.example.shop.vo.CartPageVO;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 内存购物车（H2内存库 + bench测试数据，关闭后台定时落库，由测试手动调用flush）
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:cart_store;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.sql.init.mode=always",
+        "spring.sql.init.schema-locations=classpath:bench/schema.sql",
+        "spring.sql.init.data-locations=classpath:bench/data.sql",
+        "spring.sql.init.encoding=UTF-8",
+        "upload.path=target/test-uploads/products/",
+        "cart.store.enabled=true",
+        "cart.store.flush-interval-ms=3600000"
+})
+class CartStoreTest {
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private CartStore cartStore;
+
+    @Autowired
+    private CartMapper cartMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void readsMatchTheDatabaseAfterLoading() {
+        long userId = 31;
+        List<Cart> rows = cartMapper.selectByUserIdWithPage(userId, 0, 100);
+
+        assertEquals(rows.size(), cartService.countByUserId(userId));
+        assertEquals(rows.subList(5, 10), cartService.selectByUserIdWithPage(userId, 5, 5));
+        assertEquals(rows.subList(6, 9),
+                cartService.selectByUserIdAfter(userId, rows.get(5).getProductId(), 3));
+    }
+
+    @Test
+    void memoryAndJoinQueryBuildTheSameCartRows() {
+        long userId = 35;
+        // 不存在的商品：名称“未知商品”，单价/商家ID为0
+        jdbcTemplate.update("INSERT INTO cart (user_id, product_id, quantity) VALUES (?, 20000, 3)", userId);
+        List<CartItemDTO> joined = cartMapper.selectCartItemsByUserIdWithPage(userId, 0, 100);
+        assertEquals("未知商品", joined.get(joined.size() - 1).getProductName());
+
+        assertEquals(joined, cartService.selectCartItemsWithPage(userId, 0, 100));
+        assertEquals(cartMapper.selectCartSummaryByUserId(userId), cartService.selectCartSummary(userId));
+        assertEquals(joined.subList(3, 6), cartService.selectCartItemsAfter(userId, joined.get(2).getProductId(), 3));
+
+        CartPageVO page = cartService.selectCartPage(userId, 2, 8);
+        assertEquals(21, page.getTotal());
+        assertEquals(3, page.getPages());
+        assertEquals(joined.subList(8, 16), page.getList());
+        assertEquals(joined.stream().map(CartItemDTO::getLineTotal).reduce(BigDecimal::add).get(), page.getSubtotal());
+    }
+
+    @Test
+    void changesAreCoalescedAndWrittenBackOnFlush() {
+        long userId = 32;
+        for (int i = 0; i < 3; i++) {
+            cartService.insertCart(cart(userId, 9001L, 2));
+        }
+        assertEquals(1, cartService.updateQuantityByUserIdAndProductId(userId, 9001L, -1));
+        assertEquals(0, cartService.updateQuantityByUserIdAndProductId(userId, 9002L, 1));
+        cartService.insertCart(cart(userId, 9003L, 1));
+        assertEquals(1, cartService.deleteByUserIdAndProductId(userId, 9003L));
+
+        assertEquals(21, cartService.countByUserId(userId));
+        assertEquals(0, countRows(userId, 9001L));
+
+        cartStore.flush();
+        assertEquals(5, jdbcTemplate.queryForObject(
+                "SELECT quantity FROM cart WHERE user_id = ? AND product_id = 9001", Integer.class, userId));
+        assertEquals(0, countRows(userId, 9003L));
+
+        assertEquals(1, cartService.deleteByUserIdAndProductId(userId, 9001L));
+        assertEquals(1, countRows(userId, 9001L));
+        cartStore.flush();
+        assertEquals(0, countRows(userId, 9001L));
+    }
+
+    @Test
+    void idleUsersAreEvictedAfterFlushAndReloaded() {
+        long userId = 33;
+        cartService.insertCart(cart(userId, 9004L, 1));
+        // 有未落库修改时不淘汰
+        cartStore.evictIdle(Long.MAX_VALUE);
+        assertEquals(0, countRows(userId, 9004L));
+
+        cartStore.flush();
+        assertTrue(cartStore.evictIdle(Long.MAX_VALUE) > 0);
+        jdbcTemplate.update("UPDATE cart SET quantity = 7 WHERE user_id = ? AND product_id = 9004", userId);
+        Cart reloaded = cartService.selectByUserIdAfter(userId, 9003L, 1).get(0);
+        assertEquals(9004L, reloaded.getProductId());
+        assertEquals(7, reloaded.getQuantity());
+    }
+
+    @Test
+    void concurrentAddsToOneUserAreNotLost() throws Exception {
+        long userId = 34;
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < 100; j++) {
+                        cartService.insertCart(cart(userId, 9005L, 1));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        cartStore.flush();
+        assertEquals(800, jdbcTemplate.queryForObject(
+                "SELECT quantity FROM cart WHERE user_id = ? AND product_id = 9005", Integer.class, userId));
+    }
+
+    private int countRows(long userId, long productId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM cart WHERE user_id = ? AND product_id = ?",
+                Integer.class, userId, productId);
+    }
+
+    private static Cart cart(long userId, long productId, int quantity) {
+        Cart cart = new Cart();
+        cart.setUserId(userId);
+        cart.setProductId(productId);
+        cart.setQuantity(quantity);
+        return cart;
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.shop.id;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimeSequenceOrderNoGeneratorTest {
+
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMddHHmmssSSS");
+
+    @Test
+    void generatesUniqueOrderNosAcrossThreads() throws Exception {
+        int threads = 8;
+        int perThread = 250_000;
+        TimeSequenceOrderNoGenerator generator =
+                new TimeSequenceOrderNoGenerator(7, Long.MAX_VALUE, System::currentTimeMillis, ZoneOffset.UTC);
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<long[]>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(pool.submit(() -> {
+                long[] keys = new long[perThread];
+                start.await();
+                for (int i = 0; i < perThread; i++) {
+                    keys[i] = toKey(generator.nextOrderNo(), 7);
+                }
+                return keys;
+            }));
+        }
+        start.countDown();
+
+        long[] all = new long[threads * perThread];
+        int offset = 0;
+        for (Future<long[]> future : futures) {
+            long[] keys = future.get();
+            // 同一线程内严格递增
+            for (int i = 1; i < keys.length; i++) {
+                assertTrue(keys[i] > keys[i - 1]);
+            }
+            System.arraycopy(keys, 0, all, offset, keys.length);
+            offset += keys.length;
+        }
+        pool.shutdown();
+
+        Arrays.sort(all);
+        for (int i = 1; i < all.length; i++) {
+            assertNotEquals(all[i - 1], all[i], "订单号重复");
+        }
+    }
+
+    @Test
+    void keepsIncreasingWhenClockMovesBackwards() {
+        long base = LocalDateTime.of(2024, 1, 1, 0, 0).toInstant(ZoneOffset.UTC).toEpochMilli();
+        AtomicLong clock = new AtomicLong(base);
+        TimeSequenceOrderNoGenerator generator =
+                new TimeSequenceOrderNoGenerator(1, 1000, clock::get, ZoneOffset.UTC);
+
+        String first = generator.nextOrderNo();
+        clock.addAndGet(-5000);
+        String second = generator.nextOrderNo();
+
+        assertEquals("20240101000000000" + "01" + "000", first);
+        assertEquals("20240101000000000" + "01" + "001", second);
+        assertTrue(second.compareTo(first) > 0);
+    }
+
+    @Test
+    void carriesIntoNextMillisWhenSequenceIsExhausted() {
+        long base = LocalDateTime.of(2024, 1, 1, 0, 0).toInstant(ZoneOffset.UTC).toEpochMilli();
+        TimeSequenceOrderNoGenerator generator =
+                new TimeSequenceOrderNoGenerator(99, Long.MAX_VALUE, () -> base, ZoneOffset.UTC);
+
+        String last = null;
+        for (int i = 0; i < 1001; i++) {
+            last = generator.nextOrderNo();
+        }
+
+        assertEquals("20240101000000001" + "99" + "000", last);
+    }
+
+    @Test
+    void rejectsInvalidNodeId() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new TimeSequenceOrderNoGenerator(100, 1000, System::currentTimeMillis, ZoneOffset.UTC));
+        assertThrows(IllegalArgumentException.class,
+                () -> new TimeSequenceOrderNoGenerator(-1, 1000, System::currentTimeMillis, ZoneOffset.UTC));
+    }
+
+    @Test
+    void staysUniqueAcrossDaylightSavingFallBack() {
+        // 纽约2024-11-03夏令时结束：05:30Z和06:30Z在当地都是01:30
+        ZoneId newYork = ZoneId.of("America/New_York");
+        long beforeFallBack = LocalDateTime.of(2024, 11, 3, 5, 30).toInstant(ZoneOffset.UTC).toEpochMilli();
+        long afterFallBack = beforeFallBack + 3_600_000;
+        assertEquals(TIME_FORMAT.format(Instant.ofEpochMilli(beforeFallBack).atZone(newYork)),
+                TIME_FORMAT.format(Instant.ofEpochMilli(afterFallBack).atZone(newYork)));
+
+        // 有夏令时切换的时区不允许使用
+        AtomicLong clock = new AtomicLong(beforeFallBack - 3_600_000);
+        assertThrows(IllegalArgumentException.class,
+                () -> new TimeSequenceOrderNoGenerator(1, 1000, clock::get, newYork));
+
+        // 固定时区：时钟跨过切换时刻，订单号仍唯一且递增
+        TimeSequenceOrderNoGenerator generator =
+                new TimeSequenceOrderNoGenerator(1, 1000, clock::get, ZoneId.of("Asia/Shanghai"));
+        List<String> orderNos = new ArrayList<>();
+        for (long millis = beforeFallBack; millis <= afterFallBack; millis += 600_000) {
+            clock.set(millis);
+            orderNos.add(generator.nextOrderNo());
+        }
+        for (int i = 1; i < orderNos.size(); i++) {
+            assertTrue(orderNos.get(i).compareTo(orderNos.get(i - 1)) > 0, orderNos.toString());
+        }
+        assertEquals("20241103133000000" + "01" + "000", orderNos.get(0));
+        assertEquals("20241103143000000" + "01" + "000", orderNos.get(orderNos.size() - 1));
+    }
+
+    /**
+     * 订单号转为可排序的long：毫秒时间戳 * 10^5 + 节点号 * 10^3 + 序列号
+     */
+    private static long toKey(String orderNo, int expectedNodeId) {
+        assertEquals(22, orderNo.length());
+        long millis = LocalDateTime.parse(orderNo.substring(0, 17), TIME_FORMAT).toInstant(ZoneOffset.UTC).toEpochMilli();
+        int nodeId = Integer.parseInt(orderNo.substring(17, 19));
+        int sequence = Integer.parseInt(orderNo.substring(19));
+        assertEquals(expectedNodeId, nodeId);
+        return millis * 100_000 + nodeId * 1_000L + sequence;
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.shop.mail;
+
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MailDispatcherTest {
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    private MailDispatcher dispatcher;
+
+    @AfterEach
+    void tearDown() {
+        if (dispatcher != null) {
+            dispatcher.stop();
+        }
+    }
+
+    @Test
+    void sendsQueuedMailsAsynchronously() throws Exception {
+        dispatcher = new MailDispatcher(sender(ServerSetupTest.SMTP.getPort()), 100, 2, 10, 3, 10, 100, 10);
+        dispatcher.start();
+
+        List<String> trackingIds = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            trackingIds.add(dispatcher.submit(message("buyer" + i + "@example.com", "订单 " + i)));
+        }
+
+        assertTrue(greenMail.waitForIncomingEmail(10_000, 25));
+        MimeMessage[] received = greenMail.getReceivedMessages();
+        assertEquals(25, received.length);
+        for (String trackingId : trackingIds) {
+            waitUntil(() -> dispatcher.getTracking(trackingId).getStatus() == MailDispatcher.Status.SENT);
+            assertEquals(1, dispatcher.getTracking(trackingId).getAttempts());
+        }
+        assertTrue(dispatcher.getDeadLetters().isEmpty());
+    }
+
+    @Test
+    void retriesWithBackoffThenDeadLetters() throws Exception {
+        // 未监听的端口：每次发送都连接失败
+        dispatcher = new MailDispatcher(sender(ServerSetupTest.SMTP.getPort() + 7), 100, 1, 10, 3, 10, 50, 10);
+        dispatcher.start();
+
+        String trackingId = dispatcher.submit(message("buyer@example.com", "订单 1"));
+
+        waitUntil(() -> dispatcher.getTracking(trackingId).getStatus() == MailDispatcher.Status.DEAD);
+        MailDispatcher.MailTracking tracking = dispatcher.getTracking(trackingId);
+        assertEquals(3, tracking.getAttempts());
+        assertEquals(1, dispatcher.getDeadLetters().size());
+        assertEquals(trackingId, dispatcher.getDeadLetters().get(0).getTrackingId());
+    }
+
+    @Test
+    void stopSendsPendingRetriesOnceMore() throws Exception {
+        // 重试间隔很长：停止时重试还没到时间
+        JavaMailSenderImpl sender = sender(ServerSetupTest.SMTP.getPort() + 7);
+        dispatcher = new MailDispatcher(sender, 100, 1, 10, 5, 60_000, 60_000, 10);
+        dispatcher.start();
+        String trackingId = dispatcher.submit(message("buyer@example.com", "订单 1"));
+        waitUntil(() -> dispatcher.getTracking(trackingId).getStatus() == MailDispatcher.Status.RETRYING);
+
+        // SMTP恢复后停止：等待重试的邮件立即再发一次
+        sender.setPort(ServerSetupTest.SMTP.getPort());
+        dispatcher.stop();
+
+        MailDispatcher.MailTracking tracking = dispatcher.getTracking(trackingId);
+        assertEquals(MailDispatcher.Status.SENT, tracking.getStatus());
+        assertEquals(2, tracking.getAttempts());
+        assertTrue(greenMail.waitForIncomingEmail(10_000, 1));
+    }
+
+    @Test
+    void stopDeadLettersRetriesThatStillFail() throws Exception {
+        dispatcher = new MailDispatcher(sender(ServerSetupTest.SMTP.getPort() + 7), 100, 1, 10, 5, 60_000, 60_000, 10);
+        dispatcher.start();
+        String trackingId = dispatcher.submit(message("buyer@example.com", "订单 1"));
+        waitUntil(() -> dispatcher.getTracking(trackingId).getStatus() == MailDispatcher.Status.RETRYING);
+
+        dispatcher.stop();
+
+        // 最后一次仍失败：进入死信列表，不会一直停留在RETRYING
+        MailDispatcher.MailTracking tracking = dispatcher.getTracking(trackingId);
+        assertEquals(MailDispatcher.Status.DEAD, tracking.getStatus());
+        assertEquals(2, tracking.getAttempts());
+        assertEquals(trackingId, dispatcher.getDeadLetters().get(0).getTrackingId());
+    }
+
+    @Test
+    void rejectsWhenNotStarted() {
+        dispatcher = new MailDispatcher((JavaMailSenderImpl) null, 100, 1, 10, 3, 10, 50, 10);
+        dispatcher.start();
+
+        assertThrows(IllegalStateException.class, () -> dispatcher.submit(message("buyer@example.com", "订单 1")));
+    }
+
+    private static JavaMailSenderImpl sender(int port) {
+        JavaMailSenderImpl sender = new JavaMailSenderImpl();
+        sender.setHost("127.0.0.1");
+        sender.setPort(port);
+        sender.setDefaultEncoding("UTF-8");
+        sender.getJavaMailProperties().put("mail.smtp.connectiontimeout", "2000");
+        sender.getJavaMailProperties().put("mail.smtp.timeout", "2000");
+        return sender;
+    }
+
+    private static SimpleMailMessage message(String to, String subject) {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setFrom("no-reply@localhost");
+        message.setTo(to);
+        message.setSubject(subject);
+        message.setText("您的订单已发货。");
+        return message;
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("等待超时");
+            }
+            Thread.sleep(20);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.shop.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * SQL语句耗时统计：成功/失败耗时、行数、statement标签、单个语句的慢语句阈值
+ */
+class MapperMetricsInterceptorTest {
+
+    private static final String SELECT_CART = "com.example.shop.mapper.CartMapper.selectByUserId";
+    private static final String INSERT_CART = "com.example.shop.mapper.CartMapper.insertCart";
+
+    private final Configuration configuration = new Configuration();
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private MapperMetricsInterceptor interceptor;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        interceptor = new MapperMetricsInterceptor();
+        ReflectionTestUtils.setField(interceptor, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(interceptor, "slowThresholdMillis", 200L);
+        ReflectionTestUtils.setField(interceptor, "slowThresholds",
+                " CartMapper.selectByUserId = 50 ,ProductMapper.selectOnShelfIdAndName=abc,=10,noSeparator");
+        interceptor.init();
+    }
+
+    @Test
+    void shortIdKeepsMapperAndMethod() {
+        assertEquals("CartMapper.selectByUserId", MapperMetricsInterceptor.shortId(SELECT_CART));
+        assertEquals("CartMapper.selectByUserId", MapperMetricsInterceptor.shortId("CartMapper.selectByUserId"));
+        assertEquals("selectByUserId", MapperMetricsInterceptor.shortId("selectByUserId"));
+    }
+
+    @Test
+    void recordsSuccessTimeAndRowsPerStatement() throws Throwable {
+        MappedStatement select = statement(SELECT_CART, SqlCommandType.SELECT);
+        List<Integer> result = List.of(1, 2, 3);
+        assertSame(result, interceptor.intercept(invocation(select, (ms, param) -> result)));
+        interceptor.intercept(invocation(select, (ms, param) -> List.of()));
+        interceptor.intercept(invocation(statement(INSERT_CART, SqlCommandType.INSERT), (ms, param) -> 4));
+
+        Timer success = meterRegistry.get("mybatis.statement")
+                .tags("statement", "CartMapper.selectByUserId", "type", "SELECT", "outcome", "success").timer();
+        assertEquals(2, success.count());
+        DistributionSummary rows = meterRegistry.get("mybatis.statement.rows")
+                .tags("statement", "CartMapper.selectByUserId", "type", "SELECT").summary();
+        assertEquals(2, rows.count());
+        assertEquals(3, rows.totalAmount());
+        assertEquals(3, rows.max());
+
+        // 增删改按影响行数统计
+        assertEquals(4, meterRegistry.get("mybatis.statement.rows")
+                .tags("statement", "CartMapper.insertCart", "type", "INSERT").summary().totalAmount());
+        assertEquals(0, meterRegistry.get("mybatis.statement")
+                .tags("statement", "CartMapper.selectByUserId", "outcome", "error").timer().count());
+    }
+
+    @Test
+    void recordsFailuresSeparately() throws Throwable {
+        MappedStatement select = statement(SELECT_CART, SqlCommandType.SELECT);
+        interceptor.intercept(invocation(select, (ms, param) -> List.of(1)));
+
+        InvocationTargetException e = assertThrows(InvocationTargetException.class,
+                () -> interceptor.intercept(invocation(select, (ms, param) -> {
+                    throw new IllegalStateException("连接已断开");
+                })));
+        assertEquals("连接已断开", e.getCause().getMessage());
+
+        assertEquals(1, meterRegistry.get("mybatis.statement")
+                .tags("statement", "CartMapper.selectByUserId", "outcome", "error").timer().count());
+        assertEquals(1, meterRegistry.get("mybatis.statement")
+                .tags("statement", "CartMapper.selectByUserId", "outcome", "success").timer().count());
+        // 失败的调用不记录行数
+        assertEquals(1, meterRegistry.get("mybatis.statement.rows")
+                .tags("statement", "CartMapper.selectByUserId").summary().count());
+    }
+
+    @Test
+    void perStatementThresholdOverridesDefault() throws Throwable {
+        // 无效的配置项被忽略，只保留合法的一项
+        Map<?, ?> configured = (Map<?, ?>) ReflectionTestUtils.getField(interceptor, "slowThresholdNanos");
+        assertEquals(Map.of("CartMapper.selectByUserId", TimeUnit.MILLISECONDS.toNanos(50)), configured);
+
+        interceptor.intercept(invocation(statement(SELECT_CART, SqlCommandType.SELECT), (ms, param) -> null));
+        interceptor.intercept(invocation(statement(INSERT_CART, SqlCommandType.INSERT), (ms, param) -> 1));
+
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(50), thresholdOf(SELECT_CART));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(200), thresholdOf(INSERT_CART));
+    }
+
+    private long thresholdOf(String id) {
+        Map<?, ?> meters = (Map<?, ?>) ReflectionTestUtils.getField(interceptor, "meters");
+        return (Long) ReflectionTestUtils.getField(meters.get(id), "slowThresholdNanos");
+    }
+
+    private MappedStatement statement(String id, SqlCommandType type) {
+        return new MappedStatement.Builder(configuration, id,
+                new StaticSqlSource(configuration, "SELECT 1"), type).build();
+    }
+
+    /**
+     * 以 BiFunction.apply(MappedStatement, 参数) 代替 Executor.query/update
+     */
+    private static Invocation invocation(MappedStatement statement,
+            BiFunction<MappedStatement, Object, Object> executor) throws NoSuchMethodException {
+        return new Invocation(executor, BiFunction.class.getMethod("apply", Object.class, Object.class),
+                new Object[]{statement, null});
+    }
+}
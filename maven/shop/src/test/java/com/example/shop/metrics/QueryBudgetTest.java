@@ -0,0 +1,147 @@
+package com.example.shop.metrics;
+
+import com.example.shop.mapper.ProductMapper;
+import com.example.shop.service.ProductService;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 各接口SQL预算（H2内存库 + bench测试数据，超出预算直接失败）
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:query_budget;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.sql.init.mode=always",
+        "spring.sql.init.schema-locations=classpath:bench/schema.sql",
+        "spring.sql.init.data-locations=classpath:bench/data.sql",
+        "spring.sql.init.encoding=UTF-8",
+        "upload.path=target/test-uploads/products/",
+        "query-budget.action=fail"
+})
+@AutoConfigureMockMvc
+class QueryBudgetTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private QueryBudgetFilter queryBudgetFilter;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductMapper productMapper;
+
+    @Test
+    void cartPageJoinsProductsInOneQuery() throws Exception {
+        QueryCounter counter = perform("/api/cart/listpage?account=user11&pageSize=10");
+
+        // 账号 + 汇总（总数、金额合计） + 购物车⋈商品分页
+        assertTrue(counter.getTotal() <= 3, counter.toString());
+        assertEquals(1, counter.getMostRepeated().getValue(), counter.toString());
+    }
+
+    @Test
+    void orderPageLoadsItemsAndProductsInBatches() throws Exception {
+        QueryCounter counter = perform("/api/order/page?userAccount=user12&pageNo=1&pageSize=10");
+
+        // 账号 + 总数 + 分页 + 订单项目批量加载 + 商品批量加载
+        assertTrue(counter.getTotal() <= 5, counter.toString());
+        assertEquals(1, counter.getMostRepeated().getValue(), counter.toString());
+    }
+
+    @Test
+    void failsWhenRequestExceedsBudget() {
+        ReflectionTestUtils.setField(queryBudgetFilter, "maxStatements", 1);
+        try {
+            QueryBudgetExceededException e = assertThrows(QueryBudgetExceededException.class,
+                    () -> mockMvc.perform(get("/api/cart/listpage?account=user13")));
+            assertTrue(e.getCounter().getTotal() > 1);
+        } finally {
+            ReflectionTestUtils.setField(queryBudgetFilter, "maxStatements", 20);
+        }
+    }
+
+    @Test
+    void overBudgetResponseIsNotCommitted() throws Exception {
+        // 接口先写出并刷新响应体，之后才执行超出预算的查询
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        ReflectionTestUtils.setField(queryBudgetFilter, "maxStatements", 1);
+        try {
+            assertThrows(QueryBudgetExceededException.class, () -> queryBudgetFilter.doFilter(
+                    new MockHttpServletRequest("GET", "/api/test"), response, chain(() -> {
+                        productMapper.selectByProductIds(List.of(201L));
+                        productMapper.selectByProductIds(List.of(202L));
+                    })));
+        } finally {
+            ReflectionTestUtils.setField(queryBudgetFilter, "maxStatements", 20);
+        }
+        assertFalse(response.isCommitted());
+        assertEquals("", response.getContentAsString());
+
+        // 未超出预算：缓存的响应体原样写出
+        MockHttpServletResponse ok = new MockHttpServletResponse();
+        queryBudgetFilter.doFilter(new MockHttpServletRequest("GET", "/api/test"), ok, chain(() -> { }));
+        assertEquals("{\"code\":200}", ok.getContentAsString());
+    }
+
+    @Test
+    void countsStatementsOutsideRequests() {
+        QueryCounter outer = QueryCounter.start();
+        try {
+            QueryCounter inner = QueryCounter.start();
+            try {
+                productService.getProductsByIds(List.of(101L, 102L, 103L));
+            } finally {
+                QueryCounter.stop(inner);
+            }
+            assertEquals(1, inner.getCount("ProductMapper.selectByProductIds"), inner.toString());
+            assertEquals(inner.getTotal(), outer.getTotal());
+        } finally {
+            QueryCounter.stop(outer);
+        }
+    }
+
+    /**
+     * 写出并刷新响应体后再执行 afterFlush 的过滤器链
+     */
+    private static MockFilterChain chain(Runnable afterFlush) {
+        return new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse res) throws IOException {
+                res.getWriter().write("{\"code\":200}");
+                res.flushBuffer();
+                afterFlush.run();
+            }
+        });
+    }
+
+    private QueryCounter perform(String url) throws Exception {
+        MvcResult result = mockMvc.perform(get(url)).andExpect(status().isOk()).andReturn();
+        return (QueryCounter) result.getRequest().getAttribute(QueryBudgetFilter.COUNTER_ATTRIBUTE);
+    }
+}
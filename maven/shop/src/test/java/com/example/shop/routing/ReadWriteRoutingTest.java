@@ -0,0 +1,138 @@
+package com.example.shop.routing;
+
+import com.example.shop.entity.Product;
+import com.example.shop.mapper.ProductMapper;
+import com.example.shop.service.ProductService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+
+/**
+ * 读写分离路由（两个H2内存库分别充当主库和从库，从库中的商品名被改为“从库”前缀以区分读到的是哪个库）
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=" + ReadWriteRoutingTest.PRIMARY_URL,
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "datasource.routing.enabled=true",
+        "datasource.routing.replica-urls=" + ReadWriteRoutingTest.REPLICA_URL,
+        "datasource.routing.read-your-writes-ms=60000",
+        "upload.path=target/test-uploads/products/",
+        "product.cache.enabled=false"
+})
+@AutoConfigureMockMvc
+class ReadWriteRoutingTest {
+
+    static final String PRIMARY_URL =
+            "jdbc:h2:mem:routing_primary;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1";
+    static final String REPLICA_URL =
+            "jdbc:h2:mem:routing_replica;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1";
+
+    private static final JdbcTemplate PRIMARY = seed(PRIMARY_URL);
+    private static final JdbcTemplate REPLICA = seed(REPLICA_URL);
+
+    static {
+        REPLICA.update("UPDATE product SET product_name = CONCAT('从库', product_name)");
+    }
+
+    @Autowired
+    private ProductMapper productMapper;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ReadWriteRoutingDataSource routingDataSource;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void readsOutsideTransactionGoToReplica() {
+        assertEquals("从库基准商品7", productMapper.selectByProductId(7L).getProductName());
+    }
+
+    @Test
+    void forcedPrimaryReadsGoToPrimary() {
+        assertEquals("基准商品7", DataSourceRouting.primary(() -> productMapper.selectByProductId(7L)).getProductName());
+    }
+
+    @Test
+    void cachedCountsAreLoadedFromPrimary() {
+        // 从库延迟：34号商家的一个商品在从库中还不存在，缓存的总数不能取自从库
+        long merchantId = 34;
+        REPLICA.update("DELETE FROM product WHERE product_id = 1033");
+        int primaryTotal = PRIMARY.queryForObject(
+                "SELECT COUNT(*) FROM product WHERE merchant_id = ?", Integer.class, merchantId);
+
+        assertEquals(primaryTotal, productService.getProductByMerchantIdPage(merchantId, 1, 10).getTotal());
+        assertEquals(primaryTotal, productService.getProductByMerchantIdPage(merchantId, 2, 10).getTotal());
+    }
+
+    @Test
+    void writeTransactionsGoToPrimary() {
+        Product product = DataSourceRouting.primary(() -> productMapper.selectByProductId(8L));
+        product.setProductPrice(new BigDecimal("1.23"));
+        productService.updateProduct(product);
+
+        assertEquals(0, new BigDecimal("1.23").compareTo(
+                PRIMARY.queryForObject("SELECT product_price FROM product WHERE product_id = 8", BigDecimal.class)));
+        assertEquals(0, REPLICA.queryForObject(
+                "SELECT COUNT(*) FROM product WHERE product_id = 8 AND product_price = 1.23", Integer.class));
+    }
+
+    @Test
+    void userReadsOwnWritesFromPrimary() throws Exception {
+        // 非事务写（加购物车）走主库，之后该用户的读请求在窗口内走主库
+        mockMvc.perform(post("/api/cart/add?account=user21&productId=9999&quantity=1"))
+                .andExpect(jsonPath("$.code", is(200)));
+        assertEquals(1, PRIMARY.queryForObject(
+                "SELECT COUNT(*) FROM cart WHERE user_id = 21 AND product_id = 9999", Integer.class));
+        assertEquals(0, REPLICA.queryForObject(
+                "SELECT COUNT(*) FROM cart WHERE user_id = 21 AND product_id = 9999", Integer.class));
+
+        mockMvc.perform(get("/api/cart/listpage?account=user21&pageSize=100"))
+                .andExpect(jsonPath("$.data.total", is(21)));
+        // 其他用户仍然读从库
+        mockMvc.perform(get("/api/cart/listpage?account=user22&pageSize=1"))
+                .andExpect(jsonPath("$.data.list[0].productName", startsWith("从库")));
+    }
+
+    @Test
+    @DirtiesContext
+    void fallsBackToPrimaryWhenReplicaIsDown() {
+        routingDataSource.getReplicas().get(0).getDataSource().close();
+
+        assertEquals("基准商品7", productMapper.selectByProductId(7L).getProductName());
+        assertFalse(routingDataSource.getReplicaStatus().get("replica-0"));
+        routingDataSource.checkReplicas();
+        assertFalse(routingDataSource.getReplicaStatus().get("replica-0"));
+    }
+
+    private static JdbcTemplate seed(String url) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(url, "sa", "");
+        ResourceDatabasePopulator populator = new ResourceDatabasePopulator(
+                new ClassPathResource("bench/schema.sql"), new ClassPathResource("bench/data.sql"));
+        populator.setSqlScriptEncoding("UTF-8");
+        populator.execute(dataSource);
+        return new JdbcTemplate(dataSource);
+    }
+}
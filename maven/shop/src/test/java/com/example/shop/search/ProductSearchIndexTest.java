@@ -0,0 +1,101 @@
+package com.example.shop.search;
+
+import com.example.shop.entity.Product;
+import com.example.shop.service.ProductService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 商品名称索引：分页（独立的索引实例）和新增商品后的增量收录（H2内存库 + bench测试数据）
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:product_search;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.sql.init.mode=always",
+        "spring.sql.init.schema-locations=classpath:bench/schema.sql",
+        "spring.sql.init.data-locations=classpath:bench/data.sql",
+        "spring.sql.init.encoding=UTF-8",
+        "upload.path=target/test-uploads/products/"
+})
+class ProductSearchIndexTest {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private ProductSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new ProductSearchIndex();
+        ReflectionTestUtils.setField(index, "enabled", true);
+        for (long id = 1; id <= 10; id++) {
+            index.upsert(product(id, id % 2 == 0 ? "红色T恤" + id : "蓝色衬衫" + id));
+        }
+        index.remove(4L);
+    }
+
+    @Test
+    void emptyKeywordPagesOverAllProducts() {
+        ProductSearchIndex.SearchPage first = index.search("", 0, 4);
+        assertEquals(9, first.getTotal());
+        assertEquals(List.of(1L, 2L, 3L, 5L), first.getProductIds());
+
+        ProductSearchIndex.SearchPage last = index.search("", 8, 4);
+        assertEquals(9, last.getTotal());
+        assertEquals(List.of(10L), last.getProductIds());
+
+        assertTrue(index.search("", 9, 4).getProductIds().isEmpty());
+        assertEquals(List.of(6L, 7L), index.searchAfter("", 5L, 2));
+    }
+
+    @Test
+    void keywordPagesOverMatchedProducts() {
+        ProductSearchIndex.SearchPage page = index.search("红色", 1, 2);
+        assertEquals(4, page.getTotal());
+        assertEquals(List.of(6L, 8L), page.getProductIds());
+        assertEquals(List.of(8L, 10L), index.searchAfter("红色", 6L, 5));
+    }
+
+    @Test
+    void productAddedWithoutShelfStatusIsSearchable() {
+        // 接口直接透传请求体：isOnShelf 为空，按上架处理
+        Product product = new Product();
+        product.setProductName("索引测试保温杯");
+        product.setProductDesc("未指定上架状态");
+        product.setStock(10);
+        product.setProductPrice(new BigDecimal("59.00"));
+        product.setMerchantId(7L);
+
+        Long productId = productService.addProduct(product);
+
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT is_on_shelf FROM product WHERE product_id = ?", Integer.class, productId));
+        assertEquals(List.of(productId), productSearchIndex.search("索引测试保温杯", 0, 10).getProductIds());
+    }
+
+    private static Product product(long id, String name) {
+        Product product = new Product();
+        product.setProductId(id);
+        product.setProductName(name);
+        product.setIsOnShelf(1);
+        return product;
+    }
+}
@@ -0,0 +1,214 @@
+package com.example.shop.service;
+
+import com.example.shop.entity.OrderItem;
+import com.example.shop.entity.OrderMain;
+import com.example.shop.entity.Product;
+import com.example.shop.vo.PageResultVO;
+import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.JsonPath;
+import com.jayway.jsonpath.Option;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+
+/**
+ * 游标分页（H2内存库 + bench测试数据）：逐页翻完与一次查全的结果一致，
+ * 翻页过程中插入的记录排在游标之后的出现一次，排在游标之前的不出现，删除的不出现；游标不合法时拒绝
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:cursor_paging;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.sql.init.mode=always",
+        "spring.sql.init.schema-locations=classpath:bench/schema.sql",
+        "spring.sql.init.data-locations=classpath:bench/data.sql",
+        "spring.sql.init.encoding=UTF-8",
+        "upload.path=target/test-uploads/products/"
+})
+@AutoConfigureMockMvc
+class CursorPagingTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private OrderMainService orderMainService;
+
+    @Autowired
+    private OrderCheckoutService orderCheckoutService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void cartPagesSeeRowsInsertedAfterTheCursor() throws Exception {
+        long userId = 15;
+        List<Long> expected = ids("SELECT product_id FROM cart WHERE user_id = ? ORDER BY product_id", userId);
+        Long newProductId = insertProduct(3L);
+
+        List<Long> paged = new ArrayList<>();
+        String cursor = "";
+        boolean inserted = false;
+        do {
+            String content = mockMvc.perform(get("/api/cart/listpage")
+                            .param("account", "user" + userId).param("pageSize", "6").param("cursor", cursor))
+                    .andReturn().getResponse().getContentAsString();
+            paged.addAll(longs(JsonPath.read(content, "$.data.list[*].productId")));
+            cursor = optional(content, "$.data.nextCursor");
+            if (!inserted) {
+                // 第一页之后：游标之前、之后各插入一条
+                Long before = jdbcTemplate.queryForObject("SELECT MIN(product_id) FROM product WHERE product_id < ? " +
+                        "AND product_id NOT IN (SELECT product_id FROM cart WHERE user_id = ?)", Long.class,
+                        paged.get(paged.size() - 1), userId);
+                jdbcTemplate.update("INSERT INTO cart (user_id, product_id, quantity) VALUES (?, ?, 1)", userId, before);
+                jdbcTemplate.update("INSERT INTO cart (user_id, product_id, quantity) VALUES (?, ?, 1)", userId, newProductId);
+                expected.add(newProductId);
+                inserted = true;
+            }
+        } while (cursor != null);
+
+        assertEquals(expected, paged);
+
+        mockMvc.perform(get("/api/cart/listpage").param("account", "user" + userId).param("cursor", "not-a-cursor"))
+                .andExpect(jsonPath("$.code").value(500))
+                .andExpect(jsonPath("$.msg").value("分页游标不合法：not-a-cursor"));
+    }
+
+    @Test
+    void merchantProductPagesSkipDeletedRowsAndSeeNewOnes() {
+        long merchantId = 9;
+        List<Long> expected = ids("SELECT product_id FROM product WHERE merchant_id = ? ORDER BY product_id", merchantId);
+        assertEquals(100, expected.size());
+
+        List<Long> paged = pageAll(cursor -> productService.getProductByMerchantIdAfter(merchantId, cursor, 30),
+                Product::getProductId, firstPage -> {
+                    // 第一页之后：删除一个还没翻到的商品，新增一个商品
+                    Long deleted = expected.remove(expected.size() - 1);
+                    productService.deleteProduct(deleted);
+                    expected.add(insertProduct(merchantId));
+                });
+
+        assertEquals(expected, paged);
+        assertThrows(IllegalArgumentException.class,
+                () -> productService.getProductByMerchantIdAfter(merchantId, "not-a-cursor", 30));
+    }
+
+    @Test
+    void merchantOrderItemPagesAcrossCheckouts() throws Exception {
+        long merchantId = 5;
+        List<Long> expected = ids("SELECT id FROM order_item WHERE merchant_id = ? ORDER BY id", merchantId);
+        List<Long> paged = new ArrayList<>();
+        String cursor = "";
+        boolean ordered = false;
+        do {
+            String content = mockMvc.perform(get("/api/merchant/log/order-item/page")
+                            .param("merchantId", String.valueOf(merchantId)).param("pageSize", "50").param("cursor", cursor))
+                    .andReturn().getResponse().getContentAsString();
+            paged.addAll(longs(JsonPath.read(content, "$.list[*].orderItem.id")));
+            cursor = optional(content, "$.nextCursor");
+            if (!ordered) {
+                String orderNo = orderCheckoutService.checkout(order(901, 104L, 204L));
+                expected.addAll(ids("SELECT id FROM order_item WHERE order_no = ? ORDER BY id", orderNo));
+                ordered = true;
+            }
+        } while (cursor != null);
+
+        assertEquals(expected, paged);
+    }
+
+    @Test
+    void userOrderPagesAcrossCheckouts() {
+        long userId = 16;
+        List<String> expected = new ArrayList<>(jdbcTemplate.queryForList(
+                "SELECT order_no FROM order_main WHERE user_id = ? ORDER BY order_no", String.class, userId));
+
+        List<String> paged = pageAll(cursor -> orderMainService.listByUserIdAfter(userId, cursor, 6),
+                OrderMain::getOrderNo, firstPage -> expected.add(orderCheckoutService.checkout(order(userId, 11L))));
+
+        assertEquals(21, paged.size());
+        assertEquals(expected, paged);
+        // 最后一页正好取完时没有下一页
+        PageResultVO<OrderMain> all = orderMainService.listByUserIdAfter(userId, null, 21);
+        assertEquals(21, all.getList().size());
+        assertNull(all.getNextCursor());
+    }
+
+    /**
+     * 从第一页翻到最后一页，第一页之后执行一次 afterFirstPage
+     */
+    private static <T, K> List<K> pageAll(Function<String, PageResultVO<T>> fetch, Function<T, K> key,
+            Consumer<List<T>> afterFirstPage) {
+        List<K> keys = new ArrayList<>();
+        String cursor = null;
+        boolean first = true;
+        do {
+            PageResultVO<T> page = fetch.apply(cursor);
+            assertTrue(page.getList().size() <= page.getPageSize());
+            page.getList().forEach(row -> keys.add(key.apply(row)));
+            cursor = page.getNextCursor();
+            if (first) {
+                afterFirstPage.accept(page.getList());
+                first = false;
+            }
+        } while (cursor != null);
+        return keys;
+    }
+
+    /**
+     * 读取可能不存在的字段（值为null的字段不输出）
+     */
+    private static String optional(String content, String path) {
+        return JsonPath.using(Configuration.defaultConfiguration().addOptions(Option.SUPPRESS_EXCEPTIONS))
+                .parse(content).read(path);
+    }
+
+    private Long insertProduct(long merchantId) {
+        Product product = new Product();
+        product.setProductName("游标测试商品");
+        product.setStock(10);
+        product.setProductPrice(new BigDecimal("9.90"));
+        product.setMerchantId(merchantId);
+        return productService.addProduct(product);
+    }
+
+    private List<Long> ids(String sql, Object... args) {
+        return new ArrayList<>(jdbcTemplate.queryForList(sql, Long.class, args));
+    }
+
+    private static List<Long> longs(List<Number> numbers) {
+        List<Long> values = new ArrayList<>(numbers.size());
+        numbers.forEach(number -> values.add(number.longValue()));
+        return values;
+    }
+
+    private static OrderCheckoutService.CheckoutOrder order(long userId, long... productIds) {
+        List<OrderItem> items = new ArrayList<>();
+        for (long productId : productIds) {
+            OrderItem item = new OrderItem();
+            item.setProductId(productId);
+            item.setQuantity(1);
+            items.add(item);
+        }
+        return new OrderCheckoutService.CheckoutOrder(userId, items);
+    }
+}
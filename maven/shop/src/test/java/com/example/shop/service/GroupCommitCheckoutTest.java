@@ -0,0 +1,134 @@
+package com.example.shop.service;
+
+import com.example.shop.entity.OrderItem;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * 合并提交下单（H2内存库 + bench测试数据；一个写线程、凑批等待较长，保证连续提交的订单进入同一批）
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:group_commit;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.sql.init.mode=always",
+        "spring.sql.init.schema-locations=classpath:bench/schema.sql",
+        "spring.sql.init.data-locations=classpath:bench/data.sql",
+        "spring.sql.init.encoding=UTF-8",
+        "upload.path=target/test-uploads/products/",
+        "order.checkout.group-commit.enabled=true",
+        "order.checkout.group-commit.writers=1",
+        "order.checkout.group-commit.max-batch-size=3",
+        "order.checkout.group-commit.max-wait-ms=2000"
+})
+class GroupCommitCheckoutTest {
+
+    @Autowired
+    private GroupCommitCheckout groupCommitCheckout;
+
+    @SpyBean
+    private OrderCheckoutService orderCheckoutService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void concurrentOrdersAreCommittedInOneBatch() throws Exception {
+        clearInvocations(orderCheckoutService);
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (long userId = 701; userId <= 703; userId++) {
+            futures.add(groupCommitCheckout.submit(order(userId, 31L)));
+        }
+        for (CompletableFuture<String> future : futures) {
+            assertEquals(1, orderCount(future.get(10, TimeUnit.SECONDS)));
+        }
+        verify(orderCheckoutService, times(1)).checkoutBatch(argThat(orders -> orders.size() == 3));
+        verify(orderCheckoutService, times(0)).checkout(any());
+    }
+
+    @Test
+    void failedBatchIsRetriedOrderByOrder() throws Exception {
+        clearInvocations(orderCheckoutService);
+        int stockBefore = stock(32L);
+        CompletableFuture<String> first = groupCommitCheckout.submit(order(711, 32L));
+        CompletableFuture<String> broken = groupCommitCheckout.submit(order(712, 99999999L));
+        CompletableFuture<String> third = groupCommitCheckout.submit(order(713, 32L));
+
+        // 整批回滚后逐单重试：只有出错的订单失败
+        assertEquals(1, orderCount(first.get(10, TimeUnit.SECONDS)));
+        assertEquals(1, orderCount(third.get(10, TimeUnit.SECONDS)));
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> broken.get(10, TimeUnit.SECONDS));
+        assertTrue(failure.getCause() instanceof RuntimeException);
+        assertEquals(stockBefore - 2, stock(32L));
+        verify(orderCheckoutService, times(1)).checkoutBatch(argThat(orders -> orders.size() == 3));
+        verify(orderCheckoutService, times(3)).checkout(any());
+    }
+
+    @Test
+    void batchesWithOverlappingProductsInOppositeOrderDoNotDeadlock() throws Exception {
+        int stock33 = stock(33L);
+        int stock34 = stock(34L);
+        int rounds = 20;
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            for (int i = 0; i < rounds; i++) {
+                // 两批订单以相反顺序包含33、34号商品：各批按订单顺序加锁时会互相等待
+                CyclicBarrier barrier = new CyclicBarrier(2);
+                Future<List<String>> first = pool.submit(() -> {
+                    barrier.await();
+                    return orderCheckoutService.checkoutBatch(List.of(order(721, 34L), order(722, 33L)));
+                });
+                Future<List<String>> second = pool.submit(() -> {
+                    barrier.await();
+                    return orderCheckoutService.checkoutBatch(List.of(order(723, 33L), order(724, 34L)));
+                });
+                assertEquals(2, first.get(30, TimeUnit.SECONDS).size());
+                assertEquals(2, second.get(30, TimeUnit.SECONDS).size());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(stock33 - 2 * rounds, stock(33L));
+        assertEquals(stock34 - 2 * rounds, stock(34L));
+    }
+
+    private int orderCount(String orderNo) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM order_main WHERE order_no = ?", Integer.class, orderNo);
+    }
+
+    private int stock(long productId) {
+        return jdbcTemplate.queryForObject("SELECT stock FROM product WHERE product_id = ?", Integer.class, productId);
+    }
+
+    private static OrderCheckoutService.CheckoutOrder order(long userId, long productId) {
+        OrderItem item = new OrderItem();
+        item.setProductId(productId);
+        item.setQuantity(1);
+        List<OrderItem> items = new ArrayList<>();
+        items.add(item);
+        return new OrderCheckoutService.CheckoutOrder(userId, items);
+    }
+}
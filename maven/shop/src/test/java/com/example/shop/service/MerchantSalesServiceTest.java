@@ -0,0 +1,193 @@
+package com.example.shop.service;
+
+import com.example.shop.entity.MerchantProductSales;
+import com.example.shop.entity.MerchantSales;
+import com.example.shop.entity.OrderItem;
+import com.example.shop.vo.PageCursor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+
+/**
+ * 商家销售汇总（H2内存库 + bench测试数据；商品ID除以100的余数 + 1 为商家ID）
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:merchant_sales;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=30000",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.sql.init.mode=always",
+        "spring.sql.init.schema-locations=classpath:bench/schema.sql",
+        "spring.sql.init.data-locations=classpath:bench/data.sql",
+        "spring.sql.init.encoding=UTF-8",
+        "upload.path=target/test-uploads/products/",
+        "merchant.sales.enabled=true"
+})
+@AutoConfigureMockMvc
+class MerchantSalesServiceTest {
+
+    @Autowired
+    private MerchantSalesService merchantSalesService;
+
+    @Autowired
+    private OrderCheckoutService orderCheckoutService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void rebuildMatchesTheOrderItems() {
+        long merchantId = 7;
+        merchantSalesService.rebuild();
+        assertMatchesOrderItems(merchantId);
+    }
+
+    @Test
+    void rebuildDuringCheckoutsKeepsEveryOrder() throws Exception {
+        long merchantId = 81;
+        merchantSalesService.rebuild();
+
+        // 下单与重建同时进行：重建期间提交的订单既不漏计也不重复计
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                long firstUser = 601 + t * 10L;
+                futures.add(executor.submit(() -> {
+                    for (long userId = firstUser; userId < firstUser + 10; userId++) {
+                        orderCheckoutService.checkout(order(userId, 180L, 1, 280L, 2));
+                    }
+                }));
+            }
+            while (futures.stream().anyMatch(future -> !future.isDone())) {
+                merchantSalesService.rebuild();
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertMatchesOrderItems(merchantId);
+    }
+
+    @Test
+    void checkoutUpdatesAggregatesIncrementally() throws Exception {
+        long merchantId = 61;
+        merchantSalesService.rebuild();
+        MerchantSales before = merchantSalesService.getMerchantSales(merchantId);
+        MerchantProductSales productBefore = productSales(merchantId, 160L);
+
+        // 同一订单中重复出现的商品只计一单
+        orderCheckoutService.checkout(order(501, 160L, 2, 260L, 1, 160L, 1));
+        // 商家ID以商品表为准，客户端传入的merchantId被覆盖
+        OrderCheckoutService.CheckoutOrder spoofed = order(502, 160L, 1);
+        spoofed.getOrderItemList().get(0).setMerchantId(999L);
+        String spoofedOrderNo = orderCheckoutService.checkout(spoofed);
+        assertEquals(merchantId, jdbcTemplate.queryForObject(
+                "SELECT merchant_id FROM order_item WHERE order_no = ?", Long.class, spoofedOrderNo));
+        assertEquals(0L, merchantSalesService.getMerchantSales(999L).getOrderCount());
+        // 回滚的订单不计入
+        assertThrows(RuntimeException.class, () -> orderCheckoutService.checkoutBatch(
+                List.of(order(503, 160L, 5), order(504, 99999999L, 1))));
+
+        BigDecimal price160 = price(160L);
+        BigDecimal price260 = price(260L);
+        MerchantSales after = merchantSalesService.getMerchantSales(merchantId);
+        assertEquals(before.getUnitsSold() + 5, after.getUnitsSold());
+        assertEquals(before.getOrderCount() + 2, after.getOrderCount());
+        assertEquals(0, before.getRevenue().add(price160.multiply(BigDecimal.valueOf(4))).add(price260)
+                .compareTo(after.getRevenue()));
+        MerchantProductSales productAfter = productSales(merchantId, 160L);
+        assertEquals(productBefore.getUnitsSold() + 4, productAfter.getUnitsSold());
+        assertEquals(productBefore.getOrderCount() + 2, productAfter.getOrderCount());
+
+        // 重建结果与增量维护的结果一致
+        merchantSalesService.rebuild();
+        assertEquals(after, merchantSalesService.getMerchantSales(merchantId));
+        assertEquals(productAfter, productSales(merchantId, 160L));
+
+        mockMvc.perform(get("/api/merchant/log/sales/summary?merchantId=" + merchantId))
+                .andExpect(jsonPath("$.code", is(200)))
+                .andExpect(jsonPath("$.data.orderCount", is(after.getOrderCount().intValue())));
+    }
+
+    @Test
+    void rebuildKeepsRevenueAtCheckoutPrices() {
+        long merchantId = 71;
+        // 历史订单项目按当前单价回填成交单价（加列后的一次性迁移）
+        jdbcTemplate.update("UPDATE order_item oi SET unit_price = " +
+                "(SELECT p.product_price FROM product p WHERE p.product_id = oi.product_id) " +
+                "WHERE unit_price IS NULL AND merchant_id = ?", merchantId);
+        merchantSalesService.rebuild();
+        String orderNo = orderCheckoutService.checkout(order(505, 170L, 3));
+        assertEquals(0, price(170L).compareTo(jdbcTemplate.queryForObject(
+                "SELECT unit_price FROM order_item WHERE order_no = ?", BigDecimal.class, orderNo)));
+        MerchantSales before = merchantSalesService.getMerchantSales(merchantId);
+        MerchantProductSales productBefore = productSales(merchantId, 170L);
+
+        // 下单后改价：重建不改变已成交订单的销售额
+        jdbcTemplate.update("UPDATE product SET product_price = product_price * 2 WHERE product_id = 170");
+        merchantSalesService.rebuild();
+
+        assertEquals(before, merchantSalesService.getMerchantSales(merchantId));
+        assertEquals(productBefore, productSales(merchantId, 170L));
+    }
+
+    private void assertMatchesOrderItems(long merchantId) {
+        Map<String, Object> expected = jdbcTemplate.queryForMap(
+                "SELECT SUM(oi.quantity) AS units, SUM(oi.quantity * COALESCE(oi.unit_price, p.product_price)) AS revenue, " +
+                        "COUNT(DISTINCT oi.order_no) AS orders, COUNT(DISTINCT oi.product_id) AS products " +
+                        "FROM order_item oi JOIN product p ON p.product_id = oi.product_id WHERE oi.merchant_id = ?",
+                merchantId);
+        MerchantSales sales = merchantSalesService.getMerchantSales(merchantId);
+        assertEquals(((Number) expected.get("units")).longValue(), sales.getUnitsSold());
+        assertEquals(0, ((BigDecimal) expected.get("revenue")).compareTo(sales.getRevenue()));
+        assertEquals(((Number) expected.get("orders")).longValue(), sales.getOrderCount());
+        assertEquals(((Number) expected.get("products")).intValue(),
+                merchantSalesService.getProductSalesPage(merchantId, 1, 10).getTotal());
+    }
+
+    private MerchantProductSales productSales(long merchantId, long productId) {
+        return merchantSalesService.getProductSalesAfter(merchantId, PageCursor.encode(productId - 1), 1).getList().get(0);
+    }
+
+    private BigDecimal price(long productId) {
+        return jdbcTemplate.queryForObject(
+                "SELECT product_price FROM product WHERE product_id = ?", BigDecimal.class, productId);
+    }
+
+    /**
+     * @param productAndQuantities 商品ID、数量交替排列
+     */
+    private static OrderCheckoutService.CheckoutOrder order(long userId, long... productAndQuantities) {
+        List<OrderItem> items = new ArrayList<>();
+        for (int i = 0; i < productAndQuantities.length; i += 2) {
+            OrderItem item = new OrderItem();
+            item.setProductId(productAndQuantities[i]);
+            item.setQuantity((int) productAndQuantities[i + 1]);
+            items.add(item);
+        }
+        return new OrderCheckoutService.CheckoutOrder(userId, items);
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.shop.service;
+
+import com.example.shop.entity.OrderItem;
+import com.example.shop.mapper.OrderItemMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 订单项目批量插入（H2内存库 + bench测试数据）：按BATCH_INSERT_SIZE分批、自增ID回填、插入条数不符时整单回滚
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:order_item_batch;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.sql.init.mode=always",
+        "spring.sql.init.schema-locations=classpath:bench/schema.sql",
+        "spring.sql.init.data-locations=classpath:bench/data.sql",
+        "spring.sql.init.encoding=UTF-8",
+        "upload.path=target/test-uploads/products/"
+})
+class OrderItemServiceTest {
+
+    private static final int BATCH_INSERT_SIZE =
+            (Integer) ReflectionTestUtils.getField(OrderItemService.class, "BATCH_INSERT_SIZE");
+
+    @Autowired
+    private OrderItemService orderItemService;
+
+    @Autowired
+    private OrderItemMapper orderItemMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void insertsInChunksAndBackfillsEveryId() {
+        String orderNo = "BATCH-INSERT-1";
+        // 两个满批次加一个不满的批次
+        List<OrderItem> items = items(BATCH_INSERT_SIZE * 2 + 7);
+
+        orderItemService.batchAddOrderItem(orderNo, items);
+
+        assertEquals(items.size(), jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM order_item WHERE order_no = ?", Integer.class, orderNo));
+        // 每条都回填了ID，且与库中的行一一对应（同一批次内按插入顺序递增）
+        List<Long> dbIds = jdbcTemplate.queryForList(
+                "SELECT id FROM order_item WHERE order_no = ? ORDER BY id", Long.class, orderNo);
+        List<Long> ids = new ArrayList<>();
+        for (OrderItem item : items) {
+            assertNotNull(item.getId());
+            assertEquals(orderNo, item.getOrderNo());
+            ids.add(item.getId());
+        }
+        assertEquals(dbIds, ids);
+        for (OrderItem item : items) {
+            assertEquals(item.getProductId(), jdbcTemplate.queryForObject(
+                    "SELECT product_id FROM order_item WHERE id = ?", Long.class, item.getId()));
+        }
+    }
+
+    @Test
+    void shortInsertFailsAndRollsBackEarlierChunks() {
+        String orderNo = "BATCH-INSERT-2";
+        List<OrderItem> items = items(BATCH_INSERT_SIZE + 3);
+        // 最后一个批次报告少插入一条
+        AtomicInteger batches = new AtomicInteger();
+        OrderItemMapper shortMapper = (OrderItemMapper) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{OrderItemMapper.class}, (proxy, method, args) -> {
+                    try {
+                        Object result = method.invoke(orderItemMapper, args);
+                        if (method.getName().equals("insertOrderItems")) {
+                            batches.incrementAndGet();
+                            List<?> batch = (List<?>) args[0];
+                            return batch.size() < BATCH_INSERT_SIZE ? (Integer) result - 1 : result;
+                        }
+                        return result;
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+        Object target = AopTestUtils.getTargetObject(orderItemService);
+        ReflectionTestUtils.setField(target, "orderItemMapper", shortMapper);
+        try {
+            RuntimeException e = assertThrows(RuntimeException.class,
+                    () -> orderItemService.batchAddOrderItem(orderNo, items));
+            assertEquals("插入订单项目失败：orderNo=" + orderNo + "，应插入3条，实际2条", e.getMessage());
+        } finally {
+            ReflectionTestUtils.setField(target, "orderItemMapper", orderItemMapper);
+        }
+
+        assertEquals(2, batches.get());
+        // 第一个批次已插入，随事务一起回滚
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM order_item WHERE order_no = ?", Integer.class, orderNo));
+    }
+
+    private static List<OrderItem> items(int count) {
+        List<OrderItem> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long productId = i % 1000 + 1;
+            OrderItem item = new OrderItem();
+            item.setProductId(productId);
+            item.setQuantity(i % 5 + 1);
+            item.setMerchantId(productId % 100 + 1);
+            item.setUnitPrice(new BigDecimal("9.90"));
+            items.add(item);
+        }
+        return items;
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.shop.service;
+
+import com.example.shop.entity.OrderItem;
+import com.example.shop.entity.Product;
+import com.example.shop.vo.PageResultVO;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 批量扣减库存、商家修改上下架状态和库存、按商家分页总数（H2内存库 + bench测试数据，直接扣数据库库存）
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:product_stock;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.sql.init.mode=always",
+        "spring.sql.init.schema-locations=classpath:bench/schema.sql",
+        "spring.sql.init.data-locations=classpath:bench/data.sql",
+        "spring.sql.init.encoding=UTF-8",
+        "upload.path=target/test-uploads/products/"
+})
+@AutoConfigureMockMvc
+class ProductServiceTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private OrderCheckoutService orderCheckoutService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void decreaseStockBatchUpdatesEveryProduct() {
+        int stock41 = stock(41L);
+        int stock42 = stock(42L);
+        TreeMap<Long, Integer> quantities = new TreeMap<>();
+        quantities.put(41L, 2);
+        quantities.put(42L, 3);
+
+        productService.decreaseStockBatch(quantities);
+
+        assertEquals(stock41 - 2, stock(41L));
+        assertEquals(stock42 - 3, stock(42L));
+        // 缓存已失效，读到的是扣减后的库存
+        assertEquals(stock41 - 2, productService.getProductById(41L).getStock());
+    }
+
+    @Test
+    void insufficientStockRollsBackTheWholeOrder() {
+        jdbcTemplate.update("UPDATE product SET stock = 1 WHERE product_id = 44");
+        int stock43 = stock(43L);
+        long userId = 801;
+        int ordersBefore = orderCount(userId);
+
+        // 43号商品库存充足、44号不足：整单回滚，43号的扣减也撤销
+        assertThrows(RuntimeException.class, () -> orderCheckoutService.checkout(order(userId, 43L, 1, 44L, 5)));
+
+        assertEquals(stock43, stock(43L));
+        assertEquals(1, stock(44L));
+        assertEquals(ordersBefore, orderCount(userId));
+    }
+
+    @Test
+    void duplicateProductsInOneOrderAreMerged() {
+        int stock45 = stock(45L);
+        long userId = 802;
+
+        String orderNo = orderCheckoutService.checkout(order(userId, 45L, 2, 45L, 3));
+
+        assertEquals(stock45 - 5, stock(45L));
+        assertEquals(2, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM order_item WHERE order_no = ?", Integer.class, orderNo));
+    }
+
+    @Test
+    void shelfAndStockChangesDoNotWriteBackCachedColumns() throws Exception {
+        // 商品已在缓存中，之后数据库被其他实例修改了名称和价格
+        productService.getProductById(46L);
+        jdbcTemplate.update("UPDATE product SET product_name = '其他实例改的名称', product_price = 88.00 WHERE product_id = 46");
+
+        mockMvc.perform(put("/api/merchant/log/product/changeShelfStatus")
+                        .param("productId", "46").param("isOnShelf", "0"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(200));
+        mockMvc.perform(put("/api/merchant/log/product/updateStock")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"productId\":46,\"stock\":321}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(200));
+
+        Map<String, Object> row = jdbcTemplate.queryForMap(
+                "SELECT product_name, product_price, stock, is_on_shelf FROM product WHERE product_id = 46");
+        assertEquals("其他实例改的名称", row.get("product_name"));
+        assertEquals(0, new BigDecimal("88.00").compareTo((BigDecimal) row.get("product_price")));
+        assertEquals(321, ((Number) row.get("stock")).intValue());
+        assertEquals(0, ((Number) row.get("is_on_shelf")).intValue());
+
+        mockMvc.perform(put("/api/merchant/log/product/changeShelfStatus")
+                        .param("productId", "99999999").param("isOnShelf", "1"))
+                .andExpect(jsonPath("$.msg").value("商品不存在"));
+    }
+
+    @Test
+    void merchantPageTotalFollowsInsertAndDelete() {
+        long merchantId = 12;
+        assertEquals(100, productService.getProductByMerchantIdPage(merchantId, 1, 10).getTotal());
+
+        Product product = new Product();
+        product.setProductName("总数缓存测试商品");
+        product.setStock(1);
+        product.setProductPrice(new BigDecimal("1.00"));
+        product.setMerchantId(merchantId);
+        Long productId = productService.addProduct(product);
+        assertEquals(101, productService.getProductByMerchantIdPage(merchantId, 1, 10).getTotal());
+
+        productService.deleteProduct(productId);
+        assertEquals(100, productService.getProductByMerchantIdPage(merchantId, 1, 10).getTotal());
+
+        // 不统计总数：最后一页正好满页时没有下一页
+        PageResultVO<Product> last = productService.getProductByMerchantIdPage(merchantId, 10, 10, false);
+        assertEquals(10, last.getList().size());
+        assertFalse(last.getHasNext());
+        assertTrue(productService.getProductByMerchantIdPage(merchantId, 9, 10, false).getHasNext());
+    }
+
+    private int stock(long productId) {
+        return jdbcTemplate.queryForObject("SELECT stock FROM product WHERE product_id = ?", Integer.class, productId);
+    }
+
+    private int orderCount(long userId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM order_main WHERE user_id = ?", Integer.class, userId);
+    }
+
+    /**
+     * @param productAndQuantities 商品ID、数量交替排列
+     */
+    private static OrderCheckoutService.CheckoutOrder order(long userId, long... productAndQuantities) {
+        List<OrderItem> items = new ArrayList<>();
+        for (int i = 0; i < productAndQuantities.length; i += 2) {
+            OrderItem item = new OrderItem();
+            item.setProductId(productAndQuantities[i]);
+            item.setQuantity((int) productAndQuantities[i + 1]);
+            items.add(item);
+        }
+        return new OrderCheckoutService.CheckoutOrder(userId, items);
+    }
+}
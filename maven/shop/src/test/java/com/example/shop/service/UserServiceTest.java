@@ -0,0 +1,69 @@
+package com.example.shop.service;
+
+import com.example.shop.entity.User;
+import com.example.shop.metrics.QueryCounter;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * 账号→用户ID缓存（H2内存库 + bench测试数据；查库次数由QueryCounter统计）
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:user_account;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.sql.init.mode=always",
+        "spring.sql.init.schema-locations=classpath:bench/schema.sql",
+        "spring.sql.init.data-locations=classpath:bench/data.sql",
+        "spring.sql.init.encoding=UTF-8",
+        "upload.path=target/test-uploads/products/"
+})
+class UserServiceTest {
+
+    private static final String LOOKUP = "UserMapper.selectUserIdByAccount";
+
+    @Autowired
+    private UserService userService;
+
+    @Test
+    void existingAccountIsQueriedOnce() {
+        QueryCounter counter = QueryCounter.start();
+        try {
+            assertEquals(21L, userService.selectUserIdByAccount("user21"));
+            assertEquals(21L, userService.selectUserIdByAccount("user21"));
+        } finally {
+            QueryCounter.stop(counter);
+        }
+        assertEquals(1, counter.getCount(LOOKUP), counter.toString());
+    }
+
+    @Test
+    void unknownAccountIsCachedUntilRegistered() {
+        String account = "new-account-1";
+        QueryCounter counter = QueryCounter.start();
+        try {
+            // 不存在的账号只查一次库
+            assertNull(userService.selectUserIdByAccount(account));
+            assertNull(userService.selectUserIdByAccount(account));
+            assertEquals(1, counter.getCount(LOOKUP), counter.toString());
+
+            // 注册后清除“不存在”标记并回填用户ID，不再查库
+            User user = new User();
+            user.setUsername("新用户");
+            user.setAccount(account);
+            user.setPassword("secret");
+            assertEquals(1, userService.insertUser(user));
+            assertNotNull(user.getUserId());
+            assertEquals(user.getUserId(), userService.selectUserIdByAccount(account));
+            assertEquals(1, counter.getCount(LOOKUP), counter.toString());
+        } finally {
+            QueryCounter.stop(counter);
+        }
+    }
+}
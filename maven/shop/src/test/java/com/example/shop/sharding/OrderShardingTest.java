@@ -0,0 +1,290 @@
+package com.example.shop.sharding;
+
+import com.example.shop.entity.OrderItem;
+import com.example.shop.entity.MerchantSales;
+import com.example.shop.entity.OrderMain;
+import com.example.shop.service.MerchantSalesService;
+import com.example.shop.service.OrderCheckoutService;
+import com.example.shop.service.OrderItemService;
+import com.example.shop.service.OrderMainService;
+import com.example.shop.service.ShardOrderReconciler;
+import com.example.shop.vo.PageResultVO;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 订单分库（三个H2内存库：0号库为主库含全部bench数据及历史订单，1、2号库只有空表，order_item自增ID按库错开）
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=" + OrderShardingTest.SHARD_0_URL,
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "order.sharding.enabled=true",
+        "order.sharding.shard-urls=" + OrderShardingTest.SHARD_1_URL + "," + OrderShardingTest.SHARD_2_URL,
+        "order.sharding.reconcile-interval-seconds=0",
+        "merchant.sales.enabled=true",
+        "upload.path=target/test-uploads/products/"
+})
+class OrderShardingTest {
+
+    static final String SHARD_0_URL =
+            "jdbc:h2:mem:order_shard_0;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1";
+    static final String SHARD_1_URL =
+            "jdbc:h2:mem:order_shard_1;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1";
+    static final String SHARD_2_URL =
+            "jdbc:h2:mem:order_shard_2;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1";
+
+    private static final List<JdbcTemplate> SHARDS = List.of(
+            seed(SHARD_0_URL, 0), seed(SHARD_1_URL, 1), seed(SHARD_2_URL, 2));
+
+    @Autowired
+    private OrderShardRouter orderShardRouter;
+
+    @Autowired
+    private OrderCheckoutService orderCheckoutService;
+
+    @Autowired
+    private OrderMainService orderMainService;
+
+    @Autowired
+    private OrderItemService orderItemService;
+
+    @Autowired
+    private ShardOrderReconciler shardOrderReconciler;
+
+    @Autowired
+    private MerchantSalesService merchantSalesService;
+
+    @Test
+    void ordersAreWrittenToTheUserShard() {
+        Set<Integer> usedShards = new HashSet<>();
+        for (long userId = 101; userId <= 112; userId++) {
+            int shard = orderShardRouter.shardOfUser(userId);
+            usedShards.add(shard);
+            String orderNo = checkout(userId, 11L, 12L);
+
+            assertEquals(24, orderNo.length());
+            assertEquals(shard, orderShardRouter.shardOfOrderNo(orderNo));
+            for (int i = 0; i < SHARDS.size(); i++) {
+                assertEquals(i == shard ? 1 : 0, SHARDS.get(i).queryForObject(
+                        "SELECT COUNT(*) FROM order_main WHERE order_no = ?", Integer.class, orderNo));
+                assertEquals(i == shard ? 2 : 0, SHARDS.get(i).queryForObject(
+                        "SELECT COUNT(*) FROM order_item WHERE order_no = ?", Integer.class, orderNo));
+            }
+            assertEquals(userId, orderMainService.getByOrderNo(orderNo).getUserId());
+            assertEquals(2, orderItemService.listByOrderNo(orderNo).size());
+        }
+        assertEquals(3, usedShards.size());
+        // 主库事务提交时已确认，没有残留的待确认订单
+        assertEquals(0, pendingCount());
+    }
+
+    @Test
+    void userQueriesMergeTheUserShardWithLegacyOrders() {
+        long userId = userOnShard(1, 200);
+        // 开启分库前的20个历史订单在0号库，新订单在用户所在的1号库
+        List<String> orderNos = new ArrayList<>(SHARDS.get(0).queryForList(
+                "SELECT order_no FROM order_main WHERE user_id = ? ORDER BY order_no", String.class, userId));
+        assertEquals(20, orderNos.size());
+        for (int i = 0; i < 3; i++) {
+            orderNos.add(checkout(userId, 21L));
+        }
+
+        assertEquals(orderNos, orderNos(orderMainService.listByUserId(userId)));
+        PageResultVO<OrderMain> page = orderMainService.listByUserIdWithPage(userId, 3, 10);
+        assertEquals(23, page.getTotal());
+        assertEquals(3, page.getPages());
+        assertEquals(orderNos.subList(20, 23), orderNos(page.getList()));
+        assertEquals(orderNos.subList(15, 20), orderNos(orderMainService.listByUserIdWithPage(userId, 4, 5, false).getList()));
+
+        List<String> paged = new ArrayList<>();
+        String cursor = null;
+        do {
+            PageResultVO<OrderMain> cursorPage = orderMainService.listByUserIdAfter(userId, cursor, 7);
+            paged.addAll(orderNos(cursorPage.getList()));
+            cursor = cursorPage.getNextCursor();
+        } while (cursor != null);
+        assertEquals(orderNos, paged);
+    }
+
+    @Test
+    void cursorPagesMergeShardsWhileOrdersArrive() {
+        long userId = userOnShard(2, 400);
+        List<String> expected = new ArrayList<>(SHARDS.get(0).queryForList(
+                "SELECT order_no FROM order_main WHERE user_id = ? ORDER BY order_no", String.class, userId));
+        expected.add(checkout(userId, 41L));
+
+        // 第一页之后新下的单在用户所在分库，订单号大于游标：出现在最后一页，不重复不遗漏
+        List<String> paged = new ArrayList<>();
+        String cursor = null;
+        do {
+            PageResultVO<OrderMain> page = orderMainService.listByUserIdAfter(userId, cursor, 8);
+            paged.addAll(orderNos(page.getList()));
+            cursor = page.getNextCursor();
+            if (paged.size() == 8) {
+                expected.add(checkout(userId, 42L));
+            }
+        } while (cursor != null);
+        assertEquals(22, paged.size());
+        assertEquals(expected, paged);
+
+        assertThrows(IllegalArgumentException.class, () -> orderMainService.listByUserIdAfter(userId, "not-a-cursor", 8));
+    }
+
+    @Test
+    void legacyOrderNosAreLookedUpOnEveryShard() {
+        String legacyOrderNo = "2024010100000000000021";
+        assertNotNull(orderMainService.getByOrderNo(legacyOrderNo));
+        assertEquals(3, orderItemService.listByOrderNo(legacyOrderNo).size());
+
+        String orderNo = checkout(userOnShard(2, 300), 31L, 32L, 33L, 34L);
+        Map<String, List<OrderItem>> items = orderItemService.listByOrderNos(List.of(legacyOrderNo, orderNo));
+        assertEquals(3, items.get(legacyOrderNo).size());
+        assertEquals(4, items.get(orderNo).size());
+    }
+
+    @Test
+    void merchantQueriesGatherAllShards() {
+        // 商品140、240属于41号商家（商品ID除以100的余数 + 1）
+        long merchantId = 41;
+        for (long userId = 401; userId <= 409; userId++) {
+            checkout(userId, 140L, 240L);
+        }
+        List<Long> expected = new ArrayList<>();
+        for (JdbcTemplate shard : SHARDS) {
+            expected.addAll(shard.queryForList(
+                    "SELECT id FROM order_item WHERE merchant_id = ?", Long.class, merchantId));
+        }
+        expected.sort(null);
+
+        assertEquals(expected.size(), orderItemService.countByMerchantId(merchantId));
+        int pageSize = 7;
+        int lastPage = (expected.size() + pageSize - 1) / pageSize;
+        for (int pageNo : new int[]{1, lastPage - 1, lastPage}) {
+            int from = (pageNo - 1) * pageSize;
+            assertEquals(expected.subList(from, Math.min(expected.size(), from + pageSize)),
+                    ids(orderItemService.listByMerchantIdPage(merchantId, pageNo, pageSize)));
+        }
+        int from = expected.size() - 20;
+        assertEquals(expected.subList(from + 1, from + 11),
+                ids(orderItemService.listByMerchantIdAfter(merchantId, expected.get(from), 10)));
+    }
+
+    @Test
+    void rolledBackBatchRemovesOrdersWrittenToOtherShards() {
+        long userId = userOnShard(1, 500);
+        int ordersBefore = SHARDS.get(1).queryForObject(
+                "SELECT COUNT(*) FROM order_main WHERE user_id = ?", Integer.class, userId);
+        int stockBefore = SHARDS.get(0).queryForObject(
+                "SELECT stock FROM product WHERE product_id = 51", Integer.class);
+
+        List<OrderCheckoutService.CheckoutOrder> orders = List.of(order(userId, 51L), order(userId, 99999999L));
+        assertThrows(RuntimeException.class, () -> orderCheckoutService.checkoutBatch(orders));
+
+        assertEquals(ordersBefore, SHARDS.get(1).queryForObject(
+                "SELECT COUNT(*) FROM order_main WHERE user_id = ?", Integer.class, userId));
+        assertEquals(0, SHARDS.get(1).queryForObject(
+                "SELECT COUNT(*) FROM order_item WHERE product_id = 51", Integer.class));
+        assertEquals(stockBefore, SHARDS.get(0).queryForObject(
+                "SELECT stock FROM product WHERE product_id = 51", Integer.class));
+        assertEquals(0, pendingCount());
+    }
+
+    @Test
+    void unconfirmedOrdersAreRemovedByReconcile() {
+        // 模拟分库订单已提交、主库事务提交前进程宕机：登记记录保留
+        long userId = userOnShard(2, 600);
+        merchantSalesService.rebuild();
+        MerchantSales before = merchantSalesService.getMerchantSales(62L);
+        String orderNo = orderMainService.nextOrderNo(userId);
+        shardOrderReconciler.register(orderNo, 2, userId);
+        orderShardRouter.inShardTransaction(2, () -> {
+            orderMainService.addOrderMain(userId, orderNo);
+            orderItemService.batchAddOrderItem(orderNo, order(userId, 61L, 62L).getOrderItemList());
+            return null;
+        });
+        assertEquals(1, pendingCount());
+        // 未确认的分库订单不计入销售汇总重建（商品61、62属于62、63号商家）
+        merchantSalesService.rebuild();
+        assertEquals(before, merchantSalesService.getMerchantSales(62L));
+
+        // 未超时的不处理（可能是进行中的下单）
+        assertEquals(0, shardOrderReconciler.reconcile(System.currentTimeMillis() - 60_000));
+        assertNotNull(orderMainService.getByOrderNo(orderNo));
+
+        assertEquals(1, shardOrderReconciler.reconcile(System.currentTimeMillis() + 1));
+        assertEquals(0, SHARDS.get(2).queryForObject(
+                "SELECT COUNT(*) FROM order_main WHERE order_no = ?", Integer.class, orderNo));
+        assertEquals(0, SHARDS.get(2).queryForObject(
+                "SELECT COUNT(*) FROM order_item WHERE order_no = ?", Integer.class, orderNo));
+        assertEquals(0, pendingCount());
+    }
+
+    private int pendingCount() {
+        return SHARDS.get(0).queryForObject("SELECT COUNT(*) FROM pending_shard_order", Integer.class);
+    }
+
+    private String checkout(long userId, long... productIds) {
+        return orderCheckoutService.checkout(order(userId, productIds));
+    }
+
+    private static OrderCheckoutService.CheckoutOrder order(long userId, long... productIds) {
+        List<OrderItem> items = new ArrayList<>();
+        for (long productId : productIds) {
+            OrderItem item = new OrderItem();
+            item.setProductId(productId);
+            item.setQuantity(1);
+            // 下单时以商品表为准覆盖；直接写订单项目的测试需要自带商家ID
+            item.setMerchantId(productId % 100 + 1);
+            items.add(item);
+        }
+        return new OrderCheckoutService.CheckoutOrder(userId, items);
+    }
+
+    private long userOnShard(int shard, long from) {
+        long userId = from;
+        while (orderShardRouter.shardOfUser(userId) != shard) {
+            userId++;
+        }
+        return userId;
+    }
+
+    private static List<String> orderNos(List<OrderMain> orders) {
+        return orders.stream().map(OrderMain::getOrderNo).collect(Collectors.toList());
+    }
+
+    private static List<Long> ids(List<OrderItem> items) {
+        return items.stream().map(OrderItem::getId).collect(Collectors.toList());
+    }
+
+    private static JdbcTemplate seed(String url, int shard) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(url, "sa", "");
+        ResourceDatabasePopulator populator = new ResourceDatabasePopulator(new ClassPathResource("bench/schema.sql"));
+        if (shard == 0) {
+            populator.addScript(new ClassPathResource("bench/data.sql"));
+        }
+        populator.setSqlScriptEncoding("UTF-8");
+        populator.execute(dataSource);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        // 相当于MySQL按分库错开自增ID：各库ID区间不重叠
+        jdbcTemplate.execute("ALTER TABLE order_item ALTER COLUMN id RESTART WITH " + (shard * 10_000_000L + 1_000_000L));
+        return jdbcTemplate;
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.shop.stock;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 内存库存账本（H2内存库 + bench测试数据，关闭后台定时落库，由测试手动调用flush）
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:stock_ledger;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.sql.init.mode=always",
+        "spring.sql.init.schema-locations=classpath:bench/schema.sql",
+        "spring.sql.init.data-locations=classpath:bench/data.sql",
+        "spring.sql.init.encoding=UTF-8",
+        "upload.path=target/test-uploads/products/",
+        "stock.ledger.enabled=true",
+        "stock.ledger.flush-interval-ms=3600000",
+        "stock.ledger.reconcile-interval-seconds=0"
+})
+class StockLedgerTest {
+
+    @Autowired
+    private StockLedger stockLedger;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void concurrentFlushesWriteEachDecreaseOnce() throws Exception {
+        long productId = 71;
+        int stockBefore = stock(productId);
+        assertEquals(StockLedger.DecreaseResult.SUCCESS, stockLedger.tryDecrease(productId, 5));
+
+        // 另一个事务锁住商品行，让两次落库都在写库时阻塞，放开后依次写入
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            Future<?> lockHolder = executor.submit(() -> new TransactionTemplate(transactionManager)
+                    .executeWithoutResult(status -> {
+                        jdbcTemplate.update("UPDATE product SET stock = stock WHERE product_id = ?", productId);
+                        locked.countDown();
+                        try {
+                            release.await();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }));
+            locked.await();
+            // 定时全量落库与单商品落库（商家修改库存前）同时进行
+            Future<?> flushAll = executor.submit(() -> stockLedger.flush());
+            Future<?> flushOne = executor.submit(() -> stockLedger.flush(productId));
+            Thread.sleep(300);
+            release.countDown();
+            lockHolder.get();
+            flushAll.get();
+            flushOne.get();
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(stockBefore - 5, stock(productId));
+        stockLedger.flush();
+        assertEquals(stockBefore - 5, stock(productId));
+    }
+
+    @Test
+    void rolledBackFlushKeepsThePendingDecrease() {
+        long productId = 72;
+        int stockBefore = stock(productId);
+        assertEquals(StockLedger.DecreaseResult.SUCCESS, stockLedger.tryDecrease(productId, 5));
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            stockLedger.flush(productId);
+            status.setRollbackOnly();
+        });
+        assertEquals(stockBefore, stock(productId));
+
+        stockLedger.flush();
+        assertEquals(stockBefore - 5, stock(productId));
+    }
+
+    private int stock(long productId) {
+        return jdbcTemplate.queryForObject("SELECT stock FROM product WHERE product_id = ?", Integer.class, productId);
+    }
+}
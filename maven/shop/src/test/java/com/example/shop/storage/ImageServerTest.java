@@ -0,0 +1,107 @@
+package com.example.shop.storage;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 商品图片输出（ETag/304、Range/206/416；第二次请求起小图走内存缓存）
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:image_server;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.sql.init.mode=always",
+        "spring.sql.init.schema-locations=classpath:bench/schema.sql",
+        "upload.path=target/test-uploads/image-server/"
+})
+@AutoConfigureMockMvc
+class ImageServerTest {
+
+    private static final byte[] CONTENT = "0123456789abcdefghij".getBytes(StandardCharsets.US_ASCII);
+
+    @Autowired
+    private ImageStore imageStore;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void fullResponseCarriesValidatorsAndHonoursIfNoneMatch() throws Exception {
+        String fileName = imageStore.store(new ByteArrayInputStream(CONTENT), ".png");
+        String etag = "\"" + fileName.substring(0, fileName.indexOf('.')) + "\"";
+
+        // 第一次从文件输出，之后从内存缓存输出，内容一致
+        for (int i = 0; i < 3; i++) {
+            MvcResult result = mockMvc.perform(get(url(fileName)))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string(HttpHeaders.ETAG, etag))
+                    .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "image/png"))
+                    .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+                    .andReturn();
+            assertArrayEquals(CONTENT, result.getResponse().getContentAsByteArray());
+        }
+
+        mockMvc.perform(get(url(fileName)).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get(url(fileName)).header(HttpHeaders.IF_NONE_MATCH, "\"other\""))
+                .andExpect(status().isOk());
+        mockMvc.perform(get(url("0000000000000000000000000000000000000000000000000000000000000000.png")))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void rangeRequests() throws Exception {
+        String fileName = imageStore.store(new ByteArrayInputStream(CONTENT), ".jpg");
+        int length = CONTENT.length;
+
+        // 206：多次请求覆盖文件输出和内存缓存输出
+        for (int i = 0; i < 3; i++) {
+            MvcResult partial = mockMvc.perform(get(url(fileName)).header(HttpHeaders.RANGE, "bytes=2-5"))
+                    .andExpect(status().isPartialContent())
+                    .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 2-5/" + length))
+                    .andReturn();
+            assertArrayEquals(Arrays.copyOfRange(CONTENT, 2, 6), partial.getResponse().getContentAsByteArray());
+        }
+        MvcResult suffix = mockMvc.perform(get(url(fileName)).header(HttpHeaders.RANGE, "bytes=-4"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 16-19/" + length))
+                .andReturn();
+        assertArrayEquals(Arrays.copyOfRange(CONTENT, 16, 20), suffix.getResponse().getContentAsByteArray());
+
+        // 416：起始位置超出图片长度
+        mockMvc.perform(get(url(fileName)).header(HttpHeaders.RANGE, "bytes=" + length + "-"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */" + length));
+
+        // 语法无效（末位置小于起始位置）和If-Range不匹配时忽略Range，返回整张图片
+        MvcResult invalid = mockMvc.perform(get(url(fileName)).header(HttpHeaders.RANGE, "bytes=5-3"))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertArrayEquals(CONTENT, invalid.getResponse().getContentAsByteArray());
+        MvcResult stale = mockMvc.perform(get(url(fileName))
+                        .header(HttpHeaders.RANGE, "bytes=2-5")
+                        .header(HttpHeaders.IF_RANGE, "\"other\""))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertArrayEquals(CONTENT, stale.getResponse().getContentAsByteArray());
+    }
+
+    private static String url(String fileName) {
+        return "/api/product/img/products/" + fileName;
+    }
+}
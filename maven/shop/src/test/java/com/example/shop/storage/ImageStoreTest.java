@@ -0,0 +1,107 @@
+package com.example.shop.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 图片存储：哈希命名、去重、分片目录、失败时清理临时文件
+ */
+class ImageStoreTest {
+
+    @TempDir
+    Path uploadDir;
+
+    private ImageStore imageStore;
+
+    @BeforeEach
+    void setUp() {
+        imageStore = new ImageStore();
+        ReflectionTestUtils.setField(imageStore, "uploadPath", uploadDir.toString());
+        imageStore.init();
+    }
+
+    @Test
+    void fileNameIsTheContentHashInShardedDirectories() throws Exception {
+        byte[] content = "商品图片".getBytes(StandardCharsets.UTF_8);
+        String hash = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+
+        String fileName = imageStore.store(new ByteArrayInputStream(content), ".JPG");
+
+        assertEquals(hash + ".jpg", fileName);
+        assertTrue(imageStore.isContentAddressed(fileName));
+        Path expected = uploadDir.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(fileName);
+        assertEquals(expected.toAbsolutePath().normalize(), imageStore.resolve(fileName));
+        assertArrayEquals(content, Files.readAllBytes(expected));
+    }
+
+    @Test
+    void identicalContentIsStoredOnce() throws Exception {
+        byte[] content = "同一张图片".getBytes(StandardCharsets.UTF_8);
+
+        String first = imageStore.store(new ByteArrayInputStream(content), ".png");
+        String second = imageStore.store(new ByteArrayInputStream(content), ".png");
+        String other = imageStore.store(new ByteArrayInputStream("另一张图片".getBytes(StandardCharsets.UTF_8)), ".png");
+
+        assertEquals(first, second);
+        assertNotEquals(first, other);
+        assertEquals(2, countFiles(uploadDir));
+        assertEquals(0, countFiles(uploadDir.resolve(".tmp")));
+    }
+
+    @Test
+    void failedUploadLeavesNoTempFile() throws Exception {
+        InputStream broken = new InputStream() {
+            private int remaining = 1024;
+
+            @Override
+            public int read() throws IOException {
+                if (remaining-- <= 0) {
+                    throw new IOException("连接中断");
+                }
+                return 'x';
+            }
+        };
+
+        assertThrows(IOException.class, () -> imageStore.store(broken, ".jpg"));
+        assertEquals(0, countFiles(uploadDir));
+    }
+
+    @Test
+    void resolveRejectsUnsafeOrMissingNames() throws Exception {
+        Files.writeString(uploadDir.resolve("1700000000000_1234.jpg"), "旧图片");
+
+        assertEquals(uploadDir.resolve("1700000000000_1234.jpg").toAbsolutePath().normalize(),
+                imageStore.resolve("1700000000000_1234.jpg"));
+        assertNull(imageStore.resolve("../secret.jpg"));
+        assertNull(imageStore.resolve("missing.jpg"));
+        assertNull(imageStore.resolve(null));
+    }
+
+    private static long countFiles(Path dir) throws IOException {
+        if (!Files.exists(dir)) {
+            return 0;
+        }
+        try (Stream<Path> files = Files.walk(dir)) {
+            return files.filter(Files::isRegularFile).count();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.shop.vo;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 游标编解码：往返一致、URL安全，格式不合法或被篡改的游标一律拒绝
+ */
+class PageCursorTest {
+
+    @Test
+    void roundTrips() {
+        assertEquals(Long.valueOf(1234567890123L), PageCursor.decodeLong(PageCursor.encode(1234567890123L)));
+        assertEquals(Long.valueOf(-1L), PageCursor.decodeLong(PageCursor.encode(-1L)));
+        assertEquals("2024010100000000000021", PageCursor.decodeString(PageCursor.encode("2024010100000000000021")));
+
+        String cursor = PageCursor.encode("订单?&=/+");
+        assertTrue(cursor.matches("[A-Za-z0-9_-]+"), cursor);
+        assertEquals("订单?&=/+", PageCursor.decodeString(cursor));
+    }
+
+    @Test
+    void emptyCursorMeansFirstPage() {
+        assertNull(PageCursor.decodeLong(null));
+        assertNull(PageCursor.decodeLong(""));
+        assertNull(PageCursor.decodeString("  "));
+    }
+
+    @Test
+    void rejectsMalformedOrTamperedCursors() {
+        // 不是Base64
+        assertThrows(IllegalArgumentException.class, () -> PageCursor.decodeLong("%%%"));
+        // 缺少版本前缀、版本不认识、排序键为空
+        assertThrows(IllegalArgumentException.class, () -> PageCursor.decodeLong(raw("100")));
+        assertThrows(IllegalArgumentException.class, () -> PageCursor.decodeLong(raw("v2:100")));
+        assertThrows(IllegalArgumentException.class, () -> PageCursor.decodeString(raw("v1:")));
+        // 数值游标被改成非数值
+        assertThrows(IllegalArgumentException.class, () -> PageCursor.decodeLong(raw("v1:100 OR 1=1")));
+        assertThrows(IllegalArgumentException.class, () -> PageCursor.decodeLong(PageCursor.encode("abc")));
+    }
+
+    private static String raw(String content) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.shop.vo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 不统计总数的分页结果：按pageSize + 1条查询判断是否有下一页
+ */
+class PageResultVOTest {
+
+    @Test
+    void probeRowMeansThereIsANextPage() {
+        PageResultVO<Integer> page = PageResultVO.ofProbe(2, 3, List.of(4, 5, 6, 7));
+
+        assertTrue(page.getHasNext());
+        assertEquals(List.of(4, 5, 6), page.getList());
+        assertEquals(2, page.getPageNo());
+        assertNull(page.getTotal());
+        assertNull(page.getPages());
+    }
+
+    @Test
+    void fullOrShortLastPageHasNoNextPage() {
+        // 最后一页正好满页：没有多出的一条
+        PageResultVO<Integer> full = PageResultVO.ofProbe(3, 3, List.of(7, 8, 9));
+        assertFalse(full.getHasNext());
+        assertEquals(List.of(7, 8, 9), full.getList());
+
+        assertFalse(PageResultVO.ofProbe(4, 3, List.of(10)).getHasNext());
+        PageResultVO<Integer> beyond = PageResultVO.ofProbe(5, 3, List.of());
+        assertFalse(beyond.getHasNext());
+        assertTrue(beyond.getList().isEmpty());
+    }
+
+    @Test
+    void withListKeepsPagingInformation() {
+        PageResultVO<String> page = PageResultVO.ofProbe(1, 2, List.of(1, 2, 3)).withList(List.of("一", "二"));
+
+        assertTrue(page.getHasNext());
+        assertEquals(1, page.getPageNo());
+        assertEquals(List.of("一", "二"), page.getList());
+    }
+}
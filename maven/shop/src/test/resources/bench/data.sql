@@ -0,0 +1,25 @@
+-- 基准测试数据：100个商家、10000个商品、1000个用户，每个用户20条购物车记录、20个订单（每单3个订单项目）
+-- 商品库存足够大，扣库存基准测试期间不会耗尽
+INSERT INTO merchant (merchant_name, account, password)
+SELECT CONCAT('商家', r.n), CONCAT('merchant', r.n), 'bench' FROM SYSTEM_RANGE(1, 100) AS r(n);
+
+INSERT INTO user (username, account, password)
+SELECT CONCAT('用户', r.n), CONCAT('user', r.n), 'bench' FROM SYSTEM_RANGE(1, 1000) AS r(n);
+
+INSERT INTO product (product_name, product_desc, stock, product_pic, product_price, merchant_id, is_on_shelf)
+SELECT CONCAT('基准商品', r.n), CONCAT('基准商品描述', r.n), 1000000000, CONCAT('/uploads/products/bench', r.n, '.jpg'),
+       CAST(MOD(r.n, 500) + 9.90 AS DECIMAL(10, 2)), MOD(r.n, 100) + 1, 1
+FROM SYSTEM_RANGE(1, 10000) AS r(n);
+
+INSERT INTO cart (user_id, product_id, quantity)
+SELECT u.n, MOD(u.n * 37 + p.n * 101, 10000) + 1, MOD(p.n, 5) + 1
+FROM SYSTEM_RANGE(1, 1000) AS u(n), SYSTEM_RANGE(1, 20) AS p(n);
+
+INSERT INTO order_main (order_no, user_id)
+SELECT CONCAT('20240101000000000', LPAD(CAST(u.n * 20 + o.n AS VARCHAR), 5, '0')), u.n
+FROM SYSTEM_RANGE(1, 1000) AS u(n), SYSTEM_RANGE(1, 20) AS o(n);
+
+INSERT INTO order_item (order_no, product_id, quantity, merchant_id)
+SELECT m.order_no, p.product_id, 1, p.merchant_id
+FROM order_main m, SYSTEM_RANGE(1, 3) AS i(n), product p
+WHERE p.product_id = MOD(m.user_id * 7 + i.n * 131 + CAST(RIGHT(m.order_no, 5) AS INT), 10000) + 1;
@@ -0,0 +1,78 @@
+-- 基准测试用表结构（H2 MySQL兼容模式，字段与实体/Mapper一致）
+CREATE TABLE IF NOT EXISTS merchant (
+    merchant_id   BIGINT AUTO_INCREMENT PRIMARY KEY,
+    merchant_name VARCHAR(64)  NOT NULL,
+    account       VARCHAR(64)  NOT NULL UNIQUE,
+    password      VARCHAR(128) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS user (
+    user_id  BIGINT AUTO_INCREMENT PRIMARY KEY,
+    username VARCHAR(64)  NOT NULL,
+    account  VARCHAR(64)  NOT NULL UNIQUE,
+    password VARCHAR(128) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS product (
+    product_id    BIGINT AUTO_INCREMENT PRIMARY KEY,
+    product_name  VARCHAR(128)   NOT NULL,
+    product_desc  VARCHAR(512),
+    stock         INT            NOT NULL,
+    product_pic   VARCHAR(256),
+    product_price DECIMAL(10, 2) NOT NULL,
+    merchant_id   BIGINT         NOT NULL,
+    is_on_shelf   TINYINT        NOT NULL DEFAULT 1
+);
+CREATE INDEX IF NOT EXISTS idx_product_merchant ON product (merchant_id);
+
+CREATE TABLE IF NOT EXISTS cart (
+    user_id    BIGINT NOT NULL,
+    product_id BIGINT NOT NULL,
+    quantity   INT    NOT NULL,
+    PRIMARY KEY (user_id, product_id)
+);
+
+CREATE TABLE IF NOT EXISTS order_main (
+    order_no VARCHAR(32) PRIMARY KEY,
+    user_id  BIGINT NOT NULL
+);
+CREATE INDEX IF NOT EXISTS idx_order_main_user ON order_main (user_id, order_no);
+
+CREATE TABLE IF NOT EXISTS order_item (
+    id          BIGINT AUTO_INCREMENT PRIMARY KEY,
+    order_no    VARCHAR(32) NOT NULL,
+    product_id  BIGINT      NOT NULL,
+    quantity    INT         NOT NULL,
+    merchant_id BIGINT      NOT NULL,
+    unit_price  DECIMAL(10, 2)
+);
+CREATE INDEX IF NOT EXISTS idx_order_item_order ON order_item (order_no);
+CREATE INDEX IF NOT EXISTS idx_order_item_merchant ON order_item (merchant_id, id);
+
+CREATE TABLE IF NOT EXISTS merchant_sales (
+    merchant_id BIGINT         NOT NULL PRIMARY KEY,
+    units_sold  BIGINT         NOT NULL DEFAULT 0,
+    revenue     DECIMAL(16, 2) NOT NULL DEFAULT 0,
+    order_count BIGINT         NOT NULL DEFAULT 0
+);
+
+CREATE TABLE IF NOT EXISTS merchant_product_sales (
+    merchant_id BIGINT         NOT NULL,
+    product_id  BIGINT         NOT NULL,
+    units_sold  BIGINT         NOT NULL DEFAULT 0,
+    revenue     DECIMAL(16, 2) NOT NULL DEFAULT 0,
+    order_count BIGINT         NOT NULL DEFAULT 0,
+    PRIMARY KEY (merchant_id, product_id)
+);
+
+CREATE TABLE IF NOT EXISTS merchant_sales_lock (
+    stripe INT NOT NULL PRIMARY KEY
+);
+
+CREATE TABLE IF NOT EXISTS pending_shard_order (
+    order_no   VARCHAR(32) NOT NULL PRIMARY KEY,
+    shard      INT         NOT NULL,
+    user_id    BIGINT      NOT NULL,
+    created_at BIGINT      NOT NULL
+);
+CREATE INDEX IF NOT EXISTS idx_pending_shard_order_created ON pending_shard_order (created_at);